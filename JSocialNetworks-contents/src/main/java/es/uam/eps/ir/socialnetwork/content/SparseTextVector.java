@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.content;
+
+import java.util.Arrays;
+
+/**
+ * Compact representation of a text vector. Terms are identified by integers (see {@link TermDictionary}),
+ * and the non-zero weights are stored in two parallel arrays, sorted by term identifier.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class SparseTextVector 
+{
+    /**
+     * The identifiers of the terms (sorted).
+     */
+    private final int[] terms;
+    /**
+     * The weights of the terms.
+     */
+    private final double[] weights;
+    /**
+     * The module of the vector.
+     */
+    private final double module;
+    
+    /**
+     * Constructor.
+     * @param terms The identifiers of the terms (without repetitions).
+     * @param weights The weights of the terms.
+     * @param module The module of the vector.
+     */
+    public SparseTextVector(int[] terms, double[] weights, double module)
+    {
+        this.terms = terms.clone();
+        this.weights = weights.clone();
+        this.module = module;
+        
+        it.unimi.dsi.fastutil.Arrays.quickSort(0, this.terms.length, (i, j) -> Integer.compare(this.terms[i], this.terms[j]), (i, j) -> 
+        {
+            int auxTerm = this.terms[i];
+            this.terms[i] = this.terms[j];
+            this.terms[j] = auxTerm;
+            double auxWeight = this.weights[i];
+            this.weights[i] = this.weights[j];
+            this.weights[j] = auxWeight;
+        });
+    }
+    
+    /**
+     * Constructor.
+     * @param terms The identifiers of the terms (without repetitions).
+     * @param weights The weights of the terms.
+     */
+    public SparseTextVector(int[] terms, double[] weights)
+    {
+        this(terms, weights, Math.sqrt(Arrays.stream(weights).map(v -> v*v).sum()));
+    }
+    
+    /**
+     * Constructor. Obtains the compact representation of a text vector. The terms of 
+     * the vector which are not in the dictionary are added to it.
+     * @param vector The text vector.
+     * @param dictionary The term dictionary.
+     */
+    public SparseTextVector(TextVector vector, TermDictionary dictionary)
+    {
+        this(vector.getVector().mapToInt(t -> dictionary.addTerm(t.v1())).toArray(), 
+             vector.getVector().mapToDouble(t -> t.v2()).toArray(), 
+             vector.getModule());
+    }
+    
+    /**
+     * Obtains the number of terms with a value in the vector.
+     * @return the number of terms.
+     */
+    public int size()
+    {
+        return this.terms.length;
+    }
+    
+    /**
+     * Obtains the identifier of the term at a given position of the vector.
+     * @param pos the position.
+     * @return the identifier of the term.
+     */
+    public int getTerm(int pos)
+    {
+        return this.terms[pos];
+    }
+    
+    /**
+     * Obtains the weight of the term at a given position of the vector.
+     * @param pos the position.
+     * @return the weight of the term.
+     */
+    public double getWeightAt(int pos)
+    {
+        return this.weights[pos];
+    }
+    
+    /**
+     * Obtains the weight for an individual term if the vector contains it, 0.0 if not.
+     * @param term The identifier of the term.
+     * @return the weight for the term.
+     */
+    public double getWeight(int term)
+    {
+        int pos = Arrays.binarySearch(this.terms, term);
+        return pos >= 0 ? this.weights[pos] : 0.0;
+    }
+    
+    /**
+     * Obtains the module of the vector.
+     * @return the module of the vector.
+     */
+    public double getModule()
+    {
+        return this.module;
+    }
+    
+    /**
+     * Computes the scalar product of two vectors, by merging their term lists.
+     * @param vector the other vector.
+     * @return the scalar product.
+     */
+    public double scalarProduct(SparseTextVector vector)
+    {
+        if(this.getModule() == 0 || vector.getModule() == 0)
+        {
+            return 0.0;
+        }
+        
+        double prod = 0.0;
+        int i = 0;
+        int j = 0;
+        while(i < this.terms.length && j < vector.terms.length)
+        {
+            if(this.terms[i] < vector.terms[j])
+            {
+                ++i;
+            }
+            else if(this.terms[i] > vector.terms[j])
+            {
+                ++j;
+            }
+            else
+            {
+                prod += this.weights[i]*vector.weights[j];
+                ++i;
+                ++j;
+            }
+        }
+        return prod;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.content;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dictionary which assigns consecutive integer identifiers to terms.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class TermDictionary 
+{
+    /**
+     * Identifiers of the terms.
+     */
+    private final Object2IntMap<String> ids;
+    /**
+     * Terms, indexed by identifier.
+     */
+    private final List<String> terms;
+    
+    /**
+     * Constructor. Builds an empty dictionary.
+     */
+    public TermDictionary()
+    {
+        this.ids = new Object2IntOpenHashMap<>();
+        this.ids.defaultReturnValue(-1);
+        this.terms = new ArrayList<>();
+    }
+    
+    /**
+     * Adds a term to the dictionary, if it was not previously added.
+     * @param term the term.
+     * @return the identifier of the term.
+     */
+    public int addTerm(String term)
+    {
+        int id = this.ids.getInt(term);
+        if(id == -1)
+        {
+            id = this.terms.size();
+            this.ids.put(term, id);
+            this.terms.add(term);
+        }
+        return id;
+    }
+    
+    /**
+     * Obtains the identifier of a term.
+     * @param term the term.
+     * @return the identifier of the term if it is in the dictionary, -1 if not.
+     */
+    public int getId(String term)
+    {
+        return this.ids.getInt(term);
+    }
+    
+    /**
+     * Obtains the term with a given identifier.
+     * @param id the identifier.
+     * @return the term.
+     */
+    public String getTerm(int id)
+    {
+        return this.terms.get(id);
+    }
+    
+    /**
+     * Obtains the number of terms in the dictionary.
+     * @return the number of terms.
+     */
+    public int numTerms()
+    {
+        return this.terms.size();
+    }
+}
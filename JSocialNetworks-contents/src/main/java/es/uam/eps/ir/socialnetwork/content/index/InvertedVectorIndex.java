@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.content.index;
+
+import es.uam.eps.ir.socialnetwork.content.SparseTextVector;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+
+/**
+ * Inverted index over a set of sparse vectors (for instance, the centroids of the users
+ * in a network). For each term, it stores the identifiers of the vectors containing that term
+ * and the corresponding weights. It allows computing the scalar products / cosine similarities
+ * between a vector and the indexed ones by only visiting the vectors which share some term with it.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class InvertedVectorIndex 
+{
+    /**
+     * The indexed vectors.
+     */
+    private final SparseTextVector[] vectors;
+    /**
+     * For each term, the identifiers of the vectors containing it.
+     */
+    private final int[][] postings;
+    /**
+     * For each term, the weights of the term in the vectors containing it (aligned with the postings).
+     */
+    private final double[][] weights;
+    
+    /**
+     * Constructor.
+     * @param vectors the vectors to index. The identifier of each vector is its position in the array.
+     * Null positions are ignored.
+     */
+    public InvertedVectorIndex(SparseTextVector[] vectors)
+    {
+        this.vectors = vectors;
+        
+        int numTerms = 0;
+        for(SparseTextVector vector : vectors)
+        {
+            if(vector != null && vector.size() > 0)
+            {
+                numTerms = Math.max(numTerms, vector.getTerm(vector.size() - 1) + 1);
+            }
+        }
+        
+        int[] counts = new int[numTerms];
+        for(SparseTextVector vector : vectors)
+        {
+            if(vector != null)
+            {
+                for(int i = 0; i < vector.size(); ++i)
+                {
+                    counts[vector.getTerm(i)]++;
+                }
+            }
+        }
+        
+        this.postings = new int[numTerms][];
+        this.weights = new double[numTerms][];
+        for(int term = 0; term < numTerms; ++term)
+        {
+            this.postings[term] = new int[counts[term]];
+            this.weights[term] = new double[counts[term]];
+            counts[term] = 0;
+        }
+        
+        for(int id = 0; id < vectors.length; ++id)
+        {
+            SparseTextVector vector = vectors[id];
+            if(vector != null)
+            {
+                for(int i = 0; i < vector.size(); ++i)
+                {
+                    int term = vector.getTerm(i);
+                    this.postings[term][counts[term]] = id;
+                    this.weights[term][counts[term]] = vector.getWeightAt(i);
+                    counts[term]++;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Obtains an indexed vector.
+     * @param id the identifier of the vector.
+     * @return the vector, null if it does not exist.
+     */
+    public SparseTextVector getVector(int id)
+    {
+        return (id >= 0 && id < this.vectors.length) ? this.vectors[id] : null;
+    }
+    
+    /**
+     * Computes the scalar products between a vector and the indexed vectors. Only the
+     * vectors sharing, at least, one term with the query are visited.
+     * @param query the query vector.
+     * @return a map containing the scalar products for the vectors sharing terms with the query.
+     */
+    public Int2DoubleMap scalarProducts(SparseTextVector query)
+    {
+        Int2DoubleOpenHashMap products = new Int2DoubleOpenHashMap();
+        products.defaultReturnValue(0.0);
+        
+        for(int i = 0; i < query.size(); ++i)
+        {
+            int term = query.getTerm(i);
+            if(term >= this.postings.length)
+            {
+                continue;
+            }
+            
+            double qWeight = query.getWeightAt(i);
+            int[] ids = this.postings[term];
+            double[] ws = this.weights[term];
+            for(int j = 0; j < ids.length; ++j)
+            {
+                products.addTo(ids[j], qWeight*ws[j]);
+            }
+        }
+        
+        return products;
+    }
+    
+    /**
+     * Computes the cosine similarities between a vector and the indexed vectors. Only the
+     * vectors sharing, at least, one term with the query are visited (the similarity with
+     * the rest of vectors is equal to zero).
+     * @param query the query vector.
+     * @return a map containing the cosine similarities for the vectors sharing terms with the query.
+     */
+    public Int2DoubleMap cosine(SparseTextVector query)
+    {
+        Int2DoubleMap sims = new Int2DoubleOpenHashMap();
+        sims.defaultReturnValue(0.0);
+        if(query.getModule() == 0.0)
+        {
+            return sims;
+        }
+        
+        Int2DoubleMap products = this.scalarProducts(query);
+        for(Int2DoubleMap.Entry entry : products.int2DoubleEntrySet())
+        {
+            int id = entry.getIntKey();
+            double module = this.vectors[id].getModule();
+            sims.put(id, module == 0.0 ? 0.0 : entry.getDoubleValue()/(query.getModule()*module));
+        }
+        
+        return sims;
+    }
+}
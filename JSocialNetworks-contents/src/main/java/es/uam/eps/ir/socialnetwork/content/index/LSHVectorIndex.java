@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.content.index;
+
+import es.uam.eps.ir.socialnetwork.content.SparseTextVector;
+import es.uam.eps.ir.socialnetwork.content.TermDictionary;
+import es.uam.eps.ir.socialnetwork.content.TextVector;
+import es.uam.eps.ir.socialnetwork.utils.datatypes.Tuple2oo;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Approximate nearest neighbour index for the cosine similarity, based on random hyperplane
+ * locality sensitive hashing. Each vector is hashed into several tables: in each table, the key of
+ * the vector is a signature of several bits, each of them indicating on which side of a random hyperplane
+ * the vector lies. Vectors with a high cosine similarity are likely to share the signature in, at least,
+ * one of the tables, so the candidate neighbours of a vector are those which share some bucket with it.
+ *
+ * Since the sign of the projection does not depend on the length of the vector, indexing the vectors or
+ * their L2-normalized versions is equivalent. The random hyperplanes are not stored: their components
+ * (+1 or -1, as in sparse random projections) are obtained by hashing the random seed, the table, the
+ * bit and the term identifier, so the index only stores the signatures of the vectors.
+ *
+ * Recall and latency are controlled by the number of tables (more tables, more candidates), the number of
+ * bits of each signature (more bits, smaller buckets) and by probing the buckets whose key differs in one
+ * bit from the key of the query (multi-probe).
+ *
+ * The index can keep the dictionary which maps the terms of the indexed vectors to their identifiers. In
+ * that case, the dictionary is stored with the signatures, so the index can be queried with text vectors
+ * after reading it from disk.
+ *
+ * Charikar, M. Similarity estimation techniques from rounding algorithms. STOC 2002.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class LSHVectorIndex 
+{
+    /**
+     * Number of hash tables.
+     */
+    private final int numTables;
+    /**
+     * Number of bits of the signatures.
+     */
+    private final int numBits;
+    /**
+     * Random seed for generating the hyperplanes.
+     */
+    private final long seed;
+    /**
+     * The signatures of the indexed vectors (one for each table). Null for the identifiers without vector.
+     */
+    private final int[][] signatures;
+    /**
+     * The buckets of each table.
+     */
+    private final Int2ObjectMap<int[]>[] buckets;
+    /**
+     * Dictionary of the terms of the indexed vectors (null if it is not available).
+     */
+    private final TermDictionary dictionary;
+    
+    /**
+     * Constructor. Builds the index.
+     * @param vectors the vectors to index. The identifier of each vector is its position in the array.
+     * Null positions are ignored.
+     * @param numTables the number of hash tables.
+     * @param numBits the number of bits of the signatures (between 1 and 31).
+     * @param seed random seed for generating the hyperplanes.
+     * @throws IllegalArgumentException if the number of bits is not between 1 and 31.
+     */
+    public LSHVectorIndex(SparseTextVector[] vectors, int numTables, int numBits, long seed)
+    {
+        this(vectors, null, numTables, numBits, seed);
+    }
+    
+    /**
+     * Constructor. Builds the index, and keeps the dictionary of the terms of the vectors.
+     * @param vectors the vectors to index. The identifier of each vector is its position in the array.
+     * Null positions are ignored.
+     * @param dictionary the dictionary used for obtaining the term identifiers of the vectors (null if not available).
+     * @param numTables the number of hash tables.
+     * @param numBits the number of bits of the signatures (between 1 and 31).
+     * @param seed random seed for generating the hyperplanes.
+     * @throws IllegalArgumentException if the number of bits is not between 1 and 31.
+     */
+    public LSHVectorIndex(SparseTextVector[] vectors, TermDictionary dictionary, int numTables, int numBits, long seed)
+    {
+        if(numBits < 1 || numBits > 31)
+        {
+            throw new IllegalArgumentException("The number of bits of the signatures must be between 1 and 31");
+        }
+        
+        this.numTables = numTables;
+        this.numBits = numBits;
+        this.seed = seed;
+        this.dictionary = dictionary;
+        this.signatures = new int[vectors.length][];
+        for(int id = 0; id < vectors.length; ++id)
+        {
+            if(vectors[id] != null)
+            {
+                this.signatures[id] = this.signatures(vectors[id]);
+            }
+        }
+        this.buckets = this.buildBuckets();
+    }
+    
+    /**
+     * Constructor. Builds the index from previously computed signatures.
+     * @param signatures the signatures of the vectors.
+     * @param dictionary the dictionary of the terms of the vectors (null if not available).
+     * @param numTables the number of hash tables.
+     * @param numBits the number of bits of the signatures.
+     * @param seed random seed for generating the hyperplanes.
+     */
+    private LSHVectorIndex(int[][] signatures, TermDictionary dictionary, int numTables, int numBits, long seed)
+    {
+        this.numTables = numTables;
+        this.numBits = numBits;
+        this.seed = seed;
+        this.signatures = signatures;
+        this.dictionary = dictionary;
+        this.buckets = this.buildBuckets();
+    }
+    
+    /**
+     * Obtains the candidate neighbours of an indexed vector, i.e. the vectors sharing some bucket with it.
+     * @param id the identifier of the vector.
+     * @param multiprobe true if the buckets whose key differs in one bit also have to be visited.
+     * @return the identifiers of the candidates (not including the vector itself).
+     */
+    public IntSet candidates(int id, boolean multiprobe)
+    {
+        if(id < 0 || id >= this.signatures.length || this.signatures[id] == null)
+        {
+            return new IntOpenHashSet();
+        }
+        
+        IntSet cands = this.candidates(this.signatures[id], multiprobe);
+        cands.remove(id);
+        return cands;
+    }
+    
+    /**
+     * Obtains the candidate neighbours of a vector, i.e. the indexed vectors sharing some bucket with it.
+     * The term identifiers of the vector must be the same as the ones of the indexed vectors.
+     * @param query the query vector.
+     * @param multiprobe true if the buckets whose key differs in one bit also have to be visited.
+     * @return the identifiers of the candidates.
+     */
+    public IntSet candidates(SparseTextVector query, boolean multiprobe)
+    {
+        return this.candidates(this.signatures(query), multiprobe);
+    }
+    
+    /**
+     * Obtains the candidate neighbours of a text vector, i.e. the indexed vectors sharing some bucket with it.
+     * The terms are mapped to their identifiers using the dictionary of the index. Terms which are not in the
+     * dictionary are assigned new identifiers (for this query only), so they are also considered when hashing
+     * the vector.
+     * @param query the query vector.
+     * @param multiprobe true if the buckets whose key differs in one bit also have to be visited.
+     * @return the identifiers of the candidates.
+     * @throws IllegalStateException if the index does not have a dictionary.
+     */
+    public IntSet candidates(TextVector query, boolean multiprobe)
+    {
+        if(this.dictionary == null)
+        {
+            throw new IllegalStateException("The index does not have a term dictionary");
+        }
+        
+        List<Tuple2oo<String, Double>> entries = query.getVector().collect(Collectors.toList());
+        int[] terms = new int[entries.size()];
+        double[] weights = new double[entries.size()];
+        int next = this.dictionary.numTerms();
+        for(int i = 0; i < entries.size(); ++i)
+        {
+            int id = this.dictionary.getId(entries.get(i).v1());
+            terms[i] = id >= 0 ? id : next++;
+            weights[i] = entries.get(i).v2();
+        }
+        
+        return this.candidates(new SparseTextVector(terms, weights, query.getModule()), multiprobe);
+    }
+    
+    /**
+     * Obtains the dictionary of the terms of the indexed vectors.
+     * @return the dictionary, null if it is not available.
+     */
+    public TermDictionary getDictionary()
+    {
+        return dictionary;
+    }
+    
+    /**
+     * Obtains the number of hash tables.
+     * @return the number of hash tables.
+     */
+    public int getNumTables()
+    {
+        return numTables;
+    }
+    
+    /**
+     * Obtains the number of bits of the signatures.
+     * @return the number of bits.
+     */
+    public int getNumBits()
+    {
+        return numBits;
+    }
+    
+    /**
+     * Writes the index into a file. If the index has a dictionary, it is also written.
+     * @param file the file.
+     * @throws IOException if something fails while writing.
+     */
+    public void write(String file) throws IOException
+    {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(numTables);
+            out.writeInt(numBits);
+            out.writeLong(seed);
+            out.writeInt(signatures.length);
+            for(int[] signature : signatures)
+            {
+                out.writeBoolean(signature != null);
+                if(signature != null)
+                {
+                    for(int key : signature)
+                    {
+                        out.writeInt(key);
+                    }
+                }
+            }
+            
+            out.writeBoolean(dictionary != null);
+            if(dictionary != null)
+            {
+                out.writeInt(dictionary.numTerms());
+                for(int id = 0; id < dictionary.numTerms(); ++id)
+                {
+                    out.writeUTF(dictionary.getTerm(id));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reads an index from a file.
+     * @param file the file.
+     * @return the index.
+     * @throws IOException if something fails while reading, or the file does not contain a valid index.
+     */
+    public static LSHVectorIndex read(String file) throws IOException
+    {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            int numTables = in.readInt();
+            int numBits = in.readInt();
+            if(numTables < 0 || numBits < 1 || numBits > 31)
+            {
+                throw new IOException("Invalid index file: " + file);
+            }
+            long seed = in.readLong();
+            int[][] signatures = new int[in.readInt()][];
+            for(int id = 0; id < signatures.length; ++id)
+            {
+                if(in.readBoolean())
+                {
+                    signatures[id] = new int[numTables];
+                    for(int t = 0; t < numTables; ++t)
+                    {
+                        signatures[id][t] = in.readInt();
+                    }
+                }
+            }
+            
+            TermDictionary dictionary = null;
+            if(in.readBoolean())
+            {
+                dictionary = new TermDictionary();
+                int numTerms = in.readInt();
+                for(int id = 0; id < numTerms; ++id)
+                {
+                    dictionary.addTerm(in.readUTF());
+                }
+            }
+            return new LSHVectorIndex(signatures, dictionary, numTables, numBits, seed);
+        }
+    }
+    
+    /**
+     * Obtains the vectors in the buckets of a signature.
+     * @param signature the signature (one key per table).
+     * @param multiprobe true if the buckets whose key differs in one bit also have to be visited.
+     * @return the identifiers of the vectors in the buckets.
+     */
+    private IntSet candidates(int[] signature, boolean multiprobe)
+    {
+        IntSet cands = new IntOpenHashSet();
+        for(int t = 0; t < numTables; ++t)
+        {
+            this.addBucket(cands, t, signature[t]);
+            if(multiprobe)
+            {
+                for(int b = 0; b < numBits; ++b)
+                {
+                    this.addBucket(cands, t, signature[t] ^ (1 << b));
+                }
+            }
+        }
+        return cands;
+    }
+    
+    /**
+     * Adds the contents of a bucket to a set.
+     * @param cands the set.
+     * @param table the hash table.
+     * @param key the key of the bucket.
+     */
+    private void addBucket(IntSet cands, int table, int key)
+    {
+        int[] bucket = this.buckets[table].get(key);
+        if(bucket != null)
+        {
+            for(int id : bucket)
+            {
+                cands.add(id);
+            }
+        }
+    }
+    
+    /**
+     * Groups the indexed vectors by signature.
+     * @return the buckets of each table.
+     */
+    @SuppressWarnings("unchecked")
+    private Int2ObjectMap<int[]>[] buildBuckets()
+    {
+        Int2ObjectMap<int[]>[] tables = new Int2ObjectMap[numTables];
+        for(int t = 0; t < numTables; ++t)
+        {
+            Int2ObjectOpenHashMap<IntArrayList> lists = new Int2ObjectOpenHashMap<>();
+            for(int id = 0; id < signatures.length; ++id)
+            {
+                if(signatures[id] != null)
+                {
+                    IntArrayList list = lists.get(signatures[id][t]);
+                    if(list == null)
+                    {
+                        list = new IntArrayList();
+                        lists.put(signatures[id][t], list);
+                    }
+                    list.add(id);
+                }
+            }
+            
+            Int2ObjectOpenHashMap<int[]> table = new Int2ObjectOpenHashMap<>(lists.size());
+            lists.int2ObjectEntrySet().forEach(entry -> table.put(entry.getIntKey(), entry.getValue().toIntArray()));
+            tables[t] = table;
+        }
+        return tables;
+    }
+    
+    /**
+     * Computes the signatures of a vector.
+     * @param vector the vector.
+     * @return the signatures (one per table).
+     */
+    private int[] signatures(SparseTextVector vector)
+    {
+        int[] signature = new int[numTables];
+        for(int t = 0; t < numTables; ++t)
+        {
+            int key = 0;
+            for(int b = 0; b < numBits; ++b)
+            {
+                double proj = 0.0;
+                for(int i = 0; i < vector.size(); ++i)
+                {
+                    proj += this.hyperplane(t, b, vector.getTerm(i)) ? vector.getWeightAt(i) : -vector.getWeightAt(i);
+                }
+                
+                if(proj >= 0.0)
+                {
+                    key |= (1 << b);
+                }
+            }
+            signature[t] = key;
+        }
+        return signature;
+    }
+    
+    /**
+     * Obtains the sign of a component of a random hyperplane.
+     * @param table the hash table.
+     * @param bit the bit of the signature.
+     * @param term the term identifier.
+     * @return true if the component is positive, false if it is negative.
+     */
+    private boolean hyperplane(int table, int bit, int term)
+    {
+        // SplitMix64 finalizer over the seed and the coordinates of the component.
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) table * numBits + bit) * 0x100000001L + term + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return z >= 0;
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Autnoma
  * de Madrid, http://ir.ii.uam.es
  * 
  *  This Source Code Form is subject to the terms of the Mozilla Public
@@ -12,24 +12,33 @@ import es.uam.eps.ir.socialnetwork.content.parsing.TextParser;
 import es.uam.eps.ir.socialnetwork.content.index.weighting.WeightingScheme;
 import es.uam.eps.ir.socialnetwork.content.Content;
 import es.uam.eps.ir.socialnetwork.content.ContentVector;
+import es.uam.eps.ir.socialnetwork.content.SparseTextVector;
 import es.uam.eps.ir.socialnetwork.content.TermData;
+import es.uam.eps.ir.socialnetwork.content.TermDictionary;
 import es.uam.eps.ir.socialnetwork.content.index.exceptions.WrongModeException;
-import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
-import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
@@ -44,9 +53,11 @@ import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiFields;
 import org.apache.lucene.index.PostingsEnum;
-import org.apache.lucene.index.Term;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.BooleanClause;
@@ -57,10 +68,19 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 
 /**
  * Lucene wrapper for a content index.
+ *
+ * When the index is opened in read mode, a single searcher is shared between all the read operations,
+ * and the collection statistics (document frequencies and document lengths) are cached in arrays, indexed
+ * by the ordinal of the term (its position in the sorted term dictionary) and the Lucene document identifier.
+ * Sets of documents are read segment by segment, and the different segments are processed in parallel.
+ * Apart from the string-based vectors of the {@link ContentIndex} interface, the contents can be obtained
+ * as {@link SparseTextVector} objects, whose coordinates are the term ordinals (see {@link #getDictionary()}).
+ *
  * @author Javier Sanz-Cruzado Puig
  */
 public class LuceneContentIndex extends ContentIndex<Long,Long>
@@ -69,6 +89,10 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
      * Reads data from the Lucene index.
      */
     private IndexReader reader;
+    /**
+     * Searcher over the Lucene index (shared by all the read operations).
+     */
+    private IndexSearcher searcher;
     /**
      * Writes data into the Lucene index.
      */
@@ -83,9 +107,37 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
      */
     private double averageDocLength = 0.0;
     /**
-     * Document length
+     * Number of documents in the index.
+     */
+    private int numDocs = 0;
+    /**
+     * Document length, indexed by Lucene document identifier.
+     */
+    private double[] docLength;
+    /**
+     * Dictionary of the terms in the index. Identifiers are the positions of the terms in the sorted term dictionary.
+     */
+    private TermDictionary dictionary;
+    /**
+     * Ordinals of the terms, indexed by their binary representation.
+     */
+    private Object2IntOpenHashMap<BytesRef> termOrds;
+    /**
+     * Document frequency of the terms, indexed by term ordinal.
+     */
+    private int[] docFreqs;
+    /**
+     * Content identifiers, indexed by Lucene document identifier (null until they are first needed).
      */
-    private final Int2DoubleMap docLength;
+    private long[] contentIds;
+    /**
+     * User identifiers, indexed by Lucene document identifier (null until they are first needed).
+     */
+    private long[] userIds;
+    /**
+     * Timestamps, indexed by Lucene document identifier (null until they are first needed).
+     */
+    private long[] timestamps;
     
     /**
      * Name of the index field which stores the identifier of the content.
@@ -103,6 +155,10 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
      * Name of the index field which stores the term vectors.
      */
     private final static String CONTENT = "content";
+    /**
+     * Stored fields which are read from each document.
+     */
+    private final static Set<String> STOREDFIELDS = new HashSet<>(Arrays.asList(CONTENTID, USERID, TIMESTAMP));
     
     
     
@@ -124,9 +180,6 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
             CharArraySet stopwordSet = new CharArraySet(this.getStopwords(), true);
             analyzer = new StandardAnalyzer(stopwordSet);
         }
-       
-        docLength = new Int2DoubleOpenHashMap();
-        docLength.defaultReturnValue(0.0);
     }
     
     /**
@@ -148,10 +201,6 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
             CharArraySet stopwordSet = new CharArraySet(this.getStopwords(), true);
             analyzer = new StandardAnalyzer(stopwordSet);
         }
-        
-        docLength = new Int2DoubleOpenHashMap();
-        docLength.defaultReturnValue(0.0);
-
     }
     
     /**
@@ -173,10 +222,6 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
             CharArraySet stopwordSet = new CharArraySet(this.getStopwords(), true);
             analyzer = new StandardAnalyzer(stopwordSet);
         }
-        
-        docLength = new Int2DoubleOpenHashMap();
-        docLength.defaultReturnValue(0.0);
-
     }
 
     @Override
@@ -196,8 +241,10 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
                 Path pathLocation = Paths.get(this.getRoute());
                 Directory dir = SimpleFSDirectory.open(pathLocation);
                 this.reader = DirectoryReader.open(dir);
+                this.searcher = new IndexSearcher(this.reader);
+                this.numDocs = this.reader.numDocs();
 
-                // Read the document length, and then, store the value of the average.
+                // Read the collection statistics, and then, store the value of the average document length.
                 this.averageDocLength = this.averageDocLength();
             }
 
@@ -219,16 +266,12 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
         
         try
         {
-            IndexSearcher isearcher = new IndexSearcher(this.reader);
             Query contentQuery = LongPoint.newExactQuery(CONTENTID, contentId);
-
-            ScoreDoc docs[] = isearcher.search(contentQuery, 1).scoreDocs;
-            if(docs.length <= 0)
+            List<StoredDocument> docs = this.readDocuments(contentQuery, 1, model);
+            if(docs.isEmpty())
                 return null;
             
-            ScoreDoc doc = docs[0];
-            return readDocument(doc, model);
-            
+            return this.toContentVector(docs.get(0));
         }
         catch(IOException ioe)
         {
@@ -237,57 +280,151 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
     }
     
     /**
-     * Reads a document (content) from the index.
-     * @param sd the document in the Lucene index.
+     * Reads the documents (contents) matching a query. Documents are grouped by index segment,
+     * and the segments are read in parallel.
+     * @param query the query.
+     * @param maxDocs the maximum number of documents to read.
+     * @param model Model for computing the value of each coordinate.
+     * @return the documents, in the order of the search results.
+     * @throws IOException if something fails while reading the index.
+     */
+    private List<StoredDocument> readDocuments(Query query, int maxDocs, WeightingScheme model) throws IOException
+    {
+        ScoreDoc[] docs = this.searcher.search(query, Math.max(maxDocs, 1)).scoreDocs;
+
+        // Assign the documents to the segments which contain them.
+        List<LeafReaderContext> leaves = this.reader.leaves();
+        List<IntList> positions = new ArrayList<>();
+        leaves.forEach(leaf -> positions.add(new IntArrayList()));
+        for(int i = 0; i < docs.length; ++i)
+        {
+            positions.get(ReaderUtil.subIndex(docs[i].doc, leaves)).add(i);
+        }
+
+        StoredDocument[] read = new StoredDocument[docs.length];
+        try
+        {
+            IntStream.range(0, leaves.size()).parallel().filter(l -> !positions.get(l).isEmpty()).forEach(l ->
+            {
+                LeafReaderContext leaf = leaves.get(l);
+                for(int i : positions.get(l))
+                {
+                    read[i] = this.readDocument(leaf.reader(), leaf.docBase, docs[i].doc - leaf.docBase, model);
+                }
+            });
+        }
+        catch(UncheckedIOException ex)
+        {
+            throw ex.getCause();
+        }
+
+        return Arrays.asList(read);
+    }
+
+    /**
+     * Reads a document (content) from a segment of the index.
+     * @param leaf the segment reader.
+     * @param docBase the identifier of the first document of the segment in the whole index.
+     * @param doc the identifier of the document in the segment.
      * @param model Model for computing the value of each coordinate.
-     * @return a map relating the terms of the content with their TF-IDF score.
+     * @return the document, with the weighted vector of its terms.
+     * @throws UncheckedIOException if something fails while reading the document.
      */
-    private ContentVector<Long> readDocument(ScoreDoc sd, WeightingScheme model)
+    private StoredDocument readDocument(LeafReader leaf, int docBase, int doc, WeightingScheme model)
     {
         try
         {
-            // Initialize the vector
-            Object2DoubleMap<String> content = new Object2DoubleOpenHashMap<>();
-            content.defaultReturnValue(0.0);
+            Document document = leaf.document(doc, STOREDFIELDS);
+            long contentId = document.getField(CONTENTID).numericValue().longValue();
+            long userId = document.getField(USERID).numericValue().longValue();
             
-            // Obtain the content identifier.
-            long contentId = this.reader.document(sd.doc).getField(CONTENTID).numericValue().longValue();
+            IntList terms = new IntArrayList();
+            DoubleArrayList weights = new DoubleArrayList();
 
-            Terms vector = this.reader.getTermVector(sd.doc, CONTENT);
-            // Read the term vector
+            // Read the term vector: terms are enumerated in the same order as in the
+            // term dictionary, so the ordinals are already sorted.
+            Terms vector = leaf.getTermVector(doc, CONTENT);
             if(vector != null)
             {
-                double docL = this.docLength.get(sd.doc);
-
+                double docL = this.docLength[docBase + doc];
                 TermsEnum termsEnum = vector.iterator();
 
                 BytesRef text;
                 while((text = termsEnum.next()) != null)
                 {
-                    String term = text.utf8ToString();
-                    termsEnum.seekExact(text);
-                    
-                    //PostingsEnum postEnum = termsEnum.postings(null);
-                    //postEnum.advance(sd.doc);                  
-                    //int freq = (int) postEnum.freq();
-                    
-                    long freq = termsEnum.totalTermFreq();
-                    Term t = new Term(CONTENT, text);
-                    double df = reader.docFreq(t) + 0.0;
-
-                    content.put(term, model.computeWeight(freq + 0.0, df, docL, this.averageDocLength, reader.numDocs()));
-                
+                    int ord = this.termOrds.getInt(text);
+                    if(ord >= 0)
+                    {
+                        double freq = termsEnum.totalTermFreq();
+                        terms.add(ord);
+                        weights.add(model.computeWeight(freq, this.docFreqs[ord], docL, this.averageDocLength, this.numDocs));
+                    }
                 }
             }
             
-            return new ContentVector<>(contentId, content);
+            return new StoredDocument(contentId, userId, new SparseTextVector(terms.toIntArray(), weights.toDoubleArray()));
         }
         catch(IOException ioe)
         {
-            return null;
+            throw new UncheckedIOException(ioe);
         }
     }
 
+    /**
+     * Transforms a document into a content vector.
+     * @param doc the document.
+     * @return the content vector.
+     */
+    private ContentVector<Long> toContentVector(StoredDocument doc)
+    {
+        Object2DoubleMap<String> content = new Object2DoubleOpenHashMap<>();
+        content.defaultReturnValue(0.0);
+
+        SparseTextVector vector = doc.vector;
+        for(int i = 0; i < vector.size(); ++i)
+        {
+            content.put(this.dictionary.getTerm(vector.getTerm(i)), vector.getWeightAt(i));
+        }
+
+        return new ContentVector<>(doc.contentId, content);
+    }
+
+    /**
+     * Builds a query for finding the contents of a user.
+     * @param userId the user.
+     * @return the query.
+     */
+    private Query userQuery(Long userId)
+    {
+        return LongPoint.newExactQuery(USERID, userId);
+    }
+
+    /**
+     * Builds a query for finding the contents of a user created in a date range.
+     * @param userId the user.
+     * @param minTimestamp the minimum timestamp.
+     * @param maxTimestamp the maximum timestamp.
+     * @return the query.
+     */
+    private Query userDateRangeQuery(Long userId, long minTimestamp, long maxTimestamp)
+    {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new BooleanClause(this.userQuery(userId), BooleanClause.Occur.MUST));
+        builder.add(new BooleanClause(this.dateRangeQuery(minTimestamp, maxTimestamp), BooleanClause.Occur.MUST));
+        return builder.build();
+    }
+
+    /**
+     * Builds a query for finding the contents created in a date range.
+     * @param minTimestamp the minimum timestamp.
+     * @param maxTimestamp the maximum timestamp.
+     * @return the query.
+     */
+    private Query dateRangeQuery(long minTimestamp, long maxTimestamp)
+    {
+        return LongPoint.newRangeQuery(TIMESTAMP, minTimestamp, maxTimestamp);
+    }
+
     @Override
     public Map<Long, ContentVector<Long>> readUser(Long userId, WeightingScheme model) throws WrongModeException 
     {
@@ -304,18 +441,10 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
                 return null;
             }
             
-            // Search by query and date
-            IndexSearcher isearcher = new IndexSearcher(this.reader);
-            Query userQuery = LongPoint.newExactQuery(USERID, userId);
-            
-           
             // Read the results (all the results)
-            ScoreDoc docs[] = isearcher.search(userQuery, reader.numDocs()).scoreDocs;
-            
-            for(ScoreDoc doc : docs)
+            for(StoredDocument doc : this.readDocuments(this.userQuery(userId), this.numDocs, model))
             {
-                ContentVector<Long> content = this.readDocument(doc, model);
-                contents.put(content.getId(), content);
+                contents.put(doc.contentId, this.toContentVector(doc));
             }
             
             return contents;
@@ -326,6 +455,37 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
         }
     }
 
+    /**
+     * Reads the contents of a user, represented as sparse vectors over the term ordinals
+     * of the index (see {@link #getDictionary()}).
+     * @param userId the user.
+     * @param model Model for computing the value of each coordinate.
+     * @return a map relating the content identifiers with their vectors, null if something fails.
+     * @throws WrongModeException if the index is not in read mode.
+     */
+    public Map<Long, SparseTextVector> readUserVectors(Long userId, WeightingScheme model) throws WrongModeException
+    {
+        if(!this.isReadModeSet())
+            throw new WrongModeException("Index is configured in " + this.getMode() + " mode, instead of " + ContentIndexMode.READ + " mode.");
+
+        Long2ObjectMap<SparseTextVector> contents = new Long2ObjectOpenHashMap<>();
+        contents.defaultReturnValue(null);
+
+        try
+        {
+            for(StoredDocument doc : this.readDocuments(this.userQuery(userId), this.numDocs, model))
+            {
+                contents.put(doc.contentId, doc.vector);
+            }
+
+            return contents;
+        }
+        catch(IOException ex)
+        {
+            return null;
+        }
+    }
+
     @Override
     public Map<Long, ContentVector<Long>> readUserDateRange(Long userId, long minTimestamp, long maxTimestamp, WeightingScheme model) throws WrongModeException 
     {
@@ -342,22 +502,10 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
                 return null;
             }
             
-            // Search by query and date
-            IndexSearcher isearcher = new IndexSearcher(this.reader);
-            Query userQuery = LongPoint.newExactQuery(USERID, userId);
-            Query dateQuery = LongPoint.newRangeQuery("date", minTimestamp, maxTimestamp);
-            
-            BooleanQuery.Builder builder = new BooleanQuery.Builder();
-            builder.add(new BooleanClause(userQuery, BooleanClause.Occur.MUST));
-            builder.add(new BooleanClause(dateQuery, BooleanClause.Occur.MUST));
-            
             // Read the results (all the results)
-            ScoreDoc docs[] = isearcher.search(builder.build(), reader.numDocs()).scoreDocs;
-            
-            for(ScoreDoc doc : docs)
+            for(StoredDocument doc : this.readDocuments(this.userDateRangeQuery(userId, minTimestamp, maxTimestamp), this.numDocs, model))
             {
-                ContentVector<Long> content = this.readDocument(doc, model);
-                contents.put(content.getId(), content);
+                contents.put(doc.contentId, this.toContentVector(doc));
             }
             
             return contents;
@@ -390,22 +538,14 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
                 return null;
             }
             
-            // Search by query and date
-            IndexSearcher isearcher = new IndexSearcher(this.reader);
-            Query dateQuery = LongPoint.newRangeQuery("date", minTimestamp, maxTimestamp);
-                        
             // Read the results (all the results)
-            ScoreDoc docs[] = isearcher.search(dateQuery, reader.numDocs()).scoreDocs;
-            
-            for(ScoreDoc doc : docs)
+            for(StoredDocument doc : this.readDocuments(this.dateRangeQuery(minTimestamp, maxTimestamp), this.numDocs, model))
             {
-                long userId = reader.document(doc.doc).getField(USERID).numericValue().longValue();
-                if(contents.containsKey(userId))
+                if(!contents.containsKey(doc.userId))
                 {
-                    contents.put(userId, new Long2ObjectOpenHashMap<>());
+                    contents.put(doc.userId, sup.get());
                 }
-                ContentVector<Long> content = this.readDocument(doc, model);
-                contents.get(userId).put(content.getId(), content);
+                contents.get(doc.userId).put(doc.contentId, this.toContentVector(doc));
             }
             
             return contents;
@@ -416,38 +556,90 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
         }
     }
 
+    /**
+     * Reads the contents created in a date range, represented as sparse vectors over the term ordinals
+     * of the index (see {@link #getDictionary()}).
+     * @param minTimestamp the minimum timestamp.
+     * @param maxTimestamp the maximum timestamp.
+     * @param model Model for computing the value of each coordinate.
+     * @return a map relating each user with the identifiers and vectors of their contents, null if something fails.
+     * @throws WrongModeException if the index is not in read mode.
+     */
+    public Map<Long, Map<Long, SparseTextVector>> readDateRangeVectors(long minTimestamp, long maxTimestamp, WeightingScheme model) throws WrongModeException
+    {
+        if(!this.isReadModeSet())
+            throw new WrongModeException("Index is configured in " + this.getMode() + " mode, instead of " + ContentIndexMode.READ + " mode.");
+
+        Long2ObjectMap<Map<Long,SparseTextVector>> contents = new Long2ObjectOpenHashMap<>();
+        try
+        {
+            for(StoredDocument doc : this.readDocuments(this.dateRangeQuery(minTimestamp, maxTimestamp), this.numDocs, model))
+            {
+                Map<Long, SparseTextVector> userContents = contents.get(doc.userId);
+                if(userContents == null)
+                {
+                    userContents = new Long2ObjectOpenHashMap<>();
+                    contents.put(doc.userId, userContents);
+                }
+                userContents.put(doc.contentId, doc.vector);
+            }
+
+            return contents;
+        }
+        catch(IOException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Obtains the dictionary of the index. The identifier of each term is the coordinate
+     * it occupies in the sparse vectors returned by the index.
+     * @return the dictionary if the index is in read mode, null otherwise.
+     */
+    public TermDictionary getDictionary()
+    {
+        return this.isReadModeSet() ? this.dictionary : null;
+    }
     
     @Override
     public double averageDocLength() 
     {
         try 
         {
-            this.docLength.clear();
-            
+            int maxDoc = this.reader.maxDoc();
+            int numDocsContent = this.reader.getDocCount(CONTENT);
             
-            Terms terms = MultiFields.getFields(reader).terms(CONTENT);
-            TermsEnum termsIt = terms.iterator();
-            int numDocs = this.reader.getDocCount(CONTENT);
-            
-            for(int i = 0; i < numDocs; ++i)
-            {
-                docLength.put(i, 0.0);
-            }
+            this.docLength = new double[maxDoc];
+            this.dictionary = new TermDictionary();
+            this.termOrds = new Object2IntOpenHashMap<>();
+            this.termOrds.defaultReturnValue(-1);
+            IntList dfs = new IntArrayList();
             
             double length = 0.0;
-            while(termsIt.next() != null)
+            Terms terms = MultiFields.getTerms(this.reader, CONTENT);
+            if(terms != null)
             {
-                termsIt.seekExact(termsIt.term());
-                PostingsEnum postings = termsIt.postings(null);
-                int doc;
-                while((doc = postings.nextDoc()) != NO_MORE_DOCS)
+                TermsEnum termsIt = terms.iterator();
+                PostingsEnum postings = null;
+                BytesRef text;
+                while((text = termsIt.next()) != null)
                 {
-                    double freq = postings.freq();
-                    docLength.put(doc, docLength.get(doc) + freq);
-                    length += freq / (numDocs + 0.0);
+                    int ord = this.dictionary.addTerm(text.utf8ToString());
+                    this.termOrds.put(BytesRef.deepCopyOf(text), ord);
+                    dfs.add(termsIt.docFreq());
+
+                    postings = termsIt.postings(postings, PostingsEnum.FREQS);
+                    int doc;
+                    while((doc = postings.nextDoc()) != NO_MORE_DOCS)
+                    {
+                        double freq = postings.freq();
+                        this.docLength[doc] += freq;
+                        length += freq / (numDocsContent + 0.0);
+                    }
                 }
-                
             }
+            this.docFreqs = dfs.toIntArray();
             
             return length;
             
@@ -458,6 +650,75 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
         }
     }
 
+    /**
+     * Reads the stored fields (content identifier, user identifier and timestamp) of all the
+     * documents in the index, if they have not been read before. The segments are read in parallel.
+     * @throws IOException if something fails while reading the index.
+     */
+    private synchronized void readStoredFields() throws IOException
+    {
+        if(this.contentIds != null)
+        {
+            return;
+        }
+
+        int maxDoc = this.reader.maxDoc();
+        long[] cIds = new long[maxDoc];
+        long[] uIds = new long[maxDoc];
+        long[] times = new long[maxDoc];
+
+        try
+        {
+            this.reader.leaves().parallelStream().forEach(leaf ->
+            {
+                LeafReader leafReader = leaf.reader();
+                Bits liveDocs = leafReader.getLiveDocs();
+                for(int doc = 0; doc < leafReader.maxDoc(); ++doc)
+                {
+                    if(liveDocs != null && !liveDocs.get(doc))
+                    {
+                        continue;
+                    }
+
+                    try
+                    {
+                        Document document = leafReader.document(doc, STOREDFIELDS);
+                        cIds[leaf.docBase + doc] = document.getField(CONTENTID).numericValue().longValue();
+                        uIds[leaf.docBase + doc] = document.getField(USERID).numericValue().longValue();
+                        times[leaf.docBase + doc] = document.getField(TIMESTAMP).numericValue().longValue();
+                    }
+                    catch(IOException ioe)
+                    {
+                        throw new UncheckedIOException(ioe);
+                    }
+                }
+            });
+        }
+        catch(UncheckedIOException ex)
+        {
+            throw ex.getCause();
+        }
+
+        this.userIds = uIds;
+        this.timestamps = times;
+        this.contentIds = cIds;
+    }
+
+    /**
+     * Frees the structures used for reading the index.
+     */
+    private void clearReadStructures()
+    {
+        this.searcher = null;
+        this.docLength = null;
+        this.dictionary = null;
+        this.termOrds = null;
+        this.docFreqs = null;
+        this.contentIds = null;
+        this.userIds = null;
+        this.timestamps = null;
+    }
+
     @Override
     public boolean setWriteMode() 
     {
@@ -466,6 +727,7 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
             if(this.getMode().equals(ContentIndexMode.READ))
             {
                 this.reader.close();
+                this.clearReadStructures();
             }
             
             if(!this.getMode().equals(ContentIndexMode.WRITE))
@@ -545,6 +807,7 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
             {
                 Logger.getLogger(LuceneContentIndex.class.getName()).log(Level.SEVERE, null, ex);
             }
+            this.clearReadStructures();
         }
         else if(this.isWriteModeSet())
         {
@@ -567,21 +830,7 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
         if(!this.isReadModeSet())
                 throw new WrongModeException("Index is configured in " + this.getMode() + " mode, instead of " + ContentIndexMode.READ + " mode.");
 
-        try 
-        {
-            List<String> terms = new ArrayList<>();
-            TermsEnum termEnum = MultiFields.getFields(reader).terms(CONTENT).iterator();
-            while(termEnum.next() != null)
-            {
-                terms.add(termEnum.term().utf8ToString());
-            }
-            
-            return terms.stream();
-        } 
-        catch (IOException ex) 
-        {
-            return Stream.empty();
-        }
+        return IntStream.range(0, this.dictionary.numTerms()).mapToObj(this.dictionary::getTerm);
     }
 
     @Override
@@ -592,25 +841,35 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
         
         try 
         {
-            TermsEnum terms = MultiFields.getFields(reader).terms(CONTENT).iterator();
-            terms.seekExact(new BytesRef(term));
-            PostingsEnum postings = terms.postings(null);
+            int ord = this.dictionary.getId(term);
+            Terms terms = MultiFields.getTerms(this.reader, CONTENT);
+            if(ord < 0 || terms == null)
+            {
+                return Stream.empty();
+            }
+
+            TermsEnum termsEnum = terms.iterator();
+            if(!termsEnum.seekExact(new BytesRef(term)))
+            {
+                return Stream.empty();
+            }
+            PostingsEnum postings = termsEnum.postings(null, PostingsEnum.FREQS);
+
+            // This method is usually called for every term in the index, so the stored
+            // fields are read only once, and kept in memory.
+            this.readStoredFields();
             
             List<TermData<Long,Long>> data = new ArrayList<>();
             
-            double df = this.reader.docFreq(new Term(CONTENT, term));
+            double df = this.docFreqs[ord];
             int doc;
             while((doc = postings.nextDoc()) != NO_MORE_DOCS)
             {
                 double tf = postings.freq();
-                double docL = this.docLength.get(doc);
-                double score = model.computeWeight(tf, df, docL, averageDocLength, reader.numDocs() + 0.0);
-                
-                long tweetId = this.reader.document(doc).getField(CONTENTID).numericValue().longValue();
-                long userId = this.reader.document(doc).getField(USERID).numericValue().longValue();
-                long timestamp = this.reader.document(doc).getField(TIMESTAMP).numericValue().longValue();
+                double docL = this.docLength[doc];
+                double score = model.computeWeight(tf, df, docL, averageDocLength, this.numDocs + 0.0);
                 
-                data.add(new TermData<>(userId, tweetId, timestamp, score));
+                data.add(new TermData<>(this.userIds[doc], this.contentIds[doc], this.timestamps[doc], score));
             }
             
             return data.stream();
@@ -621,4 +880,36 @@ public class LuceneContentIndex extends ContentIndex<Long,Long>
         }
         
     }
+
+    /**
+     * Document read from the index.
+     */
+    private static class StoredDocument
+    {
+        /**
+         * The content identifier.
+         */
+        private final long contentId;
+        /**
+         * The identifier of the creator of the content.
+         */
+        private final long userId;
+        /**
+         * The weighted vector of the content.
+         */
+        private final SparseTextVector vector;
+
+        /**
+         * Constructor.
+         * @param contentId the content identifier.
+         * @param userId the identifier of the creator of the content.
+         * @param vector the weighted vector of the content.
+         */
+        public StoredDocument(long contentId, long userId, SparseTextVector vector)
+        {
+            this.contentId = contentId;
+            this.userId = userId;
+            this.vector = vector;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+package es.uam.eps.ir.socialnetwork.content.index;
+
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.content.SparseTextVector;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.Random;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the sparse text vectors and the inverted vector index. Scalar products and
+ * cosine similarities are compared with the ones obtained over dense vectors.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class InvertedVectorIndexTest 
+{
+    /**
+     * Number of terms.
+     */
+    private static final int NUMTERMS = 50;
+    
+    @Test
+    public void scalarProductTest()
+    {
+        Random rng = new Random(0L);
+        double[][] dense = new double[100][];
+        SparseTextVector[] vectors = new SparseTextVector[dense.length];
+        for(int i = 0; i < dense.length; ++i)
+        {
+            dense[i] = this.randomDense(rng);
+            vectors[i] = this.toSparse(dense[i]);
+        }
+        
+        InvertedVectorIndex index = new InvertedVectorIndex(vectors);
+        for(int i = 0; i < dense.length; ++i)
+        {
+            Int2DoubleMap products = index.scalarProducts(vectors[i]);
+            for(int j = 0; j < dense.length; ++j)
+            {
+                double expected = this.dot(dense[i], dense[j]);
+                Assert.assertEquals(expected, vectors[i].scalarProduct(vectors[j]), 10e-8);
+                Assert.assertEquals(expected, products.get(j), 10e-8);
+            }
+        }
+    }
+    
+    @Test
+    public void cosineTest()
+    {
+        Random rng = new Random(1L);
+        double[][] dense = new double[100][];
+        SparseTextVector[] vectors = new SparseTextVector[dense.length];
+        for(int i = 0; i < dense.length; ++i)
+        {
+            dense[i] = this.randomDense(rng);
+            vectors[i] = this.toSparse(dense[i]);
+        }
+        
+        InvertedVectorIndex index = new InvertedVectorIndex(vectors);
+        for(int i = 0; i < dense.length; ++i)
+        {
+            Assert.assertEquals(Math.sqrt(this.dot(dense[i], dense[i])), vectors[i].getModule(), 10e-8);
+            Int2DoubleMap sims = index.cosine(vectors[i]);
+            for(int j = 0; j < dense.length; ++j)
+            {
+                double normI = Math.sqrt(this.dot(dense[i], dense[i]));
+                double normJ = Math.sqrt(this.dot(dense[j], dense[j]));
+                // Empty vectors have zero similarity with every other vector.
+                double expected = (normI == 0.0 || normJ == 0.0) ? 0.0 : this.dot(dense[i], dense[j])/(normI*normJ);
+                Assert.assertEquals(expected, sims.get(j), 10e-8);
+            }
+        }
+    }
+    
+    @Test
+    public void emptyVectorsTest()
+    {
+        SparseTextVector empty = new SparseTextVector(new int[0], new double[0]);
+        SparseTextVector vector = new SparseTextVector(new int[]{3, 1}, new double[]{2.0, 1.0});
+        InvertedVectorIndex index = new InvertedVectorIndex(new SparseTextVector[]{empty, vector, null});
+        
+        Assert.assertEquals(0.0, empty.getModule(), 10e-8);
+        Assert.assertEquals(0.0, empty.scalarProduct(vector), 10e-8);
+        Assert.assertTrue(index.cosine(empty).isEmpty());
+        Assert.assertEquals(0.0, index.cosine(vector).get(0), 10e-8);
+        Assert.assertEquals(1.0, index.cosine(vector).get(1), 10e-8);
+        Assert.assertNull(index.getVector(2));
+        
+        // Terms which are not indexed are ignored.
+        SparseTextVector query = new SparseTextVector(new int[]{1, 100}, new double[]{1.0, 5.0});
+        Assert.assertEquals(1.0, index.scalarProducts(query).get(1), 10e-8);
+        Assert.assertEquals(1.0, vector.getWeight(1), 10e-8);
+        Assert.assertEquals(0.0, vector.getWeight(2), 10e-8);
+    }
+    
+    /**
+     * Generates a random dense vector, where most of the values are equal to zero.
+     * @param rng the random number generator.
+     * @return the vector.
+     */
+    private double[] randomDense(Random rng)
+    {
+        double[] vector = new double[NUMTERMS];
+        double density = rng.nextDouble()*0.2;
+        for(int t = 0; t < NUMTERMS; ++t)
+        {
+            if(rng.nextDouble() < density)
+            {
+                vector[t] = 1.0 + rng.nextInt(5);
+            }
+        }
+        return vector;
+    }
+    
+    /**
+     * Obtains the sparse representation of a dense vector. Terms are inserted in reverse order.
+     * @param dense the dense vector.
+     * @return the sparse vector.
+     */
+    private SparseTextVector toSparse(double[] dense)
+    {
+        IntList terms = new IntArrayList();
+        for(int t = dense.length - 1; t >= 0; --t)
+        {
+            if(dense[t] != 0.0)
+            {
+                terms.add(t);
+            }
+        }
+        int[] ts = terms.toIntArray();
+        double[] ws = new double[ts.length];
+        for(int j = 0; j < ts.length; ++j)
+        {
+            ws[j] = dense[ts[j]];
+        }
+        return new SparseTextVector(ts, ws);
+    }
+    
+    /**
+     * Computes the scalar product of two dense vectors.
+     * @param a the first vector.
+     * @param b the second vector.
+     * @return the scalar product.
+     */
+    private double dot(double[] a, double[] b)
+    {
+        double prod = 0.0;
+        for(int t = 0; t < a.length; ++t)
+        {
+            prod += a[t]*b[t];
+        }
+        return prod;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.graph.masked;
+
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Assigns an identifier to each edge of a fast graph, so subsets of the edges can be
+ * represented as bitsets. The adjacency lists of the nodes are stored in compressed sparse
+ * row form (sorted by node identifier), and the identifier of an edge is its position in them.
+ * In undirected graphs, each edge appears in the adjacency lists of both endpoints, and its
+ * identifier is the position it occupies in the list of the endpoint with the smaller identifier.
+ *
+ * The index is shared by all the {@link MaskedGraph} views over the same graph. If the original
+ * graph is modified, the index (and the views) are no longer valid.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class EdgeIndex<U>
+{
+    /**
+     * The original graph.
+     */
+    private final FastGraph<U> graph;
+    /**
+     * Whether the original graph is directed or not.
+     */
+    private final boolean directed;
+    /**
+     * Position of the adjacency list of each node in the target array (the last element
+     * is the total number of positions).
+     */
+    private final int[] offsets;
+    /**
+     * Targets of the edges, sorted by node identifier for each source node.
+     */
+    private final int[] targets;
+
+    /**
+     * Constructor.
+     * @param graph the graph.
+     */
+    public EdgeIndex(FastGraph<U> graph)
+    {
+        this.graph = graph;
+        this.directed = graph.isDirected();
+
+        int numNodes = graph.getAllNodesIds().max().orElse(-1) + 1;
+        int[][] adjacent = new int[numNodes][];
+        graph.getAllNodesIds().parallel().forEach(uidx ->
+        {
+            int[] neighs = graph.getNeighborhood(uidx, EdgeOrientation.OUT).mapToInt(Integer::intValue).toArray();
+            Arrays.sort(neighs);
+            adjacent[uidx] = neighs;
+        });
+
+        this.offsets = new int[numNodes + 1];
+        for(int uidx = 0; uidx < numNodes; ++uidx)
+        {
+            this.offsets[uidx + 1] = this.offsets[uidx] + (adjacent[uidx] == null ? 0 : adjacent[uidx].length);
+        }
+
+        this.targets = new int[this.offsets[numNodes]];
+        for(int uidx = 0; uidx < numNodes; ++uidx)
+        {
+            if(adjacent[uidx] != null)
+            {
+                System.arraycopy(adjacent[uidx], 0, this.targets, this.offsets[uidx], adjacent[uidx].length);
+                adjacent[uidx] = null;
+            }
+        }
+    }
+
+    /**
+     * Obtains the original graph.
+     * @return the original graph.
+     */
+    public FastGraph<U> getGraph()
+    {
+        return this.graph;
+    }
+
+    /**
+     * Obtains the number of node identifiers (the greatest identifier plus one).
+     * @return the number of node identifiers.
+     */
+    public int numNodes()
+    {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Obtains the number of positions in the adjacency lists. Every edge identifier is smaller than it.
+     * @return the number of positions.
+     */
+    public int numPositions()
+    {
+        return this.targets.length;
+    }
+
+    /**
+     * Obtains the first position of the adjacency list of a node.
+     * @param uidx the identifier of the node.
+     * @return the first position of the adjacency list.
+     */
+    public int start(int uidx)
+    {
+        return this.offsets[uidx];
+    }
+
+    /**
+     * Obtains the position after the last one of the adjacency list of a node.
+     * @param uidx the identifier of the node.
+     * @return the position after the end of the adjacency list.
+     */
+    public int end(int uidx)
+    {
+        return this.offsets[uidx + 1];
+    }
+
+    /**
+     * Obtains the target node of a position of the adjacency lists.
+     * @param pos the position.
+     * @return the identifier of the target node.
+     */
+    public int target(int pos)
+    {
+        return this.targets[pos];
+    }
+
+    /**
+     * Obtains the source node of a position of the adjacency lists.
+     * @param pos the position.
+     * @return the identifier of the source node.
+     */
+    public int source(int pos)
+    {
+        // Find the last node whose adjacency list starts at or before the position.
+        int low = 0;
+        int high = this.offsets.length - 2;
+        while(low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if(this.offsets[mid] <= pos)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Obtains the identifier of an edge.
+     * @param uidx the identifier of the source node.
+     * @param vidx the identifier of the target node.
+     * @return the identifier of the edge, -1 if the edge does not exist.
+     */
+    public int edgeId(int uidx, int vidx)
+    {
+        int numNodes = this.offsets.length - 1;
+        if(uidx < 0 || vidx < 0 || uidx >= numNodes || vidx >= numNodes)
+        {
+            return -1;
+        }
+
+        if(!this.directed && vidx < uidx)
+        {
+            int aux = uidx;
+            uidx = vidx;
+            vidx = aux;
+        }
+
+        int pos = Arrays.binarySearch(this.targets, this.offsets[uidx], this.offsets[uidx + 1], vidx);
+        return pos >= 0 ? pos : -1;
+    }
+
+    /**
+     * Obtains the identifier of the edge stored at a position of the adjacency list of a node.
+     * @param uidx the identifier of the node.
+     * @param pos the position.
+     * @return the identifier of the edge.
+     */
+    public int edgeIdAt(int uidx, int pos)
+    {
+        int vidx = this.targets[pos];
+        return (this.directed || uidx <= vidx) ? pos : this.edgeId(vidx, uidx);
+    }
+
+    /**
+     * Checks whether an identifier is the one of an edge (in undirected graphs, only one of
+     * the two positions of an edge is its identifier).
+     * @param pos the position.
+     * @return true if the position is an edge identifier, false otherwise.
+     */
+    public boolean isEdgeId(int pos)
+    {
+        return this.directed || this.source(pos) <= this.targets[pos];
+    }
+
+    /**
+     * Obtains a bitset containing all the nodes of the original graph.
+     * @return the bitset.
+     */
+    public BitSet allNodes()
+    {
+        BitSet nodes = new BitSet(this.numNodes());
+        this.graph.getAllNodesIds().forEach(nodes::set);
+        return nodes;
+    }
+
+    /**
+     * Obtains a bitset containing all the edges of the original graph.
+     * @return the bitset.
+     */
+    public BitSet allEdges()
+    {
+        BitSet edges = new BitSet(this.numPositions());
+        for(int uidx = 0; uidx < this.numNodes(); ++uidx)
+        {
+            for(int pos = this.offsets[uidx]; pos < this.offsets[uidx + 1]; ++pos)
+            {
+                if(this.directed || uidx <= this.targets[pos])
+                {
+                    edges.set(pos);
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Builds a view of the original graph, restricted to a set of nodes and edges.
+     * The bitsets are copied by the view.
+     * @param nodes the identifiers of the nodes in the view.
+     * @param edges the identifiers of the edges in the view. Edges whose endpoints are not
+     * in the view are discarded.
+     * @return the view.
+     */
+    public MaskedGraph<U> view(BitSet nodes, BitSet edges)
+    {
+        if(this.directed)
+        {
+            if(this.graph.isWeighted())
+            {
+                return new DirectedWeightedMaskedGraph<>(this, nodes, edges);
+            }
+            else
+            {
+                return new DirectedUnweightedMaskedGraph<>(this, nodes, edges);
+            }
+        }
+        else
+        {
+            if(this.graph.isWeighted())
+            {
+                return new UndirectedWeightedMaskedGraph<>(this, nodes, edges);
+            }
+            else
+            {
+                return new UndirectedUnweightedMaskedGraph<>(this, nodes, edges);
+            }
+        }
+    }
+}
@@ -0,0 +1,642 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.graph.masked;
+
+import cern.colt.matrix.DoubleMatrix2D;
+import cern.colt.matrix.impl.SparseDoubleMatrix2D;
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.Weight;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeType;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeWeight;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import es.uam.eps.ir.socialnetwork.graph.generator.ComplementaryGraphGenerator;
+import es.uam.eps.ir.socialnetwork.graph.generator.EmptyGraphGenerator;
+import es.uam.eps.ir.socialnetwork.graph.generator.GraphGenerator;
+import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorBadConfiguredException;
+import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorNotConfiguredException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import no.uib.cipr.matrix.Matrix;
+import no.uib.cipr.matrix.sparse.LinkedSparseMatrix;
+
+/**
+ * Read-only view of a fast graph, restricted to a subset of its nodes and edges. The subsets
+ * are represented as bitsets over the node identifiers and the edge identifiers of an {@link EdgeIndex},
+ * so different views over the same graph (for instance, the training and test sets of a partition)
+ * do not copy any node nor edge. Weights and types of the edges are read from the original graph.
+ * The nodes in the view are identified by consecutive identifiers (see {@link #object2idx(Object)}),
+ * in the same order as in the original graph.
+ *
+ * Since this is a view of another graph, no nodes nor edges can be added or removed. A standalone
+ * copy of the view can be obtained with {@link #materialize()}.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public abstract class MaskedGraph<U> implements Graph<U>
+{
+    /**
+     * The edge index of the original graph.
+     */
+    private final EdgeIndex<U> index;
+    /**
+     * The original graph.
+     */
+    private final FastGraph<U> graph;
+    /**
+     * The identifiers of the nodes in the view.
+     */
+    private final BitSet nodes;
+    /**
+     * The identifiers of the edges in the view.
+     */
+    private final BitSet edges;
+    /**
+     * The number of edges in the view.
+     */
+    private final long numEdges;
+    /**
+     * For each node of the original graph, its identifier in the view (-1 if it does not belong to it).
+     */
+    private final int[] compact;
+    /**
+     * For each node of the view, its identifier in the original graph.
+     */
+    private final int[] original;
+
+    /**
+     * Constructor.
+     * @param index the edge index of the original graph.
+     * @param nodes the identifiers (in the original graph) of the nodes in the view.
+     * @param edges the identifiers of the edges in the view. Edges whose endpoints are not
+     * in the view are discarded. Both bitsets are copied, so they can be reused afterwards.
+     */
+    public MaskedGraph(EdgeIndex<U> index, BitSet nodes, BitSet edges)
+    {
+        this.index = index;
+        this.graph = index.getGraph();
+        this.nodes = (BitSet) nodes.clone();
+        this.edges = (BitSet) edges.clone();
+        if(this.nodes.length() > index.numNodes())
+        {
+            this.nodes.clear(index.numNodes(), this.nodes.length());
+        }
+
+        for(int id = this.edges.nextSetBit(0); id >= 0; id = this.edges.nextSetBit(id + 1))
+        {
+            if(id >= index.numPositions() || !index.isEdgeId(id) || !this.nodes.get(index.source(id)) || !this.nodes.get(index.target(id)))
+            {
+                this.edges.clear(id);
+            }
+        }
+        this.numEdges = this.edges.cardinality();
+
+        // Nodes in the view are identified by consecutive identifiers, in the same order as in the original graph.
+        this.compact = new int[index.numNodes()];
+        Arrays.fill(this.compact, -1);
+        this.original = this.nodes.stream().toArray();
+        for(int i = 0; i < this.original.length; ++i)
+        {
+            this.compact[this.original[i]] = i;
+        }
+    }
+
+    /**
+     * Obtains the edge index of the original graph.
+     * @return the edge index.
+     */
+    public EdgeIndex<U> getIndex()
+    {
+        return this.index;
+    }
+
+    /**
+     * Obtains the identifiers (in the original graph) of the nodes in the view. The bitset must not be modified.
+     * @return the identifiers of the nodes.
+     */
+    public BitSet getNodeMask()
+    {
+        return this.nodes;
+    }
+
+    /**
+     * Obtains the identifiers of the edges in the view. The bitset must not be modified.
+     * @return the identifiers of the edges.
+     */
+    public BitSet getEdgeMask()
+    {
+        return this.edges;
+    }
+
+    /**
+     * Builds a standalone copy of the view.
+     * @return the copy, null if it cannot be built.
+     */
+    public Graph<U> materialize()
+    {
+        try
+        {
+            EmptyGraphGenerator<U> gg = new EmptyGraphGenerator<>();
+            gg.configure(this.isDirected(), this.isWeighted());
+            Graph<U> copy = gg.generate();
+
+            this.getAllNodes().forEach(copy::addNode);
+            for(int id = edges.nextSetBit(0); id >= 0; id = edges.nextSetBit(id + 1))
+            {
+                U u = this.graph.idx2object(this.index.source(id));
+                U v = this.graph.idx2object(this.index.target(id));
+                copy.addEdge(u, v, this.graph.getEdgeWeight(u, v), this.graph.getEdgeType(u, v));
+            }
+
+            return copy;
+        }
+        catch(GeneratorNotConfiguredException | GeneratorBadConfiguredException ex)
+        {
+            return null;
+        }
+    }
+
+    // Addition and removal of nodes and edges. NOT ALLOWED.
+
+    @Override
+    public boolean addNode(U node)
+    {
+        throw new UnsupportedOperationException("This is a view of another graph. No nodes can be added.");
+    }
+
+    @Override
+    public boolean addEdge(U nodeA, U nodeB, double weight, int type, boolean insertNodes)
+    {
+        throw new UnsupportedOperationException("This is a view of another graph. No edges can be added.");
+    }
+
+    @Override
+    public boolean removeNode(U node)
+    {
+        throw new UnsupportedOperationException("This is a view of another graph. No nodes can be removed");
+    }
+
+    @Override
+    public boolean removeEdge(U nodeA, U nodeB)
+    {
+        throw new UnsupportedOperationException("This is a view of another graph. No edges can be removed");
+    }
+
+    @Override
+    public boolean updateEdgeWeight(U orig, U dest, double weight)
+    {
+        throw new UnsupportedOperationException("Edges weights cannot be updated in views of other graphs");
+    }
+
+    // Identifier based access
+
+    /**
+     * Obtains the identifier of a node in the original graph, if it belongs to the view.
+     * @param node the node.
+     * @return the identifier of the node, -1 if it does not belong to the view.
+     */
+    private int idx(U node)
+    {
+        int uidx = this.graph.object2idx(node);
+        return (uidx >= 0 && this.nodes.get(uidx)) ? uidx : -1;
+    }
+
+    /**
+     * Checks whether an edge belongs to the view.
+     * @param uidx the identifier of the source node.
+     * @param vidx the identifier of the target node.
+     * @return true if the edge belongs to the view, false otherwise.
+     */
+    private boolean containsEdge(int uidx, int vidx)
+    {
+        int id = this.index.edgeId(uidx, vidx);
+        return id >= 0 && this.edges.get(id);
+    }
+
+    /**
+     * Obtains the nodes adjacent to a node in the view.
+     * @param uidx the identifier of the node.
+     * @return the identifiers of the adjacent nodes.
+     */
+    private IntStream adjacent(int uidx)
+    {
+        return IntStream.range(this.index.start(uidx), this.index.end(uidx))
+                .filter(pos -> this.edges.get(this.index.edgeIdAt(uidx, pos)))
+                .map(this.index::target);
+    }
+
+    /**
+     * Obtains the nodes incident to a node in the view.
+     * @param uidx the identifier of the node.
+     * @return the identifiers of the incident nodes.
+     */
+    private IntStream incident(int uidx)
+    {
+        if(!this.isDirected())
+        {
+            return this.adjacent(uidx);
+        }
+        return this.graph.getNeighborhood(uidx, EdgeOrientation.IN).mapToInt(Integer::intValue).filter(widx -> this.containsEdge(widx, uidx));
+    }
+
+    /**
+     * Obtains the nodes which are either adjacent or incident to a node in the view.
+     * @param uidx the identifier of the node.
+     * @return the identifiers of the neighbour nodes.
+     */
+    private IntStream neighbours(int uidx)
+    {
+        if(!this.isDirected())
+        {
+            return this.adjacent(uidx);
+        }
+        return IntStream.concat(this.adjacent(uidx), this.incident(uidx).filter(widx -> !this.containsEdge(uidx, widx)));
+    }
+
+    /**
+     * Obtains the nodes which are both adjacent and incident to a node in the view.
+     * @param uidx the identifier of the node.
+     * @return the identifiers of the mutual nodes.
+     */
+    private IntStream mutual(int uidx)
+    {
+        if(!this.isDirected())
+        {
+            return this.adjacent(uidx);
+        }
+        return this.adjacent(uidx).filter(vidx -> this.containsEdge(vidx, uidx));
+    }
+
+    /**
+     * Transforms a stream of node identifiers into a stream of nodes.
+     * @param node the node whose neighbours are obtained.
+     * @param idxs the function which finds the identifiers of the neighbours.
+     * @return the stream of neighbours, empty if the node does not belong to the view.
+     */
+    private Stream<U> objects(U node, IntFunction<IntStream> idxs)
+    {
+        int uidx = this.idx(node);
+        if(uidx < 0)
+        {
+            return Stream.empty();
+        }
+        return idxs.apply(uidx).mapToObj(this.graph::idx2object);
+    }
+
+    /**
+     * Counts the number of neighbours of a node.
+     * @param node the node whose neighbours are counted.
+     * @param idxs the function which finds the identifiers of the neighbours.
+     * @return the number of neighbours, 0 if the node does not belong to the view.
+     */
+    private int count(U node, IntFunction<IntStream> idxs)
+    {
+        int uidx = this.idx(node);
+        if(uidx < 0)
+        {
+            return 0;
+        }
+        return (int) idxs.apply(uidx).count();
+    }
+
+    // Getters
+
+    @Override
+    public Stream<U> getAllNodes()
+    {
+        return this.nodes.stream().mapToObj(this.graph::idx2object);
+    }
+
+    @Override
+    public Stream<U> getIncidentNodes(U node)
+    {
+        return this.objects(node, this::incident);
+    }
+
+    @Override
+    public Stream<U> getAdjacentNodes(U node)
+    {
+        return this.objects(node, this::adjacent);
+    }
+
+    @Override
+    public Stream<U> getNeighbourNodes(U node)
+    {
+        return this.objects(node, this::neighbours);
+    }
+
+    @Override
+    public Stream<U> getMutualNodes(U node)
+    {
+        return this.objects(node, this::mutual);
+    }
+
+    @Override
+    public Stream<U> getNeighbourhood(U node, EdgeOrientation direction)
+    {
+        switch(direction)
+        {
+            case OUT:
+                return this.getAdjacentNodes(node);
+            case IN:
+                return this.getIncidentNodes(node);
+            case MUTUAL:
+                return this.getMutualNodes(node);
+            default: //case UND
+                return this.getNeighbourNodes(node);
+        }
+    }
+
+    @Override
+    public int degree(U node, EdgeOrientation orientation)
+    {
+        return this.getNeighbourhoodSize(node, orientation);
+    }
+
+    @Override
+    public int getIncidentEdgesCount(U node)
+    {
+        return this.count(node, this::incident);
+    }
+
+    @Override
+    public int getAdjacentEdgesCount(U node)
+    {
+        return this.count(node, this::adjacent);
+    }
+
+    @Override
+    public int getNeighbourEdgesCount(U node)
+    {
+        if(!this.isDirected())
+        {
+            return this.getAdjacentEdgesCount(node);
+        }
+        return this.getIncidentEdgesCount(node) + this.getAdjacentEdgesCount(node);
+    }
+
+    @Override
+    public int getMutualEdgesCount(U node)
+    {
+        return this.count(node, this::mutual);
+    }
+
+    @Override
+    public int getNeighbourhoodSize(U node, EdgeOrientation direction)
+    {
+        switch(direction)
+        {
+            case OUT:
+                return this.count(node, this::adjacent);
+            case IN:
+                return this.count(node, this::incident);
+            case MUTUAL:
+                return this.count(node, this::mutual);
+            default: //case UND
+                return this.count(node, this::neighbours);
+        }
+    }
+
+    @Override
+    public boolean containsVertex(U node)
+    {
+        return this.idx(node) >= 0;
+    }
+
+    @Override
+    public boolean containsEdge(U nodeA, U nodeB)
+    {
+        int uidx = this.idx(nodeA);
+        int vidx = this.idx(nodeB);
+        return uidx >= 0 && vidx >= 0 && this.containsEdge(uidx, vidx);
+    }
+
+    @Override
+    public double getEdgeWeight(U nodeA, U nodeB)
+    {
+        if(this.containsEdge(nodeA, nodeB))
+            return this.graph.getEdgeWeight(nodeA, nodeB);
+        return EdgeWeight.getErrorValue();
+    }
+
+    @Override
+    public Stream<Weight<U, Double>> getIncidentNodesWeights(U node)
+    {
+        return this.getIncidentNodes(node).map(vertex -> new Weight<>(vertex, this.graph.getEdgeWeight(vertex, node)));
+    }
+
+    @Override
+    public Stream<Weight<U, Double>> getAdjacentNodesWeights(U node)
+    {
+        return this.getAdjacentNodes(node).map(vertex -> new Weight<>(vertex, this.graph.getEdgeWeight(node, vertex)));
+    }
+
+    @Override
+    public Stream<Weight<U, Double>> getNeighbourNodesWeights(U node)
+    {
+        return this.getNeighbourNodes(node).map(vertex -> new Weight<>(vertex, this.containsEdge(node, vertex) ? this.graph.getEdgeWeight(node, vertex) : this.graph.getEdgeWeight(vertex, node)));
+    }
+
+    @Override
+    public Stream<Weight<U,Double>> getMutualNodesWeights(U node)
+    {
+        return this.getAdjacentMutualNodesWeights(node);
+    }
+
+    @Override
+    public Stream<Weight<U,Double>> getAdjacentMutualNodesWeights(U node)
+    {
+        return this.getMutualNodes(node).map(vertex -> new Weight<>(vertex, this.graph.getEdgeWeight(node, vertex)));
+    }
+
+    @Override
+    public Stream<Weight<U,Double>> getIncidentMutualNodesWeights(U node)
+    {
+        return this.getMutualNodes(node).map(vertex -> new Weight<>(vertex, this.graph.getEdgeWeight(vertex, node)));
+    }
+
+    @Override
+    public Stream<Weight<U, Double>> getNeighbourhoodWeights(U node, EdgeOrientation direction)
+    {
+        switch(direction)
+        {
+            case OUT:
+                return this.getAdjacentNodesWeights(node);
+            case IN:
+                return this.getIncidentNodesWeights(node);
+            case MUTUAL:
+                return this.getMutualNodesWeights(node);
+            default: //case UND
+                return this.getNeighbourNodesWeights(node);
+        }
+    }
+
+    @Override
+    public int getEdgeType(U nodeA, U nodeB)
+    {
+        if(this.containsEdge(nodeA, nodeB))
+            return this.graph.getEdgeType(nodeA, nodeB);
+        else
+            return EdgeType.getErrorType();
+    }
+
+    @Override
+    public Stream<Weight<U, Integer>> getIncidentNodesTypes(U node)
+    {
+        return this.getIncidentNodes(node).map(vertex -> new Weight<>(vertex, this.graph.getEdgeType(vertex, node)));
+    }
+
+    @Override
+    public Stream<Weight<U, Integer>> getAdjacentNodesTypes(U node)
+    {
+        return this.getAdjacentNodes(node).map(vertex -> new Weight<>(vertex, this.graph.getEdgeType(node, vertex)));
+    }
+
+    @Override
+    public Stream<Weight<U, Integer>> getNeighbourNodesTypes(U node)
+    {
+        return this.getNeighbourNodes(node).map(vertex -> new Weight<>(vertex, this.containsEdge(node, vertex) ? this.graph.getEdgeType(node, vertex) : this.graph.getEdgeType(vertex, node)));
+    }
+
+    @Override
+    public Stream<Weight<U,Integer>> getAdjacentMutualNodesTypes(U node)
+    {
+        return this.getMutualNodes(node).map(vertex -> new Weight<>(vertex, this.graph.getEdgeType(node, vertex)));
+    }
+
+    @Override
+    public Stream<Weight<U,Integer>> getIncidentMutualNodesTypes(U node)
+    {
+        return this.getMutualNodes(node).map(vertex -> new Weight<>(vertex, this.graph.getEdgeType(vertex, node)));
+    }
+
+    @Override
+    public Stream<Weight<U, Integer>> getNeighbourhoodTypes(U node, EdgeOrientation direction)
+    {
+        switch(direction)
+        {
+            case OUT:
+                return this.getAdjacentNodesTypes(node);
+            case IN:
+                return this.getIncidentNodesTypes(node);
+            case MUTUAL:
+                return this.getAdjacentMutualNodesTypes(node);
+            default: //case UND
+                return this.getNeighbourNodesTypes(node);
+        }
+    }
+
+    @Override
+    public boolean isDirected()
+    {
+        return this.graph.isDirected();
+    }
+
+    @Override
+    public boolean isWeighted()
+    {
+        return this.graph.isWeighted();
+    }
+
+    @Override
+    public long getVertexCount()
+    {
+        return this.nodes.cardinality();
+    }
+
+    @Override
+    public long getEdgeCount()
+    {
+        return this.numEdges;
+    }
+
+    @Override
+    public DoubleMatrix2D getAdjacencyMatrix(EdgeOrientation direction)
+    {
+        int numNodes = this.original.length;
+        DoubleMatrix2D matrix = new SparseDoubleMatrix2D(numNodes, numNodes);
+        this.nodes.stream().forEach(uidx ->
+        {
+            switch(direction)
+            {
+                case IN:
+                    this.incident(uidx).forEach(vidx -> matrix.setQuick(this.compact[uidx], this.compact[vidx], 1.0));
+                    break;
+                case OUT:
+                    this.adjacent(uidx).forEach(vidx -> matrix.setQuick(this.compact[uidx], this.compact[vidx], 1.0));
+                    break;
+                case MUTUAL:
+                    this.mutual(uidx).forEach(vidx -> matrix.setQuick(this.compact[uidx], this.compact[vidx], 1.0));
+                    break;
+                default: //case UND
+                    this.neighbours(uidx).forEach(vidx -> matrix.setQuick(this.compact[uidx], this.compact[vidx], 1.0));
+            }
+        });
+
+        return matrix;
+    }
+
+    @Override
+    public Matrix getAdjacencyMatrixMTJ(EdgeOrientation direction)
+    {
+        int numNodes = this.original.length;
+        Matrix matrix = new LinkedSparseMatrix(numNodes, numNodes);
+        this.nodes.stream().forEach(uidx ->
+        {
+            switch(direction)
+            {
+                case IN:
+                    this.incident(uidx).forEach(vidx -> matrix.set(this.compact[uidx], this.compact[vidx], 1.0));
+                    break;
+                case OUT:
+                    this.adjacent(uidx).forEach(vidx -> matrix.set(this.compact[uidx], this.compact[vidx], 1.0));
+                    break;
+                case MUTUAL:
+                    this.mutual(uidx).forEach(vidx -> matrix.set(this.compact[uidx], this.compact[vidx], 1.0));
+                    break;
+                default: //case UND
+                    this.neighbours(uidx).forEach(vidx -> matrix.set(this.compact[uidx], this.compact[vidx], 1.0));
+            }
+        });
+
+        return matrix;
+    }
+
+    @Override
+    public Graph<U> complement()
+    {
+        GraphGenerator<U> gg = new ComplementaryGraphGenerator<>();
+        gg.configure(this);
+        try
+        {
+            return gg.generate();
+        }
+        catch (GeneratorNotConfiguredException | GeneratorBadConfiguredException ex)
+        {
+            return null;
+        }
+    }
+
+    @Override
+    public int object2idx(U u)
+    {
+        int uidx = this.idx(u);
+        return uidx >= 0 ? this.compact[uidx] : -1;
+    }
+
+    @Override
+    public U idx2object(int idx)
+    {
+        return (idx >= 0 && idx < this.original.length) ? this.graph.idx2object(this.original[idx]) : null;
+    }
+}
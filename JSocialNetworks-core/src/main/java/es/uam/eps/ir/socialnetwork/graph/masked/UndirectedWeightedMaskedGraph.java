@@ -0,0 +1,33 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.graph.masked;
+
+import es.uam.eps.ir.socialnetwork.graph.UndirectedGraph;
+import es.uam.eps.ir.socialnetwork.graph.WeightedGraph;
+import java.util.BitSet;
+
+/**
+ * Undirected weighted view of a fast graph, restricted to a subset of its nodes and edges.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the vertices.
+ */
+public class UndirectedWeightedMaskedGraph<U> extends MaskedGraph<U> implements UndirectedGraph<U>,WeightedGraph<U>
+{
+    /**
+     * Constructor.
+     * @param index the edge index of the original graph.
+     * @param nodes the identifiers of the nodes in the view.
+     * @param edges the identifiers of the edges in the view.
+     */
+    public UndirectedWeightedMaskedGraph(EdgeIndex<U> index, BitSet nodes, BitSet edges)
+    {
+        super(index, nodes, edges);
+    }
+    
+}
@@ -0,0 +1,13 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+/**
+ * Read-only views of a graph, restricted to subsets of its nodes and edges.
+ */
+package es.uam.eps.ir.socialnetwork.graph.masked;
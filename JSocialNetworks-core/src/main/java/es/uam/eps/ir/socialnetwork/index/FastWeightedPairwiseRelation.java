@@ -59,6 +59,26 @@ public class FastWeightedPairwiseRelation<W> extends FastWeightedRelation<W>
                 .filter(l -> l != null)
                 .forEach(l -> l.sort(Comparator.naturalOrder()));
     }
+    
+    /**
+     * Constructor. Builds a relation from previous information, where both sides of the relation
+     * have already been built (although the lists do not need to be sorted). 
+     * @param firstIdxList Links from the first kind of objects to the second. Indexed by the second.
+     * @param secondIdxList Links from the second kind of objects to the first. Indexed by the first.
+     */
+    public FastWeightedPairwiseRelation(List<List<IdxValue<W>>> firstIdxList, List<List<IdxValue<W>>> secondIdxList)
+    {
+        super(firstIdxList, secondIdxList);
+        
+        // Sorts the lists
+        this.firstIdxList.parallelStream()
+                .filter(l -> l != null)
+                .forEach(l -> l.sort(Comparator.naturalOrder()));
+        this.secondIdxList.parallelStream()
+                .filter(l -> l != null)
+                .forEach(l -> l.sort(Comparator.naturalOrder()));
+    }
+    
     @Override
     public int numSecond()
     {
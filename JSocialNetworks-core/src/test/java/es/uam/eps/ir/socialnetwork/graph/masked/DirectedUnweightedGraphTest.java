@@ -0,0 +1,358 @@
+package es.uam.eps.ir.socialnetwork.graph.masked;
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import cern.colt.matrix.DoubleMatrix2D;
+import es.uam.eps.ir.socialnetwork.graph.DirectedGraph;
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.Weight;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeWeight;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastDirectedUnweightedGraph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import java.util.BitSet;
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Class that tests the directed unweighted views of fast graphs.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class DirectedUnweightedGraphTest 
+{
+    /**
+     * The original graph.
+     */
+    private FastGraph<Integer> graph;
+    /**
+     * The edge index of the original graph.
+     */
+    private EdgeIndex<Integer> index;
+    /**
+     * The nodes of the view.
+     */
+    private BitSet nodes;
+    /**
+     * The edges of the view.
+     */
+    private BitSet edges;
+    
+    public DirectedUnweightedGraphTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    /**
+     * Builds the original graph, and selects the nodes and edges of the view: node 5 and
+     * edge (2,3) are removed, so the view contains the edges (1,2), (1,3), (2,1) and (3,4).
+     */
+    @Before
+    public void setUp() 
+    {
+        this.graph = new FastDirectedUnweightedGraph<>();
+        for(int i = 1; i <= 5; ++i)
+        {
+            this.graph.addNode(i);
+        }
+        this.graph.addEdge(1,2);
+        this.graph.addEdge(1,3);
+        this.graph.addEdge(2,1);
+        this.graph.addEdge(2,3);
+        this.graph.addEdge(3,4);
+        this.graph.addEdge(4,5);
+        this.graph.addEdge(5,1);
+        
+        this.index = new EdgeIndex<>(this.graph);
+        this.nodes = this.index.allNodes();
+        this.nodes.clear(this.graph.object2idx(5));
+        this.edges = this.index.allEdges();
+        this.edges.clear(this.index.edgeId(this.graph.object2idx(2), this.graph.object2idx(3)));
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Tests the nodes of the view.
+     */
+    @Test
+    public void nodes()
+    {
+        MaskedGraph<Integer> dg = this.index.view(this.nodes, this.edges);
+        assertEquals(true, dg instanceof DirectedGraph);
+        
+        // Check the number of vertices
+        assertEquals(4L, dg.getVertexCount());
+        assertEquals(4L, dg.getAllNodes().count());
+        
+        // Check non-existing nodes
+        assertEquals(false, dg.containsVertex(5));
+        assertEquals(false, dg.containsVertex(0));
+        
+        // Check existing nodes
+        assertEquals(true, dg.containsVertex(1));
+        assertEquals(true, dg.containsVertex(2));
+        assertEquals(true, dg.containsVertex(3));
+        assertEquals(true, dg.containsVertex(4));
+        
+        // Check the identifiers: they are consecutive
+        assertEquals(0, dg.object2idx(1));
+        assertEquals(1, dg.object2idx(2));
+        assertEquals(2, dg.object2idx(3));
+        assertEquals(3, dg.object2idx(4));
+        assertEquals(-1, dg.object2idx(5));
+        assertEquals(4, (int) dg.idx2object(3));
+        assertNull(dg.idx2object(4));
+        assertNull(dg.idx2object(-1));
+        
+        // Remove a node in the middle
+        BitSet otherNodes = this.index.allNodes();
+        otherNodes.clear(this.graph.object2idx(2));
+        MaskedGraph<Integer> other = this.index.view(otherNodes, this.edges);
+        assertEquals(0, other.object2idx(1));
+        assertEquals(-1, other.object2idx(2));
+        assertEquals(1, other.object2idx(3));
+        assertEquals(3, other.object2idx(5));
+        assertEquals(5, (int) other.idx2object(3));
+    }
+    
+    /**
+     * Tests the edges of the view.
+     */
+    @Test
+    public void edges()
+    {
+        BitSet copy = (BitSet) this.edges.clone();
+        MaskedGraph<Integer> dg = this.index.view(this.nodes, this.edges);
+        
+        // Check the number of edges
+        assertEquals(4L, dg.getEdgeCount());
+        
+        // Check non-existent edges
+        // With non-existent nodes
+        assertEquals(false, dg.containsEdge(4,5));
+        assertEquals(false, dg.containsEdge(5,1));
+        // Removed from the view
+        assertEquals(false, dg.containsEdge(2,3));
+        // Not in the original graph
+        assertEquals(false, dg.containsEdge(3,1));
+        
+        // Check existent edges
+        assertEquals(true, dg.containsEdge(1,2));
+        assertEquals(true, dg.containsEdge(1,3));
+        assertEquals(true, dg.containsEdge(2,1));
+        assertEquals(true, dg.containsEdge(3,4));
+        
+        // The bitsets of the caller are not modified
+        assertEquals(copy, this.edges);
+        assertEquals(4L, (long) dg.getEdgeMask().cardinality());
+        
+        // Modifying the bitsets of the caller does not modify the view
+        this.edges.clear();
+        this.nodes.clear();
+        assertEquals(4L, dg.getEdgeCount());
+        assertEquals(true, dg.containsEdge(1,2));
+        assertEquals(true, dg.containsVertex(1));
+    }
+    
+    /**
+     * Tests that the view cannot be modified, and that its copy can.
+     */
+    @Test
+    public void modification()
+    {
+        MaskedGraph<Integer> dg = this.index.view(this.nodes, this.edges);
+        try
+        {
+            dg.addNode(6);
+            fail("Nodes cannot be added to a view");
+        }
+        catch(UnsupportedOperationException ex)
+        {
+        }
+        
+        try
+        {
+            dg.addEdge(2,3);
+            fail("Edges cannot be added to a view");
+        }
+        catch(UnsupportedOperationException ex)
+        {
+        }
+        
+        Graph<Integer> copy = dg.materialize();
+        assertEquals(4L, copy.getVertexCount());
+        assertEquals(4L, copy.getEdgeCount());
+        assertEquals(true, copy.isDirected());
+        assertEquals(true, copy.containsEdge(3,4));
+        assertEquals(true, copy.addEdge(2,3));
+        assertEquals(false, dg.containsEdge(2,3));
+        assertEquals(7L, this.graph.getEdgeCount());
+    }
+    
+    /**
+     * Test the weights of the edges
+     */
+    @Test
+    public void weights()
+    {
+        MaskedGraph<Integer> dg = this.index.view(this.nodes, this.edges);
+        
+        // Check individually
+        assertEquals(1.0, dg.getEdgeWeight(1, 2), 0.001);
+        assertEquals(1.0, dg.getEdgeWeight(1, 3), 0.001);
+        assertEquals(1.0, dg.getEdgeWeight(3, 4), 0.001);
+        assertEquals(EdgeWeight.getErrorValue(), dg.getEdgeWeight(2, 3), 0.001);
+        
+        // Recover each weight and check (adjacent edges)
+        List<Weight<Integer,Double>> weights = dg.getAdjacentNodesWeights(1).collect(toList());
+        assertEquals(2, weights.size());
+        for(Weight<Integer, Double> weight : weights)
+        {
+            assertEquals(1.0, (double) weight.getValue(), 0.001);
+        }
+        
+        // Recover each weight and check (incident edges)
+        weights = dg.getIncidentNodesWeights(3).collect(toList());
+        assertEquals(1, weights.size());
+        assertEquals(1, (int) weights.get(0).getIdx());
+        assertEquals(1.0, (double) weights.get(0).getValue(), 0.001);
+    }
+    
+    /**
+     * Test the types of the edges
+     */
+    @Test
+    public void types()
+    {
+        this.graph = new FastDirectedUnweightedGraph<>();
+        this.graph.addEdge(1,2,1.0,1, true);
+        this.graph.addEdge(2,1,1.0,2, true);
+        this.graph.addEdge(1,3,1.0,3, true);
+        this.graph.addEdge(3,1,1.0,4, true);
+        this.graph.addEdge(2,3,1.0,5, true);
+        this.index = new EdgeIndex<>(this.graph);
+        BitSet viewEdges = this.index.allEdges();
+        viewEdges.clear(this.index.edgeId(this.graph.object2idx(3), this.graph.object2idx(1)));
+        MaskedGraph<Integer> dg = this.index.view(this.index.allNodes(), viewEdges);
+        
+        // Check individually
+        assertEquals(1, dg.getEdgeType(1,2));
+        assertEquals(2, dg.getEdgeType(2,1));
+        assertEquals(3, dg.getEdgeType(1,3));
+        assertEquals(5, dg.getEdgeType(2,3));
+        
+        // Check the neighbourhoods
+        List<Weight<Integer,Integer>> types = dg.getNeighbourhoodTypes(1, EdgeOrientation.OUT).collect(toList());
+        assertEquals(2, types.size());
+        
+        types = dg.getNeighbourhoodTypes(1, EdgeOrientation.IN).collect(toList());
+        assertEquals(1, types.size());
+        assertEquals(2, (int) types.get(0).getIdx());
+        assertEquals(2, (int) types.get(0).getValue());
+        
+        types = dg.getNeighbourhoodTypes(1, EdgeOrientation.MUTUAL).collect(toList());
+        assertEquals(1, types.size());
+        assertEquals(2, (int) types.get(0).getIdx());
+        assertEquals(1, (int) types.get(0).getValue());
+        
+        types = dg.getNeighbourhoodTypes(3, EdgeOrientation.MUTUAL).collect(toList());
+        assertEquals(0, types.size());
+    }
+    
+    /**
+     * Test the degrees of the graph
+     */
+    @Test
+    public void degrees()
+    {
+        DirectedGraph<Integer> dg = (DirectedGraph<Integer>) this.index.view(this.nodes, this.edges);
+        
+        // Check the in-degrees of the nodes
+        assertEquals(1, dg.inDegree(1));
+        assertEquals(1, dg.inDegree(2));
+        assertEquals(1, dg.inDegree(3));
+        assertEquals(1, dg.inDegree(4));
+        
+        // Check the out-degrees of the nodes
+        assertEquals(2, dg.outDegree(1));
+        assertEquals(1, dg.outDegree(2));
+        assertEquals(1, dg.outDegree(3));
+        assertEquals(0, dg.outDegree(4));
+    }
+    
+    /**
+     * Test that checks if the number of nodes and edges which reach a node or start from 
+     * it are correct.
+     */
+    @Test
+    public void edgesAndNodesCount()
+    {
+        MaskedGraph<Integer> dg = this.index.view(this.nodes, this.edges);
+        
+        // Check the number of adjacent edges
+        assertEquals(2, dg.getAdjacentEdgesCount(1));
+        assertEquals(1, dg.getAdjacentEdgesCount(2));
+        assertEquals(1, dg.getAdjacentEdgesCount(3));
+        assertEquals(0, dg.getAdjacentEdgesCount(4));
+        assertEquals(0, dg.getAdjacentEdgesCount(5));
+        
+        // Check the number of incident edges
+        assertEquals(1, dg.getIncidentEdgesCount(1));
+        assertEquals(1, dg.getIncidentEdgesCount(2));
+        assertEquals(1, dg.getIncidentEdgesCount(3));
+        assertEquals(1, dg.getIncidentEdgesCount(4));
+        
+        // Check the number of neighbor edges
+        assertEquals(3, dg.getNeighbourEdgesCount(1));
+        assertEquals(2, dg.getNeighbourEdgesCount(2));
+        assertEquals(2, dg.getNeighbourEdgesCount(3));
+        assertEquals(1, dg.getNeighbourEdgesCount(4));
+        
+        // Check the number of neighbor nodes
+        assertEquals(2, dg.getNeighbourNodes(1).count());
+        assertEquals(1, dg.getNeighbourNodes(2).count());
+        assertEquals(2, dg.getNeighbourNodes(3).count());
+        assertEquals(1, dg.getNeighbourNodes(4).count());
+        
+        // Check the number of mutual edges
+        assertEquals(1, dg.getMutualEdgesCount(1));
+        assertEquals(1, dg.getMutualEdgesCount(2));
+        assertEquals(0, dg.getMutualEdgesCount(3));
+    }
+    
+    /**
+     * Tests the adjacency matrix of the view.
+     */
+    @Test
+    public void adjacencyMatrix()
+    {
+        MaskedGraph<Integer> dg = this.index.view(this.nodes, this.edges);
+        DoubleMatrix2D matrix = dg.getAdjacencyMatrix(EdgeOrientation.OUT);
+        
+        assertEquals(4, matrix.rows());
+        assertEquals(4, matrix.columns());
+        assertEquals(1.0, matrix.getQuick(dg.object2idx(1), dg.object2idx(2)), 0.001);
+        assertEquals(1.0, matrix.getQuick(dg.object2idx(3), dg.object2idx(4)), 0.001);
+        assertEquals(0.0, matrix.getQuick(dg.object2idx(2), dg.object2idx(3)), 0.001);
+    }
+}
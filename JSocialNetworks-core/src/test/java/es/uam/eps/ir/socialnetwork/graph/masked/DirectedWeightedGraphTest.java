@@ -0,0 +1,189 @@
+package es.uam.eps.ir.socialnetwork.graph.masked;
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.Weight;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeWeight;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastDirectedWeightedGraph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import java.util.BitSet;
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Class that tests the directed weighted views of fast graphs.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class DirectedWeightedGraphTest 
+{
+    /**
+     * The original graph.
+     */
+    private FastGraph<Integer> graph;
+    /**
+     * The edge index of the original graph.
+     */
+    private EdgeIndex<Integer> index;
+    /**
+     * The view.
+     */
+    private MaskedGraph<Integer> dg;
+    
+    public DirectedWeightedGraphTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    /**
+     * Builds the original graph and the view: node 5 and edge (2,3) are removed, so the 
+     * view contains the edges (1,2), (1,3), (2,1) and (3,4).
+     */
+    @Before
+    public void setUp() 
+    {
+        this.graph = new FastDirectedWeightedGraph<>();
+        for(int i = 1; i <= 5; ++i)
+        {
+            this.graph.addNode(i);
+        }
+        this.graph.addEdge(1,2,4.0,1, true);
+        this.graph.addEdge(1,3,5.0,2, true);
+        this.graph.addEdge(2,1,2.0,3, true);
+        this.graph.addEdge(2,3,3.0,4, true);
+        this.graph.addEdge(3,4,6.0,5, true);
+        this.graph.addEdge(4,5,7.0,6, true);
+        this.graph.addEdge(5,1,8.0,7, true);
+        
+        this.index = new EdgeIndex<>(this.graph);
+        BitSet nodes = this.index.allNodes();
+        nodes.clear(this.graph.object2idx(5));
+        BitSet edges = this.index.allEdges();
+        edges.clear(this.index.edgeId(this.graph.object2idx(2), this.graph.object2idx(3)));
+        this.dg = this.index.view(nodes, edges);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Tests the nodes and edges of the view.
+     */
+    @Test
+    public void nodesAndEdges()
+    {
+        assertEquals(true, this.dg.isDirected());
+        assertEquals(true, this.dg.isWeighted());
+        assertEquals(4L, this.dg.getVertexCount());
+        assertEquals(4L, this.dg.getEdgeCount());
+        
+        assertEquals(false, this.dg.containsVertex(5));
+        assertEquals(false, this.dg.containsEdge(2,3));
+        assertEquals(false, this.dg.containsEdge(4,5));
+        assertEquals(true, this.dg.containsEdge(1,2));
+        assertEquals(true, this.dg.containsEdge(2,1));
+    }
+    
+    /**
+     * Test the weights of the edges
+     */
+    @Test
+    public void weights()
+    {
+        // Check individually
+        assertEquals(4.0, this.dg.getEdgeWeight(1, 2), 0.001);
+        assertEquals(5.0, this.dg.getEdgeWeight(1, 3), 0.001);
+        assertEquals(2.0, this.dg.getEdgeWeight(2, 1), 0.001);
+        assertEquals(6.0, this.dg.getEdgeWeight(3, 4), 0.001);
+        assertEquals(EdgeWeight.getErrorValue(), this.dg.getEdgeWeight(2, 3), 0.001);
+        assertEquals(EdgeWeight.getErrorValue(), this.dg.getEdgeWeight(4, 5), 0.001);
+        
+        // Recover each weight and check (adjacent edges)
+        List<Weight<Integer,Double>> weights = this.dg.getAdjacentNodesWeights(1).collect(toList());
+        assertEquals(2, weights.size());
+        for(Weight<Integer, Double> weight : weights)
+        {
+            if(weight.getIdx().equals(2))
+                assertEquals(4.0, (double) weight.getValue(), 0.001);
+            else
+                assertEquals(5.0, (double) weight.getValue(), 0.001);
+        }
+        
+        // Recover each weight and check (incident edges)
+        weights = this.dg.getIncidentNodesWeights(1).collect(toList());
+        assertEquals(1, weights.size());
+        assertEquals(2.0, (double) weights.get(0).getValue(), 0.001);
+        
+        weights = this.dg.getNeighbourhoodWeights(3, EdgeOrientation.UND).collect(toList());
+        assertEquals(2, weights.size());
+        for(Weight<Integer, Double> weight : weights)
+        {
+            if(weight.getIdx().equals(1))
+                assertEquals(5.0, (double) weight.getValue(), 0.001);
+            else
+                assertEquals(6.0, (double) weight.getValue(), 0.001);
+        }
+        
+        // Recover each weight and check (mutual edges)
+        weights = this.dg.getIncidentMutualNodesWeights(1).collect(toList());
+        assertEquals(1, weights.size());
+        assertEquals(2.0, (double) weights.get(0).getValue(), 0.001);
+        weights = this.dg.getAdjacentMutualNodesWeights(1).collect(toList());
+        assertEquals(1, weights.size());
+        assertEquals(4.0, (double) weights.get(0).getValue(), 0.001);
+    }
+    
+    /**
+     * Test the types of the edges
+     */
+    @Test
+    public void types()
+    {
+        assertEquals(1, this.dg.getEdgeType(1,2));
+        assertEquals(3, this.dg.getEdgeType(2,1));
+        assertEquals(5, this.dg.getEdgeType(3,4));
+        
+        List<Weight<Integer,Integer>> types = this.dg.getNeighbourhoodTypes(1, EdgeOrientation.MUTUAL).collect(toList());
+        assertEquals(1, types.size());
+        assertEquals(1, (int) types.get(0).getValue());
+        
+        types = this.dg.getNeighbourhoodTypes(3, EdgeOrientation.IN).collect(toList());
+        assertEquals(1, types.size());
+        assertEquals(2, (int) types.get(0).getValue());
+    }
+    
+    /**
+     * Tests the copy of the view.
+     */
+    @Test
+    public void materialize()
+    {
+        Graph<Integer> copy = this.dg.materialize();
+        assertEquals(true, copy.isWeighted());
+        assertEquals(4L, copy.getVertexCount());
+        assertEquals(4L, copy.getEdgeCount());
+        assertEquals(4.0, copy.getEdgeWeight(1, 2), 0.001);
+        assertEquals(6.0, copy.getEdgeWeight(3, 4), 0.001);
+        assertEquals(5, copy.getEdgeType(3, 4));
+    }
+}
@@ -0,0 +1,177 @@
+package es.uam.eps.ir.socialnetwork.graph.masked;
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.graph.UndirectedGraph;
+import es.uam.eps.ir.socialnetwork.graph.Weight;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastUndirectedUnweightedGraph;
+import java.util.BitSet;
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Class that tests the undirected unweighted views of fast graphs.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class UndirectedUnweightedGraphTest 
+{
+    /**
+     * The original graph.
+     */
+    private FastGraph<Integer> graph;
+    /**
+     * The edge index of the original graph.
+     */
+    private EdgeIndex<Integer> index;
+    /**
+     * The view.
+     */
+    private MaskedGraph<Integer> ug;
+    
+    public UndirectedUnweightedGraphTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    /**
+     * Builds the original graph and the view: node 5 and edge (2,3) are removed, so the 
+     * view contains the edges (1,2), (1,3) and (3,4).
+     */
+    @Before
+    public void setUp() 
+    {
+        this.graph = new FastUndirectedUnweightedGraph<>();
+        for(int i = 1; i <= 5; ++i)
+        {
+            this.graph.addNode(i);
+        }
+        this.graph.addEdge(1,2);
+        this.graph.addEdge(1,3);
+        this.graph.addEdge(2,3);
+        this.graph.addEdge(3,4);
+        this.graph.addEdge(4,5);
+        
+        this.index = new EdgeIndex<>(this.graph);
+        BitSet nodes = this.index.allNodes();
+        nodes.clear(this.graph.object2idx(5));
+        BitSet edges = this.index.allEdges();
+        edges.clear(this.index.edgeId(this.graph.object2idx(3), this.graph.object2idx(2)));
+        this.ug = this.index.view(nodes, edges);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Tests the identifiers of the edges.
+     */
+    @Test
+    public void edgeIdentifiers()
+    {
+        assertEquals(5, this.index.allEdges().cardinality());
+        for(int i = 1; i <= 5; ++i)
+        {
+            List<Integer> neighs = this.graph.getAdjacentNodes(i).collect(toList());
+            for(int j = 1; j <= 5; ++j)
+            {
+                int uidx = this.graph.object2idx(i);
+                int vidx = this.graph.object2idx(j);
+                assertEquals(this.index.edgeId(uidx, vidx), this.index.edgeId(vidx, uidx));
+                assertEquals(neighs.contains(j), this.index.edgeId(uidx, vidx) >= 0);
+            }
+        }
+    }
+    
+    /**
+     * Tests the nodes and edges of the view.
+     */
+    @Test
+    public void nodesAndEdges()
+    {
+        assertEquals(true, this.ug instanceof UndirectedGraph);
+        assertEquals(4L, this.ug.getVertexCount());
+        assertEquals(3L, this.ug.getEdgeCount());
+        
+        // Both orientations of each edge are in the view
+        assertEquals(true, this.ug.containsEdge(1,2));
+        assertEquals(true, this.ug.containsEdge(2,1));
+        assertEquals(true, this.ug.containsEdge(3,4));
+        assertEquals(true, this.ug.containsEdge(4,3));
+        
+        // Removed edges, in both orientations
+        assertEquals(false, this.ug.containsEdge(2,3));
+        assertEquals(false, this.ug.containsEdge(3,2));
+        assertEquals(false, this.ug.containsEdge(4,5));
+        assertEquals(false, this.ug.containsEdge(5,4));
+        
+        assertEquals(1.0, this.ug.getEdgeWeight(3, 1), 0.001);
+    }
+    
+    /**
+     * Test that checks if the number of nodes and edges which reach a node or start from 
+     * it are correct.
+     */
+    @Test
+    public void edgesAndNodesCount()
+    {
+        // Check the number of neighbour edges
+        assertEquals(2, this.ug.getNeighbourEdgesCount(1));
+        assertEquals(1, this.ug.getNeighbourEdgesCount(2));
+        assertEquals(2, this.ug.getNeighbourEdgesCount(3));
+        assertEquals(1, this.ug.getNeighbourEdgesCount(4));
+        assertEquals(0, this.ug.getNeighbourEdgesCount(5));
+        
+        // In undirected graphs, every neighbourhood is the same.
+        for(int i = 1; i <= 4; ++i)
+        {
+            int count = this.ug.getNeighbourEdgesCount(i);
+            assertEquals(count, this.ug.getAdjacentEdgesCount(i));
+            assertEquals(count, this.ug.getIncidentEdgesCount(i));
+            assertEquals(count, this.ug.getMutualEdgesCount(i));
+            for(EdgeOrientation orient : EdgeOrientation.values())
+            {
+                assertEquals(count, this.ug.getNeighbourhoodSize(i, orient));
+                assertEquals((long) count, this.ug.getNeighbourhood(i, orient).count());
+            }
+        }
+        
+        List<Integer> neighs = this.ug.getNeighbourNodes(3).sorted().collect(toList());
+        assertEquals(2, neighs.size());
+        assertEquals(1, (int) neighs.get(0));
+        assertEquals(4, (int) neighs.get(1));
+    }
+    
+    /**
+     * Test the types of the edges
+     */
+    @Test
+    public void types()
+    {
+        for(EdgeOrientation orient : EdgeOrientation.values())
+        {
+            List<Weight<Integer,Integer>> types = this.ug.getNeighbourhoodTypes(1, orient).collect(toList());
+            assertEquals(2, types.size());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package es.uam.eps.ir.socialnetwork.graph.masked;
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.Weight;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeWeight;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastUndirectedWeightedGraph;
+import java.util.BitSet;
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Class that tests the undirected weighted views of fast graphs.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class UndirectedWeightedGraphTest 
+{
+    /**
+     * The original graph.
+     */
+    private FastGraph<Integer> graph;
+    /**
+     * The edge index of the original graph.
+     */
+    private EdgeIndex<Integer> index;
+    /**
+     * The view.
+     */
+    private MaskedGraph<Integer> ug;
+    
+    public UndirectedWeightedGraphTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    /**
+     * Builds the original graph and the view: node 5 and edge (2,3) are removed, so the 
+     * view contains the edges (1,2), (1,3) and (3,4).
+     */
+    @Before
+    public void setUp() 
+    {
+        this.graph = new FastUndirectedWeightedGraph<>();
+        for(int i = 1; i <= 5; ++i)
+        {
+            this.graph.addNode(i);
+        }
+        this.graph.addEdge(1,2,4.0,1, true);
+        this.graph.addEdge(1,3,5.0,2, true);
+        this.graph.addEdge(2,3,3.0,3, true);
+        this.graph.addEdge(3,4,6.0,4, true);
+        this.graph.addEdge(4,5,7.0,5, true);
+        
+        this.index = new EdgeIndex<>(this.graph);
+        BitSet nodes = this.index.allNodes();
+        nodes.clear(this.graph.object2idx(5));
+        BitSet edges = this.index.allEdges();
+        edges.clear(this.index.edgeId(this.graph.object2idx(2), this.graph.object2idx(3)));
+        this.ug = this.index.view(nodes, edges);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Test the weights of the edges
+     */
+    @Test
+    public void weights()
+    {
+        assertEquals(true, this.ug.isWeighted());
+        assertEquals(false, this.ug.isDirected());
+        
+        // Check individually, in both orientations
+        assertEquals(4.0, this.ug.getEdgeWeight(1, 2), 0.001);
+        assertEquals(4.0, this.ug.getEdgeWeight(2, 1), 0.001);
+        assertEquals(5.0, this.ug.getEdgeWeight(3, 1), 0.001);
+        assertEquals(6.0, this.ug.getEdgeWeight(4, 3), 0.001);
+        assertEquals(EdgeWeight.getErrorValue(), this.ug.getEdgeWeight(2, 3), 0.001);
+        assertEquals(EdgeWeight.getErrorValue(), this.ug.getEdgeWeight(5, 4), 0.001);
+        
+        // Recover each weight and check
+        for(EdgeOrientation orient : EdgeOrientation.values())
+        {
+            List<Weight<Integer,Double>> weights = this.ug.getNeighbourhoodWeights(3, orient).collect(toList());
+            assertEquals(2, weights.size());
+            for(Weight<Integer, Double> weight : weights)
+            {
+                if(weight.getIdx().equals(1))
+                    assertEquals(5.0, (double) weight.getValue(), 0.001);
+                else
+                    assertEquals(6.0, (double) weight.getValue(), 0.001);
+            }
+        }
+    }
+    
+    /**
+     * Test the types of the edges
+     */
+    @Test
+    public void types()
+    {
+        assertEquals(1, this.ug.getEdgeType(2, 1));
+        assertEquals(4, this.ug.getEdgeType(3, 4));
+        
+        List<Weight<Integer,Integer>> types = this.ug.getNeighbourhoodTypes(4, EdgeOrientation.MUTUAL).collect(toList());
+        assertEquals(1, types.size());
+        assertEquals(3, (int) types.get(0).getIdx());
+        assertEquals(4, (int) types.get(0).getValue());
+    }
+    
+    /**
+     * Tests the copy of the view.
+     */
+    @Test
+    public void materialize()
+    {
+        Graph<Integer> copy = this.ug.materialize();
+        assertEquals(false, copy.isDirected());
+        assertEquals(4L, copy.getVertexCount());
+        assertEquals(3L, copy.getEdgeCount());
+        assertEquals(5.0, copy.getEdgeWeight(1, 3), 0.001);
+        assertEquals(false, copy.containsEdge(2, 3));
+    }
+}
@@ -9,6 +9,7 @@
 package es.uam.eps.ir.socialnetwork.examples.recommendation;
 
 import es.uam.eps.ir.ranksys.socialextension.FastFilterInverterRecommenderRunner;
+import es.uam.eps.ir.ranksys.socialextension.ParallelFastFilterRecommenderRunner;
 import es.uam.eps.ir.socialnetwork.adapters.Adapters;
 import es.uam.eps.ir.socialnetwork.grid.recommendation.AlgorithmGridSelector;
 import es.uam.eps.ir.socialnetwork.grid.recommendation.AlgorithmGridReader;
@@ -33,7 +34,6 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.ranksys.core.preference.fast.FastPreferenceData;
 import org.ranksys.evaluation.runner.RecommenderRunner;
-import org.ranksys.evaluation.runner.fast.FastFilterRecommenderRunner;
 import org.ranksys.evaluation.runner.fast.FastFilters;
 import org.ranksys.formats.parsing.Parsers;
 import static org.ranksys.formats.parsing.Parsers.lp;
@@ -55,6 +55,10 @@ public class GridRecommendation
      * Identifier for the user selection mode which generates recommendations for all users which create a link in the test graph.
      */
     private final static String TESTUSERS = "test";
+    /**
+     * Number of consecutive target users assigned at once to each thread of the runner.
+     */
+    private final static int BLOCKSIZE = 64;
     /**
      * Computes the recommendations
      * @param args <ul>
@@ -171,46 +175,62 @@ public class GridRecommendation
             filter = FastFilters.and(FastFilters.notInTrain(trainData), FastFilters.notSelf(index), SocialFastFilters.notReciprocal(graph,index), SocialFastFilters.onlyFollowedUsers(testGraph)); 
         }        
         
-        RecommenderRunner<Long,Long> runner = invert ?  new FastFilterInverterRecommenderRunner<>(index, index, targetUsers.stream(), filter, maxLength) :
-                                                        new FastFilterRecommenderRunner<>(index, index, targetUsers.stream(), filter, maxLength);        
-
-        ForkJoinPool customThreadPool = new ForkJoinPool(numCores);
-        customThreadPool.submit(() ->
-            recMap.entrySet().parallelStream().forEach(entry -> 
-            {
-                String name = entry.getKey();
-                File f = new File(outputPath + name + ".txt");
-                if(!f.exists() || overwrite)
-                {
-
-                    System.out.println("Preparing " + name);
-                    Supplier<Recommender<Long,Long>> recomm = entry.getValue();
+        if(invert)
+        {
+            RecommenderRunner<Long,Long> runner = new FastFilterInverterRecommenderRunner<>(index, index, targetUsers.stream(), filter, maxLength);
+            ForkJoinPool customThreadPool = new ForkJoinPool(numCores);
+            customThreadPool.submit(() ->
+                recMap.entrySet().parallelStream().forEach(entry -> run(entry.getKey(), entry.getValue(), runner, format, outputPath, overwrite))
+            ).get();
+        }
+        else
+        {
+            // The algorithms are executed one after another, but each of them scores the target users in parallel.
+            RecommenderRunner<Long,Long> runner = new ParallelFastFilterRecommenderRunner<>(index, index, targetUsers.stream(), filter, maxLength, numCores, BLOCKSIZE);
+            recMap.entrySet().forEach(entry -> run(entry.getKey(), entry.getValue(), runner, format, outputPath, overwrite));
+        }
+    }
+    
+    /**
+     * Generates and writes the recommendations of a single algorithm.
+     * @param name the name of the algorithm.
+     * @param recomm supplier of the recommender.
+     * @param runner the recommender runner.
+     * @param format the recommendation format.
+     * @param outputPath directory for storing the recommendations.
+     * @param overwrite true if files have to be overwritten.
+     */
+    private static void run(String name, Supplier<Recommender<Long,Long>> recomm, RecommenderRunner<Long,Long> runner, RecommendationFormat<Long,Long> format, String outputPath, boolean overwrite)
+    {
+        File f = new File(outputPath + name + ".txt");
+        if(!f.exists() || overwrite)
+        {
+            System.out.println("Preparing " + name);
 
-                    long a = System.currentTimeMillis();
-                    Recommender<Long, Long> rec = recomm.get();
-                    long b = System.currentTimeMillis();
-                    System.out.println("Prepared " + name + " (" + (b-a) + " ms.)");
+            long a = System.currentTimeMillis();
+            Recommender<Long, Long> rec = recomm.get();
+            long b = System.currentTimeMillis();
+            System.out.println("Prepared " + name + " (" + (b-a) + " ms.)");
 
-                    try(RecommendationFormat.Writer<Long, Long> writer = format.getWriter(outputPath + name + ".txt"))
-                    {
-                        System.out.println("Running " + name);
-                        a = System.currentTimeMillis();
-                        runner.run(rec, writer);
-                        b = System.currentTimeMillis();
-                        System.out.println("Done " + name + " (" + (b-a) + " ms.)");
-                    }
-                    catch(IOException ioe)
-                    {
-                        System.err.println("Algorithm " + name + " failed");
-                    }
-                }
-                else
-                {
-                    System.out.println("Recommendation " + name + " already computed");
-                }
-            })
-        ).get();
+            try(RecommendationFormat.Writer<Long, Long> writer = format.getWriter(outputPath + name + ".txt"))
+            {
+                System.out.println("Running " + name);
+                a = System.currentTimeMillis();
+                runner.run(rec, writer);
+                b = System.currentTimeMillis();
+                System.out.println("Done " + name + " (" + (b-a) + " ms.)");
+            }
+            catch(IOException ioe)
+            {
+                System.err.println("Algorithm " + name + " failed");
+            }
+        }
+        else
+        {
+            System.out.println("Recommendation " + name + " already computed");
+        }
     }
+
     
     /**
      * Select the users to be recommended.
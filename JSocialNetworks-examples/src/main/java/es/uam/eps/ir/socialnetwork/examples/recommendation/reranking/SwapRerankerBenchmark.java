@@ -0,0 +1,109 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ *
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.examples.recommendation.reranking;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.io.TextGraphReader;
+import es.uam.eps.ir.socialnetwork.recommendation.reranking.global.swap.graph.DegreeGiniReranker;
+import es.uam.eps.ir.socialnetwork.utils.indexes.GiniIndex;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import static java.util.stream.Collectors.toList;
+import org.ranksys.core.Recommendation;
+import org.ranksys.formats.parsing.Parsers;
+import static org.ranksys.formats.parsing.Parsers.lp;
+import org.ranksys.formats.rec.RecommendationFormat;
+import org.ranksys.formats.rec.TRECRecommendationFormat;
+
+/**
+ * Benchmark comparing the sequential and the parallel (speculative) modes of a swap reranker.
+ * For each mode, it reports the running time, the in-degree Gini of the graph after adding the
+ * reranked recommendations, and the fraction of recommended edges shared with the sequential mode.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class SwapRerankerBenchmark
+{
+    /**
+     * Compares the sequential and the parallel modes of the in-degree Gini swap reranker.
+     * @param args <ul>
+     *  <li><b>recFile:</b> The recommendation file</li>
+     *  <li><b>graphFile:</b> A file containing a graph</li>
+     *  <li><b>cutOff:</b> The number of recommendations for each user</li>
+     *  <li><b>lambda:</b> Trade-off between relevance and the degree Gini</li>
+     *  <li><b>batchSizes:</b> Comma-separated list of batch sizes for the parallel mode</li>
+     * </ul>
+     * @throws IOException if something fails while reading.
+     */
+    public static void main(String args[]) throws IOException
+    {
+        if(args.length < 5)
+        {
+            System.err.println("Usage: <recFile> <graphFile> <cutOff> <lambda> <batchSizes>");
+            return;
+        }
+
+        String recFile = args[0];
+        String graphFile = args[1];
+        int cutOff = Integer.parseInt(args[2]);
+        double lambda = Double.parseDouble(args[3]);
+        String[] batchSizes = args[4].split(",");
+
+        TextGraphReader<Long> greader = new TextGraphReader<>(false, true, false, false, "\t", Parsers.lp);
+        Graph<Long> graph = greader.read(graphFile, false, false);
+
+        RecommendationFormat<Long, Long> format = new TRECRecommendationFormat<>(lp,lp);
+        List<Recommendation<Long,Long>> recs = format.getReader(recFile).readAll().collect(toList());
+
+        List<Integer> sizes = new ArrayList<>();
+        sizes.add(1);
+        for(String batchSize : batchSizes)
+        {
+            sizes.add(Integer.parseInt(batchSize));
+        }
+
+        Set<String> sequential = null;
+        System.out.println("Batch size\tTime (ms)\tIn-degree Gini\tShared edges");
+        for(int batchSize : sizes)
+        {
+            DegreeGiniReranker<Long> reranker = new DegreeGiniReranker<>(lambda, cutOff, true, true, graph, EdgeOrientation.IN);
+            reranker.setBatchSize(batchSize);
+
+            long startTime = System.nanoTime();
+            List<Recommendation<Long,Long>> reranked = reranker.rerankRecommendations(recs.stream(), cutOff).collect(toList());
+            long difference = System.nanoTime() - startTime;
+
+            Set<String> edges = new HashSet<>();
+            Map<Long, Double> indegrees = new HashMap<>();
+            graph.getAllNodes().forEach(u -> indegrees.put(u, graph.degree(u, EdgeOrientation.IN) + 0.0));
+            reranked.forEach(rec -> rec.getItems().stream().limit(cutOff).forEach(iv ->
+            {
+                edges.add(rec.getUser() + "\t" + iv.v1);
+                indegrees.put(iv.v1, indegrees.getOrDefault(iv.v1, 0.0) + 1.0);
+            }));
+
+            if(sequential == null)
+            {
+                sequential = edges;
+            }
+
+            Set<String> seq = sequential;
+            long shared = edges.stream().filter(seq::contains).count();
+            double gini = new GiniIndex().compute(new ArrayList<>(indegrees.values()), true);
+
+            System.out.println(batchSize + "\t" + TimeUnit.NANOSECONDS.toMillis(difference) + "\t" + gini + "\t" + (shared/(sequential.size() + 0.0)));
+        }
+    }
+}
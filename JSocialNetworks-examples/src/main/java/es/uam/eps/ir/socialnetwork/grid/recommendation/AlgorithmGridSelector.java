@@ -304,6 +304,12 @@ public class AlgorithmGridSelector<U>
             case SIMRANK:
                 gridsearch = new SimRankGridSearch();
                 break;
+            case TRUNCCOMMUTETIME:
+                gridsearch = new TruncatedCommuteTimeGridSearch();
+                break;
+            case TRUNCHITTINGTIME:
+                gridsearch = new TruncatedHittingTimeGridSearch();
+                break;
                 
             case POPFRAC:
                 gridsearch = new PopularityFractionGridSearch();
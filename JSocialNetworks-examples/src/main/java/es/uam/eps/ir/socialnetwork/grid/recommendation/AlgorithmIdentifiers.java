@@ -98,6 +98,8 @@ public class AlgorithmIdentifiers
     public final static String PUREPERSPAGERANK = "Pure Personalized PageRank";
     public final static String SALSA = "SALSA";
     public final static String SIMRANK = "SimRank";
+    public final static String TRUNCCOMMUTETIME = "Truncated Commute Time";
+    public final static String TRUNCHITTINGTIME = "Truncated Hitting Time";
     
     // Matrix factorization
     public final static String PMFBASIC = "PMF Basic";
@@ -191,6 +193,8 @@ public class AlgorithmIdentifiers
         System.out.println("\t" + PUREPERSPAGERANK);
         System.out.println("\t" + SALSA);
         System.out.println("\t" + SIMRANK);
+        System.out.println("\t" + TRUNCCOMMUTETIME);
+        System.out.println("\t" + TRUNCHITTINGTIME);
         System.out.println("");
         
         System.out.println("Matrix factorization algorithms:");
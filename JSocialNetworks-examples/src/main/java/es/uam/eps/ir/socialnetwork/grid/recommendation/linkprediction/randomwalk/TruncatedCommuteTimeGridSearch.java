@@ -0,0 +1,98 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.grid.recommendation.linkprediction.randomwalk;
+
+import static es.uam.eps.ir.socialnetwork.grid.recommendation.AlgorithmIdentifiers.TRUNCCOMMUTETIME;
+import es.uam.eps.ir.socialnetwork.grid.Grid;
+import es.uam.eps.ir.socialnetwork.grid.recommendation.AlgorithmGridSearch;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import es.uam.eps.ir.socialnetwork.recommendation.linkprediction.randomwalk.TruncatedCommuteTimeRecommender;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import org.ranksys.core.preference.fast.FastPreferenceData;
+import org.ranksys.recommenders.Recommender;
+
+/**
+ * Grid search generator for the truncated Commute Time algorithm.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class TruncatedCommuteTimeGridSearch<U> implements AlgorithmGridSearch<U> 
+{   
+    /**
+     * Identifier for the maximum length of the random walks.
+     */
+    private final static String MAXLENGTH = "maxLength";
+    /**
+     * Identifier for the edge orientation
+     */
+    private final static String ORIENTATION = "orientation";
+    /**
+     * Identifier for the number of sampled random walks.
+     */
+    private final static String NUMWALKS = "numWalks";
+    /**
+     * Random seed.
+     */
+    private final static long SEED = 0L;
+    
+    @Override
+    public Map<String, BiFunction<FastGraph<U>, FastPreferenceData<U, U>, Recommender<U, U>>> grid(Grid grid)
+    {
+        Map<String, BiFunction<FastGraph<U>, FastPreferenceData<U, U>, Recommender<U, U>>> recs = new HashMap<>();
+        
+        List<Integer> maxLengths = grid.getIntegerValues(MAXLENGTH);
+        List<EdgeOrientation> orientations = grid.getOrientationValues(ORIENTATION);
+        List<Integer> numWalks = grid.getIntegerValues(NUMWALKS);
+        
+        maxLengths.stream().forEach(maxLength -> 
+        {
+            orientations.stream().forEach(orientation -> 
+            {
+                numWalks.stream().forEach(numWalk -> 
+                {
+                    recs.put(TRUNCCOMMUTETIME + "_" + orientation + "_" + maxLength + "_" + numWalk, (graph, prefData) -> 
+                    {
+                       return new TruncatedCommuteTimeRecommender<>(graph, orientation, maxLength, numWalk, SEED);
+                    });
+                });
+            });
+        });
+        return recs;
+    }
+
+    @Override
+    public Map<String, Supplier<Recommender<U, U>>> grid(Grid grid, FastGraph<U> graph, FastPreferenceData<U, U> prefData)
+    {
+        Map<String, Supplier<Recommender<U,U>>> recs = new HashMap<>();
+        
+        List<Integer> maxLengths = grid.getIntegerValues(MAXLENGTH);
+        List<EdgeOrientation> orientations = grid.getOrientationValues(ORIENTATION);
+        List<Integer> numWalks = grid.getIntegerValues(NUMWALKS);
+        
+        maxLengths.stream().forEach(maxLength -> 
+        {
+            orientations.stream().forEach(orientation -> 
+            {
+                numWalks.stream().forEach(numWalk -> 
+                {
+                    recs.put(TRUNCCOMMUTETIME + "_" + orientation + "_" + maxLength + "_" + numWalk, () -> 
+                    {
+                       return new TruncatedCommuteTimeRecommender<>(graph, orientation, maxLength, numWalk, SEED);
+                    });
+                });
+            });
+        });
+        return recs;
+    }
+}
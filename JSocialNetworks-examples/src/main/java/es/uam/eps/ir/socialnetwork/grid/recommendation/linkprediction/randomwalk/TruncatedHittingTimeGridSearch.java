@@ -0,0 +1,110 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.grid.recommendation.linkprediction.randomwalk;
+
+import static es.uam.eps.ir.socialnetwork.grid.recommendation.AlgorithmIdentifiers.TRUNCHITTINGTIME;
+import es.uam.eps.ir.socialnetwork.grid.Grid;
+import es.uam.eps.ir.socialnetwork.grid.recommendation.AlgorithmGridSearch;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import es.uam.eps.ir.socialnetwork.recommendation.linkprediction.randomwalk.TruncatedHittingTimeRecommender;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import org.ranksys.core.preference.fast.FastPreferenceData;
+import org.ranksys.recommenders.Recommender;
+
+/**
+ * Grid search generator for the truncated Hitting Time algorithm.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class TruncatedHittingTimeGridSearch<U> implements AlgorithmGridSearch<U> 
+{   
+    /**
+     * Identifier for the maximum length of the random walks.
+     */
+    private final static String MAXLENGTH = "maxLength";
+    /**
+     * Identifier for the edge orientation
+     */
+    private final static String ORIENTATION = "orientation";
+    /**
+     * Identifier for the direction of the hitting time (from the target user or to the target user).
+     */
+    private final static String FROMTARGET = "fromTarget";
+    /**
+     * Identifier for the number of sampled random walks.
+     */
+    private final static String NUMWALKS = "numWalks";
+    /**
+     * Random seed.
+     */
+    private final static long SEED = 0L;
+    
+    @Override
+    public Map<String, BiFunction<FastGraph<U>, FastPreferenceData<U, U>, Recommender<U, U>>> grid(Grid grid)
+    {
+        Map<String, BiFunction<FastGraph<U>, FastPreferenceData<U, U>, Recommender<U, U>>> recs = new HashMap<>();
+        
+        List<Integer> maxLengths = grid.getIntegerValues(MAXLENGTH);
+        List<EdgeOrientation> orientations = grid.getOrientationValues(ORIENTATION);
+        List<Boolean> fromTargets = grid.getBooleanValues(FROMTARGET);
+        List<Integer> numWalks = grid.getIntegerValues(NUMWALKS);
+        
+        maxLengths.stream().forEach(maxLength -> 
+        {
+            orientations.stream().forEach(orientation -> 
+            {
+                fromTargets.stream().forEach(fromTarget -> 
+                {
+                    numWalks.stream().forEach(numWalk -> 
+                    {
+                        recs.put(TRUNCHITTINGTIME + "_" + orientation + "_" + maxLength + "_" + fromTarget + "_" + numWalk, (graph, prefData) -> 
+                        {
+                           return new TruncatedHittingTimeRecommender<>(graph, orientation, maxLength, fromTarget, numWalk, SEED);
+                        });
+                    });
+                });
+            });
+        });
+        return recs;
+    }
+
+    @Override
+    public Map<String, Supplier<Recommender<U, U>>> grid(Grid grid, FastGraph<U> graph, FastPreferenceData<U, U> prefData)
+    {
+        Map<String, Supplier<Recommender<U,U>>> recs = new HashMap<>();
+        
+        List<Integer> maxLengths = grid.getIntegerValues(MAXLENGTH);
+        List<EdgeOrientation> orientations = grid.getOrientationValues(ORIENTATION);
+        List<Boolean> fromTargets = grid.getBooleanValues(FROMTARGET);
+        List<Integer> numWalks = grid.getIntegerValues(NUMWALKS);
+        
+        maxLengths.stream().forEach(maxLength -> 
+        {
+            orientations.stream().forEach(orientation -> 
+            {
+                fromTargets.stream().forEach(fromTarget -> 
+                {
+                    numWalks.stream().forEach(numWalk -> 
+                    {
+                        recs.put(TRUNCHITTINGTIME + "_" + orientation + "_" + maxLength + "_" + fromTarget + "_" + numWalk, () -> 
+                        {
+                           return new TruncatedHittingTimeRecommender<>(graph, orientation, maxLength, fromTarget, numWalk, SEED);
+                        });
+                    });
+                });
+            });
+        });
+        return recs;
+    }
+}
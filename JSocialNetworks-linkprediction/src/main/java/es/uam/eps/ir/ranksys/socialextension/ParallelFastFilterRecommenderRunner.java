@@ -0,0 +1,412 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ *
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.ranksys.socialextension;
+
+import es.uam.eps.ir.socialnetwork.recommendation.UserFastRankingRecommender;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.Stream;
+import org.ranksys.core.Recommendation;
+import org.ranksys.core.fast.FastRecommendation;
+import org.ranksys.core.index.fast.FastItemIndex;
+import org.ranksys.core.index.fast.FastUserIndex;
+import org.ranksys.core.util.tuples.Tuple2id;
+import org.ranksys.evaluation.runner.RecommenderRunner;
+import org.ranksys.recommenders.Recommender;
+import org.ranksys.recommenders.fast.FastRecommender;
+
+/**
+ * Multi-threaded fast filter runner. Target users are split in blocks, which are distributed
+ * between a fixed number of threads. For {@link UserFastRankingRecommender} recommenders, each thread
+ * reuses a dense score array and a list of scored candidates between different users, and selects the
+ * top-N candidates (applying the filter) using a bounded heap. Recommendations are delivered to the consumer
+ * by a single writer thread, in the same order as the target users were provided.
+ *
+ * Other fast recommenders are also supported, but they generate their recommendations through their
+ * own getRecommendation method.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class ParallelFastFilterRecommenderRunner<U> implements RecommenderRunner<U,U>
+{
+    /**
+     * Default number of consecutive target users assigned to a thread at once.
+     */
+    public static final int DEFAULTBLOCKSIZE = 64;
+    /**
+     * User index.
+     */
+    private final FastUserIndex<U> userIndex;
+    /**
+     * Item index.
+     */
+    private final FastItemIndex<U> itemIndex;
+    /**
+     * Target users.
+     */
+    private final List<U> users;
+    /**
+     * User filter.
+     */
+    private final Function<U, IntPredicate> userFilter;
+    /**
+     * Maximum length of the recommendation lists. 0 for no limit.
+     */
+    private final int maxLength;
+    /**
+     * Number of threads.
+     */
+    private final int numThreads;
+    /**
+     * Number of users in each block.
+     */
+    private final int blockSize;
+
+    /**
+     * Constructor.
+     *
+     * @param userIndex User index.
+     * @param itemIndex Item index.
+     * @param users target users, those for which recommendations are generated.
+     * @param userFilter item filter provided for each user.
+     * @param maxLength maximum length of the recommendation lists, 0 for no limit
+     * @param numThreads number of threads.
+     * @param blockSize number of consecutive target users assigned to a thread at once.
+     */
+    public ParallelFastFilterRecommenderRunner(FastUserIndex<U> userIndex, FastItemIndex<U> itemIndex, Stream<U> users, Function<U, IntPredicate> userFilter, int maxLength, int numThreads, int blockSize)
+    {
+        this.userIndex = userIndex;
+        this.itemIndex = itemIndex;
+        this.users = users.collect(toList());
+        this.userFilter = userFilter;
+        this.maxLength = maxLength;
+        this.numThreads = numThreads;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Constructor. Uses as many threads as available processors, and the default block size.
+     *
+     * @param userIndex User index.
+     * @param itemIndex Item index.
+     * @param users target users, those for which recommendations are generated.
+     * @param userFilter item filter provided for each user.
+     * @param maxLength maximum length of the recommendation lists, 0 for no limit
+     */
+    public ParallelFastFilterRecommenderRunner(FastUserIndex<U> userIndex, FastItemIndex<U> itemIndex, Stream<U> users, Function<U, IntPredicate> userFilter, int maxLength)
+    {
+        this(userIndex, itemIndex, users, userFilter, maxLength, Runtime.getRuntime().availableProcessors(), DEFAULTBLOCKSIZE);
+    }
+
+    @Override
+    public void run(Recommender<U, U> recommender, Consumer<Recommendation<U, U>> consumer)
+    {
+        int numUsers = users.size();
+        OrderedWriter writer = new OrderedWriter(numUsers, consumer);
+        Thread writerThread = new Thread(writer);
+        writerThread.start();
+
+        AtomicInteger nextBlock = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 0; t < numThreads; ++t)
+        {
+            futures.add(executor.submit(() ->
+            {
+                double[] scores = new double[itemIndex.numItems()];
+                IntList touched = new IntArrayList();
+                int start;
+                while((start = nextBlock.getAndAdd(blockSize)) < numUsers)
+                {
+                    int end = Math.min(start + blockSize, numUsers);
+                    for(int i = start; i < end; ++i)
+                    {
+                        writer.put(i, this.recommend(recommender, users.get(i), scores, touched));
+                    }
+                }
+            }));
+        }
+
+        try
+        {
+            for(Future<?> future : futures)
+            {
+                future.get();
+            }
+            writerThread.join();
+            if(writer.error != null)
+            {
+                throw writer.error;
+            }
+        }
+        catch(InterruptedException | ExecutionException ex)
+        {
+            writerThread.interrupt();
+            throw new RuntimeException(ex);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates the recommendation for a single user.
+     * @param recommender the recommender.
+     * @param user the target user.
+     * @param scores a dense array for storing the scores (filled with zeros).
+     * @param touched an empty list for storing the scored candidates.
+     * @return the recommendation.
+     */
+    private Recommendation<U,U> recommend(Recommender<U,U> recommender, U user, double[] scores, IntList touched)
+    {
+        int uidx = userIndex.user2uidx(user);
+        IntPredicate filter = userFilter.apply(user);
+
+        if(!(recommender instanceof UserFastRankingRecommender))
+        {
+            FastRecommendation r = ((FastRecommender<U,U>) recommender).getRecommendation(uidx, maxLength, filter);
+            return new Recommendation<>(user, r.getIidxs().stream()
+                    .map(itemIndex::iidx2item)
+                    .collect(toList()));
+        }
+
+        ((UserFastRankingRecommender<U>) recommender).getScores(uidx, scores, touched);
+
+        int capacity = maxLength > 0 ? Math.min(maxLength, touched.size()) : touched.size();
+        int[] heapIdx = new int[capacity];
+        double[] heapVal = new double[capacity];
+        int size = 0;
+
+        for(int j = 0; j < touched.size(); ++j)
+        {
+            int iidx = touched.getInt(j);
+            double val = scores[iidx];
+            scores[iidx] = 0.0;
+
+            if(capacity == 0 || !filter.test(iidx) || Double.isNaN(val))
+            {
+                continue;
+            }
+
+            if(size < capacity)
+            {
+                heapIdx[size] = iidx;
+                heapVal[size] = val;
+                siftUp(heapIdx, heapVal, size);
+                size++;
+            }
+            else if(worse(heapIdx[0], heapVal[0], iidx, val))
+            {
+                heapIdx[0] = iidx;
+                heapVal[0] = val;
+                siftDown(heapIdx, heapVal, 0, size);
+            }
+        }
+        touched.clear();
+
+        // Extract the elements from the heap (the worst one is at the root)
+        Tuple2id[] ranking = new Tuple2id[size];
+        for(int j = size - 1; j >= 0; --j)
+        {
+            ranking[j] = new Tuple2id(heapIdx[0], heapVal[0]);
+            heapIdx[0] = heapIdx[j];
+            heapVal[0] = heapVal[j];
+            siftDown(heapIdx, heapVal, 0, j);
+        }
+
+        return new Recommendation<>(user, Arrays.stream(ranking)
+                .map(itemIndex::iidx2item)
+                .collect(toList()));
+    }
+
+    /**
+     * Checks whether a candidate is ranked below other candidate (lower score, or equal
+     * score and greater identifier).
+     * @param aIdx identifier of the first candidate.
+     * @param aVal score of the first candidate.
+     * @param bIdx identifier of the second candidate.
+     * @param bVal score of the second candidate.
+     * @return true if the first candidate is ranked below the second one.
+     */
+    private static boolean worse(int aIdx, double aVal, int bIdx, double bVal)
+    {
+        return aVal < bVal || (aVal == bVal && aIdx > bIdx);
+    }
+
+    /**
+     * Moves up an element of the heap (the worst candidate is kept at the root).
+     * @param idx identifiers of the candidates in the heap.
+     * @param val scores of the candidates in the heap.
+     * @param pos position of the element to move.
+     */
+    private static void siftUp(int[] idx, double[] val, int pos)
+    {
+        while(pos > 0)
+        {
+            int parent = (pos - 1) / 2;
+            if(worse(idx[pos], val[pos], idx[parent], val[parent]))
+            {
+                swap(idx, val, pos, parent);
+                pos = parent;
+            }
+            else
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Moves down an element of the heap (the worst candidate is kept at the root).
+     * @param idx identifiers of the candidates in the heap.
+     * @param val scores of the candidates in the heap.
+     * @param pos position of the element to move.
+     * @param size number of elements in the heap.
+     */
+    private static void siftDown(int[] idx, double[] val, int pos, int size)
+    {
+        while(2*pos + 1 < size)
+        {
+            int child = 2*pos + 1;
+            if(child + 1 < size && worse(idx[child+1], val[child+1], idx[child], val[child]))
+            {
+                child++;
+            }
+
+            if(worse(idx[child], val[child], idx[pos], val[pos]))
+            {
+                swap(idx, val, pos, child);
+                pos = child;
+            }
+            else
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Swaps two elements of the heap.
+     * @param idx identifiers of the candidates in the heap.
+     * @param val scores of the candidates in the heap.
+     * @param i position of the first element.
+     * @param j position of the second element.
+     */
+    private static void swap(int[] idx, double[] val, int i, int j)
+    {
+        int auxIdx = idx[i];
+        idx[i] = idx[j];
+        idx[j] = auxIdx;
+        double auxVal = val[i];
+        val[i] = val[j];
+        val[j] = auxVal;
+    }
+
+    /**
+     * Asynchronous writer, which delivers the recommendations to the consumer in the
+     * order of the target users.
+     */
+    private class OrderedWriter implements Runnable
+    {
+        /**
+         * Pending recommendations, by position of the target user.
+         */
+        private final Recommendation<U,U>[] pending;
+        /**
+         * The consumer.
+         */
+        private final Consumer<Recommendation<U,U>> consumer;
+        /**
+         * Position of the next recommendation to deliver.
+         */
+        private int next = 0;
+        /**
+         * Error found while delivering the recommendations (null if none).
+         */
+        private volatile RuntimeException error = null;
+
+        /**
+         * Constructor.
+         * @param numUsers number of target users.
+         * @param consumer the consumer.
+         */
+        @SuppressWarnings("unchecked")
+        public OrderedWriter(int numUsers, Consumer<Recommendation<U,U>> consumer)
+        {
+            this.pending = new Recommendation[numUsers];
+            this.consumer = consumer;
+        }
+
+        /**
+         * Stores a recommendation.
+         * @param pos position of the target user.
+         * @param rec the recommendation.
+         */
+        public synchronized void put(int pos, Recommendation<U,U> rec)
+        {
+            pending[pos] = rec;
+            if(pos == next)
+            {
+                this.notifyAll();
+            }
+        }
+
+        /**
+         * Waits until the next recommendation is available.
+         * @return the next recommendation.
+         * @throws InterruptedException if the thread is interrupted while waiting.
+         */
+        private synchronized Recommendation<U,U> take() throws InterruptedException
+        {
+            while(pending[next] == null)
+            {
+                this.wait();
+            }
+            Recommendation<U,U> rec = pending[next];
+            pending[next] = null;
+            next++;
+            return rec;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                for(int i = 0; i < pending.length; ++i)
+                {
+                    consumer.accept(this.take());
+                }
+            }
+            catch(InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch(RuntimeException ex)
+            {
+                error = ex;
+            }
+
+        }
+    }
+}
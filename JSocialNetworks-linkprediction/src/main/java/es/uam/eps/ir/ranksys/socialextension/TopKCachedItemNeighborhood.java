@@ -29,4 +29,15 @@ public class TopKCachedItemNeighborhood<I> extends ItemNeighborhood<I>
     {
         super(similarity, new TopKCachedNeighborhood((Similarity) similarity,k));
     }
+
+    /**
+     * Constructor. Bounds the number of cached neighborhoods.
+     * @param similarity the item similarity function.
+     * @param k the maximum size of the neighborhood.
+     * @param maxCached the maximum number of neighborhoods to keep in the cache.
+     */
+    public TopKCachedItemNeighborhood(ItemSimilarity<I> similarity, int k, int maxCached) 
+    {
+        super(similarity, new TopKCachedNeighborhood((Similarity) similarity, k, maxCached));
+    }
 }
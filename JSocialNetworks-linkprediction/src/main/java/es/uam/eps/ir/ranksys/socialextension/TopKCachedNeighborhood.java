@@ -8,8 +8,10 @@
  */
 package es.uam.eps.ir.ranksys.socialextension;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.ranksys.core.util.topn.IntDoubleTopN;
 import org.ranksys.core.util.tuples.Tuple2id;
@@ -18,7 +20,10 @@ import org.ranksys.recommenders.nn.sim.Similarity;
 
 /**
  * Top-K neighborhood. It keeps the k most similar users/items as neighbors.
- * Caches the neighborhoods for improved performance.
+ * Caches the neighborhoods for improved performance. Neighborhoods are stored
+ * as primitive arrays. Optionally, the number of cached neighborhoods can be
+ * bounded: in that case, the least recently used neighborhoods are evicted
+ * from the cache.
  *
  * @author Javier Sanz-Cruzado Puig
  */
@@ -33,22 +38,52 @@ public class TopKCachedNeighborhood implements Neighborhood
      * The size of the neighborhoods.
      */
     private final int k;
+    /**
+     * Maximum number of cached neighborhoods (Integer.MAX_VALUE if the cache is not bounded).
+     */
+    private final int maxCached;
     /**
      * The cache.
      */
-    Map<Integer, IntDoubleTopN> cache = new ConcurrentHashMap<>();
+    private final Map<Integer, CachedNeighbors> cache;
 
     /**
-     * Constructor.
+     * Constructor. The cache is not bounded.
      *
      * @param sim similarity
      * @param k maximum size of neighborhood
      */
     public TopKCachedNeighborhood(Similarity sim, int k) {
+        this(sim, k, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sim similarity
+     * @param k maximum size of neighborhood
+     * @param maxCached maximum number of neighborhoods kept in the cache.
+     */
+    public TopKCachedNeighborhood(Similarity sim, int k, int maxCached) {
         this.sim = sim;
         this.k = k;
-        
-        
+        this.maxCached = maxCached;
+
+        if(maxCached == Integer.MAX_VALUE)
+        {
+            this.cache = new ConcurrentHashMap<>();
+        }
+        else
+        {
+            this.cache = new LinkedHashMap<Integer, CachedNeighbors>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, CachedNeighbors> eldest)
+                {
+                    return this.size() > TopKCachedNeighborhood.this.maxCached;
+                }
+            };
+        }
     }
 
     /**
@@ -60,13 +95,88 @@ public class TopKCachedNeighborhood implements Neighborhood
     @Override
     public Stream<Tuple2id> getNeighbors(int idx) {
 
-        if(!this.cache.containsKey(idx))
-        {   
-            IntDoubleTopN topN = new IntDoubleTopN(k);
-            sim.similarElems(idx).forEach(topN::add);
-            cache.put(idx, topN);
+        CachedNeighbors neighbors;
+        if(maxCached == Integer.MAX_VALUE)
+        {
+            neighbors = this.cache.computeIfAbsent(idx, this::compute);
+        }
+        else
+        {
+            synchronized(this.cache)
+            {
+                neighbors = this.cache.get(idx);
+            }
+            
+            // The neighborhood is computed outside the lock.
+            if(neighbors == null)
+            {
+                neighbors = this.compute(idx);
+                synchronized(this.cache)
+                {
+                    this.cache.put(idx, neighbors);
+                }
+            }
         }
         
-        return this.cache.get(idx).stream();
+        return neighbors.stream();
+    }
+    
+    /**
+     * Computes the neighborhood of a user/item.
+     * @param idx user/index whose neighborhood is calculated
+     * @return the neighborhood.
+     */
+    private CachedNeighbors compute(int idx)
+    {
+        IntDoubleTopN topN = new IntDoubleTopN(k);
+        sim.similarElems(idx).forEach(topN::add);
+        
+        int size = topN.size();
+        int[] idxs = new int[size];
+        double[] sims = new double[size];
+        int[] pos = new int[]{0};
+        topN.stream().forEach(elem ->
+        {
+            idxs[pos[0]] = elem.v1;
+            sims[pos[0]] = elem.v2;
+            pos[0]++;
+        });
+        
+        return new CachedNeighbors(idxs, sims);
+    }
+    
+    /**
+     * Neighborhood of a single user/item, stored in primitive arrays.
+     */
+    private static class CachedNeighbors
+    {
+        /**
+         * Identifiers of the neighbors.
+         */
+        private final int[] idxs;
+        /**
+         * Similarities of the neighbors.
+         */
+        private final double[] sims;
+
+        /**
+         * Constructor.
+         * @param idxs identifiers of the neighbors.
+         * @param sims similarities of the neighbors.
+         */
+        public CachedNeighbors(int[] idxs, double[] sims)
+        {
+            this.idxs = idxs;
+            this.sims = sims;
+        }
+        
+        /**
+         * Obtains the neighbors.
+         * @return a stream of user/item-similarity pairs.
+         */
+        public Stream<Tuple2id> stream()
+        {
+            return IntStream.range(0, idxs.length).mapToObj(j -> new Tuple2id(idxs[j], sims[j]));
+        }
     }
 }
@@ -29,4 +29,15 @@ public class TopKCachedUserNeighborhood<U> extends UserNeighborhood<U>
     {
         super(similarity, new TopKCachedNeighborhood((Similarity) similarity,k));
     }
+
+    /**
+     * Constructor. Bounds the number of cached neighborhoods.
+     * @param similarity Similarity function between users.
+     * @param k the maximum size of the neighborhood.
+     * @param maxCached the maximum number of neighborhoods to keep in the cache.
+     */
+    public TopKCachedUserNeighborhood(UserSimilarity<U> similarity, int k, int maxCached) 
+    {
+        super(similarity, new TopKCachedNeighborhood((Similarity) similarity, k, maxCached));
+    }
 }
@@ -10,6 +10,7 @@ package es.uam.eps.ir.socialnetwork.recommendation;
 
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import it.unimi.dsi.fastutil.ints.IntList;
 import org.ranksys.recommenders.fast.FastRankingRecommender;
 
 /**
@@ -45,6 +46,27 @@ public abstract class UserFastRankingRecommender<U> extends FastRankingRecommend
     }
     
 
+    /**
+     * Computes the scores for a target user, storing them in a dense array instead of a map. This
+     * allows the caller to reuse the same array for different target users. By default, the scores are
+     * copied from the map obtained by the getScoresMap method, but subclasses can override it for
+     * avoiding the creation of the map.
+     * @param uidx the identifier of the target user.
+     * @param scores a dense array (of size equal to the number of items), where the score of each
+     * candidate user is stored. It must contain zeros when the method is called (callers reusing the
+     * array have to reset the touched positions afterwards). Only the positions of the scored candidates
+     * are written.
+     * @param touched a list where the identifiers of the scored candidates are added (once each).
+     */
+    public void getScores(int uidx, double[] scores, IntList touched)
+    {
+        this.getScoresMap(uidx).int2DoubleEntrySet().forEach(entry -> 
+        {
+            scores[entry.getIntKey()] = entry.getDoubleValue();
+            touched.add(entry.getIntKey());
+        });
+    }
+    
     /**
      * Obtains the graph.
      * @return the graph.
@@ -8,11 +8,16 @@
  */
 package es.uam.eps.ir.socialnetwork.recommendation.contentbased;
 
+import es.uam.eps.ir.socialnetwork.content.SparseTextVector;
+import es.uam.eps.ir.socialnetwork.content.TermDictionary;
 import es.uam.eps.ir.socialnetwork.content.TextVector;
 import es.uam.eps.ir.socialnetwork.content.index.ContentIndex;
+import es.uam.eps.ir.socialnetwork.content.index.InvertedVectorIndex;
+import es.uam.eps.ir.socialnetwork.content.index.LSHVectorIndex;
 import es.uam.eps.ir.socialnetwork.content.index.exceptions.WrongModeException;
 import es.uam.eps.ir.socialnetwork.content.index.weighting.WeightingScheme;
 import es.uam.eps.ir.socialnetwork.content.similarities.ContentSimilarity;
+import es.uam.eps.ir.socialnetwork.content.similarities.CosineContentSimilarity;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
 import es.uam.eps.ir.socialnetwork.recommendation.UserFastRankingRecommender;
@@ -22,6 +27,7 @@ import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
 import java.util.HashMap;
 import java.util.Map;
+import org.ranksys.core.util.topn.IntDoubleTopN;
 
 /**
  * Content-based contact recommendation algorithm, based on a TF-IDF scheme.
@@ -39,6 +45,22 @@ public class CentroidIRRecommender<U,I> extends UserFastRankingRecommender<U>
      * Similarity function for comparing users
      */
     private final ContentSimilarity sim;
+    /**
+     * Inverted index over the centroids (only built for the cosine similarity).
+     */
+    private final InvertedVectorIndex index;
+    /**
+     * Approximate nearest neighbour index over the centroids (null if the approximate mode is not used).
+     */
+    private LSHVectorIndex ann = null;
+    /**
+     * In the approximate mode, the number of most similar candidates to score for each user.
+     */
+    private int numNeighbors;
+    /**
+     * In the approximate mode, whether the neighbouring buckets are also probed for candidates.
+     */
+    private boolean multiprobe;
     /**
      * Constructor. Takes some of the neighborhoods
      * @param graph Graph.
@@ -125,6 +147,8 @@ public class CentroidIRRecommender<U,I> extends UserFastRankingRecommender<U>
         {
                 System.err.println("Bad configured index.");
         }
+        
+        this.index = this.buildIndex();
     }
     
     /**
@@ -190,8 +214,72 @@ public class CentroidIRRecommender<U,I> extends UserFastRankingRecommender<U>
         {
                 System.err.println("Bad configured index.");
         }
+        
+        this.index = this.buildIndex();
+    }
+    
+    
+    /**
+     * Builds an inverted index over the centroids, if the users are compared using the cosine similarity.
+     * @return the inverted index if the similarity is the cosine similarity, null otherwise.
+     */
+    private InvertedVectorIndex buildIndex()
+    {
+        if(!(this.sim instanceof CosineContentSimilarity))
+        {
+            return null;
+        }
+        
+        return new InvertedVectorIndex(this.sparseCentroids(new TermDictionary()));
+    }
+    
+    /**
+     * Obtains the compact representation of the centroids.
+     * @param dictionary the dictionary for obtaining the term identifiers (new terms are added to it).
+     * @return the centroids, indexed by item identifier.
+     */
+    private SparseTextVector[] sparseCentroids(TermDictionary dictionary)
+    {
+        SparseTextVector[] vectors = new SparseTextVector[this.numItems()];
+        this.iIndex.getAllIidx().forEach(iidx -> 
+        {
+            TextVector centroid = this.centroids.get(this.iidx2item(iidx));
+            if(centroid != null)
+            {
+                vectors[iidx] = new SparseTextVector(centroid, dictionary);
+            }
+        });
+        return vectors;
+    }
+    
+    /**
+     * Builds an approximate nearest neighbour index over the centroids.
+     * @param numTables the number of hash tables (more tables increase the recall).
+     * @param numBits the number of bits of the signatures (more bits reduce the number of candidates).
+     * @param seed random seed.
+     * @return the index.
+     */
+    public LSHVectorIndex buildApproximateIndex(int numTables, int numBits, long seed)
+    {
+        TermDictionary dictionary = new TermDictionary();
+        return new LSHVectorIndex(this.sparseCentroids(dictionary), dictionary, numTables, numBits, seed);
     }
     
+    /**
+     * Enables the approximate mode. In this mode, candidates are retrieved from an approximate nearest 
+     * neighbour index, and their similarity with the target user is then computed exactly. Only the most 
+     * similar candidates are scored.
+     * @param ann the approximate nearest neighbour index (built by {@link #buildApproximateIndex(int, int, long)}
+     * or read from disk). Null for disabling the approximate mode.
+     * @param numNeighbors the number of most similar candidates to score for each user.
+     * @param multiprobe whether the neighbouring buckets are also probed for candidates.
+     */
+    public void setApproximateIndex(LSHVectorIndex ann, int numNeighbors, boolean multiprobe)
+    {
+        this.ann = ann;
+        this.numNeighbors = numNeighbors;
+        this.multiprobe = multiprobe;
+    }
     
     @Override
     public Int2DoubleMap getScoresMap(int uidx) 
@@ -199,6 +287,27 @@ public class CentroidIRRecommender<U,I> extends UserFastRankingRecommender<U>
         Int2DoubleMap scores = new Int2DoubleOpenHashMap();
         
         U u = this.uidx2user(uidx);
+        if(this.ann != null)
+        {
+            // Approximate mode: only the most similar candidates retrieved from the index are scored.
+            IntDoubleTopN topN = new IntDoubleTopN(this.numNeighbors);
+            for(int iidx : this.ann.candidates(this.item2iidx(u), this.multiprobe))
+            {
+                topN.add(iidx, sim.similarity(centroids.get(u), centroids.get(this.iidx2item(iidx))));
+            }
+            topN.stream().forEach(t -> scores.put(t.v1, t.v2));
+            return scores;
+        }
+        
+        if(this.index != null)
+        {
+            // Only the users sharing some term with the target user have a non-zero similarity.
+            SparseTextVector uVector = this.index.getVector(this.item2iidx(u));
+            Int2DoubleMap sims = this.index.cosine(uVector);
+            this.iIndex.getAllIidx().forEach(iidx -> scores.put(iidx, sims.get(iidx)));
+            return scores;
+        }
+        
         this.iIndex.getAllIidx().forEach(iidx -> 
         {
             U v = this.iidx2item(iidx);
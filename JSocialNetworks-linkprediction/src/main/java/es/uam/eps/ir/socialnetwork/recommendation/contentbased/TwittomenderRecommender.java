@@ -9,11 +9,16 @@
 package es.uam.eps.ir.socialnetwork.recommendation.contentbased;
 
 import es.uam.eps.ir.socialnetwork.content.ContentVector;
+import es.uam.eps.ir.socialnetwork.content.SparseTextVector;
+import es.uam.eps.ir.socialnetwork.content.TermDictionary;
 import es.uam.eps.ir.socialnetwork.content.TextVector;
+import es.uam.eps.ir.socialnetwork.content.index.InvertedVectorIndex;
+import es.uam.eps.ir.socialnetwork.content.index.LSHVectorIndex;
 import es.uam.eps.ir.socialnetwork.content.index.exceptions.WrongModeException;
 import es.uam.eps.ir.socialnetwork.content.index.twittomender.TwittomenderIndex;
 import es.uam.eps.ir.socialnetwork.content.index.weighting.TFIDFWeightingScheme;
 import es.uam.eps.ir.socialnetwork.content.similarities.ContentSimilarity;
+import es.uam.eps.ir.socialnetwork.content.similarities.CosineContentSimilarity;
 import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
 import es.uam.eps.ir.socialnetwork.recommendation.UserFastRankingRecommender;
 import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
@@ -21,6 +26,7 @@ import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
 import java.util.HashMap;
 import java.util.Map;
 import org.openide.util.Exceptions;
+import org.ranksys.core.util.topn.IntDoubleTopN;
 
 /**
  * Content-based recommendation algorithm, based on a TF-IDF scheme.
@@ -44,6 +50,22 @@ public class TwittomenderRecommender<U> extends UserFastRankingRecommender<U>
      * Similarity method to compare the different users.
      */
     private final ContentSimilarity similarity;
+    /**
+     * Inverted index over the user vectors (only built for the cosine similarity).
+     */
+    private final InvertedVectorIndex invertedIndex;
+    /**
+     * Approximate nearest neighbour index over the user vectors (null if the approximate mode is not used).
+     */
+    private LSHVectorIndex ann = null;
+    /**
+     * In the approximate mode, the number of most similar candidates to score for each user.
+     */
+    private int numNeighbors;
+    /**
+     * In the approximate mode, whether the neighbouring buckets are also probed for candidates.
+     */
+    private boolean multiprobe;
     
     /**
      * Constructor
@@ -74,6 +96,69 @@ public class TwittomenderRecommender<U> extends UserFastRankingRecommender<U>
         
         this.uIndex.getAllUsers().forEach(u -> this.cache.put(u, new HashMap<>()));
         this.similarity = sim;
+        this.invertedIndex = this.buildIndex();
+    }
+    
+    /**
+     * Builds an inverted index over the user vectors, if the users are compared using the cosine similarity.
+     * @return the inverted index if the similarity is the cosine similarity, null otherwise.
+     */
+    private InvertedVectorIndex buildIndex()
+    {
+        if(!(this.similarity instanceof CosineContentSimilarity))
+        {
+            return null;
+        }
+        
+        return new InvertedVectorIndex(this.sparseVectors(new TermDictionary()));
+    }
+    
+    /**
+     * Obtains the compact representation of the user vectors.
+     * @param dictionary the dictionary for obtaining the term identifiers (new terms are added to it).
+     * @return the user vectors, indexed by item identifier.
+     */
+    private SparseTextVector[] sparseVectors(TermDictionary dictionary)
+    {
+        SparseTextVector[] sparse = new SparseTextVector[this.numItems()];
+        this.iIndex.getAllIidx().forEach(iIdx -> 
+        {
+            ContentVector<U> vector = this.vectors.get(this.iidx2item(iIdx));
+            if(vector != null)
+            {
+                sparse[iIdx] = new SparseTextVector(vector.getVector(), dictionary);
+            }
+        });
+        return sparse;
+    }
+    
+    /**
+     * Builds an approximate nearest neighbour index over the user vectors.
+     * @param numTables the number of hash tables (more tables increase the recall).
+     * @param numBits the number of bits of the signatures (more bits reduce the number of candidates).
+     * @param seed random seed.
+     * @return the index.
+     */
+    public LSHVectorIndex buildApproximateIndex(int numTables, int numBits, long seed)
+    {
+        TermDictionary dictionary = new TermDictionary();
+        return new LSHVectorIndex(this.sparseVectors(dictionary), dictionary, numTables, numBits, seed);
+    }
+    
+    /**
+     * Enables the approximate mode. In this mode, candidates are retrieved from an approximate nearest 
+     * neighbour index, and their similarity with the target user is then computed exactly. Only the most 
+     * similar candidates are scored.
+     * @param ann the approximate nearest neighbour index (built by {@link #buildApproximateIndex(int, int, long)}
+     * or read from disk). Null for disabling the approximate mode.
+     * @param numNeighbors the number of most similar candidates to score for each user.
+     * @param multiprobe whether the neighbouring buckets are also probed for candidates.
+     */
+    public void setApproximateIndex(LSHVectorIndex ann, int numNeighbors, boolean multiprobe)
+    {
+        this.ann = ann;
+        this.numNeighbors = numNeighbors;
+        this.multiprobe = multiprobe;
     }
 
     @Override
@@ -83,6 +168,25 @@ public class TwittomenderRecommender<U> extends UserFastRankingRecommender<U>
         TextVector uVector = this.vectors.get(u).getVector();
         Int2DoubleMap scores = new Int2DoubleOpenHashMap();
         
+        if(this.ann != null)
+        {
+            // Approximate mode: only the most similar candidates retrieved from the index are scored.
+            IntDoubleTopN topN = new IntDoubleTopN(this.numNeighbors);
+            for(int iIdx : this.ann.candidates(this.item2iidx(u), this.multiprobe))
+            {
+                topN.add(iIdx, this.similarity.similarity(uVector, this.vectors.get(this.iidx2item(iIdx)).getVector()));
+            }
+            topN.stream().forEach(t -> scores.put(t.v1, t.v2));
+            return scores;
+        }
+        
+        if(this.invertedIndex != null)
+        {
+            // Only the users sharing some term with the target user have a non-zero similarity.
+            Int2DoubleMap sims = this.invertedIndex.cosine(this.invertedIndex.getVector(this.item2iidx(u)));
+            this.iIndex.getAllIidx().forEach(iIdx -> scores.put(iIdx, sims.get(iIdx)));
+            return scores;
+        }
         
         this.iIndex.getAllIidx().forEach(iIdx -> 
         {
@@ -8,15 +8,16 @@
  */
 package es.uam.eps.ir.socialnetwork.recommendation.linkprediction.bipartite;
 
-import cern.colt.matrix.DoubleMatrix1D;
-import cern.colt.matrix.impl.SparseDoubleMatrix1D;
-import cern.colt.matrix.linalg.Algebra;
-import cern.jet.math.Functions;
+import es.uam.eps.ir.socialnetwork.content.SparseTextVector;
+import es.uam.eps.ir.socialnetwork.content.index.InvertedVectorIndex;
 import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
 import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Recommender. Builds a centroid for each user in the network, using the vectors of the 
@@ -30,7 +31,7 @@ public class CentroidCosineSimilarityRecommender<U> extends BipartiteRecommender
     /**
      * Vectorial representation of the authorities.
      */
-    private final Map<U, DoubleMatrix1D> authVectors;
+    private final Map<U, SparseTextVector> authVectors;
     /**
      * Norms of the vectors.
      */
@@ -39,6 +40,10 @@ public class CentroidCosineSimilarityRecommender<U> extends BipartiteRecommender
      * Identifiers of the hubs.
      */
     private final Map<Long, Integer> hubIdx;
+    /**
+     * Inverted index over the vectors of the authorities.
+     */
+    private final InvertedVectorIndex index;
     
     /**
      * Constructor
@@ -59,11 +64,12 @@ public class CentroidCosineSimilarityRecommender<U> extends BipartiteRecommender
         
         this.authorities.entrySet().stream().forEach(entry -> 
         {
-           DoubleMatrix1D vector = new SparseDoubleMatrix1D(this.hubs.size());
-           double norm = this.computeVector(entry.getKey(), vector);
+           SparseTextVector vector = this.computeVector(entry.getKey());
            this.authVectors.put(entry.getValue(), vector);
-           this.normVectors.put(entry.getValue(), norm);
+           this.normVectors.put(entry.getValue(), vector.getModule());
         });
+        
+        this.index = this.buildIndex();
     }
     
     @Override
@@ -72,21 +78,21 @@ public class CentroidCosineSimilarityRecommender<U> extends BipartiteRecommender
         Int2DoubleMap scores = new Int2DoubleOpenHashMap();
         U u = this.uIndex.uidx2user(i);
         // Get the identity in the graph.
-        Algebra algebra = new Algebra();
-        
         long bIdx = this.hubs.entrySet().stream().filter(entry -> entry.getValue().equals(u)).findFirst().get().getKey();
         
-        DoubleMatrix1D centroid = new SparseDoubleMatrix1D(this.hubs.size());
-        double norm = this.computeCentroid(bIdx, centroid);
+        SparseTextVector centroid = this.computeCentroid(bIdx);
+        double norm = centroid.getModule();
+        
+        // Only the authorities sharing some hub with the centroid have a non-zero scalar product.
+        Int2DoubleMap products = this.index.scalarProducts(centroid);
         
         this.authorities.entrySet().stream().forEach(auth -> 
         {
            U authUser = auth.getValue();
-           DoubleMatrix1D authVector = this.authVectors.get(authUser);
            double normVector = this.normVectors.get(authUser);
            
            int vIdx = this.uIndex.user2uidx(authUser);
-           double score = algebra.mult(authVector, centroid)/(normVector*norm);
+           double score = (normVector > 0.0 && norm > 0.0) ? products.get(vIdx)/(normVector*norm) : 0.0;
            scores.put(vIdx, score);
         });
         
@@ -95,50 +101,63 @@ public class CentroidCosineSimilarityRecommender<U> extends BipartiteRecommender
 
     
     /**
-     * Computes the vector for an authority
+     * Builds an inverted index over the vectors of the authorities, using the identifiers of the 
+     * authorities in the user index.
+     * @return the inverted index.
+     */
+    private InvertedVectorIndex buildIndex()
+    {
+        SparseTextVector[] vectors = new SparseTextVector[this.uIndex.numUsers()];
+        this.authVectors.forEach((auth, vector) -> vectors[this.uIndex.user2uidx(auth)] = vector);
+        return new InvertedVectorIndex(vectors);
+    }
+    
+    /**
+     * Computes the vector for an authority. Its dimensions are the hubs pointing to it.
      * @param auth The identifier of the authority
-     * @param vector The vector
-     * @return The norm of the vector (L2 norm)
+     * @return The vector.
      */
-    private double computeVector(long auth, DoubleMatrix1D vector)
+    private SparseTextVector computeVector(long auth)
     {
-        double module;
-        
-        module = this.hubs.keySet().stream().mapToDouble(hub -> 
+        List<Long> incident = this.bipartiteGraph.getIncidentNodes(auth).collect(Collectors.toCollection(ArrayList::new));
+        int[] hubIds = new int[incident.size()];
+        double[] weights = new double[incident.size()];
+        for(int j = 0; j < incident.size(); ++j)
         {
-            if(this.bipartiteGraph.containsEdge(hub, auth))
-            {
-                double w = this.bipartiteGraph.getEdgeWeight(hub, auth);
-                vector.setQuick(hubIdx.get(hub), w);
-                return w*w;
-            }
-            return 0.0;
-        }).sum();
+            long hub = incident.get(j);
+            hubIds[j] = hubIdx.get(hub);
+            weights[j] = this.bipartiteGraph.getEdgeWeight(hub, auth);
+        }
         
-        return Math.sqrt(module);
+        return new SparseTextVector(hubIds, weights);
     }
     
     /**
      * Computes a centroid for a hub
      * @param hub The identifier of the hub
-     * @param centroid The vector
-     * @return The norm of the vector (L2 norm)
+     * @return The centroid
      */
-    private double computeCentroid(long hub, DoubleMatrix1D centroid) 
+    private SparseTextVector computeCentroid(long hub) 
     {
-        Algebra alg = new Algebra();
-        
+        Int2DoubleOpenHashMap centroid = new Int2DoubleOpenHashMap();
         this.bipartiteGraph.getAdjacentNodes(hub).forEach(auth -> 
         {
-            U v = this.authorities.get(auth);
-            centroid.assign(this.authVectors.get(v),Functions.plus);
+            SparseTextVector vector = this.authVectors.get(this.authorities.get(auth));
+            for(int j = 0; j < vector.size(); ++j)
+            {
+                centroid.addTo(vector.getTerm(j), vector.getWeightAt(j));
+            }
         });
         
         int adj = this.bipartiteGraph.getAdjacentNodesCount(hub);
-        if(adj > 0)
-            centroid.assign(Functions.div(adj+0.0));
+        int[] hubIds = centroid.keySet().toIntArray();
+        double[] weights = new double[hubIds.length];
+        for(int j = 0; j < hubIds.length; ++j)
+        {
+            weights[j] = adj > 0 ? centroid.get(hubIds[j])/(adj+0.0) : centroid.get(hubIds[j]);
+        }
         
-        return alg.norm2(centroid);
+        return new SparseTextVector(hubIds, weights);
     }
     
 }
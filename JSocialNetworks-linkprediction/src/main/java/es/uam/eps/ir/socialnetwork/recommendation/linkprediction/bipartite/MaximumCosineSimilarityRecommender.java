@@ -8,9 +8,8 @@
  */
 package es.uam.eps.ir.socialnetwork.recommendation.linkprediction.bipartite;
 
-import cern.colt.matrix.DoubleMatrix1D;
-import cern.colt.matrix.impl.SparseDoubleMatrix1D;
-import cern.colt.matrix.linalg.Algebra;
+import es.uam.eps.ir.socialnetwork.content.SparseTextVector;
+import es.uam.eps.ir.socialnetwork.content.index.InvertedVectorIndex;
 import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Pair;
 import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
@@ -36,7 +35,7 @@ public class MaximumCosineSimilarityRecommender<U> extends BipartiteRecommender<
     /**
      * Vectorial representation of the authorities
      */
-    private final Map<U, DoubleMatrix1D> authVectors;
+    private final Map<U, SparseTextVector> authVectors;
     /**
      * Norms of the vectors.
      */
@@ -69,29 +68,31 @@ public class MaximumCosineSimilarityRecommender<U> extends BipartiteRecommender<
         
         this.authorities.entrySet().stream().forEach(entry -> 
         {
-           DoubleMatrix1D vector = new SparseDoubleMatrix1D(this.hubs.size());
-           double norm = this.computeVector(entry.getKey(), vector);
+           SparseTextVector vector = this.computeVector(entry.getKey());
            this.authVectors.put(entry.getValue(), vector);
-           this.normVectors.put(entry.getValue(), norm);
+           this.normVectors.put(entry.getValue(), vector.getModule());
         });
         
+        // Only pairs of authorities sharing some hub are stored: the rest have a zero scalar product.
         this.similarities = new Object2DoubleOpenHashMap<>();
-        this.similarities.defaultReturnValue(-1.0);
-        Algebra alg = new Algebra();
+        this.similarities.defaultReturnValue(0.0);
+        InvertedVectorIndex index = this.buildIndex();
         authVectors.entrySet().forEach(first -> 
         {
             U u = first.getKey();
-            DoubleMatrix1D uVec = first.getValue();
             double uNorm = this.normVectors.get(u);
-           authVectors.entrySet().forEach(second -> 
-           {
-               U v = second.getKey();
-               DoubleMatrix1D vVec = second.getValue();
-               double vNorm = this.normVectors.get(v);
-               double cos = alg.mult(uVec, vVec);
-               cos = cos / (uNorm*vNorm);
-               this.similarities.put(new Pair<>(u,v), cos);
-           });
+            if(uNorm > 0.0)
+            {
+                index.scalarProducts(first.getValue()).int2DoubleEntrySet().forEach(second -> 
+                {
+                    U v = this.uIndex.uidx2user(second.getIntKey());
+                    double vNorm = this.normVectors.get(v);
+                    if(vNorm > 0.0)
+                    {
+                        this.similarities.put(new Pair<>(u,v), second.getDoubleValue() / (uNorm*vNorm));
+                    }
+                });
+            }
         });
     }
     
@@ -120,7 +121,7 @@ public class MaximumCosineSimilarityRecommender<U> extends BipartiteRecommender<
                 U w1 = this.authorities.get(adj);
                 if(w1 != u)
                 {
-                    double sim = this.similarities.getDouble(new Pair<>(v,w1));
+                    double sim = this.similarity(v, w1);
                     if(sim > maxScore)
                     {
                         maxScore = sim;
@@ -136,26 +137,46 @@ public class MaximumCosineSimilarityRecommender<U> extends BipartiteRecommender<
 
     
     /**
-     * Computes the vector for an authority
+     * Obtains the cosine similarity between two authorities. Authorities which do not share any hub
+     * (or whose vectors are empty) have zero similarity.
+     * @param u the first authority.
+     * @param v the second authority.
+     * @return the cosine similarity.
+     */
+    private double similarity(U u, U v)
+    {
+        return this.similarities.getDouble(new Pair<>(u,v));
+    }
+    
+    /**
+     * Builds an inverted index over the vectors of the authorities, using the identifiers of the 
+     * authorities in the user index.
+     * @return the inverted index.
+     */
+    private InvertedVectorIndex buildIndex()
+    {
+        SparseTextVector[] vectors = new SparseTextVector[this.uIndex.numUsers()];
+        this.authVectors.forEach((auth, vector) -> vectors[this.uIndex.user2uidx(auth)] = vector);
+        return new InvertedVectorIndex(vectors);
+    }
+    
+    /**
+     * Computes the vector for an authority. Its dimensions are the hubs pointing to it.
      * @param auth The identifier of the authority
-     * @param vector The vector
-     * @return The norm of the vector (L2 norm)
+     * @return The vector.
      */
-    private double computeVector(long auth, DoubleMatrix1D vector)
+    private SparseTextVector computeVector(long auth)
     {
-        double module;
-        
-        module = this.hubs.keySet().stream().mapToDouble(hub -> 
+        List<Long> incident = this.bipartiteGraph.getIncidentNodes(auth).collect(Collectors.toCollection(ArrayList::new));
+        int[] hubIds = new int[incident.size()];
+        double[] weights = new double[incident.size()];
+        for(int j = 0; j < incident.size(); ++j)
         {
-            if(this.bipartiteGraph.containsEdge(hub, auth))
-            {
-                double w = this.bipartiteGraph.getEdgeWeight(hub, auth);
-                vector.setQuick(hubIdx.get(hub), w);
-                return w*w;
-            }
-            return 0.0;
-        }).sum();
+            long hub = incident.get(j);
+            hubIds[j] = hubIdx.get(hub);
+            weights[j] = this.bipartiteGraph.getEdgeWeight(hub, auth);
+        }
         
-        return Math.sqrt(module);
+        return new SparseTextVector(hubIds, weights);
     }    
 }
@@ -13,6 +13,7 @@ import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
 import es.uam.eps.ir.socialnetwork.recommendation.UserFastRankingRecommender;
 import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntList;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -56,8 +57,6 @@ public class MostCommonNeighboursRecommender<U> extends UserFastRankingRecommend
         Int2DoubleMap scoresMap = new Int2DoubleOpenHashMap();
         scoresMap.defaultReturnValue(0.0);
         
-        
-        
         Set<U> uNeigh = this.getGraph().getNeighbourhood(this.uidx2user(uidx), uSel).collect(Collectors.toCollection(HashSet::new));
         this.uIndex.getAllUidx().forEach(iidx -> 
         {
@@ -68,6 +67,32 @@ public class MostCommonNeighboursRecommender<U> extends UserFastRankingRecommend
         return scoresMap;
     }
 
-    
-    
+    /**
+     * {@inheritDoc} As in the getScoresMap method, every user is scored: the common neighbours are
+     * counted by traversing the neighbourhoods of the neighbours of the target user, and the rest of
+     * users are added afterwards with zero score.
+     */
+    @Override
+    public void getScores(int uidx, double[] scores, IntList touched)
+    {
+        EdgeOrientation wSel = vSel.invertSelection();
+        this.getGraph().getNeighborhood(uidx, uSel).forEach(widx -> 
+            this.getGraph().getNeighborhood(widx, wSel).forEach(vidx -> 
+            {
+                if(scores[vidx] == 0.0)
+                {
+                    touched.add(vidx.intValue());
+                }
+                scores[vidx] += 1.0;
+            })
+        );
+        
+        this.uIndex.getAllUidx().forEach(vidx -> 
+        {
+            if(scores[vidx] == 0.0)
+            {
+                touched.add(vidx);
+            }
+        });
+    }
 }
@@ -0,0 +1,69 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.recommendation.linkprediction.randomwalk;
+
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import es.uam.eps.ir.socialnetwork.recommendation.UserFastRankingRecommender;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+
+/**
+ * Recommends users based on the truncated commute time, i.e. the sum of the truncated hitting
+ * times from the target user to the candidate, and from the candidate to the target user.
+ * Differently from the {@link CommuteTimeRecommender}, it does not compute the full hitting time 
+ * matrix: scores are computed for each target user, only over the neighbourhood reachable within 
+ * the maximum number of steps.
+ * 
+ * Only those users reached by (or reaching) the target user are scored.
+ * 
+ * Sarkar, P., Moore, A. A tractable approach to finding closest truncated-commute-time neighbors in large graphs, UAI 2007.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users
+ */
+public class TruncatedCommuteTimeRecommender<U> extends UserFastRankingRecommender<U>
+{
+    /**
+     * Engine for computing the truncated hitting times.
+     */
+    private final TruncatedHittingTime<U> hittingTime;
+    
+    /**
+     * Constructor.
+     * @param graph the graph.
+     * @param orientation the orientation of the edges the random walker follows.
+     * @param maxLength maximum length of the random walks.
+     * @param numWalks number of random walks to sample when measuring the hitting time from the target user.
+     * @param seed random seed.
+     */
+    public TruncatedCommuteTimeRecommender(FastGraph<U> graph, EdgeOrientation orientation, int maxLength, int numWalks, long seed)
+    {
+        this(graph, new TruncatedHittingTime<>(graph, orientation, maxLength, numWalks, seed));
+    }
+    
+    /**
+     * Constructor.
+     * @param graph the graph.
+     * @param hittingTime an engine for computing the truncated hitting times.
+     */
+    public TruncatedCommuteTimeRecommender(FastGraph<U> graph, TruncatedHittingTime<U> hittingTime)
+    {
+        super(graph);
+        this.hittingTime = hittingTime;
+    }
+    
+    @Override
+    public Int2DoubleMap getScoresMap(int i) 
+    {
+        Int2DoubleMap scores = new Int2DoubleOpenHashMap();
+        this.hittingTime.commuteTimes(i).int2DoubleEntrySet().forEach(entry -> scores.put(entry.getIntKey(), -entry.getDoubleValue()));
+        return scores;
+    }
+}
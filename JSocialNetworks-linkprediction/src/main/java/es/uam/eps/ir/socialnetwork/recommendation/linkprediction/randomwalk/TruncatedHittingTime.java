@@ -0,0 +1,317 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ *
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.recommendation.linkprediction.randomwalk;
+
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Sparse engine for computing truncated hitting times over a graph. The truncated hitting time
+ * h<sup>T</sup>(u,v) is the expected number of steps a random walker starting at u needs for reaching
+ * v for the first time, when walks are cut after T steps (walks which never reach v count as T).
+ *
+ * Hitting times to a target node are computed exactly by dynamic programming over the nodes which
+ * are, at most, T steps away from the target. Hitting times from a source node are estimated by
+ * sampling random walks of length T from the source. In both cases, the cost only depends on the
+ * neighbourhood of the target / source node, and not on the size of the whole network.
+ *
+ * The transition probabilities are precomputed once, in compressed sparse row form. All the methods
+ * only use local structures, so the different targets can be evaluated concurrently.
+ *
+ * Sarkar, P., Moore, A. A tractable approach to finding closest truncated-commute-time neighbors in large graphs, UAI 2007.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class TruncatedHittingTime<U>
+{
+    /**
+     * Maximum length of the random walks.
+     */
+    private final int maxLength;
+    /**
+     * Number of random walks to sample when computing the hitting times from a node.
+     */
+    private final int numWalks;
+    /**
+     * Random seed.
+     */
+    private final long seed;
+    /**
+     * For each node, the nodes the random walker can move to.
+     */
+    private final int[][] transitions;
+    /**
+     * For each node, the cumulative transition probabilities (aligned with the transitions array).
+     */
+    private final double[][] cumProbs;
+    /**
+     * For each node, the transition probabilities (aligned with the transitions array).
+     */
+    private final double[][] probs;
+    /**
+     * For each node, the nodes from which the random walker can move to it.
+     */
+    private final int[][] reverse;
+
+    /**
+     * Constructor.
+     * @param graph the graph.
+     * @param orientation the orientation of the edges the random walker follows.
+     * @param maxLength maximum length of the random walks.
+     * @param numWalks number of random walks to sample when computing the hitting times from a node.
+     * @param seed random seed.
+     */
+    public TruncatedHittingTime(FastGraph<U> graph, EdgeOrientation orientation, int maxLength, int numWalks, long seed)
+    {
+        this.maxLength = maxLength;
+        this.numWalks = numWalks;
+        this.seed = seed;
+
+        int numNodes = graph.getAllNodesIds().max().orElse(-1) + 1;
+        this.transitions = new int[numNodes][];
+        this.probs = new double[numNodes][];
+        this.cumProbs = new double[numNodes][];
+
+        int[] reverseCount = new int[numNodes];
+        graph.getAllNodesIds().forEach(uidx ->
+        {
+            IntList neighs = new IntArrayList();
+            double[] weights = graph.getNeighborhoodWeights(uidx, orientation).mapToDouble(w ->
+            {
+                neighs.add(w.v1);
+                return w.v2;
+            }).toArray();
+
+            // Nodes whose outgoing weights add up to zero are treated as dangling nodes.
+            double sum = Arrays.stream(weights).sum();
+            int[] ns = sum > 0.0 ? neighs.toIntArray() : new int[0];
+            double[] ps = new double[ns.length];
+            double[] cps = new double[ns.length];
+            double acc = 0.0;
+            for(int j = 0; j < ns.length; ++j)
+            {
+                ps[j] = weights[j]/sum;
+                acc += ps[j];
+                cps[j] = acc;
+                reverseCount[ns[j]]++;
+            }
+
+            this.transitions[uidx] = ns;
+            this.probs[uidx] = ps;
+            this.cumProbs[uidx] = cps;
+        });
+
+        this.reverse = new int[numNodes][];
+        for(int vidx = 0; vidx < numNodes; ++vidx)
+        {
+            this.reverse[vidx] = new int[reverseCount[vidx]];
+            if(this.transitions[vidx] == null)
+            {
+                this.transitions[vidx] = new int[0];
+                this.probs[vidx] = new double[0];
+                this.cumProbs[vidx] = new double[0];
+            }
+        }
+
+        int[] pos = new int[numNodes];
+        for(int uidx = 0; uidx < numNodes; ++uidx)
+        {
+            for(int vidx : this.transitions[uidx])
+            {
+                this.reverse[vidx][pos[vidx]++] = uidx;
+            }
+        }
+    }
+
+    /**
+     * Obtains the maximum length of the random walks (i.e. the hitting time of
+     * those nodes which are not reached by the walks).
+     * @return the maximum length of the random walks.
+     */
+    public int getMaxLength()
+    {
+        return maxLength;
+    }
+
+    /**
+     * Computes the exact truncated hitting times from every node to a target node.
+     * Only nodes at distance lower than or equal to the maximum length from the target
+     * are visited.
+     * @param vidx the identifier of the target node.
+     * @return a map containing the hitting times for the nodes which can reach the target node
+     * in less than the maximum number of steps (the rest of nodes have hitting time equal to the
+     * maximum length). The target node has hitting time equal to zero.
+     */
+    public Int2DoubleMap hittingTimesTo(int vidx)
+    {
+        // First, find the nodes which can reach the target node in, at most, maxLength steps.
+        IntList ball = new IntArrayList();
+        Int2IntMap local = new Int2IntOpenHashMap();
+        local.defaultReturnValue(-1);
+
+        local.put(vidx, 0);
+        ball.add(vidx);
+        int start = 0;
+        for(int dist = 0; dist < maxLength && start < ball.size(); ++dist)
+        {
+            int end = ball.size();
+            for(int j = start; j < end; ++j)
+            {
+                for(int widx : this.reverse[ball.getInt(j)])
+                {
+                    if(!local.containsKey(widx))
+                    {
+                        local.put(widx, ball.size());
+                        ball.add(widx);
+                    }
+                }
+            }
+            start = end;
+        }
+
+        // Then, apply the dynamic programming recurrence:
+        // h_t(u) = 1 + \sum_w p(u,w) h_{t-1}(w), h_t(v) = 0
+        // Nodes outside the ball have h_{t}(u) = t
+        int size = ball.size();
+        double[] prev = new double[size];
+        double[] current = new double[size];
+        for(int t = 1; t <= maxLength; ++t)
+        {
+            current[0] = 0.0;
+            for(int j = 1; j < size; ++j)
+            {
+                int uidx = ball.getInt(j);
+                int[] ns = this.transitions[uidx];
+                if(ns.length == 0)
+                {
+                    current[j] = t;
+                    continue;
+                }
+
+                double[] ps = this.probs[uidx];
+                double val = 1.0;
+                for(int k = 0; k < ns.length; ++k)
+                {
+                    int l = local.get(ns[k]);
+                    val += ps[k]*(l == -1 ? t - 1.0 : prev[l]);
+                }
+                current[j] = val;
+            }
+
+            double[] aux = prev;
+            prev = current;
+            current = aux;
+        }
+
+        Int2DoubleMap times = new Int2DoubleOpenHashMap();
+        times.defaultReturnValue(maxLength);
+        for(int j = 0; j < size; ++j)
+        {
+            if(prev[j] < maxLength)
+            {
+                times.put(ball.getInt(j), prev[j]);
+            }
+        }
+
+        return times;
+    }
+
+    /**
+     * Estimates the truncated hitting times from a source node to every other node,
+     * by sampling random walks from the source node.
+     * @param uidx the identifier of the source node.
+     * @return a map containing the hitting times for the nodes visited by, at least, one
+     * of the random walks (the rest of nodes have hitting time equal to the maximum length).
+     */
+    public Int2DoubleMap hittingTimesFrom(int uidx)
+    {
+        Random rng = new Random(seed + uidx);
+        Int2IntMap lastWalk = new Int2IntOpenHashMap();
+        lastWalk.defaultReturnValue(-1);
+        Int2DoubleMap sumTimes = new Int2DoubleOpenHashMap();
+        Int2IntMap counts = new Int2IntOpenHashMap();
+
+        for(int walk = 0; walk < numWalks; ++walk)
+        {
+            lastWalk.put(uidx, walk);
+            int current = uidx;
+            for(int t = 1; t <= maxLength; ++t)
+            {
+                int[] ns = this.transitions[current];
+                if(ns.length == 0)
+                {
+                    break;
+                }
+
+                double[] cps = this.cumProbs[current];
+                int k = Arrays.binarySearch(cps, rng.nextDouble()*cps[cps.length-1]);
+                k = (k < 0) ? Math.min(-k - 1, ns.length - 1) : k;
+                current = ns[k];
+
+                // Only the first visit counts.
+                if(lastWalk.get(current) != walk)
+                {
+                    lastWalk.put(current, walk);
+                    sumTimes.put(current, sumTimes.get(current) + t);
+                    counts.put(current, counts.get(current) + 1);
+                }
+            }
+        }
+
+        Int2DoubleMap times = new Int2DoubleOpenHashMap();
+        times.defaultReturnValue(maxLength);
+        times.put(uidx, 0.0);
+        counts.int2IntEntrySet().forEach(entry ->
+        {
+            int vidx = entry.getIntKey();
+            if(vidx != uidx)
+            {
+                double notHit = numWalks - entry.getIntValue();
+                times.put(vidx, (sumTimes.get(vidx) + notHit*maxLength)/(numWalks + 0.0));
+            }
+        });
+
+        return times;
+    }
+
+    /**
+     * Computes the truncated commute times between a node and every other node, i.e.
+     * the sum of the hitting times from the node and the hitting times to the node.
+     * @param uidx the identifier of the node.
+     * @return a map containing the commute times for the nodes which are reached by (or can reach)
+     * the node (the rest of nodes have commute time equal to twice the maximum length).
+     */
+    public Int2DoubleMap commuteTimes(int uidx)
+    {
+        Int2DoubleMap to = this.hittingTimesTo(uidx);
+        Int2DoubleMap from = this.hittingTimesFrom(uidx);
+
+        Int2DoubleMap times = new Int2DoubleOpenHashMap();
+        times.defaultReturnValue(2.0*maxLength);
+        for(int vidx : to.keySet())
+        {
+            times.put(vidx, to.get(vidx) + from.get(vidx));
+        }
+        for(int vidx : from.keySet())
+        {
+            times.put(vidx, to.get(vidx) + from.get(vidx));
+        }
+
+        return times;
+    }
+}
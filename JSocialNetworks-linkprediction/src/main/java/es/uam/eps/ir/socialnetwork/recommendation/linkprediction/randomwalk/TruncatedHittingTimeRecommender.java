@@ -0,0 +1,82 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.recommendation.linkprediction.randomwalk;
+
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
+import es.uam.eps.ir.socialnetwork.recommendation.UserFastRankingRecommender;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+
+/**
+ * Truncated hitting time recommender. Computes the recommendation score as the average time a
+ * random walker needs to travel between the target user u and the candidate user v, when the walks
+ * are truncated after a fixed number of steps. Differently from the {@link HittingTimeRecommender},
+ * it does not compute the full hitting time matrix: scores are computed for each target user,
+ * only over the neighbourhood reachable within the maximum number of steps.
+ * 
+ * Only those users reached by the random walks are scored.
+ * 
+ * Sarkar, P., Moore, A. A tractable approach to finding closest truncated-commute-time neighbors in large graphs, UAI 2007.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users
+ */
+public class TruncatedHittingTimeRecommender<U> extends UserFastRankingRecommender<U> 
+{
+    /**
+     * Engine for computing the truncated hitting times.
+     */
+    private final TruncatedHittingTime<U> hittingTime;
+    /**
+     * True if the hitting time is measured from the target user to the candidate users
+     * (estimated by sampling random walks), false if it is measured from the candidate users
+     * to the target user (computed exactly).
+     */
+    private final boolean fromTarget;
+    
+    /**
+     * Constructor.
+     * @param graph the graph.
+     * @param orientation the orientation of the edges the random walker follows.
+     * @param maxLength maximum length of the random walks.
+     * @param fromTarget true if the hitting time is measured from the target user to the candidates, false if 
+     * it is measured from the candidate users to the target user.
+     * @param numWalks number of random walks to sample when measuring the hitting time from the target user.
+     * @param seed random seed.
+     */
+    public TruncatedHittingTimeRecommender(FastGraph<U> graph, EdgeOrientation orientation, int maxLength, boolean fromTarget, int numWalks, long seed)
+    {
+        this(graph, new TruncatedHittingTime<>(graph, orientation, maxLength, numWalks, seed), fromTarget);
+    }
+    
+    /**
+     * Constructor.
+     * @param graph the graph.
+     * @param hittingTime an engine for computing the truncated hitting times.
+     * @param fromTarget true if the hitting time is measured from the target user to the candidates, false if 
+     * it is measured from the candidate users to the target user.
+     */
+    public TruncatedHittingTimeRecommender(FastGraph<U> graph, TruncatedHittingTime<U> hittingTime, boolean fromTarget)
+    {
+        super(graph);
+        this.hittingTime = hittingTime;
+        this.fromTarget = fromTarget;
+    }
+    
+    @Override
+    public Int2DoubleMap getScoresMap(int i) 
+    {
+        Int2DoubleMap times = fromTarget ? this.hittingTime.hittingTimesFrom(i) : this.hittingTime.hittingTimesTo(i);
+        
+        Int2DoubleMap scores = new Int2DoubleOpenHashMap();
+        times.int2DoubleEntrySet().forEach(entry -> scores.put(entry.getIntKey(), -entry.getDoubleValue()));
+        return scores;
+    }
+}
@@ -1,56 +1,58 @@
-/* 
+/*
  *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
  *  de Madrid, http://ir.ii.uam.es
- * 
+ *
  *  This Source Code Form is subject to the terms of the Mozilla Public
  *  License, v. 2.0. If a copy of the MPL was not distributed with this
  *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
  */
 package es.uam.eps.ir.socialnetwork.recommendation.ml;
 
-import cern.colt.matrix.DoubleFactory2D;
-import cern.colt.matrix.DoubleMatrix1D;
-import cern.colt.matrix.DoubleMatrix2D;
-import cern.colt.matrix.DoubleMatrix3D;
-import cern.colt.matrix.impl.DenseDoubleMatrix2D;
-import cern.colt.matrix.impl.DenseDoubleMatrix3D;
-import cern.colt.matrix.impl.SparseDoubleMatrix1D;
-import cern.colt.matrix.impl.SparseDoubleMatrix2D;
-import cern.colt.matrix.impl.SparseDoubleMatrix3D;
 import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
 import es.uam.eps.ir.socialnetwork.recommendation.UserFastRankingRecommender;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Pair;
 import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Random;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
  * Combines machine learning techniques and random walks for recommending users.
- * 
+ *
+ * The weights of the edge strength function are learnt with a limited-memory BFGS optimizer. At
+ * each iteration, the gradient of the loss function is estimated over a mini-batch of source users,
+ * which are processed in parallel. For each source user, the personalized PageRank vector and its
+ * derivatives are only computed over the users reachable from it, so neither the global Google
+ * matrix nor its derivatives are ever materialized.
+ *
  * Backstrom, L., Leskovec, J. Supervised Random Walks: Predicting and Recommending Links in Social Networks. 4th Annual International Conference on Web Search and Data Mining (WSDM 2011), pp. 635-644.
- * 
+ *
  * @author Javier Sanz-Cruzado Puig.
- * 
+ *
  * @param <U> Type of the users
  */
 public class SupervisedRandomWalkRecommender<U> extends UserFastRankingRecommender<U>
 {
-
     /**
-     * Set of patterns
+     * Neighbours of each user in the test graph.
+     */
+    private final int[][] testNeighs;
+    /**
+     * Features of the edges in the test graph (numParams values for each neighbour).
      */
-    private final Map<U, Map<U, ModifiablePattern>> testPatterns;
-    
+    private final double[][] testFeatures;
     /**
      * Weights
      */
-    private final ModifiablePattern weights;
+    private final double[] weights;
     /**
      * Teleport rate for the random walks.
      */
@@ -64,17 +66,19 @@ public class SupervisedRandomWalkRecommender<U> extends UserFastRankingRecommend
      * Margin of the lost function
      */
     private final double b;
-    
     /**
      * Number of parameters
      */
     private final int numParams;
+    /**
+     * Number of source users in each mini-batch.
+     */
+    private final int batchSize;
 
     /**
      * Convergence threshold.
      */
     private final static double THRESHOLD = 1e-4;
-    
     /**
      * Maximum number of iterations.
      */
@@ -83,8 +87,31 @@ public class SupervisedRandomWalkRecommender<U> extends UserFastRankingRecommend
      * Maximum number of iterations for PageRank.
      */
     private final static double MAXITERPR = 50;
-    
-    
+    /**
+     * Number of previous updates stored by the L-BFGS optimizer.
+     */
+    private final static int HISTORY = 5;
+    /**
+     * Maximum number of step reductions in the line search.
+     */
+    private final static int MAXLINESEARCH = 10;
+
+    /**
+     * Constructor. Uses all the source users in each iteration of the optimizer.
+     * @param graph The graph.
+     * @param train Patterns for the training
+     * @param test Patterns for the test.
+     * @param classes classes for the training.
+     * @param numparams Number of parameters of the instances.
+     * @param alpha The teleport rate.
+     * @param lambda the regularization parameter.
+     * @param b margin of the loss function
+     */
+    public SupervisedRandomWalkRecommender(FastGraph<U> graph, Map<U, Map<U,ModifiablePattern>> train, Map<U, Map<U,ModifiablePattern>> test, Map<U,Pair<List<U>>> classes, int numparams, double alpha, double lambda, double b)
+    {
+        this(graph, train, test, classes, numparams, alpha, lambda, b, Integer.MAX_VALUE, 0L);
+    }
+
     /**
      * Constructor.
      * @param graph The graph.
@@ -95,631 +122,570 @@ public class SupervisedRandomWalkRecommender<U> extends UserFastRankingRecommend
      * @param alpha The teleport rate.
      * @param lambda the regularization parameter.
      * @param b margin of the loss function
+     * @param batchSize number of source users in each mini-batch.
+     * @param seed random seed, for the initial weights and the selection of the mini-batches.
      */
-    public SupervisedRandomWalkRecommender(FastGraph<U> graph, Map<U, Map<U,ModifiablePattern>> train, Map<U, Map<U,ModifiablePattern>> test, Map<U,Pair<List<U>>> classes, int numparams, double alpha, double lambda, double b) 
+    public SupervisedRandomWalkRecommender(FastGraph<U> graph, Map<U, Map<U,ModifiablePattern>> train, Map<U, Map<U,ModifiablePattern>> test, Map<U,Pair<List<U>>> classes, int numparams, double alpha, double lambda, double b, int batchSize, long seed)
     {
         super(graph);
-        this.testPatterns = test;
-        
         this.numParams = numparams;
-        this.weights = new ModifiablePattern(numparams);
+        this.weights = new double[numparams];
         this.alpha = alpha;
         this.lambda = lambda;
         this.b = b;
-        this.train(train, classes);
-        
+        this.batchSize = batchSize;
+
+        this.testNeighs = new int[this.numUsers()][];
+        this.testFeatures = new double[this.numUsers()][];
+        this.indexPatterns(test, testNeighs, testFeatures);
 
+        int[][] trainNeighs = new int[this.numUsers()][];
+        double[][] trainFeatures = new double[this.numUsers()][];
+        this.indexPatterns(train, trainNeighs, trainFeatures);
+
+        this.train(trainNeighs, trainFeatures, classes, new Random(seed));
     }
 
     @Override
-    public Int2DoubleMap getScoresMap(int uidx) 
+    public Int2DoubleMap getScoresMap(int uidx)
     {
-        U user = this.uidx2user(uidx);
-        Int2DoubleMap scoresMap = new Int2DoubleOpenHashMap();
-        // Compute the Google Matrix and its derivatives.
-        DoubleMatrix2D Q = this.computeQ(user,this.testPatterns);
-
-        
-        
-        // Vectors where we are storing the values of PageRank.
-        DoubleMatrix1D oldPR;
-        DoubleMatrix1D newPR = new SparseDoubleMatrix1D(this.numUsers());
-        
-        uIndex.getAllUidx().forEach(uIdx -> {
-            newPR.setQuick(uIdx, 1.0/(this.numUsers()+0.0));
-        });
-        
-        boolean convergedPR = false;
+        IntList local = new IntArrayList();
+        Int2IntMap localIdx = new Int2IntOpenHashMap();
+        this.reachable(uidx, testNeighs, local, localIdx);
+
+        double[] pr = this.pageRank(local, localIdx, testNeighs, testFeatures, weights, null);
 
-        // Estimation of PageRank
-        while(!convergedPR)
+        Int2DoubleMap scoresMap = new Int2DoubleOpenHashMap();
+        for(int i = 0; i < local.size(); ++i)
         {
-            oldPR = newPR;
-            double diff = estimatePRIteration(newPR, oldPR, Q);
-            if(diff < THRESHOLD)
-                convergedPR = true;
+            scoresMap.put(local.getInt(i), pr[i]);
         }
-        
-        IntStream.range(0, newPR.size()).forEach(i -> scoresMap.put(i, newPR.getQuick(i)));
-        
         return scoresMap;
     }
 
     /**
-     * Trains the supervised algorithm.
-     * @param train The training instances.
-     * @param classes The classes.
+     * Transforms a set of edge patterns into arrays indexed by user identifier.
+     * @param patterns the edge patterns.
+     * @param neighs array where, for each user, the neighbours are stored.
+     * @param features array where, for each user, the features of the edges towards
+     * its neighbours are stored (numParams values per neighbour).
      */
-    private void train(Map<U, Map<U, ModifiablePattern>> train, Map<U,Pair<List<U>>> classes) 
+    private void indexPatterns(Map<U, Map<U,ModifiablePattern>> patterns, int[][] neighs, double[][] features)
     {
-        // Initialize the weights at random
-        Random r = new Random();
-        double LEARNINGRATE = 0.01;
-        for(int i = 0; i < numParams; ++i)
+        for(int uidx = 0; uidx < neighs.length; ++uidx)
         {
-            weights.setValue(i, r.nextDouble());
+            neighs[uidx] = new int[0];
+            features[uidx] = new double[0];
         }
-        
-        boolean convergence = false;
-        int numIter = 0;
 
-        // Initializing the hessian approximation.
-        DoubleMatrix2D hessian = DoubleFactory2D.sparse.identity(this.numParams);
-        // Initialize weight vector
-        DoubleMatrix1D x = new SparseDoubleMatrix1D(this.numParams);
-        // Initialize derivate vector.
-        DoubleMatrix1D y = new SparseDoubleMatrix1D(this.numParams);
-        // Previous derivations.
-        DoubleMatrix1D oldDerF = new SparseDoubleMatrix1D(this.numParams);
-        // Increase of the estimated parameter.
-        DoubleMatrix1D Ax = new SparseDoubleMatrix1D(this.numParams);
-        /*for(int i = 0; i < this.numParams; ++i)
-        {
-            x.setQuick(i,this.weights.getValue(i));
-            hessian.setQuick(i, i, 1.0/this.weights.getValue(i));
-        }*/
-        
-        //Algebra algebra = new Algebra();
-        
-        // Computations of the Quasi-Newton BFGS algorithm for optimization of the weights.
-        /*while(!convergence)
-        {
-            // Compute the derivatives of the F function.
-            ModifiablePattern derivativesF = calculateDerivativesF(train, classes);   
-            
-            for(int i = 0; i < numParams; ++i)
-            {
-                // Obtain the y_k vector
-                y.setQuick(i,derivativesF.getValue(i)-oldDerF.getQuick(i));
-                // Update the derivative (gradient f(x_k))
-                oldDerF.setQuick(i, derivativesF.getValue(i));
-            }
-            
-            // Compute the new Hessian
-            DoubleMatrix2D aux = new SparseDoubleMatrix2D(this.numParams, this.numParams);
-            aux = algebra.multOuter(Ax,y,aux);
-            
-            DoubleMatrix2D aux2 = new SparseDoubleMatrix2D(this.numParams, this.numParams);
-            aux2 = algebra.multOuter(y, Ax, aux2);
-            
-            double innerProd = algebra.mult(y, Ax);
-            aux.assign(Mult.div(-innerProd));
-            aux2.assign(Mult.div(-innerProd));
-            
-            // Finish the computations for the auxiliar matrices
-            aux.assign(DoubleFactory2D.sparse.identity(this.numParams), (double x1, double y1) -> x1 + y1);
-            aux2.assign(DoubleFactory2D.sparse.identity(this.numParams), (double x1, double y1) -> x1 + y1);
-            
-            DoubleMatrix2D aux3 = new SparseDoubleMatrix2D(this.numParams, this.numParams);
-            aux3 = algebra.multOuter(Ax, Ax, aux3);
-            
-            aux = algebra.mult(aux, hessian);
-            aux = algebra.mult(aux, aux2);
-            aux.assign(aux3, (double x1, double y1) -> x1 + y1);
-            hessian = aux;
-            
-            Ax = algebra.mult(hessian, oldDerF);
-            double diff = 0.0;
-            for(int i = 0; i < numParams; ++i)
-            {
-                x.setQuick(i, x.getQuick(i)-Ax.getQuick(i));
-                diff += Math.abs(Ax.getQuick(i));
-            }
-            
-            numIter++;
-            
-            // Check the convergence condition
-            if(numIter > MAXITER || diff < THRESHOLD)
-            {
-                convergence = true;
-            }
-            
-            for(int i = 0; i < numParams; ++i)
-            {
-                weights.setValue(i, x.getQuick(i));
-            }
-            
-            System.out.println("Num Iter.: " + numIter + " diff: " + diff);
-        }*/
-        while(!convergence)
+        patterns.forEach((u, map) ->
         {
-            System.out.println("Starting iteration " + numIter);
-            // Compute the derivatives of the F function.
-            ModifiablePattern derivativesF = calculateDerivativesF(train, classes);   
-            double diff= 0;
-            
-            for(int i = 0; i < numParams; ++i)
+            int uidx = this.user2uidx(u);
+            if(uidx < 0)
             {
-                weights.setValue(i, weights.getValue(i) - LEARNINGRATE*derivativesF.getValue(i));
-                diff += Math.abs(LEARNINGRATE*derivativesF.getValue(i));
+                return;
             }
-            
-            if(numIter > MAXITER || diff < THRESHOLD)
+
+            IntList ns = new IntArrayList();
+            List<ModifiablePattern> pats = new ArrayList<>();
+            map.forEach((v, pattern) ->
             {
-                convergence = true;
-            }
-            System.out.println("Num Iter.: " + numIter + " diff: " + diff);
-            numIter++;
-        }
-        
-    }
+                int vidx = this.user2uidx(v);
+                if(vidx >= 0)
+                {
+                    ns.add(vidx);
+                    pats.add(pattern);
+                }
+            });
 
-    /**
-     * Calculates the derivative of the target function to minimize
-     * @param train training patterns.
-     * @param classes classes  for each pattern.
-     * @return An instance containing the derivatives of the F function.
-     */
-    private ModifiablePattern calculateDerivativesF(Map<U, Map<U,ModifiablePattern>> train, Map<U,Pair<List<U>>> classes) 
-    {
-        System.out.println("Computing F derivatives");
-        ModifiablePattern derivatives = new ModifiablePattern(this.numParams);
-        
-        // The estimated pageranks for every user
-        DoubleMatrix2D estimatedPageRanks = new DenseDoubleMatrix2D(this.uIndex.numUsers(), this.uIndex.numUsers());
-        // The estimated derivatives of page rank for every user
-        DoubleMatrix3D estimatedPageRanksDer = new DenseDoubleMatrix3D(this.uIndex.numUsers(), this.uIndex.numUsers(), this.numParams);
-        
-        // Compute PageRank and its derivatives
-        uIndex.getAllUsers().forEach(user -> {
-            optimizePageranks(user, estimatedPageRanks, estimatedPageRanksDer, train);
-        });
-        
-        
-        // Compute the derivatives
-        IntStream.range(0, this.numParams).forEach(w-> 
-        {
-            double value = 2*weights.getValue(w);
-            value += this.lambda * uIndex.getAllUsers().mapToDouble(u -> 
+            double[] fs = new double[pats.size()*numParams];
+            for(int k = 0; k < pats.size(); ++k)
             {
-                int uidx = uIndex.user2uidx(u);
-                
-                double dSum = 0.0;
-                if(classes.get(u).v1() != null)
+                for(int p = 0; p < numParams; ++p)
                 {
-                    dSum = classes.get(u).v1().stream().mapToDouble(d -> 
-                    {
-                        int didx = uIndex.user2uidx(d);
-                        double pd = estimatedPageRanks.get(uidx, didx);
-                        double dpd = estimatedPageRanksDer.get(uidx, didx, w);
-                        double lSum = classes.get(u).v1().stream().mapToDouble(l -> 
-                        {
-                            int lidx = uIndex.user2uidx(l);
-                            double pl = estimatedPageRanks.get(uidx, lidx);
-                            double dpl = estimatedPageRanksDer.get(uidx, lidx, w);
-                            return this.dh(pl - pd)*(dpl-dpd);
-                        }).sum();
-                        return lSum;
-                    }).sum();
+                    fs[k*numParams + p] = pats.get(k).getValue(p);
                 }
-                return dSum;
-            }).sum();
-            
-            
-            derivatives.setValue(w, value); 
+            }
+            neighs[uidx] = ns.toIntArray();
+            features[uidx] = fs;
         });
-        
-        System.out.println("Computed F derivatives");
-        return derivatives;
-        
     }
 
     /**
-     * Computes the pageranks for a given user.
-     * @param user The corresponding user.
-     * @param estimatedPageRanks A matrix where the pageRanks will be stored
-     * @param estimatedPageRanksDer A tensor where the pageRanks derivatives will be stored.
-     * @param train The training instances.
+     * Trains the supervised algorithm.
+     * @param neighs the neighbours of each user in the training graph.
+     * @param features the features of the training edges.
+     * @param classes The classes.
+     * @param rng random number generator.
      */
-    private void optimizePageranks(U user, DoubleMatrix2D estimatedPageRanks, DoubleMatrix3D estimatedPageRanksDer, Map<U, Map<U,ModifiablePattern>> train) {
-        int index = this.uIndex.user2uidx(user);
-        
-        System.out.println("Computing pageranks " + user);
-        int numIter = 0;
-        // Compute the Google Matrix and its derivatives.
-        long a = System.currentTimeMillis();
-        DoubleMatrix2D Q = this.computeQ(user,train);
-        long bt = System.currentTimeMillis();
-        System.out.println("Computed Q (" + (bt-a) + " ms.)");
-        DoubleMatrix3D dQ = this.computeDerivQ(user,train);
-        a = System.currentTimeMillis();
-        System.out.println("Computed dQ (" + (a-bt) + " ms.)");
-
-        List<Integer> usersIndex = uIndex.getAllUidx().boxed().collect(Collectors.toCollection(ArrayList::new));
-        
-        // Vectors where we are storing the values of PageRank.
-        DoubleMatrix1D oldPR = new SparseDoubleMatrix1D(this.numUsers());
-        DoubleMatrix1D newPR = new SparseDoubleMatrix1D(this.numUsers());
-        
-        // Vectors where we are storing the values of the PageRank derivatives.
-        DoubleMatrix2D oldPRderiv = new SparseDoubleMatrix2D(this.numUsers(), this.numParams);
-        DoubleMatrix2D newPRderiv = new SparseDoubleMatrix2D(this.numUsers(), this.numParams);
-        
-        for(int uIdx : usersIndex)
+    private void train(int[][] neighs, double[][] features, Map<U,Pair<List<U>>> classes, Random rng)
+    {
+        // Obtain the source users, and their positive and negative examples.
+        IntList sourceList = new IntArrayList();
+        List<int[]> posList = new ArrayList<>();
+        List<int[]> negList = new ArrayList<>();
+        classes.forEach((u, pair) ->
         {
-            if(uIdx < 0 || index < 0 || uIdx >= estimatedPageRanks.columns() || index >= estimatedPageRanks.rows())
+            int uidx = this.user2uidx(u);
+            if(uidx >= 0 && pair.v1() != null && pair.v2() != null && !pair.v1().isEmpty() && !pair.v2().isEmpty())
             {
-                System.out.println("AQUI FALLA");
+                sourceList.add(uidx);
+                posList.add(pair.v1().stream().mapToInt(this::user2uidx).filter(x -> x >= 0).toArray());
+                negList.add(pair.v2().stream().mapToInt(this::user2uidx).filter(x -> x >= 0).toArray());
             }
-            
-            double value = 1.0/(this.numUsers()+0.0);
-            estimatedPageRanks.setQuick(index, uIdx, value);
-            
-            oldPR.setQuick(uIdx, 1.0/(this.numUsers()+0.0));
-        }
-        
-        for(int i = 0; i < oldPR.size(); ++i)
+        });
+
+        int numSources = sourceList.size();
+        int[] sources = sourceList.toIntArray();
+        int[][] positives = posList.toArray(new int[numSources][]);
+        int[][] negatives = negList.toArray(new int[numSources][]);
+
+        // Initialize the weights at random
+        double[] w = new double[numParams];
+        for(int i = 0; i < numParams; ++i)
         {
-            oldPR.setQuick(i, 1.0/(this.numUsers()+0.0));
+            w[i] = rng.nextDouble();
         }
-        
-        boolean convergedPR = false;
-        boolean convergedDerPR = false;
-        
-        
-        // Estimation of PageRank
-        while(!convergedPR)
+
+        if(numSources > 0)
         {
-            long c = System.currentTimeMillis();
-            
-            // PageRank Iteration. Store in new
-            double diff = 0;
-            for(int uIdx : usersIndex)
+            int size = Math.min(batchSize, numSources);
+            int[] order = IntStream.range(0, numSources).toArray();
+            int next = numSources;
+
+            LinkedList<double[]> sHist = new LinkedList<>();
+            LinkedList<double[]> yHist = new LinkedList<>();
+
+            boolean convergence = false;
+            int numIter = 0;
+            while(!convergence)
             {
-                double value = 0.0;
-                for(int vIdx : usersIndex)
+                // Select the mini-batch
+                if(next + size > numSources)
                 {
-                    double pr = oldPR.getQuick(vIdx);
-                    double aux = Q.getQuick(vIdx, uIdx);
-                    aux = aux*pr;
-                    value += aux;
+                    this.shuffle(order, rng);
+                    next = 0;
                 }
-                
-                newPR.setQuick(uIdx, value);
-                diff += Math.abs(oldPR.getQuick(uIdx) - value);
-            }
+                int[] batch = new int[size];
+                System.arraycopy(order, next, batch, 0, size);
+                next += size;
+                double scale = numSources / (size + 0.0);
 
-            if(diff < THRESHOLD || numIter > MAXITERPR)
-                convergedPR = true;
-            long d = System.currentTimeMillis();
-            
-            System.out.println("Finished pr iteration " + numIter + "("  + (d-c) + " ms.)");
-            long e = System.currentTimeMillis();
-            if(!convergedDerPR)
-            {
-                for(int uIdx : usersIndex)
+                double[] g = new double[numParams];
+                double f = this.lossAndGradient(batch, sources, positives, negatives, neighs, features, w, scale, g);
+                double[] d = this.direction(g, sHist, yHist);
+                double slope = dot(g, d);
+                if(slope >= 0.0) // Not a descent direction: restart the approximation
                 {
-                    diff = 0;
-                    for(int wIdx = 0; wIdx < this.numParams; ++wIdx)
+                    sHist.clear();
+                    yHist.clear();
+                    for(int i = 0; i < numParams; ++i)
                     {
-                        double value = 0.0;
-                        for(int vIdx : usersIndex)
-                        {
-                            value += Q.getQuick(vIdx, uIdx)*oldPRderiv.getQuick(vIdx, wIdx) + oldPR.getQuick(vIdx)*dQ.getQuick(vIdx, uIdx, wIdx);
-                        }
-                        
-                        newPRderiv.setQuick(uIdx, wIdx, value);
-                        diff+= Math.abs(oldPRderiv.get(uIdx,wIdx) - value);
+                        d[i] = -g[i];
+                    }
+                    slope = dot(g, d);
+                }
+
+                // Backtracking line search over the mini-batch.
+                double step = 1.0;
+                double[] wNew = new double[numParams];
+                double[] gNew = new double[numParams];
+                boolean accepted = false;
+                for(int numSearch = 0; numSearch < MAXLINESEARCH && !accepted; ++numSearch)
+                {
+                    for(int i = 0; i < numParams; ++i)
+                    {
+                        wNew[i] = w[i] + step*d[i];
+                        gNew[i] = 0.0;
+                    }
+                    double fNew = this.lossAndGradient(batch, sources, positives, negatives, neighs, features, wNew, scale, gNew);
+                    accepted = fNew <= f + 1e-4*step*slope;
+                    step /= 2.0;
+                }
+
+                numIter++;
+                if(!accepted)
+                {
+                    // The line search failed: keep the previous weights. If the direction was already
+                    // the steepest descent one, no further progress can be made.
+                    if(sHist.isEmpty())
+                    {
+                        convergence = true;
+                    }
+                    sHist.clear();
+                    yHist.clear();
+                    if(numIter > MAXITER)
+                    {
+                        convergence = true;
+                    }
+                    continue;
+                }
+
+                // Update the history
+                double[] s = new double[numParams];
+                double[] y = new double[numParams];
+                double diff = 0.0;
+                for(int i = 0; i < numParams; ++i)
+                {
+                    s[i] = wNew[i] - w[i];
+                    y[i] = gNew[i] - g[i];
+                    diff += Math.abs(s[i]);
+                }
+
+                if(dot(s, y) > 1e-10)
+                {
+                    sHist.addFirst(s);
+                    yHist.addFirst(y);
+                    if(sHist.size() > HISTORY)
+                    {
+                        sHist.removeLast();
+                        yHist.removeLast();
                     }
                 }
-                
-                if(diff < THRESHOLD || numIter > MAXITERPR)
-                    convergedDerPR = true;
+
+                w = wNew;
+                if(numIter > MAXITER || diff < THRESHOLD)
+                {
+                    convergence = true;
+                }
             }
-            
-            long f = System.currentTimeMillis();
-            System.out.println("Finished dpr iteration " + numIter + "("  + (f-e) + " ms.)");
-            numIter++;
-            
-            
-            oldPR = newPR;
-            newPR = new SparseDoubleMatrix1D(this.numUsers());
-            oldPRderiv = newPRderiv;
-            newPRderiv = new SparseDoubleMatrix2D(this.numUsers(),this.numParams);
         }
-        
-        // Store the new PageRanks
-        
-        for(int uIdx : usersIndex)
-            estimatedPageRanks.setQuick(index, uIdx, newPR.get(uIdx));
-        
-        // Complete the estimation of the derivatives
-        while(!convergedDerPR)
+
+        System.arraycopy(w, 0, this.weights, 0, numParams);
+    }
+
+    /**
+     * Computes the descent direction of the L-BFGS algorithm (two-loop recursion).
+     * @param g the gradient.
+     * @param sHist the previous updates of the weights (the most recent first).
+     * @param yHist the previous updates of the gradient (the most recent first).
+     * @return the descent direction.
+     */
+    private double[] direction(double[] g, List<double[]> sHist, List<double[]> yHist)
+    {
+        int m = sHist.size();
+        double[] q = g.clone();
+        double[] a = new double[m];
+        for(int j = 0; j < m; ++j)
         {
-            double diff = 0.0;
-            
-            for(int uIdx : usersIndex)
+            double rho = 1.0/dot(yHist.get(j), sHist.get(j));
+            a[j] = rho*dot(sHist.get(j), q);
+            for(int i = 0; i < numParams; ++i)
             {
-                for(int wIdx = 0; wIdx < this.numParams; ++wIdx)
-                {
-                   double value = 0.0;
-                   for(int vIdx : usersIndex)
-                   {
-                       value += Q.getQuick(vIdx,uIdx)*oldPRderiv.getQuick(vIdx,wIdx) + oldPR.get(vIdx)*dQ.getQuick(vIdx,uIdx,wIdx);
-                   }
-                   
-                   newPRderiv.setQuick(uIdx, wIdx, value);
-                   diff += Math.abs(oldPRderiv.get(uIdx, wIdx) - value);
-                }
+                q[i] -= a[j]*yHist.get(j)[i];
             }
-            
-            if(diff < THRESHOLD || numIter > MAXITERPR)
-                convergedDerPR = true;
-            
-            for(int i = 0; i < newPRderiv.rows(); ++i)
+        }
+
+        double gamma = m > 0 ? dot(sHist.get(0), yHist.get(0))/dot(yHist.get(0), yHist.get(0)) : 1.0;
+        for(int i = 0; i < numParams; ++i)
+        {
+            q[i] *= gamma;
+        }
+
+        for(int j = m-1; j >= 0; --j)
+        {
+            double rho = 1.0/dot(yHist.get(j), sHist.get(j));
+            double beta = rho*dot(yHist.get(j), q);
+            for(int i = 0; i < numParams; ++i)
             {
-                for(int j = 0; j < newPRderiv.columns(); ++j)
-                {
-                    oldPRderiv.setQuick(i, j, newPRderiv.getQuick(i, j));
-                }
+                q[i] += sHist.get(j)[i]*(a[j]-beta);
             }
-            numIter++;
         }
-        
-        // Store the new PageRank derivatives
-        for(int uIdx : usersIndex) 
+
+        for(int i = 0; i < numParams; ++i)
+        {
+            q[i] = -q[i];
+        }
+        return q;
+    }
+
+    /**
+     * Computes the value of the target function to minimize and its gradient over a mini-batch of source users.
+     * The source users are processed in parallel.
+     * @param batch the positions of the source users in the mini-batch.
+     * @param sources the source users.
+     * @param positives for each source user, the users it should connect to.
+     * @param negatives for each source user, the users it should not connect to.
+     * @param neighs the neighbours of each user in the training graph.
+     * @param features the features of the training edges.
+     * @param w the weights.
+     * @param scale scale factor for the loss over the mini-batch.
+     * @param gradient an array where the gradient is stored.
+     * @return the value of the target function.
+     */
+    private double lossAndGradient(int[] batch, int[] sources, int[][] positives, int[][] negatives, int[][] neighs, double[][] features, double[] w, double scale, double[] gradient)
+    {
+        double[] acc = IntStream.of(batch).parallel().mapToObj(j ->
+        {
+            double[] aux = new double[numParams + 1];
+            aux[numParams] = this.sourceLoss(sources[j], positives[j], negatives[j], neighs, features, w, aux);
+            return aux;
+        }).reduce(new double[numParams + 1], (x, y) ->
         {
-            for(int wIdx = 0; wIdx < this.numParams; ++wIdx) 
+            double[] z = new double[numParams + 1];
+            for(int i = 0; i <= numParams; ++i)
             {
-                estimatedPageRanksDer.setQuick(index, uIdx, wIdx, newPRderiv.get(uIdx, wIdx));
+                z[i] = x[i] + y[i];
             }
+            return z;
+        });
+
+        for(int i = 0; i < numParams; ++i)
+        {
+            gradient[i] += 2*w[i] + this.lambda*scale*acc[i];
         }
-        
-        bt = System.currentTimeMillis();
-        System.out.println("Computed pagerank " + user + " (" + (bt-a) + " ms.)");
+        return dot(w, w) + this.lambda*scale*acc[numParams];
     }
 
     /**
-     * Executes an iteration of the estimation of the Weighted PageRank.
-     * @param newPR New pageRank. It is the value to update.
-     * @param oldPR Old pageRank.
-     * @param Q The matrix
-     * @return The difference between old and new pageranks.
+     * Computes the loss for a single source user, and adds its gradient to an array.
+     * @param sidx the source user.
+     * @param positives the users the source user should connect to.
+     * @param negatives the users the source user should not connect to.
+     * @param neighs the neighbours of each user in the training graph.
+     * @param features the features of the training edges.
+     * @param w the weights.
+     * @param gradient an array where the gradient of the loss is added.
+     * @return the value of the loss.
      */
-    public double estimatePRIteration(DoubleMatrix1D newPR, DoubleMatrix1D oldPR, DoubleMatrix2D Q)
+    private double sourceLoss(int sidx, int[] positives, int[] negatives, int[][] neighs, double[][] features, double[] w, double[] gradient)
     {
-        double diff = uIndex.getAllUidx().mapToDouble(uIdx -> 
+        IntList local = new IntArrayList();
+        Int2IntMap localIdx = new Int2IntOpenHashMap();
+        localIdx.defaultReturnValue(-1);
+        this.reachable(sidx, neighs, local, localIdx);
+
+        double[] dpr = new double[local.size()*numParams];
+        double[] pr = this.pageRank(local, localIdx, neighs, features, w, dpr);
+
+        double loss = 0.0;
+        for(int didx : positives)
         {
-            double value = uIndex.getAllUidx().mapToDouble(i -> 
+            int d = localIdx.get(didx);
+            double pd = d >= 0 ? pr[d] : 0.0;
+            for(int lidx : negatives)
             {
-                double pr = oldPR.getQuick(i);
-                double aux = Q.getQuick(i, uIdx);
-                aux = aux * pr;
-                return aux;
-            }).sum();
-            newPR.setQuick(uIdx, value);
-            return Math.abs(oldPR.get(uIdx) - value);            
-        }).sum();
-        return diff;
+                int l = localIdx.get(lidx);
+                double pl = l >= 0 ? pr[l] : 0.0;
+                loss += this.h(pl - pd);
+                double dh = this.dh(pl - pd);
+                for(int p = 0; p < numParams; ++p)
+                {
+                    double dpl = l >= 0 ? dpr[l*numParams + p] : 0.0;
+                    double dpd = d >= 0 ? dpr[d*numParams + p] : 0.0;
+                    gradient[p] += dh*(dpl - dpd);
+                }
+            }
+        }
+        return loss;
     }
-    
+
     /**
-     * Executes an iteration of the estimation of the Weighted PageRank derivatives.
-     * @param newPRderiv A matrix where to store the new estimation.
-     * @param oldPRderiv The previous estimation.
-     * @param pr The corresponding pageRank estimation
-     * @param Q The Google Matrix
-     * @param dQ The derivatives of the Google Matrix
-     * @return The difference between old and new PageRank derivatives.
+     * Finds the users reachable from a source user.
+     * @param sidx the source user.
+     * @param neighs the neighbours of each user.
+     * @param local list where the reachable users are stored (the source user is the first one).
+     * @param localIdx map where the position of each reachable user in the list is stored.
      */
-    public double estimateDerPRIteration(DoubleMatrix2D newPRderiv, DoubleMatrix2D oldPRderiv, DoubleMatrix1D pr, DoubleMatrix2D Q, DoubleMatrix3D dQ)
+    private void reachable(int sidx, int[][] neighs, IntList local, Int2IntMap localIdx)
     {
-        return uIndex.getAllUidx().mapToDouble(uIdx -> 
+        local.add(sidx);
+        localIdx.put(sidx, 0);
+        for(int i = 0; i < local.size(); ++i)
         {
-           return IntStream.range(0, this.numParams).mapToDouble(wIdx -> {
-               double value = uIndex.getAllUidx().mapToDouble(vIdx -> {
-                   return Q.get(vIdx, uIdx)*oldPRderiv.get(vIdx, wIdx) + pr.get(vIdx)*dQ.getQuick(vIdx,uIdx,wIdx);
-               }).sum();
-               
-               newPRderiv.setQuick(uIdx, wIdx, value);
-               return Math.abs(oldPRderiv.get(uIdx, wIdx) - value);
-           }).sum();
-        }).sum();
+            for(int vidx : neighs[local.getInt(i)])
+            {
+                if(!localIdx.containsKey(vidx))
+                {
+                    localIdx.put(vidx, local.size());
+                    local.add(vidx);
+                }
+            }
+        }
     }
-    
-    
-    
+
     /**
-     * Computes the Weighted PageRank Google Matrix.
-     * @param user The source user.
-     * @param train The training set.
-     * @return A matrix containing the Google matrix.
+     * Computes the personalized weighted PageRank of the users reachable from a source user and,
+     * optionally, its derivatives with respect to the weights.
+     * @param local the reachable users (the source user is the first one).
+     * @param localIdx the position of each reachable user.
+     * @param neighs the neighbours of each user.
+     * @param features the features of the edges.
+     * @param w the weights.
+     * @param dpr an array where the derivatives are stored (numParams values per reachable user),
+     * or null if the derivatives are not needed.
+     * @return the PageRank values for the reachable users.
      */
-    private DoubleMatrix2D computeQ(U user, Map<U, Map<U,ModifiablePattern>> train) {
-        DoubleMatrix2D functionValues = new SparseDoubleMatrix2D(this.uIndex.numUsers(), this.uIndex.numUsers());
-        int useridx = this.uIndex.user2uidx(user);
-        
-        // Construction of the transition matrix for computing PageRank.
-        this.getGraph().getAllNodes().forEach(u -> 
+    private double[] pageRank(IntList local, Int2IntMap localIdx, int[][] neighs, double[][] features, double[] w, double[] dpr)
+    {
+        int n = local.size();
+        boolean deriv = dpr != null;
+
+        // Transition probabilities (and their derivatives) for each reachable user.
+        int[][] targets = new int[n][];
+        double[][] q = new double[n][];
+        double[][] dq = new double[n][];
+        for(int i = 0; i < n; ++i)
         {
-            int uIdx = this.uIndex.user2uidx(u);
-            if(train.containsKey(u))
+            int uidx = local.getInt(i);
+            int[] ns = neighs[uidx];
+            double[] fs = features[uidx];
+
+            targets[i] = new int[ns.length];
+            q[i] = new double[ns.length];
+            double[] da = new double[ns.length*numParams];
+            double sum = 0.0;
+            double[] sumDa = new double[numParams];
+            for(int k = 0; k < ns.length; ++k)
             {
-                double sum = train.get(u).keySet().stream().map(v -> 
-                {
-                    int vIdx = this.uIndex.user2uidx(v);
-                    double fn = this.f(train.get(u).get(v));
-                    functionValues.setQuick(uIdx, vIdx, fn);
-                    return fn;
-                    
-                }).reduce(0.0, (x,y)-> x + y);
-                
-                
-                // Multiply the values for the probability of not teleporting.
-                train.get(u).keySet().stream().forEach(v -> 
+                targets[i][k] = localIdx.get(ns[k]);
+                double a = this.f(fs, k*numParams, w);
+                q[i][k] = a;
+                sum += a;
+                if(deriv)
                 {
-                    int vIdx = this.uIndex.user2uidx(v);
-                    functionValues.setQuick(uIdx, vIdx, functionValues.getQuick(uIdx,vIdx) / sum);
-                    double value = (1.0- this.alpha) * functionValues.getQuick(uIdx, vIdx);
-                    functionValues.setQuick(uIdx, vIdx, value);
-                });
-                
-                // Add the restart probability to the node.
-                functionValues.setQuick(uIdx, useridx, functionValues.getQuick(uIdx, useridx) + this.alpha);
+                    for(int p = 0; p < numParams; ++p)
+                    {
+                        da[k*numParams + p] = a*(1-a)*fs[k*numParams + p];
+                        sumDa[p] += da[k*numParams + p];
+                    }
+                }
             }
-            else // Sink treatment.
+
+            if(deriv)
             {
-                functionValues.setQuick(uIdx, useridx, 1.0);
+                dq[i] = new double[ns.length*numParams];
+                for(int k = 0; k < ns.length; ++k)
+                {
+                    for(int p = 0; p < numParams; ++p)
+                    {
+                        dq[i][k*numParams + p] = (1-this.alpha)*(da[k*numParams + p]*sum - q[i][k]*sumDa[p])/(sum*sum);
+                    }
+                }
             }
-        });       
 
-        return functionValues;
-    }
+            for(int k = 0; k < ns.length; ++k)
+            {
+                q[i][k] = (1-this.alpha)*q[i][k]/sum;
+            }
+        }
 
-    /**
-     * Computes the derivatives of the Google matrix respect to the weights.
-     * @param user the user
-     * @param train Training patterns
-     * @return A tensor containing all the derivatives value. Rows and columns represent
-     * the users of the network, and the slices represent each weight.
-     */
-    private DoubleMatrix3D computeDerivQ(U user, Map<U, Map<U,ModifiablePattern>> train) {
-        
-        DoubleMatrix3D tensor = new SparseDoubleMatrix3D(this.numUsers(), this.numItems(), numParams);
+        double[] oldPR = new double[n];
+        double[] oldDPR = deriv ? new double[n*numParams] : null;
+        oldPR[0] = 1.0;
 
-        uIndex.getAllUsers().forEach(u -> 
+        boolean converged = false;
+        int numIter = 0;
+        while(!converged)
         {
-            int uIdx = uIndex.user2uidx(u);
-            List<Integer> index = new ArrayList<>();
-            List<Double> fn = new ArrayList<>();
-            List<ModifiablePattern> dFn = new ArrayList<>();
-            
-            if(train.containsKey(u))
+            double[] newPR = new double[n];
+            double[] newDPR = deriv ? new double[n*numParams] : null;
+            for(int i = 0; i < n; ++i)
             {
-                // Obtain the values for the f function and its derivatives.
-                train.get(u).entrySet().forEach(v ->
+                // Restart probability (or sink treatment).
+                double restart = targets[i].length == 0 ? 1.0 : this.alpha;
+                newPR[0] += restart*oldPR[i];
+                if(deriv)
                 {
-                    index.add(uIndex.user2uidx(v.getKey()));
-                    fn.add(this.f(v.getValue()));
-                    dFn.add(this.df(v.getValue()));
-                });
-                
-                // Obtain the sums
-                double sumFn = fn.stream().mapToDouble(val -> val).sum();
-                ModifiablePattern sumDfn = new ModifiablePattern(numParams);
-                IntStream.range(0, this.numParams).forEach(i ->
-                {
-                    sumDfn.setValue(i, dFn.stream().mapToDouble(ins -> ins.getValue(i)).sum());
-                });
-                
-                
-                // Compute the values of the derivatives and store them in the tensor.
-                
-                IntStream.range(0, index.size()).forEach(i -> 
+                    for(int p = 0; p < numParams; ++p)
+                    {
+                        newDPR[p] += restart*oldDPR[i*numParams + p];
+                    }
+                }
+
+                for(int k = 0; k < targets[i].length; ++k)
                 {
-                    int vIdx = index.get(i);
-                    IntStream.range(0, numParams).forEach(wIdx -> 
+                    int j = targets[i][k];
+                    newPR[j] += q[i][k]*oldPR[i];
+                    if(deriv)
                     {
-                       try
-                       {
-                           if(Objects.equals(dFn, null))
-                           {
-                               System.err.println("dFn is null");
-                           }
-                           else if(Objects.equals(dFn.get(i), null))
-                           {
-                               System.err.println("dFn " + i + " is null");
-                           }
-                           else if(Objects.equals(dFn.get(i).getValue(wIdx), null))
-                           {
-                               System.err.println("dFn " + i + " " + wIdx + " is null");
-                           }
-                           else if(Objects.equals(sumFn, null))
-                           {
-                               System.err.println("sumFn is null");
-                           }
-                           else if(Objects.equals(fn, null))
-                           {
-                               System.err.println("fn is null");
-                           }
-                           else if(Objects.equals(fn.get(i), null))
-                           {
-                               System.err.println("fn " + i + " is null");
-                           }
-                           else if(Objects.equals(sumDfn, null))
-                           {
-                               System.err.println("sumDfn is null");
-                           }
-                           else if(Objects.equals(sumDfn.getValue(wIdx), null))
-                           {
-                               System.err.println("sumDfn " + wIdx + " is null");
-                           }
-                           
-
-                          
-                            double value = dFn.get(i).getValue(wIdx)*sumFn - fn.get(i)*sumDfn.getValue(wIdx);
-                            value *= (1-this.alpha)/(sumFn*sumFn);
-
-                            tensor.setQuick(uIdx, vIdx, wIdx, value);
-                           }
-                       catch(IndexOutOfBoundsException e)
-                       {
-                           System.out.println("uIdx " + uIdx + " vIdx " + vIdx + " wIdx " + wIdx );
-                           throw e;
-                       }
-                    });
-                });
+                        for(int p = 0; p < numParams; ++p)
+                        {
+                            newDPR[j*numParams + p] += q[i][k]*oldDPR[i*numParams + p] + oldPR[i]*dq[i][k*numParams + p];
+                        }
+                    }
+                }
             }
-            
-            // In the rest of cases, as the matrix is sparse, the value will be zero.
-        });
-        
-        return tensor;
+
+            double diff = 0.0;
+            for(int i = 0; i < n; ++i)
+            {
+                diff += Math.abs(newPR[i] - oldPR[i]);
+            }
+            if(deriv)
+            {
+                for(int i = 0; i < n*numParams; ++i)
+                {
+                    diff += Math.abs(newDPR[i] - oldDPR[i]);
+                }
+            }
+
+            oldPR = newPR;
+            oldDPR = newDPR;
+            numIter++;
+            if(diff < THRESHOLD || numIter > MAXITERPR)
+            {
+                converged = true;
+            }
+        }
+
+        if(deriv)
+        {
+            System.arraycopy(oldDPR, 0, dpr, 0, n*numParams);
+        }
+        return oldPR;
     }
 
     /**
-     * Computes the edge strength function
-     * @param instance Argument of the function.
-     * @return The edge strength.
+     * Shuffles an array (Fisher-Yates).
+     * @param array the array.
+     * @param rng random number generator.
+     */
+    private void shuffle(int[] array, Random rng)
+    {
+        for(int i = array.length - 1; i > 0; --i)
+        {
+            int j = rng.nextInt(i + 1);
+            int aux = array[i];
+            array[i] = array[j];
+            array[j] = aux;
+        }
+    }
+
+    /**
+     * Computes the dot product of two vectors.
+     * @param x the first vector.
+     * @param y the second vector.
+     * @return the dot product.
      */
-    private double f(ModifiablePattern instance) 
+    private static double dot(double[] x, double[] y)
     {
         double value = 0.0;
-        if(instance != null)
+        for(int i = 0; i < x.length; ++i)
         {
-            for(int i = 0; i < this.numParams; ++i)
-            {
-                value += this.weights.getValue(i)*instance.getValue(i);
-            }
-            
-            value = 1.0 / (1.0 + Math.exp(-value));
+            value += x[i]*y[i];
         }
         return value;
     }
-    
+
     /**
-     * Computes the derivatives of the f function, and evaluates them in a given point.
-     * @param instance The given point.
-     * @return An instance containing the value of the derivatives.
+     * Computes the edge strength function
+     * @param features array containing the features of the edge.
+     * @param offset the position of the first feature of the edge in the array.
+     * @param w the weights.
+     * @return The edge strength.
      */
-    private ModifiablePattern df(ModifiablePattern instance)
+    private double f(double[] features, int offset, double[] w)
     {
-        ModifiablePattern deriv = new ModifiablePattern(numParams);
-        for(int i = 0; i < numParams; ++i)
-            deriv.setValue(i, this.f(instance)*(1-this.f(instance)*instance.getValue(i)));
-        return deriv;
+        double value = 0.0;
+        for(int i = 0; i < this.numParams; ++i)
+        {
+            value += w[i]*features[offset + i];
+        }
+
+        return 1.0 / (1.0 + Math.exp(-value));
     }
-    
+
     /**
      * Computes the loss function
      * @param value The point we want to compute the function for
@@ -729,7 +695,7 @@ public class SupervisedRandomWalkRecommender<U> extends UserFastRankingRecommend
     {
         return 1.0/(1.0+Math.exp(-value/this.b));
     }
-    
+
     /**
      * Computes the derivative of the loss function
      * @param value The point we want to compute the function for
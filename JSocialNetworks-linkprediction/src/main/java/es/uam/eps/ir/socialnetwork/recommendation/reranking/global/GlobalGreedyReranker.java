@@ -11,10 +11,11 @@ package es.uam.eps.ir.socialnetwork.recommendation.reranking.global;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Tuple2oo;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.PriorityQueue;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -26,6 +27,18 @@ import org.ranksys.core.util.tuples.Tuple2od;
 *  Greedy Re-ranker. Changes the position of items in a list of recommendations to optimize criteria
  * other than relevance. This reranker first selects the recommendations which have a more significant
  * effect on the global parameter to optimize.
+ *
+ * When the subclass declares which users are affected by each selection (see {@link #isIncremental()}
+ * and {@link #affectedUsers(Object, Tuple2od)}), a lazy greedy engine is used instead of scanning every
+ * remaining candidate at each step: candidates are kept in a max-heap, and only the candidates of the
+ * affected users are scored again after each selection. If, moreover, the scores can only decrease after
+ * a selection (see {@link #isSubmodular()}), the scores in the heap are used as upper bounds, and only
+ * the popped candidates are scored again (CELF). This is only useful when each selection changes the
+ * scores of a few users: rerankers whose scores depend on global properties of the graph (such as the
+ * community degree distribution or the modularity) do not use it.
+ *
+ * Leskovec, J., Krause, A., Guestrin, C., Faloutsos, C., VanBriesen, J., Glance, N. Cost-effective outbreak detection in networks. KDD 2007.
+ *
  * @author Javier Sanz-Cruzado Puig
  * @param <U> type of the users
  * @param <I> type of the items
@@ -36,19 +49,6 @@ public abstract class GlobalGreedyReranker<U,I> implements GlobalReranker<U,I>
      * The number of recommended items that are reranked for each user.
      */
     protected final int cutOff;
-    /**
-     * Maximum score of an item.
-     */
-    private double maxScore;
-    /**
-     * User that achieves the maximum value.
-     */
-    private U maxUser;
-    /**
-     * Item that achieves the maximum score and its value.
-     */
-    private Tuple2id maxItemScore;
-    
     /**
      * Constructor
      * @param cutOff the cutoff
@@ -65,6 +65,11 @@ public abstract class GlobalGreedyReranker<U,I> implements GlobalReranker<U,I>
         int numItems = Math.min(maxLength, cutOff);
         List<Recommendation<U,I>> recommendations = recommendation.collect(Collectors.toCollection(ArrayList::new));
         
+        if(this.isIncremental())
+        {
+            return this.lazyRerank(recommendations, numItems);
+        }
+        
         Map<U, List<Tuple2od<I>>> remaining = new HashMap<>();
         Map<U, Integer> max = new Object2IntOpenHashMap<>();
         Map<U, List<Tuple2od<I>>> output = new HashMap<>();
@@ -107,41 +112,164 @@ public abstract class GlobalGreedyReranker<U,I> implements GlobalReranker<U,I>
     }
     
     /**
-     * Selects the next recommendation to add to the reranked one.
+     * Selects the next recommendation to add to the reranked one. Each thread finds the
+     * best candidate for its users, and the local maxima are then reduced to a single one.
      * @param remainingItems The remaining items.
      * @return A tuple containing the recommendation to add.
      */
     protected Tuple2oo<U, Tuple2id> selectRecommendation(Map<U, List<Tuple2od<I>>> remainingItems)
     {
-        maxUser = null;
-        maxItemScore = null;
-        maxScore = Double.NEGATIVE_INFINITY;       
-        ReentrantLock lock = new ReentrantLock();
-        
-        remainingItems.entrySet().parallelStream().forEach(entry -> {
-            IntStream.range(0, entry.getValue().size()).forEach(i -> {
-                Tuple2od<I> rec = entry.getValue().get(i);
-                double score = this.score(entry.getKey(), rec);
-                lock.lock();
-                try
+        return remainingItems.entrySet().parallelStream().map(entry ->
+        {
+            U user = entry.getKey();
+            List<Tuple2od<I>> items = entry.getValue();
+
+            int maxIdx = -1;
+            double maxScore = Double.NEGATIVE_INFINITY;
+            for(int i = 0; i < items.size(); ++i)
+            {
+                double score = this.score(user, items.get(i));
+                if(maxIdx == -1 || maxScore < score)
+                {
+                    maxIdx = i;
+                    maxScore = score;
+                }
+            }
+
+            return maxIdx == -1 ? null : new Tuple2oo<>(user, new Tuple2id(maxIdx, maxScore));
+        })
+        .filter(tuple -> tuple != null)
+        .reduce(null, (x, y) -> (x == null || (y != null && x.v2().v2 < y.v2().v2)) ? y : x);
+    }
+
+    /**
+     * Reranks the recommendations using the lazy greedy engine.
+     * @param recommendations the recommendations to rerank.
+     * @param numItems the maximum number of items to select for each user.
+     * @return the reranked recommendations.
+     */
+    private Stream<Recommendation<U, I>> lazyRerank(List<Recommendation<U,I>> recommendations, int numItems)
+    {
+        boolean submodular = this.isSubmodular();
+        Map<U, Candidates> candidates = new HashMap<>();
+        Map<U, List<Tuple2od<I>>> output = new HashMap<>();
+
+        recommendations.forEach(rec ->
+        {
+            output.put(rec.getUser(), new ArrayList<>());
+            candidates.put(rec.getUser(), new Candidates(rec.getItems(), Math.min(numItems, rec.getItems().size())));
+        });
+
+        // Initial scoring pass.
+        PriorityQueue<Entry> heap = new PriorityQueue<>((x, y) -> Double.compare(y.score, x.score));
+        heap.addAll(this.score(candidates.keySet(), candidates));
+
+        while(!heap.isEmpty())
+        {
+            Entry entry = heap.poll();
+            Candidates cands = candidates.get(entry.user);
+            if(cands.left == 0 || cands.used[entry.pos])
+            {
+                continue;
+            }
+
+            Tuple2od<I> item = cands.items.get(entry.pos);
+            if(entry.version != cands.version)
+            {
+                // Stale score: it is only an upper bound of the real one (if the scores can only
+                // decrease). Otherwise, up-to-date entries for this user are already in the heap.
+                if(submodular)
                 {
-                    if(this.maxScore < score)
-                    {
-                        this.maxScore = score;
-                        this.maxItemScore = new Tuple2id(i, score);
-                        this.maxUser = entry.getKey();
-                    }
+                    heap.add(new Entry(entry.user, entry.pos, this.score(entry.user, item), cands.version));
                 }
-                finally
+                continue;
+            }
+
+            // Select the candidate.
+            cands.used[entry.pos] = true;
+            cands.left--;
+            List<Tuple2od<I>> list = output.get(entry.user);
+            list.add(new Tuple2od<>(item.v1, cutOff - list.size() + 0.0));
+            this.update(entry.user, new Tuple2od<>(item.v1, entry.score));
+
+            // Invalidate the scores of the affected users.
+            Collection<U> affected = this.affectedUsers(entry.user, new Tuple2od<>(item.v1, entry.score));
+            if(affected == null)
+            {
+                affected = candidates.keySet();
+            }
+
+            List<U> changed = new ArrayList<>();
+            affected.forEach(user ->
+            {
+                Candidates c = candidates.get(user);
+                if(c != null && c.left > 0)
                 {
-                    lock.unlock();
+                    c.version++;
+                    changed.add(user);
                 }
             });
-        });        
-        
-        return new Tuple2oo<>(this.maxUser, this.maxItemScore);
+
+            if(!submodular)
+            {
+                heap.addAll(this.score(changed, candidates));
+            }
+        }
+
+        return output.entrySet().stream().map((e) -> new Recommendation<>(e.getKey(), e.getValue()));
     }
-    
+
+    /**
+     * Scores (in parallel) the remaining candidates of a set of users.
+     * @param users the users.
+     * @param candidates the candidates for every user.
+     * @return the heap entries for the candidates.
+     */
+    private List<Entry> score(Collection<U> users, Map<U, Candidates> candidates)
+    {
+        return users.parallelStream().flatMap(user ->
+        {
+            Candidates cands = candidates.get(user);
+            return IntStream.range(0, cands.items.size())
+                    .filter(i -> !cands.used[i])
+                    .mapToObj(i -> new Entry(user, i, this.score(user, cands.items.get(i)), cands.version));
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Indicates whether the subclass is able to identify the users whose scores change after
+     * a selection (see {@link #affectedUsers(Object, Tuple2od)}), so the lazy greedy engine
+     * can be used. By default, it is not.
+     * @return true if the lazy greedy engine can be used, false otherwise.
+     */
+    protected boolean isIncremental()
+    {
+        return false;
+    }
+
+    /**
+     * Indicates whether the scores of the candidates can only decrease after a selection. In that
+     * case, scores are only computed again for the candidates at the top of the heap. By default,
+     * they are not assumed to decrease.
+     * @return true if the scores can only decrease, false otherwise.
+     */
+    protected boolean isSubmodular()
+    {
+        return false;
+    }
+
+    /**
+     * Finds the users whose candidate scores might change after a selection. It is only used by the
+     * lazy greedy engine.
+     * @param user The selected user.
+     * @param selectedItem The selected item and its score.
+     * @return the users whose scores might change, or null if every user might be affected.
+     */
+    protected Collection<U> affectedUsers(U user, Tuple2od<I> selectedItem)
+    {
+        return null;
+    }
+
     /**
      * Computes the score of a recommendation item
      * @param user The user
@@ -156,4 +284,78 @@ public abstract class GlobalGreedyReranker<U,I> implements GlobalReranker<U,I>
      * @param selectedItem The selected item and its score
      */
     protected abstract void update(U user, Tuple2od<I> selectedItem);
+
+    /**
+     * Candidates of a single user for the lazy greedy engine.
+     */
+    private class Candidates
+    {
+        /**
+         * The candidate items.
+         */
+        private final List<Tuple2od<I>> items;
+        /**
+         * Whether each candidate has already been selected or not.
+         */
+        private final boolean[] used;
+        /**
+         * Number of items which can still be selected for the user.
+         */
+        private int left;
+        /**
+         * Version of the scores of the user (it changes every time they become stale).
+         */
+        private int version;
+
+        /**
+         * Constructor.
+         * @param items the candidate items.
+         * @param left number of items to select.
+         */
+        public Candidates(List<Tuple2od<I>> items, int left)
+        {
+            this.items = items;
+            this.used = new boolean[items.size()];
+            this.left = left;
+            this.version = 0;
+        }
+    }
+
+    /**
+     * Heap entry for the lazy greedy engine.
+     */
+    private class Entry
+    {
+        /**
+         * The user.
+         */
+        private final U user;
+        /**
+         * Position of the candidate in the list of the user.
+         */
+        private final int pos;
+        /**
+         * Score of the candidate.
+         */
+        private final double score;
+        /**
+         * Version of the scores of the user when the score was computed.
+         */
+        private final int version;
+
+        /**
+         * Constructor.
+         * @param user the user.
+         * @param pos the position of the candidate.
+         * @param score the score.
+         * @param version the version of the scores of the user.
+         */
+        public Entry(U user, int pos, double score, int version)
+        {
+            this.user = user;
+            this.pos = pos;
+            this.score = score;
+            this.version = version;
+        }
+    }
 }
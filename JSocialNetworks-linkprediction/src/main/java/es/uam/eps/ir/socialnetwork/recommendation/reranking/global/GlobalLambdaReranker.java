@@ -63,6 +63,12 @@ public abstract class GlobalLambdaReranker<U,I> extends GlobalGreedyReranker<U,I
     @Override
     protected Tuple2oo<U, Tuple2id> selectRecommendation(Map<U, List<Tuple2od<I>>> remainingItems)
     {
+        // Without normalization, the novelty of each candidate is directly computed when scoring it.
+        if(!norm)
+        {
+            return super.selectRecommendation(remainingItems);
+        }
+        
         this.recStats = new Stats();
         this.novStats = new Stats();
         this.novMap = new HashMap<>();
@@ -84,6 +90,10 @@ public abstract class GlobalLambdaReranker<U,I> extends GlobalGreedyReranker<U,I
     @Override
     protected double score(U user, Tuple2od<I> item) 
     {
+        if(!norm)
+        {
+            return lambda*item.v2 + (1.0 - lambda)*this.nov(user, item);
+        }
         return lambda*this.norm(item.v2, this.recStats) + (1.0 - lambda)*this.norm(novMap.get(user).get(item.v1), novStats);
         
     }
@@ -10,6 +10,8 @@ package es.uam.eps.ir.socialnetwork.recommendation.reranking.global.communities;
 
 import es.uam.eps.ir.socialnetwork.community.Communities;
 import es.uam.eps.ir.socialnetwork.graph.Graph;
+import java.util.Collection;
+import java.util.Collections;
 import org.ranksys.core.util.tuples.Tuple2od;
 
 /**
@@ -42,4 +44,23 @@ public class GlobalInverseCommunitySizeReranker<U> extends GlobalCommunityRerank
     protected void update(U user, Tuple2od<U> selectedItem) 
     {
     }
+
+    @Override
+    protected boolean isIncremental()
+    {
+        // Community sizes are fixed: scores only change through normalization.
+        return !norm;
+    }
+
+    @Override
+    protected boolean isSubmodular()
+    {
+        return true;
+    }
+
+    @Override
+    protected Collection<U> affectedUsers(U user, Tuple2od<U> selectedItem)
+    {
+        return Collections.emptyList();
+    }
 }
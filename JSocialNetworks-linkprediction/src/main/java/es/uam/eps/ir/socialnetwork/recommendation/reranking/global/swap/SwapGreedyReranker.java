@@ -14,7 +14,9 @@ import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.ints.IntSortedSet;
 import static java.lang.Double.isNaN;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.IntStream;
 import org.ranksys.core.Recommendation;
 import org.ranksys.core.util.tuples.Tuple2od;
@@ -50,6 +52,32 @@ public abstract class SwapGreedyReranker<U,I> extends SwapReranker<U,I>
         return this.permuteRecommendation(rec, perm);
     }
 
+    @Override
+    protected Recommendation<U, I> speculativeRerankRecommendation(Recommendation<U, I> rec, int maxLength)
+    {
+        int[] perm = rerankPermutation(rec, maxLength, false);
+        return this.permuteRecommendation(rec, perm);
+    }
+
+    @Override
+    protected void commit(Recommendation<U, I> rec, Recommendation<U, I> reranked, int maxLength)
+    {
+        List<Tuple2od<I>> list = rec.getItems();
+        Map<I, Tuple2od<I>> values = new HashMap<>();
+        list.forEach(iv -> values.put(iv.v1, iv));
+        
+        // Position i of the permutation is only modified when the element in the
+        // i-th position is swapped.
+        List<Tuple2od<I>> to = reranked.getItems();
+        for(int i = 0; i < to.size(); ++i)
+        {
+            if(!to.get(i).v1.equals(list.get(i).v1))
+            {
+                update(rec.getUser(), values.get(to.get(i).v1), list.get(i));
+            }
+        }
+    }
+
     /**
      * Obtains a permutation for a ranking that greedily optimizes the global metric.
      * @param rec the recommendation ranking.
@@ -57,6 +85,19 @@ public abstract class SwapGreedyReranker<U,I> extends SwapReranker<U,I>
      * @return a permutation of the indexes.
      */
     protected int[] rerankPermutation(Recommendation<U, I> rec, int maxLength)
+    {
+        return this.rerankPermutation(rec, maxLength, true);
+    }
+
+    /**
+     * Obtains a permutation for a ranking that greedily optimizes the global metric.
+     * @param rec the recommendation ranking.
+     * @param maxLength maximum length of the permutation.
+     * @param updateValues true if the global metric has to be updated after each swap,
+     * false if the state of the reranker must not be modified (speculative execution).
+     * @return a permutation of the indexes.
+     */
+    protected int[] rerankPermutation(Recommendation<U, I> rec, int maxLength, boolean updateValues)
     {
         List<Tuple2od<I>> list = rec.getItems();
 
@@ -82,7 +123,10 @@ public abstract class SwapGreedyReranker<U,I> extends SwapReranker<U,I>
                 perm.set(i, bestI);
                 
                 //Update values
-                update(rec.getUser(), list.get(bestI), compared);
+                if(updateValues)
+                {
+                    update(rec.getUser(), list.get(bestI), compared);
+                }
             }
         }
         
@@ -29,25 +29,10 @@ import org.ranksys.core.util.tuples.Tuple2od;
 public abstract class SwapLambdaReranker<U,I> extends SwapGreedyReranker<U,I> 
 {
     /**
-     * Statistics for the original scores.
+     * Statistics and rankings of the current item selection. They are kept for each thread,
+     * so different users can be reranked concurrently (see {@link #supportsSpeculation()}).
      */
-    protected Stats relStats;
-    /**
-     * Statistics for the novelty scores.
-     */
-    protected Stats novStats;
-    /**
-     * Relevance ranking
-     */
-    protected Map<I,Integer> relRanking;
-    /**
-     * Novelty ranking
-     */
-    protected Map<I,Integer> novRanking;
-    /**
-     * Novelty of the items.
-     */
-    protected Object2DoubleMap<I> novMap;
+    private final ThreadLocal<Selection<I>> selection = ThreadLocal.withInitial(Selection::new);
     /**
      * Trade-off between original and novelty scores.
      */
@@ -79,11 +64,13 @@ public abstract class SwapLambdaReranker<U,I> extends SwapGreedyReranker<U,I>
     @Override
     protected int selectItem(U u, IntSortedSet remainingI, Tuple2od<I> oldValue, List<Tuple2od<I>> list)
     {
-        novMap = new Object2DoubleOpenHashMap<>();
-        relStats = new Stats();
-        novStats = new Stats();
-        relRanking = new HashMap<>();
-        novRanking = new HashMap<>();
+        Selection<I> sel = new Selection<>();
+        this.selection.set(sel);
+        Object2DoubleMap<I> novMap = sel.novMap;
+        Stats relStats = sel.relStats;
+        Stats novStats = sel.novStats;
+        Map<I,Integer> relRanking = sel.relRanking;
+        Map<I,Integer> novRanking = sel.novRanking;
         
         Comparator<Tuple2od<I>> comp = (Tuple2od<I> t, Tuple2od<I> t1) -> 
         {
@@ -134,37 +121,39 @@ public abstract class SwapLambdaReranker<U,I> extends SwapGreedyReranker<U,I>
     
     
     @Override
-    protected int[] rerankPermutation(Recommendation<U, I> rec, int maxLength) 
+    protected int[] rerankPermutation(Recommendation<U, I> rec, int maxLength, boolean updateValues) 
     {
         if(lambda == 0.0) return getBasePerm(maxLength);
         else
-            return super.rerankPermutation(rec, maxLength);
+            return super.rerankPermutation(rec, maxLength, updateValues);
     }
     
     @Override
     protected double value(Tuple2od<I> iv) 
     {
+        Selection<I> sel = this.selection.get();
         if(rank)
         {
-            return (1-lambda) * norm(iv.v1, relRanking) + lambda * norm(iv.v1, novRanking);
+            return (1-lambda) * norm(iv.v1, sel.relRanking) + lambda * norm(iv.v1, sel.novRanking);
         }
         else
         {
-            return (1 - lambda) * norm(iv.v2, relStats) + lambda * norm(novMap.getDouble(iv.v1), novStats);
+            return (1 - lambda) * norm(iv.v2, sel.relStats) + lambda * norm(sel.novMap.getDouble(iv.v1), sel.novStats);
         }
     }
 
     @Override
     protected double valuetop(Tuple2od<I> iv)
     {
+        Selection<I> sel = this.selection.get();
         if(rank)
         {
-            double value = (1-lambda) * norm(iv.v1, relRanking) + lambda * norm(iv.v1, novRanking);
+            double value = (1-lambda) * norm(iv.v1, sel.relRanking) + lambda * norm(iv.v1, sel.novRanking);
             return value;
         }
         else
         {
-            return (1 - lambda) * norm(iv.v2, relStats) + lambda * norm(this.globalvalue, novStats);
+            return (1 - lambda) * norm(iv.v2, sel.relStats) + lambda * norm(this.globalvalue, sel.novStats);
         }
         
     }
@@ -206,7 +195,31 @@ public abstract class SwapLambdaReranker<U,I> extends SwapGreedyReranker<U,I>
         return 1.0 - pos/size;
     }
 
-    
-    
-    
+    /**
+     * Statistics and rankings computed for selecting the item to swap with a given one.
+     * @param <I> Type of the items.
+     */
+    private static class Selection<I>
+    {
+        /**
+         * Statistics for the original scores.
+         */
+        private final Stats relStats = new Stats();
+        /**
+         * Statistics for the novelty scores.
+         */
+        private final Stats novStats = new Stats();
+        /**
+         * Relevance ranking
+         */
+        private final Map<I,Integer> relRanking = new HashMap<>();
+        /**
+         * Novelty ranking
+         */
+        private final Map<I,Integer> novRanking = new HashMap<>();
+        /**
+         * Novelty of the items.
+         */
+        private final Object2DoubleMap<I> novMap = new Object2DoubleOpenHashMap<>();
+    }
 }
@@ -14,6 +14,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
+import static java.util.stream.Collectors.toList;
 import java.util.stream.Stream;
 import org.ranksys.core.Recommendation;
 
@@ -21,6 +22,13 @@ import org.ranksys.core.Recommendation;
  * Reranker for optimizing a certain global parameter of the recommendations (e.g. Gini).
  * This rerankers start from a graph containing all the recommended edges. Then, edges are
  * swapped with some of the not recommended edges, in order to improve the global parameter.
+ *
+ * By default, users are processed one after another, since the reranking of each user depends on the
+ * changes made for the previous ones. Rerankers supporting speculative execution (see {@link #supportsSpeculation()})
+ * can also run in parallel mode (see {@link #setBatchSize(int)}): users are split into batches of consecutive
+ * users (in the shuffled order), all users in a batch are reranked in parallel against the same state, and the
+ * changes are then applied to the global state one user at a time, in the shuffled order. The output only depends
+ * on the seed and the batch size, and not on the number of threads or their scheduling.
  * @author Javier Sanz-Cruzado Puig.
  * @param <U> Type of the users.
  * @param <I> Type of the items.
@@ -35,6 +43,10 @@ public abstract class SwapReranker<U,I> implements GlobalReranker<U,I>
      * Current global value of the metric.
      */
     protected double globalvalue = 0.0;
+    /**
+     * Number of users reranked in parallel against the same state (1 for the sequential mode).
+     */
+    private int batchSize = 1;
     
     /**
      * Constructor. Default seed, not randomly chosen.
@@ -63,18 +75,86 @@ public abstract class SwapReranker<U,I> implements GlobalReranker<U,I>
         
         
         List<Recommendation<U,I>> output = new ArrayList<>();
-        // Reranks every recommendation.
-        for(Recommendation<U,I> rec : recommendations)
+        if(this.batchSize <= 1 || !this.supportsSpeculation())
+        {
+            // Reranks every recommendation.
+            for(Recommendation<U,I> rec : recommendations)
+            {
+                Recommendation<U,I> reranked = this.rerankRecommendation(rec, maxLength);
+                output.add(reranked);
+                this.update(reranked);
+            }
+        }
+        else
         {
-            Recommendation<U,I> reranked = this.rerankRecommendation(rec, maxLength);
-            output.add(reranked);
-            this.update(reranked);
+            for(int start = 0; start < recommendations.size(); start += batchSize)
+            {
+                List<Recommendation<U,I>> batch = recommendations.subList(start, Math.min(recommendations.size(), start + batchSize));
+                
+                // Speculative phase: every user in the batch is reranked against the same state.
+                List<Recommendation<U,I>> rerankedBatch = batch.parallelStream()
+                        .map(rec -> this.speculativeRerankRecommendation(rec, maxLength))
+                        .collect(toList());
+                
+                // Reconciliation phase: the changes are applied in order.
+                for(int i = 0; i < batch.size(); ++i)
+                {
+                    Recommendation<U,I> reranked = rerankedBatch.get(i);
+                    this.commit(batch.get(i), reranked, maxLength);
+                    output.add(reranked);
+                    this.update(reranked);
+                }
+            }
         }
         
         // returns the new rankings
         return output.stream();
     }
 
+    /**
+     * Sets the number of users to rerank in parallel against the same state. Values greater
+     * than one only take effect if the reranker supports speculative execution.
+     * @param batchSize the number of users in each batch (1 for the sequential mode).
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Indicates whether the reranker supports speculative execution, i.e. whether
+     * {@link #speculativeRerankRecommendation(Recommendation, int)} can be run concurrently
+     * for different users. By default, it does not.
+     * @return true if speculative execution is supported, false otherwise.
+     */
+    protected boolean supportsSpeculation()
+    {
+        return false;
+    }
+    
+    /**
+     * Reranks the recommendation for a user without modifying the state of the reranker.
+     * @param rec the original recommendation.
+     * @param maxLength maximum length of the reranking.
+     * @return the new recommendation.
+     */
+    protected Recommendation<U, I> speculativeRerankRecommendation(Recommendation<U, I> rec, int maxLength)
+    {
+        throw new UnsupportedOperationException("Speculative execution is not supported by this reranker");
+    }
+    
+    /**
+     * Applies to the state of the reranker the changes of a recommendation obtained by
+     * {@link #speculativeRerankRecommendation(Recommendation, int)}.
+     * @param rec the original recommendation.
+     * @param reranked the reranked recommendation.
+     * @param maxLength maximum length of the reranking.
+     */
+    protected void commit(Recommendation<U, I> rec, Recommendation<U, I> reranked, int maxLength)
+    {
+        
+    }
+
     /**
      * Updates the reranking algorithm values, using a certain recommendation.
      * @param reranked The recommendation.
@@ -134,18 +134,26 @@ public class CommFullOuterPairGiniReranker<U> extends CommunityReranker<U>
             
             oldIdx += max(userComm, delComm) - min(userComm, delComm) - 1;
             
-            double newValue = this.matrix.get(newIdx);
-            double oldValue = this.matrix.get(oldIdx);
-            
-            if(!userComm.equals(recommComm))
-                this.matrix.set(newIdx, newValue+1);
-            
-            if(!userComm.equals(delComm))
-                this.matrix.set(oldIdx, oldValue-1);
+            // The matrix is not modified, so different candidates can be scored concurrently.
+            int addIdx = newIdx;
+            int delIdx = oldIdx;
+            double addIncr = userComm.equals(recommComm) ? 0.0 : 1.0;
+            double delIncr = userComm.equals(delComm) ? 0.0 : -1.0;
+            DoubleStream stream = IntStream.range(0, matrix.size()).mapToDouble(index -> 
+            {
+                double value = matrix.get(index);
+                if(index == addIdx)
+                {
+                    value += addIncr;
+                }
+                if(index == delIdx)
+                {
+                    value += delIncr;
+                }
+                return value;
+            });
             
-            double giniValue = 1.0 - gini.compute(matrix, true, communities.getNumCommunities()*(communities.getNumCommunities()-1)/2, this.sum);
-            this.matrix.set(newIdx, newValue);
-            this.matrix.set(oldIdx, oldValue);
+            double giniValue = 1.0 - gini.compute(stream.boxed(), true, communities.getNumCommunities()*(communities.getNumCommunities()-1)/2, this.sum);
             return giniValue;
         }
     }
@@ -53,6 +53,13 @@ public abstract class CommunityReranker<U> extends SwapRerankerGraph<U>
         this.autoloops = autoloops;
     }
     
+    @Override
+    protected boolean supportsSpeculation()
+    {
+        // Novelty values only read the community graph.
+        return true;
+    }
+    
     @Override
     protected void computeGlobalValue()
     {
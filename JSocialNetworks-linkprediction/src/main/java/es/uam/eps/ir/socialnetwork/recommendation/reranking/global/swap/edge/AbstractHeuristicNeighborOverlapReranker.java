@@ -9,12 +9,8 @@
 package es.uam.eps.ir.socialnetwork.recommendation.reranking.global.swap.edge;
 
 import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.recommendation.reranking.global.swap.SwapRerankerGraph;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 import org.ranksys.core.Recommendation;
 import org.ranksys.core.util.tuples.Tuple2od;
 
@@ -26,13 +22,9 @@ import org.ranksys.core.util.tuples.Tuple2od;
 public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRerankerGraph<U>
 {
     /**
-     * Map containing the intersections between two nodes in the network (CN)
+     * Sizes of the intersections (CN) and the unions (TN) of the neighbourhoods of pairs of nodes in the network.
      */
-    private Map<U, Map<U, Double>> intersection;
-    /**
-     * Map containing the unions of two nodes in the network (TN)
-     */
-    private Map<U, Map<U, Double>> union;
+    private NeighborOverlapCounts<U> counts;
     /**
      * Execution mode: 1) Embededness is corrected any time a swap is done. 2) Embededness is corrected every time a user has finished its reranking.
      * 3) Embededness is never corrected (only use the heuristic)
@@ -65,36 +57,9 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
     @Override
     protected void computeGlobalValue() 
     {
-        intersection = new HashMap<>();
-        union = new HashMap<>();
-        
-        this.globalvalue = this.graph.getAllNodes().mapToDouble(u -> 
-        {
-            Set<U> uNodes = this.graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            intersection.put(u, new HashMap<>());
-            union.put(u, new HashMap<>());
-            
-            // Store the intersection and the union, and compute the embeddedness of the graph.
-            return this.graph.getAdjacentNodes(u).mapToDouble(v -> 
-            {
-                Set<U> vNodes = this.graph.getIncidentNodes(v).collect(Collectors.toCollection(HashSet::new));
-                Set<U> inter = new HashSet<>(vNodes);
-                Set<U> uni = new HashSet<>(vNodes);
-                inter.retainAll(uNodes);
-                uni.addAll(uNodes);
-                
-                double interSc = inter.size() + 0.0;
-                double unionSc = uni.size();
-                this.intersection.get(u).put(v, interSc);
-                this.union.get(u).put(v, unionSc);
-                
-                if(unionSc > 2.0)
-                {
-                    return interSc/(unionSc + 2.0);
-                }
-                return 0.0;
-            }).sum();
-        }).sum();
+        // Store the intersection and the union, and compute the embeddedness of the graph.
+        this.counts = new NeighborOverlapCounts<>(this.graph);
+        this.globalvalue = this.counts.getSum();
                
         if(this.graph.isDirected())
         {
@@ -133,27 +98,18 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
         U w = itemValue.v1();
         
         
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w))
+        if(!this.counts.contains(u, w))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getAdjacentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.OUT, false);
         }
         
         double value = this.graph.getEdgeCount()*(1.0 - this.globalvalue);
         
-        value -= this.intersection.get(u).get(v)/this.union.get(u).get(v);
+        value -= this.counts.intersection(u, v)/this.counts.union(u, v);
         
         boolean contains = this.graph.containsEdge(v,w);
-        double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-        double unionScUW = this.union.get(u).get(w) - (contains ? 0.0 : 1.0) + 2.0;
+        double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+        double unionScUW = this.counts.union(u, w) - (contains ? 0.0 : 1.0) + 2.0;
         
         value += interScUW / unionScUW;
         
@@ -182,27 +138,18 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
         U w = itemValue.v1();
         
         
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w))
+        if(!this.counts.contains(u, w))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getAdjacentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.OUT, false);
         }
         
         double value = 2.0*this.graph.getEdgeCount()*(1.0 - this.globalvalue);
         
-        value -= 2.0*this.intersection.get(u).get(v)/this.union.get(u).get(v);
+        value -= 2.0*this.counts.intersection(u, v)/this.counts.union(u, v);
         
         boolean contains = this.graph.containsEdge(v,w);
-        double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-        double unionScUW = this.union.get(u).get(w) - (contains ? 0.0 : 1.0) + 2.0;
+        double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+        double unionScUW = this.counts.union(u, w) - (contains ? 0.0 : 1.0) + 2.0;
         
         value += 2.0*interScUW / unionScUW;
 
@@ -224,31 +171,22 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
         U w = itemValue.v1();
         
         
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w))
+        if(!this.counts.contains(u, w))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getAdjacentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.OUT, false);
         }
         
         double value = 2.0*this.graph.getEdgeCount()*(1.0 - this.globalvalue);
         
-        value -= 2.0*this.intersection.get(u).get(v)/this.union.get(u).get(v);
+        value -= 2.0*this.counts.intersection(u, v)/this.counts.union(u, v);
         
         boolean contains = this.graph.containsEdge(w,v);
-        double interScUV = this.intersection.get(u).get(v) + (contains ? 1.0 : 0.0);
-        double unionScUV = this.union.get(u).get(v) + (contains ? 0.0 : 1.0) + 2.0;
+        double interScUV = this.counts.intersection(u, v) + (contains ? 1.0 : 0.0);
+        double unionScUV = this.counts.union(u, v) + (contains ? 0.0 : 1.0) + 2.0;
         value += 2.0*interScUV/unionScUV;
         
-        double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-        double unionScUW = this.union.get(u).get(w) - (contains ? 0.0 : 1.0) + 2.0;
+        double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+        double unionScUW = this.counts.union(u, w) - (contains ? 0.0 : 1.0) + 2.0;
         value += 2.0*interScUW / unionScUW;
 
         if(promote)
@@ -268,28 +206,19 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
         U w = itemValue.v1();
         
         
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w))
+        if(!this.counts.contains(u, w))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getAdjacentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.OUT, false);
         }
         
         double value = 2.0*this.graph.getEdgeCount()*(1.0 - this.globalvalue);
         
-        value -= 2.0*this.intersection.get(u).get(v)/this.union.get(u).get(v);
-        value -= 2.0*this.intersection.get(u).get(w)/this.union.get(u).get(w);
+        value -= 2.0*this.counts.intersection(u, v)/this.counts.union(u, v);
+        value -= 2.0*this.counts.intersection(u, w)/this.counts.union(u, w);
         
         boolean contains = this.graph.containsEdge(v,w);
-        double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-        double unionScUW = this.union.get(u).get(w) - (contains ? 0.0 : 1.0) + 2.0;
+        double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+        double unionScUW = this.counts.union(u, w) - (contains ? 0.0 : 1.0) + 2.0;
         
         value += 2.0*interScUW / unionScUW;
 
@@ -346,31 +275,31 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
         
             double value = this.graph.getEdgeCount()*(1.0 - this.globalvalue);
 
-            value -= this.intersection.get(u).get(v)/this.union.get(u).get(v);
+            value -= this.counts.intersection(u, v)/this.counts.union(u, v);
 
             boolean contains = this.graph.containsEdge(v,w);
             if(contains)
             {
-                this.intersection.get(u).put(w, this.intersection.get(u).get(w)-1.0);
+                this.counts.setIntersection(u, w, this.counts.intersection(u, w)-1.0);
             }
             else
             {
-                this.union.get(u).put(w, this.union.get(u).get(w)-1.0);
+                this.counts.setUnion(u, w, this.counts.union(u, w)-1.0);
             }
             
-            double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-            double unionScUW = this.union.get(u).get(w) - (contains ? 0.0 : 1.0) + 2.0;
+            double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+            double unionScUW = this.counts.union(u, w) - (contains ? 0.0 : 1.0) + 2.0;
 
             value += interScUW / unionScUW;
             
             contains = this.graph.containsEdge(w, v);
             if(contains)
             {
-                this.intersection.get(u).put(v, this.intersection.get(u).get(w)+1.0);
+                this.counts.setIntersection(u, v, this.counts.intersection(u, w)+1.0);
             }
             else
             {
-                this.union.get(u).put(w, this.union.get(u).get(w)+1.0);
+                this.counts.setUnion(u, w, this.counts.union(u, w)+1.0);
             }
             
             if(promote)
@@ -406,26 +335,26 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
         
             double value = this.graph.getEdgeCount()*(1.0 - this.globalvalue);
 
-            value -= 2.0*this.intersection.get(u).get(v)/this.union.get(u).get(v);
+            value -= 2.0*this.counts.intersection(u, v)/this.counts.union(u, v);
 
             boolean contains = this.graph.containsEdge(v,w);
             if(contains)
             {
-                this.intersection.get(u).put(w, this.intersection.get(u).get(w)-1.0);
-                this.intersection.get(w).put(u, this.intersection.get(u).get(w));
-                this.intersection.get(u).put(v, this.intersection.get(u).get(w)+1.0);
-                this.intersection.get(v).put(u, this.intersection.get(u).get(v));
+                this.counts.setIntersection(u, w, this.counts.intersection(u, w)-1.0);
+                this.counts.setIntersection(w, u, this.counts.intersection(u, w));
+                this.counts.setIntersection(u, v, this.counts.intersection(u, w)+1.0);
+                this.counts.setIntersection(v, u, this.counts.intersection(u, v));
             }
             else
             {
-                this.union.get(u).put(w, this.union.get(u).get(w)-1.0);
-                this.union.get(w).put(u, this.union.get(u).get(w));
-                this.union.get(u).put(v, this.union.get(u).get(v)+1.0);
-                this.union.get(v).put(u, this.union.get(u).get(v));
+                this.counts.setUnion(u, w, this.counts.union(u, w)-1.0);
+                this.counts.setUnion(w, u, this.counts.union(u, w));
+                this.counts.setUnion(u, v, this.counts.union(u, v)+1.0);
+                this.counts.setUnion(v, u, this.counts.union(u, v));
             }
             
-            double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-            double unionScUW = this.union.get(u).get(w) - (contains ? 0.0 : 1.0) + 2.0;
+            double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+            double unionScUW = this.counts.union(u, w) - (contains ? 0.0 : 1.0) + 2.0;
 
             value += 2.0 * interScUW / unionScUW;
             if(promote)
@@ -459,30 +388,30 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
         
             double value = 2.0*this.graph.getEdgeCount()*(1.0 - this.globalvalue);
 
-            value -= 2.0*this.intersection.get(u).get(v)/this.union.get(u).get(v);
+            value -= 2.0*this.counts.intersection(u, v)/this.counts.union(u, v);
 
             boolean contains = this.graph.containsEdge(w,v);
-            double interScUV = this.intersection.get(u).get(v) + (contains ? 1.0 : 0.0);
-            double unionScUV = this.union.get(u).get(v) + (contains ? 0.0 : 1.0) + 2.0;
+            double interScUV = this.counts.intersection(u, v) + (contains ? 1.0 : 0.0);
+            double unionScUV = this.counts.union(u, v) + (contains ? 0.0 : 1.0) + 2.0;
             value += 2.0*interScUV/unionScUV;
 
-            double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-            double unionScUW = this.union.get(u).get(w) - (contains ? 0.0 : 1.0) + 2.0;
+            double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+            double unionScUW = this.counts.union(u, w) - (contains ? 0.0 : 1.0) + 2.0;
             value += 2.0*interScUW / unionScUW;
             
             if(contains)
             {
-                this.intersection.get(u).put(v, this.intersection.get(u).get(v) + 1.0);
-                this.intersection.get(v).put(u, this.intersection.get(u).get(v));
-                this.intersection.get(u).put(w, this.intersection.get(u).get(w) - 1.0);
-                this.intersection.get(w).put(u, this.intersection.get(u).get(w));
+                this.counts.setIntersection(u, v, this.counts.intersection(u, v) + 1.0);
+                this.counts.setIntersection(v, u, this.counts.intersection(u, v));
+                this.counts.setIntersection(u, w, this.counts.intersection(u, w) - 1.0);
+                this.counts.setIntersection(w, u, this.counts.intersection(u, w));
             }
             else
             {
-                this.intersection.get(u).put(v, this.intersection.get(u).get(v) + 1.0);
-                this.intersection.get(v).put(u, this.intersection.get(u).get(v));
-                this.intersection.get(u).put(w, this.intersection.get(u).get(w) - 1.0);
-                this.intersection.get(w).put(u, this.intersection.get(u).get(w));
+                this.counts.setIntersection(u, v, this.counts.intersection(u, v) + 1.0);
+                this.counts.setIntersection(v, u, this.counts.intersection(u, v));
+                this.counts.setIntersection(u, w, this.counts.intersection(u, w) - 1.0);
+                this.counts.setIntersection(w, u, this.counts.intersection(u, w));
             }
 
             if(promote)
@@ -516,40 +445,31 @@ public abstract class AbstractHeuristicNeighborOverlapReranker<U> extends SwapRe
             U w = updated.v1();
 
 
-            if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w))
+            if(!this.counts.contains(u, w))
             {
-                Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-                Set<U> wSet = graph.getAdjacentNodes(w).collect(Collectors.toCollection(HashSet::new));
-                Set<U> inter = new HashSet<>(uSet);
-                inter.retainAll(wSet);
-
-                Set<U> uni = new HashSet<>(uSet);
-                uni.addAll(wSet);
-
-                this.intersection.get(u).put(w, inter.size() + 0.0);
-                this.union.get(u).put(w, uni.size() + 0.0);
+                this.counts.compute(u, w, EdgeOrientation.OUT, false);
             }
 
             double value = 2.0*this.graph.getEdgeCount()*(1.0 - this.globalvalue);
 
-            value -= 2.0*this.intersection.get(u).get(v)/this.union.get(u).get(v);
-            value -= 2.0*this.intersection.get(u).get(w)/this.union.get(u).get(w);
+            value -= 2.0*this.counts.intersection(u, v)/this.counts.union(u, v);
+            value -= 2.0*this.counts.intersection(u, w)/this.counts.union(u, w);
 
             boolean contains = this.graph.containsEdge(v,w);
-            double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-            double unionScUW = this.union.get(u).get(w) - (contains ? 0.0 : 1.0) + 2.0;
+            double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+            double unionScUW = this.counts.union(u, w) - (contains ? 0.0 : 1.0) + 2.0;
 
             value += 2.0*interScUW / unionScUW;
 
             if(contains)
             {
-                this.intersection.get(u).put(w, this.intersection.get(u).get(w) - 1.0);
-                this.intersection.get(w).put(u, this.intersection.get(u).get(w));
+                this.counts.setIntersection(u, w, this.counts.intersection(u, w) - 1.0);
+                this.counts.setIntersection(w, u, this.counts.intersection(u, w));
             }
             else
             {
-                this.union.get(u).put(w, this.union.get(u).get(w) - 1.0);
-                this.union.get(w).put(u, this.union.get(u).get(w));
+                this.counts.setUnion(u, w, this.counts.union(u, w) - 1.0);
+                this.counts.setUnion(w, u, this.counts.union(u, w));
             }
             if(promote)
             {
@@ -9,12 +9,8 @@
 package es.uam.eps.ir.socialnetwork.recommendation.reranking.global.swap.edge;
 
 import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.recommendation.reranking.global.swap.SwapRerankerGraph;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 import org.ranksys.core.Recommendation;
 import org.ranksys.core.util.tuples.Tuple2od;
 
@@ -26,13 +22,9 @@ import org.ranksys.core.util.tuples.Tuple2od;
 public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGraph<U>
 {
     /**
-     * Map containing the intersections between two nodes in the network (CN)
+     * Sizes of the intersections (CN) and the unions (TN) of the neighbourhoods of pairs of nodes in the network.
      */
-    private Map<U, Map<U, Double>> intersection;
-    /**
-     * Map containing the unions of two nodes in the network (TN)
-     */
-    private Map<U, Map<U, Double>> union;
+    private NeighborOverlapCounts<U> counts;
     /**
         true if we want edges with greater embeddedness, false if we want edges with smaller embeddedness (more weakness)
     */
@@ -56,36 +48,9 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
     @Override
     protected void computeGlobalValue() 
     {
-        intersection = new HashMap<>();
-        union = new HashMap<>();
-        
-        this.globalvalue = this.graph.getAllNodes().mapToDouble(u -> 
-        {
-            Set<U> uNodes = this.graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            intersection.put(u, new HashMap<>());
-            union.put(u, new HashMap<>());
-            
-            // Store the intersection and the union, and compute the embeddedness of the graph.
-            return this.graph.getAdjacentNodes(u).mapToDouble(v -> 
-            {
-                Set<U> vNodes = this.graph.getIncidentNodes(v).collect(Collectors.toCollection(HashSet::new));
-                Set<U> inter = new HashSet<>(vNodes);
-                Set<U> uni = new HashSet<>(vNodes);
-                inter.retainAll(uNodes);
-                uni.addAll(uNodes);
-                
-                double interSc = inter.size() + 0.0;
-                double unionSc = uni.size();
-                this.intersection.get(u).put(v, interSc);
-                this.union.get(u).put(v, unionSc);
-                
-                if(unionSc > 2.0)
-                {
-                    return interSc/(unionSc + 2.0);
-                }
-                return 0.0;
-            }).sum();
-        }).sum();
+        // Store the intersection and the union, and compute the embeddedness of the graph.
+        this.counts = new NeighborOverlapCounts<>(this.graph);
+        this.globalvalue = this.counts.getSum();
                
         if(this.graph.isDirected())
         {
@@ -122,23 +87,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
         U v = compared.v1();
         U w = itemValue.v1();
 
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w))
+        if(!this.counts.contains(u, w))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getIncidentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.IN, false);
         }
         
         boolean contains = this.graph.containsEdge(v, w);
-        double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-        double unionScUW = this.union.get(u).get(w) + 2 - (contains ? 0.0 : 1.0);
+        double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+        double unionScUW = this.counts.union(u, w) + 2 - (contains ? 0.0 : 1.0);
 
         double novelty = 0.0;
         if(unionScUW > 2.0)
@@ -158,8 +114,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean condV = this.graph.containsEdge(y, v);
                         boolean condW = this.graph.containsEdge(y, w);
                         
@@ -176,8 +132,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
            {
                return this.graph.getAdjacentNodes(x).mapToDouble(y -> 
                {
-                    double interSc = this.intersection.get(x).get(y);
-                    double unionSc = this.union.get(x).get(y);
+                    double interSc = this.counts.intersection(x, y);
+                    double unionSc = this.counts.union(x, y);
                     boolean cond = this.graph.containsEdge(x, u);
 
                     if(y.equals(v))
@@ -223,27 +179,16 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
         U v = compared.v1();
         U w = itemValue.v1();
 
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w) || !intersection.get(w).containsKey(u) || !union.get(w).containsKey(u))
+        if(!this.counts.contains(u, w) || !this.counts.contains(w, u))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getIncidentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.intersection.get(w).put(u, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
-            this.union.get(w).put(u, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.IN, true);
         }
         
         
         boolean contains = this.graph.containsEdge(v, w);
         
-        double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-        double unionScUW = this.union.get(u).get(w) + (contains ? 1.0 : 0.0) - 1.0;
+        double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+        double unionScUW = this.counts.union(u, w) + (contains ? 1.0 : 0.0) - 1.0;
         
         double novelty = 0;
         if(unionScUW > 0)
@@ -263,8 +208,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean condV = this.graph.containsEdge(y, v);
                         boolean condW = this.graph.containsEdge(y, w);
 
@@ -286,16 +231,16 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else if(y.equals(w))
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         if(unionSc > 2.0)
                             return interSc/(unionSc-2.0);
                         return 0.0;
                     }
                     else
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(y, u);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= (cond ? 0.0 : 1.0);
@@ -311,16 +256,16 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(v))
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         if(unionSc > 2.0)
                             return interSc/(unionSc-2.0);
                         return 0.0;
                     }
                     else
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(y, u);
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += cond ? 0.0 : 1.0;
@@ -334,8 +279,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
             {
                return this.graph.getAdjacentNodes(x).mapToDouble(y -> 
                {
-                    double interSc = this.intersection.get(x).get(y);
-                    double unionSc = this.union.get(x).get(y);
+                    double interSc = this.counts.intersection(x, y);
+                    double unionSc = this.counts.union(x, y);
                     boolean cond = this.graph.containsEdge(x, u);
 
                     if(y.equals(v))
@@ -373,25 +318,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
         //We already assume that the graph is undirected.
         U w = itemValue.v1;
         
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w) || !intersection.get(w).containsKey(u) || !union.get(w).containsKey(u))
+        if(!this.counts.contains(u, w) || !this.counts.contains(w, u))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getIncidentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.intersection.get(w).put(u, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
-            this.union.get(w).put(u, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.IN, true);
         }
         
         // Compute the embededness of both links (u,w) and (w,u). 
-        double interScUW = this.intersection.get(u).get(w);
-        double unionScUW = this.union.get(u).get(w);
+        double interScUW = this.counts.intersection(u, w);
+        double unionScUW = this.counts.union(u, w);
         
         double novelty = 0.0;
         if(unionScUW > 0.0)
@@ -407,8 +341,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 return this.graph.getAdjacentNodes(x).mapToDouble(y -> 
                 {
                     // The edge (u,w) does not exist, so it won't be considered as an option
-                    double interSc = this.intersection.get(x).get(y);
-                    double unionSc = this.union.get(x).get(y);
+                    double interSc = this.counts.intersection(x, y);
+                    double unionSc = this.counts.union(x, y);
                     boolean cond = this.graph.containsEdge(y, w);
                     interSc += cond ? 1.0 : 0.0;
                     unionSc += cond ? 0.0 : 1.0;
@@ -427,8 +361,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     // The edge (w,u) does not exist, so it won't be considered as an option
 
-                    double interSc = this.intersection.get(x).get(y);
-                    double unionSc = this.union.get(x).get(y);
+                    double interSc = this.counts.intersection(x, y);
+                    double unionSc = this.counts.union(x, y);
                     boolean cond = this.graph.containsEdge(y, u);
                     interSc += cond ? 1.0 : 0.0;
                     unionSc += cond ? 0.0 : 1.0;
@@ -446,8 +380,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(u)) // If the second node is equal to the target user
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(x, w);
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += cond ? 0.0 : 1.0;
@@ -460,8 +394,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else if(y.equals(w)) // If the second node is equal to the newly recommended user
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(x, u);
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += cond ? 0.0 : 1.0;
@@ -474,8 +408,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else // otherwise
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         if(unionSc > 2.0)
                         {
                             return (interSc)/(unionSc - 2.0);
@@ -518,8 +452,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else // Other case
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(y, v);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= cond ? 0.0 : 1.0;
@@ -544,8 +478,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else // Other case
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(y, u);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= cond ? 0.0 : 1.0;
@@ -564,8 +498,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(u)) // If the second node is equal to the target user
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(x, v);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= cond ? 0.0 : 1.0;
@@ -578,8 +512,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else if(y.equals(v)) // If the second node is equal to the newly recommended user
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(x, u);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= cond ? 0.0 : 1.0;
@@ -592,8 +526,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else // otherwise
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         if(unionSc > 2.0)
                         {
                             return (interSc)/(unionSc - 2.0);
@@ -648,24 +582,15 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
         U v = old.v1();
         U w = updated.v1();
 
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w))
+        if(!this.counts.contains(u, w))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getIncidentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.IN, false);
         }
         
         boolean contains = this.graph.containsEdge(v, w);
         
-        double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-        double unionScUW = this.union.get(u).get(w) + 2 - (contains ? 0.0 : 1.0);
+        double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+        double unionScUW = this.counts.union(u, w) + 2 - (contains ? 0.0 : 1.0);
 
         double novelty = 0.0;
         if(unionScUW > 2.0)
@@ -673,8 +598,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
             novelty = interScUW / (unionScUW - 2.0);
         }
         
-        this.intersection.get(u).put(w, interScUW);
-        this.union.get(u).put(w, unionScUW);
+        this.counts.setIntersection(u, w, interScUW);
+        this.counts.setUnion(u, w, unionScUW);
         
         
         
@@ -686,28 +611,28 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(v))
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(w, v);
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += cond ? 1.0 : 0.0 - 2.0;
                         
-                        this.intersection.get(x).put(y, interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         return 0.0;
                     }
                     else
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean condV = this.graph.containsEdge(y, v);
                         boolean condW = this.graph.containsEdge(y, w);
                         
                         interSc += (condW ? 1.0 : 0.0) - (condV ? 1.0 : 0.0);
                         unionSc += (condV ? 1.0 : 0.0) - (condW ? 1.0 : 0.0);
                         
-                        this.intersection.get(x).put(y, interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                             return interSc/(unionSc-2.0);
@@ -720,8 +645,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
            {
                return this.graph.getAdjacentNodes(x).mapToDouble(y -> 
                {
-                    double interSc = this.intersection.get(x).get(y);
-                    double unionSc = this.union.get(x).get(y);
+                    double interSc = this.counts.intersection(x, y);
+                    double unionSc = this.counts.union(x, y);
                     boolean cond = this.graph.containsEdge(x, u);
 
                     if(y.equals(v))
@@ -735,8 +660,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                         unionSc += (cond ? 0.0 : 1.0);
                     }
                     
-                    this.intersection.get(x).put(y, interSc);
-                    this.union.get(x).put(y, unionSc);
+                    this.counts.setIntersection(x, y, interSc);
+                    this.counts.setUnion(x, y, unionSc);
                     
                     if(unionSc > 2.0)
                         return interSc/(unionSc-2.0);
@@ -767,31 +692,20 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
         U v = old.v1();
         U w = updated.v1();
 
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w) || !intersection.get(w).containsKey(u) || !union.get(w).containsKey(u))
+        if(!this.counts.contains(u, w) || !this.counts.contains(w, u))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getIncidentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.intersection.get(w).put(u, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
-            this.union.get(w).put(u, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.IN, true);
         }
         
         boolean contains = this.graph.containsEdge(v, w);
         
-        double interScUW = this.intersection.get(u).get(w) - (contains ? 1.0 : 0.0);
-        double unionScUW = this.union.get(u).get(w) + 2.0 - (contains ? 0.0 : 1.0);
+        double interScUW = this.counts.intersection(u, w) - (contains ? 1.0 : 0.0);
+        double unionScUW = this.counts.union(u, w) + 2.0 - (contains ? 0.0 : 1.0);
         
-        this.intersection.get(u).put(w,interScUW);
-        this.union.get(u).put(w, unionScUW);
-        this.intersection.get(w).put(u,interScUW);
-        this.union.get(w).put(u, unionScUW);
+        this.counts.setIntersection(u, w, interScUW);
+        this.counts.setUnion(u, w, unionScUW);
+        this.counts.setIntersection(w, u, interScUW);
+        this.counts.setUnion(w, u, unionScUW);
         
         double novelty = 0;
         if(unionScUW > 2.0)
@@ -807,28 +721,28 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(v))
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(v, w);
                         
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += (cond ? 0.0 : 1.0) - 2.0;
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         return 0.0;
                     }
                     else
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean condV = this.graph.containsEdge(y, v);
                         boolean condW = this.graph.containsEdge(y, w);
 
                         interSc += (condW ? 1.0 : 0.0) - (condV ? 1.0 : 0.0);
                         unionSc += (condV ? 1.0 : 0.0) - (condW ? 1.0 : 0.0);
                         
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                             return interSc/(unionSc-2.0);
@@ -842,37 +756,37 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(u))
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(v, w);
                         
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += (cond ? 0.0 : 1.0) - 2.0;
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         return 0.0;
                     }
                     else if(y.equals(w))
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         if(unionSc > 2.0)
                             return interSc/(unionSc-2.0);
                         
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         return 0.0;
                     }
                     else
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(y, u);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= (cond ? 0.0 : 1.0);
                         
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                             return interSc/(unionSc-2.0);
@@ -886,11 +800,11 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(v))
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                             return interSc/(unionSc-2.0);
@@ -898,14 +812,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(y, u);
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += cond ? 0.0 : 1.0;
                         
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);                        
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                             return interSc/(unionSc-2.0);
@@ -917,8 +831,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
             {
                return this.graph.getAdjacentNodes(x).mapToDouble(y -> 
                {
-                    double interSc = this.intersection.get(x).get(y);
-                    double unionSc = this.union.get(x).get(y);
+                    double interSc = this.counts.intersection(x, y);
+                    double unionSc = this.counts.union(x, y);
                     boolean cond = this.graph.containsEdge(x, u);
 
                     if(y.equals(v))
@@ -932,8 +846,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                         unionSc += (cond ? 0.0 : 1.0);
                     }
                     
-                    this.intersection.get(x).put(y,interSc);
-                    this.union.get(x).put(y, unionSc);                    
+                    this.counts.setIntersection(x, y, interSc);
+                    this.counts.setUnion(x, y, unionSc);
                     
                     if(unionSc > 2.0)
                         return interSc/(unionSc-2.0);
@@ -963,30 +877,19 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
         //We already assume that the graph is undirected.
         U w = updated.v1;
         
-        if(!intersection.get(u).containsKey(w) || !union.get(u).containsKey(w) || !intersection.get(w).containsKey(u) || !union.get(w).containsKey(u))
+        if(!this.counts.contains(u, w) || !this.counts.contains(w, u))
         {
-            Set<U> uSet = graph.getAdjacentNodes(u).collect(Collectors.toCollection(HashSet::new));
-            Set<U> wSet = graph.getIncidentNodes(w).collect(Collectors.toCollection(HashSet::new));
-            Set<U> inter = new HashSet<>(uSet);
-            inter.retainAll(wSet);
-            
-            Set<U> uni = new HashSet<>(uSet);
-            uni.addAll(wSet);
-            
-            this.intersection.get(u).put(w, inter.size() + 0.0);
-            this.intersection.get(w).put(u, inter.size() + 0.0);
-            this.union.get(u).put(w, uni.size() + 0.0);
-            this.union.get(w).put(u, uni.size() + 0.0);
+            this.counts.compute(u, w, EdgeOrientation.IN, true);
         }
         
         // Compute the embededness of both links (u,w) and (w,u). 
-        double interScUW = this.intersection.get(u).get(w);
-        double unionScUW = this.union.get(u).get(w) + 2.0;
+        double interScUW = this.counts.intersection(u, w);
+        double unionScUW = this.counts.union(u, w) + 2.0;
         
-        this.intersection.get(u).put(w,interScUW);
-        this.union.get(u).put(w, unionScUW);
-        this.intersection.get(w).put(u,interScUW);
-        this.union.get(w).put(u, unionScUW);
+        this.counts.setIntersection(u, w, interScUW);
+        this.counts.setUnion(u, w, unionScUW);
+        this.counts.setIntersection(w, u, interScUW);
+        this.counts.setUnion(w, u, unionScUW);
         
         double novelty = 0.0;
         if(unionScUW > 0.0)
@@ -1002,14 +905,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 return this.graph.getAdjacentNodes(x).mapToDouble(y -> 
                 {
                     // The edge (u,w) does not exist, so it won't be considered as an option
-                    double interSc = this.intersection.get(x).get(y);
-                    double unionSc = this.union.get(x).get(y);
+                    double interSc = this.counts.intersection(x, y);
+                    double unionSc = this.counts.union(x, y);
                     boolean cond = this.graph.containsEdge(y, w);
                     interSc += cond ? 1.0 : 0.0;
                     unionSc += cond ? 0.0 : 1.0;
                     
-                    this.intersection.get(x).put(y,interSc);
-                    this.union.get(x).put(y, unionSc);                        
+                    this.counts.setIntersection(x, y, interSc);
+                    this.counts.setUnion(x, y, unionSc);
                     if(unionSc > 2.0)
                     {
                         return (interSc)/(unionSc - 2.0);
@@ -1024,14 +927,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     // The edge (w,u) does not exist, so it won't be considered as an option
 
-                    double interSc = this.intersection.get(x).get(y);
-                    double unionSc = this.union.get(x).get(y);
+                    double interSc = this.counts.intersection(x, y);
+                    double unionSc = this.counts.union(x, y);
                     boolean cond = this.graph.containsEdge(y, u);
                     interSc += cond ? 1.0 : 0.0;
                     unionSc += cond ? 0.0 : 1.0;
                     
-                    this.intersection.get(x).put(y,interSc);
-                    this.union.get(x).put(y, unionSc);                         
+                    this.counts.setIntersection(x, y, interSc);
+                    this.counts.setUnion(x, y, unionSc);
                     
                     if(unionSc > 2.0)
                     {
@@ -1046,14 +949,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(u)) // If the second node is equal to the target user
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(x, w);
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += cond ? 0.0 : 1.0;
 
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);                             
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
 
                         if(unionSc > 2.0)
                         {
@@ -1063,14 +966,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else if(y.equals(w)) // If the second node is equal to the newly recommended user
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(x, u);
                         interSc += cond ? 1.0 : 0.0;
                         unionSc += cond ? 0.0 : 1.0;
 
-                        this.intersection.get(x).put(y,interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                         {
@@ -1080,8 +983,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else // otherwise
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         
                         if(unionSc > 2.0)
                         {
@@ -1125,24 +1028,24 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(v)) // The edge (u,v) does not exist now
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y) - 2.0;
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y) - 2.0;
                         
-                        this.intersection.get(x).put(y, interSc);
-                        this.union.get(x).put(y, unionSc);
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                                 
                         return 0.0;
                     }
                     else // Other case
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(y, v);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= cond ? 0.0 : 1.0;
 
-                        this.intersection.get(x).put(y, interSc);
-                        this.union.get(x).put(y, unionSc);                        
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                         {
@@ -1164,14 +1067,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else // Other case
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(y, u);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= cond ? 0.0 : 1.0;
 
-                        this.intersection.get(x).put(y, interSc);
-                        this.union.get(x).put(y, unionSc);                        
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                         {
@@ -1187,14 +1090,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                 {
                     if(y.equals(u)) // If the second node is equal to the target user
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(x, v);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= cond ? 0.0 : 1.0;
 
-                        this.intersection.get(x).put(y, interSc);
-                        this.union.get(x).put(y, unionSc);                        
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                         {
@@ -1204,14 +1107,14 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else if(y.equals(v)) // If the second node is equal to the newly recommended user
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         boolean cond = this.graph.containsEdge(x, u);
                         interSc -= cond ? 1.0 : 0.0;
                         unionSc -= cond ? 0.0 : 1.0;
 
-                        this.intersection.get(x).put(y, interSc);
-                        this.union.get(x).put(y, unionSc);                        
+                        this.counts.setIntersection(x, y, interSc);
+                        this.counts.setUnion(x, y, unionSc);
                         
                         if(unionSc > 2.0)
                         {
@@ -1221,8 +1124,8 @@ public abstract class AbstractNeighborOverlapReranker<U> extends SwapRerankerGra
                     }
                     else // otherwise
                     {
-                        double interSc = this.intersection.get(x).get(y);
-                        double unionSc = this.union.get(x).get(y);
+                        double interSc = this.counts.intersection(x, y);
+                        double unionSc = this.counts.union(x, y);
                         if(unionSc > 2.0)
                         {
                             return (interSc)/(unionSc - 2.0);
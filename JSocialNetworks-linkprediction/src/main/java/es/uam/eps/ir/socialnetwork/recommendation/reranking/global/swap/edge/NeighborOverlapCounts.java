@@ -0,0 +1,288 @@
+/*
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Aut�noma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.recommendation.reranking.global.swap.edge;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Stores the sizes of the intersection (CN) and the union (TN) of the neighbourhoods of the endpoints
+ * of the edges in a network. Nodes are identified by integers, neighbourhoods are stored as sorted
+ * arrays of identifiers (so intersections are computed by merging them), and the sizes are stored
+ * in primitive maps indexed by the identifier of the edge.
+ *
+ * For each edge (u,v), the neighbourhoods which are compared are the adjacent nodes of u and the
+ * incident nodes of v. The initial values are computed in parallel.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users
+ */
+class NeighborOverlapCounts<U>
+{
+    /**
+     * The graph.
+     */
+    private final Graph<U> graph;
+    /**
+     * Identifiers of the nodes.
+     */
+    private final Object2IntOpenHashMap<U> index;
+    /**
+     * Size of the intersection of the neighbourhoods of the endpoints of each edge.
+     */
+    private final Long2IntOpenHashMap intersection;
+    /**
+     * Size of the union of the neighbourhoods of the endpoints of each edge.
+     */
+    private final Long2IntOpenHashMap union;
+    /**
+     * Sum of the embeddedness of the edges in the graph when the counts were computed.
+     */
+    private final double sum;
+
+    /**
+     * Constructor. Computes the sizes of the intersections and unions for all the edges in the network.
+     * @param graph the graph.
+     */
+    public NeighborOverlapCounts(Graph<U> graph)
+    {
+        this.graph = graph;
+
+        List<U> nodes = graph.getAllNodes().collect(Collectors.toList());
+        int numNodes = nodes.size();
+        this.index = new Object2IntOpenHashMap<>(numNodes);
+        this.index.defaultReturnValue(-1);
+        for(int i = 0; i < numNodes; ++i)
+        {
+            this.index.put(nodes.get(i), i);
+        }
+
+        // Sorted neighbourhoods of the nodes.
+        int[][] adjacent = new int[numNodes][];
+        int[][] incident = new int[numNodes][];
+        IntStream.range(0, numNodes).parallel().forEach(i ->
+        {
+            adjacent[i] = this.sorted(graph.getAdjacentNodes(nodes.get(i)));
+            incident[i] = graph.isDirected() ? this.sorted(graph.getIncidentNodes(nodes.get(i))) : adjacent[i];
+        });
+
+        // Intersections for every edge, and their contribution to the embeddedness.
+        int[][] inters = new int[numNodes][];
+        this.sum = IntStream.range(0, numNodes).parallel().mapToDouble(i ->
+        {
+            int[] neighs = adjacent[i];
+            inters[i] = new int[neighs.length];
+            double value = 0.0;
+            for(int j = 0; j < neighs.length; ++j)
+            {
+                int[] other = incident[neighs[j]];
+                int inter = intersectionSize(neighs, other);
+                double unionSc = neighs.length + other.length - inter;
+                inters[i][j] = inter;
+                if(unionSc > 2.0)
+                {
+                    value += inter/(unionSc + 2.0);
+                }
+            }
+            return value;
+        }).sum();
+
+        int numEdges = Arrays.stream(adjacent).mapToInt(neighs -> neighs.length).sum();
+        this.intersection = new Long2IntOpenHashMap(numEdges);
+        this.union = new Long2IntOpenHashMap(numEdges);
+        for(int i = 0; i < numNodes; ++i)
+        {
+            int[] neighs = adjacent[i];
+            for(int j = 0; j < neighs.length; ++j)
+            {
+                long key = key(i, neighs[j]);
+                this.intersection.put(key, inters[i][j]);
+                this.union.put(key, neighs.length + incident[neighs[j]].length - inters[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Obtains the sum of the embeddedness of the edges in the graph, at the moment the counts were
+     * computed.
+     * @return the sum of the embeddedness.
+     */
+    public double getSum()
+    {
+        return sum;
+    }
+
+    /**
+     * Checks whether the sizes for a pair of nodes are stored.
+     * @param u the first node.
+     * @param v the second node.
+     * @return true if they are stored, false otherwise.
+     */
+    public boolean contains(U u, U v)
+    {
+        return this.intersection.containsKey(this.key(u, v)) && this.union.containsKey(this.key(u, v));
+    }
+
+    /**
+     * Obtains the size of the intersection between the neighbourhoods of two nodes.
+     * @param u the first node.
+     * @param v the second node.
+     * @return the size of the intersection.
+     */
+    public double intersection(U u, U v)
+    {
+        return this.intersection.get(this.key(u, v));
+    }
+
+    /**
+     * Obtains the size of the union between the neighbourhoods of two nodes.
+     * @param u the first node.
+     * @param v the second node.
+     * @return the size of the union.
+     */
+    public double union(U u, U v)
+    {
+        return this.union.get(this.key(u, v));
+    }
+
+    /**
+     * Updates the size of the intersection between the neighbourhoods of two nodes.
+     * @param u the first node.
+     * @param v the second node.
+     * @param value the new value.
+     */
+    public void setIntersection(U u, U v, double value)
+    {
+        this.intersection.put(this.key(u, v), (int) value);
+    }
+
+    /**
+     * Updates the size of the union between the neighbourhoods of two nodes.
+     * @param u the first node.
+     * @param v the second node.
+     * @param value the new value.
+     */
+    public void setUnion(U u, U v, double value)
+    {
+        this.union.put(this.key(u, v), (int) value);
+    }
+
+    /**
+     * Computes, from the current state of the graph, the sizes of the intersection and union between
+     * the adjacent nodes of a node, and the neighbourhood of other node.
+     * @param u the first node.
+     * @param w the second node.
+     * @param orientation the neighbourhood of the second node to consider.
+     * @param symmetric true if the values also have to be stored for the pair (w,u).
+     */
+    public void compute(U u, U w, EdgeOrientation orientation, boolean symmetric)
+    {
+        int[] uNeighs = this.sorted(this.graph.getAdjacentNodes(u));
+        int[] wNeighs = this.sorted(this.graph.getNeighbourhood(w, orientation));
+        int inter = intersectionSize(uNeighs, wNeighs);
+        int uni = uNeighs.length + wNeighs.length - inter;
+
+        this.intersection.put(this.key(u, w), inter);
+        this.union.put(this.key(u, w), uni);
+        if(symmetric)
+        {
+            this.intersection.put(this.key(w, u), inter);
+            this.union.put(this.key(w, u), uni);
+        }
+    }
+
+    /**
+     * Obtains the identifier of a node. Nodes which were not in the network when the counts were
+     * computed receive a new identifier.
+     * @param u the node.
+     * @return the identifier of the node.
+     */
+    private int idx(U u)
+    {
+        int uidx = this.index.getInt(u);
+        if(uidx == -1)
+        {
+            uidx = this.index.size();
+            this.index.put(u, uidx);
+        }
+        return uidx;
+    }
+
+    /**
+     * Obtains the identifier of a pair of nodes.
+     * @param u the first node.
+     * @param v the second node.
+     * @return the identifier of the pair.
+     */
+    private long key(U u, U v)
+    {
+        return key(this.idx(u), this.idx(v));
+    }
+
+    /**
+     * Obtains the identifier of a pair of nodes.
+     * @param uidx the identifier of the first node.
+     * @param vidx the identifier of the second node.
+     * @return the identifier of the pair.
+     */
+    private static long key(int uidx, int vidx)
+    {
+        return (((long) uidx) << 32) | (vidx & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Obtains the sorted array of identifiers of a set of nodes.
+     * @param nodes the nodes.
+     * @return the sorted identifiers.
+     */
+    private int[] sorted(Stream<U> nodes)
+    {
+        int[] idxs = nodes.mapToInt(this::idx).toArray();
+        Arrays.sort(idxs);
+        return idxs;
+    }
+
+    /**
+     * Computes the size of the intersection of two sorted arrays without repeated elements.
+     * @param a the first array.
+     * @param b the second array.
+     * @return the number of common elements.
+     */
+    private static int intersectionSize(int[] a, int[] b)
+    {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while(i < a.length && j < b.length)
+        {
+            if(a[i] < b[j])
+            {
+                ++i;
+            }
+            else if(a[i] > b[j])
+            {
+                ++j;
+            }
+            else
+            {
+                ++count;
+                ++i;
+                ++j;
+            }
+        }
+        return count;
+    }
+}
@@ -202,6 +202,13 @@ public class DegreeGiniReranker<U> extends SwapRerankerGraph<U>
         return 1.0 - (value - 2.0*((targetAdd+1)+(candidateAdd+1)))/((this.sum-2.0)*(this.graph.getVertexCount() - 1));
     }
 
+    @Override
+    protected boolean supportsSpeculation()
+    {
+        // Novelty values only read the degree list and the graph.
+        return true;
+    }
+    
     @Override
     protected void computeGlobalValue() 
     {
@@ -10,6 +10,8 @@ package es.uam.eps.ir.socialnetwork.recommendation.reranking.global.user;
 
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.metrics.VertexMetric;
+import java.util.Collection;
+import java.util.Collections;
 import org.ranksys.core.util.tuples.Tuple2od;
 
 /**
@@ -45,5 +47,23 @@ public class GlobalOriginalInverseUserMetricReranker<U> extends GlobalUserMetric
     {
 
     }
-    
+
+    @Override
+    protected boolean isIncremental()
+    {
+        // The metric is computed over the original graph: scores only change through normalization.
+        return !norm;
+    }
+
+    @Override
+    protected boolean isSubmodular()
+    {
+        return true;
+    }
+
+    @Override
+    protected Collection<U> affectedUsers(U user, Tuple2od<U> selectedItem)
+    {
+        return Collections.emptyList();
+    }
 }
@@ -8,7 +8,6 @@
  */
 package es.uam.eps.ir.socialnetwork.recommendation.reranking.global.user;
 
-import com.rits.cloning.Cloner;
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.metrics.VertexMetric;
 import org.ranksys.core.util.tuples.Tuple2od;
@@ -19,7 +18,7 @@ import org.ranksys.core.util.tuples.Tuple2od;
  * @author Javier Sanz-Cruzado Puig
  * @param <U> Type of the users
  */
-public class GlobalProgressiveInverseUserMetricReranker<U> extends GlobalUserMetricReranker<U> 
+public class GlobalProgressiveInverseUserMetricReranker<U> extends GlobalProgressiveUserMetricReranker<U> 
 {
     /**
      * Constructor
@@ -37,18 +36,7 @@ public class GlobalProgressiveInverseUserMetricReranker<U> extends GlobalUserMet
     @Override
     protected double nov(U user, Tuple2od<U> iv) {
         U item = iv.v1;
-
-        Cloner cloner = new Cloner();
-        Graph<U> cloneGraph = cloner.deepClone(graph);
-        cloneGraph.addEdge(user, item);
-
-        return -metric.compute(cloneGraph, item);  
-    }
-
-    @Override
-    protected void update(U user, Tuple2od<U> iv) {
-        U item =iv.v1;
-        this.graph.addEdge(user, item);
+        return -this.computeWithEdge(user, item);
     }
     
 }
@@ -0,0 +1,140 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.recommendation.reranking.global.user;
+
+import com.rits.cloning.Cloner;
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.metrics.VertexMetric;
+import es.uam.eps.ir.socialnetwork.utils.datatypes.Tuple2oo;
+import java.util.ArrayList;
+import java.util.List;
+import org.ranksys.core.util.tuples.Tuple2od;
+
+/**
+ * Reranks a graph according to a user metric which is updated every time a new edge is added. 
+ * 
+ * Computing the novelty of a candidate requires the metric over the graph containing the candidate
+ * edge. Instead of copying the whole graph for each candidate, each thread keeps its own working copy
+ * of the graph (kept up to date with the selected edges): the candidate edge is added to it, the metric is
+ * computed, and the edge is removed afterwards. If the graph does not allow removing edges, the copy
+ * is discarded after each computation.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users
+ */
+public abstract class GlobalProgressiveUserMetricReranker<U> extends GlobalUserMetricReranker<U>
+{
+    /**
+     * Edges selected so far (in selection order).
+     */
+    private final List<Tuple2oo<U,U>> selected;
+    /**
+     * Working copy of the graph for each thread.
+     */
+    private final ThreadLocal<WorkingGraph> workingGraph;
+    
+    /**
+     * Constructor
+     * @param lambda Trade-off between original and novelty scores
+     * @param cutoff Maximum length of the recommendation graph.
+     * @param norm True if scores have to be normalized, false if not.
+     * @param graph The original graph.
+     * @param vertexMetric The vertex metric we want to compute.
+     */
+    public GlobalProgressiveUserMetricReranker(double lambda, int cutoff, boolean norm, Graph<U> graph, VertexMetric<U> vertexMetric) 
+    {
+        super(lambda, cutoff, norm, graph, vertexMetric);
+        this.selected = new ArrayList<>();
+        this.workingGraph = new ThreadLocal<>();
+    }
+    
+    /**
+     * Computes the value of the metric for the recommended user, over the graph 
+     * containing the recommended edge.
+     * @param user The target user.
+     * @param item The recommended user.
+     * @return the value of the metric.
+     */
+    protected double computeWithEdge(U user, U item)
+    {
+        WorkingGraph working = this.workingGraph.get();
+        if(working == null)
+        {
+            // The original graph is not modified while candidates are scored.
+            working = new WorkingGraph(new Cloner().deepClone(this.graph), this.selected.size());
+            this.workingGraph.set(working);
+        }
+        else
+        {
+            // Add the edges selected since the last computation in this thread.
+            for(; working.applied < this.selected.size(); ++working.applied)
+            {
+                Tuple2oo<U,U> edge = this.selected.get(working.applied);
+                working.graph.addEdge(edge.v1(), edge.v2());
+            }
+        }
+        
+        boolean added = working.graph.addEdge(user, item);
+        double value = this.metric.compute(working.graph, item);
+        
+        if(added)
+        {
+            boolean removed;
+            try
+            {
+                removed = working.graph.removeEdge(user, item);
+            }
+            catch(UnsupportedOperationException ex)
+            {
+                removed = false;
+            }
+            
+            if(!removed)
+            {
+                this.workingGraph.remove();
+            }
+        }
+        
+        return value;
+    }
+
+    @Override
+    protected void update(U user, Tuple2od<U> iv) 
+    {
+        U item = iv.v1;
+        this.graph.addEdge(user, item);
+        this.selected.add(new Tuple2oo<>(user, item));
+    }
+    
+    /**
+     * Working copy of the graph.
+     */
+    private class WorkingGraph
+    {
+        /**
+         * The copy of the graph.
+         */
+        private final Graph<U> graph;
+        /**
+         * Number of selected edges already added to the copy.
+         */
+        private int applied;
+        
+        /**
+         * Constructor.
+         * @param graph the copy of the graph.
+         * @param applied number of selected edges already contained in the copy.
+         */
+        public WorkingGraph(Graph<U> graph, int applied)
+        {
+            this.graph = graph;
+            this.applied = applied;
+        }
+    }
+}
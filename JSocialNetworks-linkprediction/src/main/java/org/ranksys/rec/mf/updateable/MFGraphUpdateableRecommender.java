@@ -114,14 +114,9 @@ public class MFGraphUpdateableRecommender<U> extends AbstractFastUpdateableRecom
     @Override
     public void update(Stream<Tuple3<U, U, Double>> tuples)
     {
-        tuples.forEach(t ->
-        {
-            if(this.containsUser(t.v1) && this.containsItem(t.v2))
-            {
-                prefData.update(t.v1,t.v2,t.v3);
-                this.factorizer.update(factorization, prefData,t.v1, t.v2, t.v3);
-            }
-        });
+        List<Tuple3<U, U, Double>> valid = tuples.filter(t -> this.containsUser(t.v1) && this.containsItem(t.v2)).collect(toList());
+        valid.forEach(t -> prefData.update(t.v1,t.v2,t.v3));
+        this.factorizer.update(factorization, prefData, valid.stream());
     }
 
     @Override
@@ -137,11 +132,9 @@ public class MFGraphUpdateableRecommender<U> extends AbstractFastUpdateableRecom
     @Override
     public void updateDelete(Stream<Tuple3<U,U, Double>> tuples)
     {
-        tuples.forEach(t ->
-        {
-            prefData.updateDelete(t.v1(),t.v2());
-            this.factorizer.updateDelete(factorization, prefData,t.v1(),t.v2());
-        });
+        List<Tuple3<U, U, Double>> deleted = tuples.collect(toList());
+        deleted.forEach(t -> prefData.updateDelete(t.v1(),t.v2()));
+        this.factorizer.updateDelete(factorization, prefData, deleted.stream());
     }
 
     @Override
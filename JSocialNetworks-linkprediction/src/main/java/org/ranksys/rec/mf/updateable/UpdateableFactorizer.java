@@ -8,6 +8,8 @@
  */
 package org.ranksys.rec.mf.updateable;
 
+import java.util.stream.Stream;
+import org.jooq.lambda.tuple.Tuple3;
 import org.ranksys.core.preferences.fast.updateable.FastUpdateablePreferenceData;
 
 
@@ -68,4 +70,28 @@ public abstract class UpdateableFactorizer<U, I>
      * @param i the item
      */
     public abstract void updateDelete(UpdateableFactorization<U,I> factorization, FastUpdateablePreferenceData<U,I> data, U u, I i);
+
+    /**
+     * Updates the factorization after a batch of ratings has been added to the preference data.
+     * By default, it applies the single rating update for each of them.
+     * @param factorization an updateable factorization
+     * @param data preference data (already containing the new ratings)
+     * @param tuples the (user, item, rating) triplets
+     */
+    public void update(UpdateableFactorization<U,I> factorization, FastUpdateablePreferenceData<U,I> data, Stream<Tuple3<U,I,Double>> tuples)
+    {
+        tuples.forEach(t -> this.update(factorization, data, t.v1, t.v2, t.v3));
+    }
+
+    /**
+     * Updates the factorization after a batch of ratings has been removed from the preference data.
+     * By default, it applies the single rating update for each of them.
+     * @param factorization an updateable factorization
+     * @param data preference data (without the removed ratings)
+     * @param tuples the (user, item, rating) triplets
+     */
+    public void updateDelete(UpdateableFactorization<U,I> factorization, FastUpdateablePreferenceData<U,I> data, Stream<Tuple3<U,I,Double>> tuples)
+    {
+        tuples.forEach(t -> this.updateDelete(factorization, data, t.v1, t.v2));
+    }
 }
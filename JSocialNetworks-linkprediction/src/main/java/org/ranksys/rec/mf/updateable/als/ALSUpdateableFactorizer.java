@@ -11,8 +11,10 @@ package org.ranksys.rec.mf.updateable.als;
 import cern.colt.function.DoubleFunction;
 import cern.colt.matrix.DoubleMatrix1D;
 import cern.colt.matrix.impl.DenseDoubleMatrix2D;
+import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import org.jooq.lambda.tuple.Tuple3;
 import org.ranksys.core.preferences.fast.updateable.FastUpdateablePreferenceData;
 import org.ranksys.rec.mf.updateable.UpdateableFactorization;
 import org.ranksys.rec.mf.updateable.UpdateableFactorizer;
@@ -20,6 +22,7 @@ import org.ranksys.rec.mf.updateable.UpdateableFactorizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static java.lang.Math.sqrt;
 
@@ -177,6 +180,80 @@ public abstract class ALSUpdateableFactorizer<U, I> extends UpdateableFactorizer
         }
     }
     
+    /**
+     * Updates a factorization after a batch of ratings has been received. Instead
+     * of re-solving the user and item vectors once per rating, the affected users
+     * and items are accumulated, and each of them is re-solved only once: first the
+     * users, and then the items (using the updated user vectors).
+     * @param factorization the factorization.
+     * @param data the updated data.
+     * @param tuples the (user, item, rating) triplets.
+     */
+    @Override
+    public void update(UpdateableFactorization<U,I> factorization, FastUpdateablePreferenceData<U,I> data, Stream<Tuple3<U,I,Double>> tuples)
+    {
+        IntSet uidxs = new IntOpenHashSet();
+        IntSet iidxs = new IntOpenHashSet();
+        tuples.forEach(t ->
+        {
+            if(!factorization.containsUser(t.v1))
+            {
+                factorization.addUser(t.v1);
+            }
+            if(!factorization.containsItem(t.v2))
+            {
+                factorization.addItem(t.v2);
+            }
+            uidxs.add(data.user2uidx(t.v1));
+            iidxs.add(data.item2iidx(t.v2));
+        });
+
+        this.foldIn(factorization, data, uidxs, iidxs);
+    }
+
+    /**
+     * Updates a factorization after a batch of ratings has been removed. Each
+     * affected user and item is re-solved only once.
+     * @param factorization the factorization.
+     * @param data the updated data.
+     * @param tuples the (user, item, rating) triplets.
+     */
+    @Override
+    public void updateDelete(UpdateableFactorization<U,I> factorization, FastUpdateablePreferenceData<U,I> data, Stream<Tuple3<U,I,Double>> tuples)
+    {
+        IntSet uidxs = new IntOpenHashSet();
+        IntSet iidxs = new IntOpenHashSet();
+        tuples.forEach(t ->
+        {
+            if(data.containsUser(t.v1) && data.containsItem(t.v2))
+            {
+                uidxs.add(data.user2uidx(t.v1));
+                iidxs.add(data.item2iidx(t.v2));
+            }
+        });
+
+        this.foldIn(factorization, data, uidxs, iidxs);
+    }
+
+    /**
+     * Re-solves the vectors of a set of users and items.
+     * @param factorization the factorization.
+     * @param data the updated data.
+     * @param uidxs the users to update.
+     * @param iidxs the items to update.
+     */
+    private void foldIn(UpdateableFactorization<U,I> factorization, FastUpdateablePreferenceData<U,I> data, IntCollection uidxs, IntCollection iidxs)
+    {
+        if(!uidxs.isEmpty())
+        {
+            set_minP(uidxs, factorization.getUserMatrix(), factorization.getItemMatrix(), data);
+        }
+        if(!iidxs.isEmpty())
+        {
+            set_minQ(iidxs, factorization.getItemMatrix(), factorization.getUserMatrix(), data);
+        }
+    }
+
     /**
      * Squared loss of two matrices.
      *
@@ -226,7 +303,40 @@ public abstract class ALSUpdateableFactorizer<U, I> extends UpdateableFactorizer
      * @return a vector containing the vector for item i
      */
     protected abstract DoubleMatrix1D set_minQ(I i, DenseDoubleMatrix2D q, DenseDoubleMatrix2D p, FastUpdateablePreferenceData<U, I> data);
-    
-    
-    
-}
+
+    /**
+     * User matrix least-squares step, restricted to a set of users. The rest
+     * of the user matrix is not modified.
+     *
+     * @param uidxs the users to update
+     * @param p user matrix
+     * @param q item matrix
+     * @param data preference data
+     */
+    protected void set_minP(IntCollection uidxs, DenseDoubleMatrix2D p, DenseDoubleMatrix2D q, FastUpdateablePreferenceData<U, I> data)
+    {
+        for(int uidx : uidxs)
+        {
+            DoubleMatrix1D vector = set_minP(data.uidx2user(uidx), p, q, data);
+            p.viewRow(uidx).assign(vector);
+        }
+    }
+
+    /**
+     * Item matrix least-squares step, restricted to a set of items. The rest
+     * of the item matrix is not modified.
+     *
+     * @param iidxs the items to update
+     * @param q item matrix
+     * @param p user matrix
+     * @param data preference data
+     */
+    protected void set_minQ(IntCollection iidxs, DenseDoubleMatrix2D q, DenseDoubleMatrix2D p, FastUpdateablePreferenceData<U, I> data)
+    {
+        for(int iidx : iidxs)
+        {
+            DoubleMatrix1D vector = set_minQ(data.iidx2item(iidx), q, p, data);
+            q.viewRow(iidx).assign(vector);
+        }
+    }
+}
\ No newline at end of file
@@ -9,16 +9,16 @@
 package org.ranksys.rec.mf.updateable.als;
 
 import cern.colt.matrix.DoubleMatrix1D;
-import cern.colt.matrix.DoubleMatrix2D;
 import cern.colt.matrix.impl.DenseDoubleMatrix1D;
 import cern.colt.matrix.impl.DenseDoubleMatrix2D;
-import cern.colt.matrix.linalg.Algebra;
-import cern.colt.matrix.linalg.LUDecompositionQuick;
+import it.unimi.dsi.fastutil.ints.IntCollection;
 import org.ranksys.core.preferences.fast.updateable.FastUpdateablePreferenceData;
 import org.ranksys.core.preferences.fast.updateable.TransposedUpdateablePreferenceData;
 import org.ranksys.rec.mf.updateable.als.ALSUpdateableFactorizer;
 
+import java.util.Arrays;
 import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
 
 /**
  * Implicit matrix factorization of Hu, Koren and Volinsky.
@@ -26,6 +26,10 @@ import java.util.function.DoubleUnaryOperator;
  * Y. Hu, Y. Koren, C. Volinsky. Collaborative filtering for implicit feedback
  * datasets. ICDM 2008.
  *
+ * Least-squares steps share a single precomputed Gram matrix Q^tQ between
+ * all the rows, and solve the rows in parallel blocks with primitive scratch
+ * arrays.
+ *
  * @author Saúl Vargas (saul.vargas@uam.es)
  *
  * @param <U> type of the users
@@ -33,7 +37,10 @@ import java.util.function.DoubleUnaryOperator;
  */
 public class HKVUpdateableFactorizer<U, I> extends ALSUpdateableFactorizer<U, I> {
 
-    private static final Algebra ALG = new Algebra();
+    /**
+     * Number of rows solved by a thread at once.
+     */
+    private static final int BLOCKSIZE = 64;
     private final double lambdaP;
     private final double lambdaQ;
     private final DoubleUnaryOperator confidence;
@@ -88,93 +95,230 @@ public class HKVUpdateableFactorizer<U, I> extends ALSUpdateableFactorizer<U, I>
 
     @Override
     public void set_minP(final DenseDoubleMatrix2D p, final DenseDoubleMatrix2D q, FastUpdateablePreferenceData<U, I> data) {
-        set_min(p, q, confidence, lambdaP, data);
+        set_min(data.getUidxWithPreferences().toArray(), p, q, confidence, lambdaP, data);
     }
 
     @Override
     public void set_minQ(final DenseDoubleMatrix2D q, final DenseDoubleMatrix2D p, FastUpdateablePreferenceData<U, I> data) {
-        set_min(q, p, confidence, lambdaQ, new TransposedUpdateablePreferenceData<>(data));
+        set_min(data.getIidxWithPreferences().toArray(), q, p, confidence, lambdaQ, new TransposedUpdateablePreferenceData<>(data));
     }
 
-    private static <U, I, O> void set_min(final DenseDoubleMatrix2D p, final DenseDoubleMatrix2D q, DoubleUnaryOperator confidence, double lambda, FastUpdateablePreferenceData<U, I> data) {
-        final int K = p.columns();
-
-        DenseDoubleMatrix2D A1P = new DenseDoubleMatrix2D(K, K);
-        q.zMult(q, A1P, 1.0, 0.0, true, false);
-        for (int k = 0; k < K; k++) {
-            A1P.setQuick(k, k, lambda + A1P.getQuick(k, k));
-        }
-
-        DenseDoubleMatrix2D[] A2P = new DenseDoubleMatrix2D[q.rows()];
-        data.getIidxWithPreferences().parallel().forEach(iidx -> {
-            A2P[iidx] = new DenseDoubleMatrix2D(K, K);
-            DoubleMatrix1D qi = q.viewRow(iidx);
-            ALG.multOuter(qi, qi, A2P[iidx]);
-        });
-
-        data.getUidxWithPreferences().parallel().forEach(uidx -> {
-            DoubleMatrix2D A = new DenseDoubleMatrix2D(K, K);
-            DoubleMatrix1D b = new DenseDoubleMatrix1D(K);
-            A.assign(A1P);
-            b.assign(0.0);
+    @Override
+    protected void set_minP(IntCollection uidxs, DenseDoubleMatrix2D p, DenseDoubleMatrix2D q, FastUpdateablePreferenceData<U, I> data) {
+        set_min(uidxs.toIntArray(), p, q, confidence, lambdaP, data);
+    }
 
-            data.getUidxPreferences(uidx).forEach(iv -> {
-                int iidx = iv.v1;
-                double rui = iv.v2;
-                double cui = confidence.applyAsDouble(rui);
+    @Override
+    protected void set_minQ(IntCollection iidxs, DenseDoubleMatrix2D q, DenseDoubleMatrix2D p, FastUpdateablePreferenceData<U, I> data) {
+        set_min(iidxs.toIntArray(), q, p, confidence, lambdaQ, new TransposedUpdateablePreferenceData<>(data));
+    }
 
-                DoubleMatrix1D qi = q.viewRow(iidx);
+    /**
+     * Least-squares step for a set of rows of the matrix p. The Gram matrix
+     * Q^tQ + lambda I is computed once, and shared by all the rows. Rows are
+     * solved in parallel, in blocks: each block reuses the same scratch arrays
+     * for building and solving the linear system of every row in the block.
+     *
+     * @param rows the rows to update
+     * @param p the matrix to update
+     * @param q the fixed matrix
+     * @param confidence confidence function
+     * @param lambda regularization factor
+     * @param data preference data
+     */
+    private static <U, I> void set_min(int[] rows, final DenseDoubleMatrix2D p, final DenseDoubleMatrix2D q, DoubleUnaryOperator confidence, double lambda, FastUpdateablePreferenceData<U, I> data) {
+        if (rows.length == 0) {
+            return;
+        }
 
-                A.assign(A2P[iidx], (x, y) -> x + y * (cui - 1.0));
-                b.assign(qi, (x, y) -> x + y * rui * cui);
-            });
-            LUDecompositionQuick lu = new LUDecompositionQuick(0);
-            lu.decompose(A);
-            lu.solve(b);
-            p.viewRow(uidx).assign(b);
+        final int K = p.columns();
+        final double[] gram = gram(q, lambda);
+
+        int numBlocks = (rows.length + BLOCKSIZE - 1) / BLOCKSIZE;
+        IntStream.range(0, numBlocks).parallel().forEach(block -> {
+            double[] A = new double[K * K];
+            double[] b = new double[K];
+            double[] qi = new double[K];
+
+            int end = Math.min(rows.length, (block + 1) * BLOCKSIZE);
+            for (int j = block * BLOCKSIZE; j < end; ++j) {
+                int uidx = rows[j];
+                system(uidx, q, gram, confidence, data, A, b, qi);
+                solve(A, b, K);
+                for (int k = 0; k < K; ++k) {
+                    p.setQuick(uidx, k, b[k]);
+                }
+            }
         });
     }
 
-    private static <U, I, O> DoubleMatrix1D set_min(int idx, final DenseDoubleMatrix2D p, final DenseDoubleMatrix2D q, DoubleUnaryOperator confidence, double lambda, FastUpdateablePreferenceData<U, I> data)
-    {
+    /**
+     * Least-squares step for a single row of the matrix p.
+     *
+     * @param idx the row
+     * @param p the matrix to update
+     * @param q the fixed matrix
+     * @param confidence confidence function
+     * @param lambda regularization factor
+     * @param data preference data
+     * @return the new vector for the row
+     */
+    private static <U, I> DoubleMatrix1D set_min(int idx, final DenseDoubleMatrix2D p, final DenseDoubleMatrix2D q, DoubleUnaryOperator confidence, double lambda, FastUpdateablePreferenceData<U, I> data) {
         final int K = p.columns();
+        double[] A = new double[K * K];
+        double[] b = new double[K];
+        double[] qi = new double[K];
 
-        DenseDoubleMatrix2D A1P = new DenseDoubleMatrix2D(K, K);
-        q.zMult(q, A1P, 1.0, 0.0, true, false);
-        for (int k = 0; k < K; k++) {
-            A1P.setQuick(k, k, lambda + A1P.getQuick(k, k));
-        }
+        system(idx, q, gram(q, lambda), confidence, data, A, b, qi);
+        solve(A, b, K);
 
-        DenseDoubleMatrix2D[] A2P = new DenseDoubleMatrix2D[q.rows()];
-        data.getIidxWithPreferences().parallel().forEach(iidx -> {
-            A2P[iidx] = new DenseDoubleMatrix2D(K, K);
-            DoubleMatrix1D qi = q.viewRow(iidx);
-            ALG.multOuter(qi, qi, A2P[iidx]);
+        return new DenseDoubleMatrix1D(b);
+    }
+
+    /**
+     * Computes the Gram matrix Q^tQ + lambda I, in row-major order. Partial
+     * sums over blocks of rows of Q are computed in parallel.
+     *
+     * @param q the matrix
+     * @param lambda regularization factor
+     * @return the Gram matrix
+     */
+    private static double[] gram(DenseDoubleMatrix2D q, double lambda) {
+        final int K = q.columns();
+        final int numRows = q.rows();
+        int numBlocks = (numRows + BLOCKSIZE - 1) / BLOCKSIZE;
+
+        double[] gram = IntStream.range(0, numBlocks).parallel().mapToObj(block -> {
+            double[] partial = new double[K * K];
+            double[] row = new double[K];
+            int end = Math.min(numRows, (block + 1) * BLOCKSIZE);
+            for (int idx = block * BLOCKSIZE; idx < end; ++idx) {
+                for (int k = 0; k < K; ++k) {
+                    row[k] = q.getQuick(idx, k);
+                }
+                addOuter(partial, row, 1.0, K);
+            }
+            return partial;
+        }).reduce(new double[K * K], (x, y) -> {
+            double[] sum = new double[K * K];
+            for (int k = 0; k < K * K; ++k) {
+                sum[k] = x[k] + y[k];
+            }
+            return sum;
         });
 
+        for (int k = 0; k < K; ++k) {
+            gram[k * K + k] += lambda;
+        }
+        return gram;
+    }
 
-        DoubleMatrix2D A = new DenseDoubleMatrix2D(K, K);
-        DoubleMatrix1D b = new DenseDoubleMatrix1D(K);
-        A.assign(A1P);
-        b.assign(0.0);
+    /**
+     * Builds the linear system for a row: A = Q^tQ + lambda I + sum_i (c_ui - 1) q_i q_i^t
+     * and b = sum_i c_ui r_ui q_i.
+     *
+     * @param uidx the row
+     * @param q the fixed matrix
+     * @param gram the Gram matrix Q^tQ + lambda I
+     * @param confidence confidence function
+     * @param data preference data
+     * @param A scratch array where the system matrix is stored (row-major order)
+     * @param b scratch array where the independent term is stored
+     * @param qi scratch array for reading the rows of q
+     */
+    private static <U, I> void system(int uidx, DenseDoubleMatrix2D q, double[] gram, DoubleUnaryOperator confidence, FastUpdateablePreferenceData<U, I> data, double[] A, double[] b, double[] qi) {
+        final int K = b.length;
+        System.arraycopy(gram, 0, A, 0, K * K);
+        Arrays.fill(b, 0.0);
 
-        data.getUidxPreferences(idx).forEach(iv -> {
+        data.getUidxPreferences(uidx).forEach(iv -> {
             int iidx = iv.v1;
             double rui = iv.v2;
             double cui = confidence.applyAsDouble(rui);
 
-            DoubleMatrix1D qi = q.viewRow(iidx);
-
-            A.assign(A2P[iidx], (x, y) -> x + y * (cui - 1.0));
-            b.assign(qi, (x, y) -> x + y * rui * cui);
+            for (int k = 0; k < K; ++k) {
+                qi[k] = q.getQuick(iidx, k);
+                b[k] += qi[k] * rui * cui;
+            }
+            addOuter(A, qi, cui - 1.0, K);
         });
+    }
 
-        LUDecompositionQuick lu = new LUDecompositionQuick(0);
-        lu.decompose(A);
-        lu.solve(b);
+    /**
+     * Adds a weighted outer product x x^t to a symmetric matrix.
+     *
+     * @param A the matrix (row-major order)
+     * @param x the vector
+     * @param weight the weight
+     * @param K the dimension
+     */
+    private static void addOuter(double[] A, double[] x, double weight, int K) {
+        for (int k = 0; k < K; ++k) {
+            double wk = weight * x[k];
+            if (wk != 0.0) {
+                int offset = k * K;
+                for (int l = 0; l < K; ++l) {
+                    A[offset + l] += wk * x[l];
+                }
+            }
+        }
+    }
 
-        return b;
+    /**
+     * Solves the linear system Ax = b in place, by Gaussian elimination with
+     * partial pivoting. The solution is stored in b, and A is overwritten.
+     *
+     * @param A the matrix (row-major order)
+     * @param b the independent term
+     * @param K the dimension
+     */
+    private static void solve(double[] A, double[] b, int K) {
+        for (int k = 0; k < K; ++k) {
+            int pivot = k;
+            double max = Math.abs(A[k * K + k]);
+            for (int r = k + 1; r < K; ++r) {
+                double val = Math.abs(A[r * K + k]);
+                if (val > max) {
+                    max = val;
+                    pivot = r;
+                }
+            }
+
+            if (pivot != k) {
+                for (int c = k; c < K; ++c) {
+                    double aux = A[k * K + c];
+                    A[k * K + c] = A[pivot * K + c];
+                    A[pivot * K + c] = aux;
+                }
+                double aux = b[k];
+                b[k] = b[pivot];
+                b[pivot] = aux;
+            }
+
+            double akk = A[k * K + k];
+            if (akk == 0.0) {
+                continue;
+            }
+
+            for (int r = k + 1; r < K; ++r) {
+                double f = A[r * K + k] / akk;
+                if (f != 0.0) {
+                    for (int c = k; c < K; ++c) {
+                        A[r * K + c] -= f * A[k * K + c];
+                    }
+                    b[r] -= f * b[k];
+                }
+            }
+        }
 
+        for (int k = K - 1; k >= 0; --k) {
+            double sum = b[k];
+            for (int c = k + 1; c < K; ++c) {
+                sum -= A[k * K + c] * b[c];
+            }
+            double akk = A[k * K + k];
+            b[k] = akk == 0.0 ? 0.0 : sum / akk;
+        }
     }
 
     @Override
@@ -184,14 +328,10 @@ public class HKVUpdateableFactorizer<U, I> extends ALSUpdateableFactorizer<U, I>
         return set_min(uidx, p, q, this.confidence, this.lambdaP, data);
     }
 
-
-
-
     @Override
     protected DoubleMatrix1D set_minQ(I i, DenseDoubleMatrix2D q, DenseDoubleMatrix2D p, FastUpdateablePreferenceData<U, I> data) {
         int iidx = data.item2iidx(i);
         return set_min(iidx, q, p, this.confidence, this.lambdaQ, new TransposedUpdateablePreferenceData<>(data));
     }
 
-
 }
\ No newline at end of file
@@ -8,40 +8,35 @@
  */
 package org.ranksys.rec.nn.neigh.updateable;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.ranksys.core.util.tuples.Tuple2id;
 import org.ranksys.rec.nn.sim.updateable.UpdateableSimilarity;
 
 /**
+ * Updateable top-k neighborhood. Only the k most similar elements to each user/item are stored.
  *
- * @author Javier
+ * @author Javier Sanz-Cruzado Puig
  */
 public class CachedTopKUpdateableNeighborhood extends CachedUpdateableNeighborhood
 {
-    private final int k;
-
+    /**
+     * Constructor.
+     * @param n the number of users/items.
+     * @param sim the similarity.
+     * @param k the maximum size of the neighborhoods.
+     */
     public CachedTopKUpdateableNeighborhood(int n, UpdateableSimilarity sim, int k) {
-        super(n, sim);
-        this.k = k;
+        super(n, sim, k);
     }
     
 
     @Override
     public Stream<Tuple2id> getNeighbors(int idx) 
     {
-        List<Tuple2id> list = new ArrayList<>();
-        List<Integer> ilist = this.idxla.get(idx);
-        List<Double> dlist = this.simla.get(idx);
-        
-        int m = Math.min(k, ilist.size());
-        for(int i = 0; i < m; ++i)
-        {
-            list.add(new Tuple2id(ilist.get(i), dlist.get(i)));
-        }
-        
-        return list.stream();
+        int[] idxs = this.idxla[idx];
+        double[] sims = this.simla[idx];
+        return IntStream.range(0, this.sizes[idx]).mapToObj(j -> new Tuple2id(idxs[j], sims[j]));
     }
     
 }
@@ -10,71 +10,91 @@ package org.ranksys.rec.nn.neigh.updateable;
 
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Pair;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Tuple2oo;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.IntStream;
 import org.ranksys.core.util.topn.IntDoubleTopN;
 import org.ranksys.rec.nn.sim.updateable.UpdateableSimilarity;
 
 /**
+ * Cached updateable neighborhood. For each user/item, it stores the (at most) k most similar
+ * elements, sorted by decreasing similarity, in primitive arrays. When a rating is added, only
+ * the entries whose similarity has changed are adjusted. A neighborhood is only computed again
+ * from scratch when the similarity says so, or when one of its elements might fall out of the
+ * top k.
  *
- * @author Javier
+ * @author Javier Sanz-Cruzado Puig
  */
 public abstract class CachedUpdateableNeighborhood implements UpdateableNeighborhood
 {
-    protected List<Map<Integer, Integer>> idxmap;
-    protected List<List<Integer>> idxla;
-    protected List<List<Double>> simla;
-    
+    /**
+     * For each element, the identifiers of its neighbors, sorted by decreasing similarity.
+     */
+    protected int[][] idxla;
+    /**
+     * For each element, the similarities of its neighbors (aligned with idxla).
+     */
+    protected double[][] simla;
+    /**
+     * For each element, the number of stored neighbors.
+     */
+    protected int[] sizes;
+    /**
+     * The similarity.
+     */
     private final UpdateableSimilarity sim;
+    /**
+     * Maximum number of neighbors stored for each element.
+     */
+    private final int k;
+    /**
+     * Number of elements.
+     */
     private int n;
+
     /**
-     * Constructor that calculates and caches neighborhoods.
+     * Constructor that calculates and caches neighborhoods. It stores every similar element.
      * @param n the number of user/items.
      * @param sim similarity
      */
     public CachedUpdateableNeighborhood(int n, UpdateableSimilarity sim)
     {
-        this.idxla = new ArrayList<>();
-        this.simla = new ArrayList<>();
-        this.idxmap = new ArrayList<>();
+        this(n, sim, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor that calculates and caches neighborhoods.
+     * @param n the number of user/items.
+     * @param sim similarity
+     * @param k maximum number of neighbors to store for each element.
+     */
+    public CachedUpdateableNeighborhood(int n, UpdateableSimilarity sim, int k)
+    {
         this.sim = sim;
         this.n = n;
-        
-        IntStream.range(0,n).forEach(idx -> 
-        {
-            Map<Integer, Integer> idx1 = new HashMap<>();
-            IntArrayList idx3 = new IntArrayList();
-            DoubleArrayList idx2 = new DoubleArrayList();
-            
-            IntDoubleTopN topN = new IntDoubleTopN(n);
-            sim.similarElems(idx).forEach(topN::add);
-            
-            topN.stream().forEach(elem -> 
-            {
-                idx1.put(elem.v1, idx1.size());
-                idx2.add(elem.v2);
-                idx3.add(elem.v1);
-            });
-            
-            idxla.add(idx3);
-            simla.add(idx2);
-            idxmap.add(idx1);
-            
-        });
+        this.k = k;
+        this.idxla = new int[n][];
+        this.simla = new double[n][];
+        this.sizes = new int[n];
+
+        IntStream.range(0, n).parallel().forEach(this::rebuild);
     }
 
     @Override
     public void updateAddElement() 
     {
         this.sim.updateAddElement();
-        this.idxla.add(new IntArrayList());
-        this.simla.add(new DoubleArrayList());
-        this.idxmap.add(new HashMap<>());
+        if(this.n == this.sizes.length)
+        {
+            int capacity = Math.max(16, 2*this.n);
+            this.idxla = Arrays.copyOf(this.idxla, capacity);
+            this.simla = Arrays.copyOf(this.simla, capacity);
+            this.sizes = Arrays.copyOf(this.sizes, capacity);
+        }
+        
+        this.idxla[n] = new int[0];
+        this.simla[n] = new double[0];
+        this.sizes[n] = 0;
         ++this.n;
     }
 
@@ -82,189 +102,137 @@ public abstract class CachedUpdateableNeighborhood implements UpdateableNeighbor
     public void updateAdd(int uidx, int iidx, double val) 
     {
         Tuple2oo<List<Integer>,List<Pair<Integer>>> tuple = this.sim.updateAdd(uidx, iidx, val);
-        List<Integer> list = tuple.v1();
         
         // First, update the neighborhoods of the corresponding elements.
-        list.forEach(vidx -> 
-        {
-            IntArrayList idx1 = new IntArrayList();
-            DoubleArrayList idx2 = new DoubleArrayList();
-            Map<Integer,Integer> idx3 = new HashMap<>();
-            
-            IntDoubleTopN topN = new IntDoubleTopN(n);
-            sim.similarElems(vidx).forEach(topN::add);
-            topN.stream().forEach(elem -> 
-            {
-                idx1.add(elem.v1);
-                idx2.add(elem.v2);
-                idx3.put(elem.v1, idx3.size());
-            });
-            
-            idxla.set(vidx,idx1);
-            simla.set(vidx,idx2);
-            idxmap.set(vidx, idx3);
-        });
+        tuple.v1().forEach(this::rebuild);
         
-        List<Pair<Integer>> pairs = tuple.v2();
-        
-        pairs.forEach(pair -> {
+        // Then, adjust the rest of modified similarities.
+        tuple.v2().forEach(pair -> 
+        {
             int vidx1 = pair.v1();
             int vidx2 = pair.v2();
-            double s = sim.similarity(vidx1, vidx2);
-            this.updateSim(vidx1, vidx2, s);
+            this.updateSim(vidx1, vidx2, sim.similarity(vidx1, vidx2));
         });
     }
 
     @Override
     public void updateDelete(int uidx, int iidx) 
     {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Computes the neighborhood of an element from scratch.
+     * @param idx the element.
+     */
+    protected final void rebuild(int idx)
+    {
+        IntDoubleTopN topN = new IntDoubleTopN(Math.min(k, n));
+        sim.similarElems(idx).forEach(topN::add);
+        topN.sort();
+        
+        int size = topN.size();
+        int[] idxs = new int[size];
+        double[] sims = new double[size];
+        int[] pos = new int[]{0};
+        topN.reverseStream().forEach(elem -> 
+        {
+            idxs[pos[0]] = elem.v1;
+            sims[pos[0]] = elem.v2;
+            pos[0]++;
+        });
+        
+        this.idxla[idx] = idxs;
+        this.simla[idx] = sims;
+        this.sizes[idx] = size;
+    }
+    
+    /**
+     * Updates the similarity of a neighbor in the neighborhood of an element.
+     * @param uidx the element whose neighborhood is modified.
+     * @param vidx the neighbor.
+     * @param s the new similarity between both elements.
+     */
     private void updateSim(int uidx, int vidx, double s) 
     {
-        Map<Integer, Integer> map = this.idxmap.get(uidx);
-        List<Integer> pos = this.idxla.get(uidx);
-        List<Double> sims = this.simla.get(uidx);
+        int[] idxs = this.idxla[uidx];
+        double[] sims = this.simla[uidx];
+        int size = this.sizes[uidx];
         
         int cursor = -1;
-        if(sims.isEmpty())
+        for(int j = 0; j < size && cursor == -1; ++j)
         {
-            sims.add(s);
-            map.put(vidx,0);
-            pos.add(vidx);
-        }
-        else
-        {
-            int low = 0;
-            int high = sims.size();
-            
-            boolean inserted = false;
-
-            while(high > low && !inserted)
-            {
-                int middle = (low + high)/2;
-                if(sims.get(middle).equals(s))
-                {
-                    cursor = middle;
-                    inserted = true;
-                    break;
-                }
-                else if(sims.get(middle) < s)
-                {
-                    if(sims.size() > (middle+1) && sims.get(middle+1) >= s)
-                    {
-                        cursor = middle + 1;
-                        inserted = true;
-                        break;
-                    }
-                    else
-                    {
-                        low = middle + 1;
-                    }
-                }
-                else
-                {
-                    if(middle > 0 && sims.get(middle - 1) <= s)
-                    {
-                        cursor = middle;
-                        inserted = true;
-                        break;
-                    }
-                    else
-                    {
-                        high = middle - 1;
-                    }
-                }
-            }
-            
-            if(!inserted)
+            if(idxs[j] == vidx)
             {
-                if(high == -1)
-                {
-                    cursor = 0;
-                }
-                else if(low >= pos.size())
-                {
-                    cursor = pos.size();
-                }
-                else
-                {
-                    if(sims.get(low) > s)
-                    {
-                        cursor = low;
-                    }
-                    else if(sims.get(low + 1) < s)
-                    {
-                        cursor = low + 1;
-                    }
-                    else
-                    {
-                        cursor = -1;
-                    }
-                }
+                cursor = j;
             }
-            
-            int oldcursor = map.getOrDefault(vidx, -1);
-            if(oldcursor == -1)
-            {
-                for(int i = cursor; i < pos.size(); ++i)
-                {
-                    map.put(pos.get(i), i+1);
-                }
-                sims.add(cursor, s);
-                pos.add(cursor, vidx);
-                map.put(vidx, cursor);
-                
-                if(sims.size() != map.size())
-                {
-                    System.err.println("FALLA AQUI");
-                }
-            }
-            else if(cursor > oldcursor)
+        }
+        
+        if(cursor != -1)
+        {
+            // If the list is full, and the new similarity is smaller than the last
+            // stored one, an element not in the list might now outrank vidx.
+            if(size == k && s < sims[size-1])
             {
-                for(int i = oldcursor; i < cursor - 1; ++i)
-                {
-                    map.put(pos.get(i+1), i);
-                }
-
-                sims.add(cursor, s);
-                pos.add(cursor, vidx);
-                sims.remove(oldcursor);
-                pos.remove(oldcursor);
-                map.put(vidx, cursor-1);
-                
-                if(sims.size() != map.size())
-                {
-                    System.err.println("FALLA AQUI");
-                }
-
+                this.rebuild(uidx);
+                return;
             }
-            else
+            sims[cursor] = s;
+        }
+        else if(size < k)
+        {
+            if(size == idxs.length)
             {
-                for(int i = cursor; i < oldcursor - 1; ++i)
-                {
-                    if(i == pos.size())
-                        System.err.println("ERROR");
-                    map.put(pos.get(i),i+1);
-                }
-
-                if(cursor == -1)
-                    System.err.println("ERROR");
-                sims.add(cursor, s);
-                pos.add(cursor, vidx);
-                sims.remove(oldcursor+1);
-                pos.remove(oldcursor+1);
-                map.put(vidx, cursor);
-                
-                if(sims.size() != map.size())
-                {
-                    System.err.println("FALLA AQUI");
-                }
+                int capacity = (int) Math.min(k, Math.max(4L, 2L*size));
+                idxs = Arrays.copyOf(idxs, capacity);
+                sims = Arrays.copyOf(sims, capacity);
+                this.idxla[uidx] = idxs;
+                this.simla[uidx] = sims;
             }
-            
+            cursor = size;
+            idxs[cursor] = vidx;
+            sims[cursor] = s;
+            this.sizes[uidx] = ++size;
+        }
+        else if(s > sims[size-1])
+        {
+            // The last element is replaced by the new one.
+            cursor = size - 1;
+            idxs[cursor] = vidx;
+            sims[cursor] = s;
+        }
+        else
+        {
+            return;
         }
         
+        // Move the neighbor to its position in the sorted list.
+        while(cursor > 0 && sims[cursor-1] < sims[cursor])
+        {
+            swap(idxs, sims, cursor-1, cursor);
+            cursor--;
+        }
+        while(cursor < size-1 && sims[cursor+1] > sims[cursor])
+        {
+            swap(idxs, sims, cursor, cursor+1);
+            cursor++;
+        }
     }
     
+    /**
+     * Swaps two neighbors in a neighborhood.
+     * @param idxs identifiers of the neighbors.
+     * @param sims similarities of the neighbors.
+     * @param i position of the first neighbor.
+     * @param j position of the second neighbor.
+     */
+    private static void swap(int[] idxs, double[] sims, int i, int j)
+    {
+        int auxIdx = idxs[i];
+        idxs[i] = idxs[j];
+        idxs[j] = auxIdx;
+        double auxSim = sims[i];
+        sims[i] = sims[j];
+        sims[j] = auxSim;
+    }
 }
@@ -0,0 +1,551 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.data;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Memory-efficient implementation for users. For each state (own, received, propagated, discarded,
+ * seen and all the received information), the identifiers of the pieces are kept in a sorted
+ * primitive array, so membership is checked by binary search. The timestamps and creators of the pieces are
+ * not stored in the user, but in a {@link PropagatedInformationStore} shared by all the users of the
+ * simulation.
+ *
+ * The pieces returned by this user are built on demand from the store: modifying them does not modify the
+ * state of the user.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class CompactUser<U> extends UserState<U> implements Serializable, Cloneable
+{
+    /**
+     * The store containing the timestamps and creators of the pieces.
+     */
+    private final PropagatedInformationStore store;
+    /**
+     * Information created by this user.
+     */
+    private PieceSet ownInfo;
+    /**
+     * Previously received information that has not been propagated or discarded.
+     */
+    private PieceSet receivedInfo;
+    /**
+     * Information propagated by this user.
+     */
+    private PieceSet propagatedInfo;
+    /**
+     * Information discarded by this user.
+     */
+    private PieceSet discardedInfo;
+    /**
+     * Newly seen information.
+     */
+    private PieceSet seenInfo;
+    /**
+     * All the previously received information.
+     */
+    private PieceSet allInfo;
+
+    /**
+     * Constructor.
+     * @param userId Identifier of the user.
+     * @param store The store for the timestamps and creators of the pieces, shared by all the users of the simulation.
+     */
+    public CompactUser(U userId, PropagatedInformationStore store)
+    {
+        super(userId);
+        this.store = store;
+        this.ownInfo = new PieceSet();
+        this.receivedInfo = new PieceSet();
+        this.propagatedInfo = new PieceSet();
+        this.discardedInfo = new PieceSet();
+        this.seenInfo = new PieceSet();
+        this.allInfo = new PieceSet();
+    }
+
+    // GETTERS
+    @Override
+    public boolean containsOwnInformation(int info)
+    {
+        return this.ownInfo.contains(info);
+    }
+
+    @Override
+    protected PropagatedInformation getOwnInformation(int info)
+    {
+        return this.read(this.ownInfo, info);
+    }
+
+    @Override
+    public Stream<PropagatedInformation> getOwnInformation()
+    {
+        return this.stream(this.ownInfo);
+    }
+
+    @Override
+    public boolean containsReceivedInformation(int info)
+    {
+        return this.receivedInfo.contains(info);
+    }
+
+    @Override
+    protected PropagatedInformation getReceivedInformation(int info)
+    {
+        return this.read(this.receivedInfo, info);
+    }
+
+    @Override
+    public Stream<PropagatedInformation> getReceivedInformation()
+    {
+        return this.stream(this.receivedInfo);
+    }
+
+    @Override
+    public boolean containsSeenInformation(int info)
+    {
+        return this.seenInfo.contains(info);
+    }
+
+    @Override
+    protected PropagatedInformation getSeenInformation(int info)
+    {
+        return this.read(this.seenInfo, info);
+    }
+
+    @Override
+    public Stream<PropagatedInformation> getSeenInformation()
+    {
+        return this.stream(this.seenInfo);
+    }
+
+    @Override
+    public boolean containsPropagatedInformation(int info)
+    {
+        return this.propagatedInfo.contains(info);
+    }
+
+    @Override
+    protected PropagatedInformation getPropagatedInformation(int info)
+    {
+        return this.read(this.propagatedInfo, info);
+    }
+
+    @Override
+    public Stream<PropagatedInformation> getPropagatedInformation()
+    {
+        return this.stream(this.propagatedInfo);
+    }
+
+    @Override
+    public boolean containsDiscardedInformation(int info)
+    {
+        return this.discardedInfo.contains(info);
+    }
+
+    @Override
+    protected PropagatedInformation getDiscardedInformation(int info)
+    {
+        return this.read(this.discardedInfo, info);
+    }
+
+    @Override
+    public Stream<PropagatedInformation> getDiscardedInformation()
+    {
+        return this.stream(this.discardedInfo);
+    }
+
+    @Override
+    public boolean containsAllInformation(int info)
+    {
+        return this.allInfo.contains(info);
+    }
+
+    @Override
+    protected PropagatedInformation getAllInformation(int info)
+    {
+        return this.read(this.allInfo, info);
+    }
+
+    @Override
+    public Stream<PropagatedInformation> getAllInformation()
+    {
+        return this.stream(this.allInfo);
+    }
+
+    @Override
+    public Stream<Integer> getOwnInformationIds()
+    {
+        return this.ownInfo.ids().boxed();
+    }
+
+    @Override
+    public Stream<Integer> getReceivedInformationIds()
+    {
+        return this.receivedInfo.ids().boxed();
+    }
+
+    @Override
+    public Stream<Integer> getPropagatedInformationIds()
+    {
+        return this.propagatedInfo.ids().boxed();
+    }
+
+    @Override
+    public Stream<Integer> getDiscardedInformationIds()
+    {
+        return this.discardedInfo.ids().boxed();
+    }
+
+    @Override
+    public Stream<Integer> getSeenInformationIds()
+    {
+        return this.seenInfo.ids().boxed();
+    }
+
+    @Override
+    public Stream<Integer> getAllInformationIds()
+    {
+        return this.allInfo.ids().boxed();
+    }
+
+    // ADDS
+
+    @Override
+    protected boolean addOwnInformation(PropagatedInformation info)
+    {
+        this.write(this.ownInfo, info);
+        return true;
+    }
+
+    @Override
+    protected boolean addReceivedInformation(PropagatedInformation info)
+    {
+        this.write(this.receivedInfo, info);
+        return true;
+    }
+
+    @Override
+    protected boolean addSeenInformation(PropagatedInformation info)
+    {
+        PropagatedInformation auxInfo = info;
+        if(this.seenInfo.contains(info.getInfoId()))
+        {
+            List<Integer> authors = new ArrayList<>();
+            authors.addAll(this.getSeenInformation(info.getInfoId()).getCreators());
+            authors.addAll(info.getCreators());
+            auxInfo = new PropagatedInformation(info.getInfoId(), info.getTimestamp(), authors);
+        }
+        this.write(this.seenInfo, auxInfo);
+        return true;
+    }
+
+    @Override
+    protected boolean addDiscardedInformation(PropagatedInformation info)
+    {
+        this.write(this.discardedInfo, info);
+        return true;
+    }
+
+    @Override
+    protected boolean addPropagatedInformation(PropagatedInformation info)
+    {
+        this.write(this.propagatedInfo, info);
+        return true;
+    }
+
+    @Override
+    protected boolean addAllInformation(PropagatedInformation info)
+    {
+        this.write(this.allInfo, info);
+        return true;
+    }
+
+    // DELETES
+
+    @Override
+    protected boolean deleteOwnInformation(int info)
+    {
+        return this.delete(this.ownInfo, info);
+    }
+
+    @Override
+    protected boolean deleteReceivedInformation(int info)
+    {
+        return this.delete(this.receivedInfo, info);
+    }
+
+    @Override
+    protected boolean deleteSeenInformation(int info)
+    {
+        return this.delete(this.seenInfo, info);
+    }
+
+    @Override
+    protected boolean deletePropagatedInformation(int info)
+    {
+        return this.delete(this.propagatedInfo, info);
+    }
+
+    @Override
+    protected boolean deleteDiscardedInformation(int info)
+    {
+        return this.delete(this.discardedInfo, info);
+    }
+
+    @Override
+    protected void clearSeenInformation()
+    {
+        this.clear(this.seenInfo);
+    }
+
+    @Override
+    protected void clear()
+    {
+        this.clear(this.allInfo);
+        this.clear(this.discardedInfo);
+        this.clear(this.seenInfo);
+        this.clear(this.propagatedInfo);
+        this.clear(this.receivedInfo);
+        this.clear(this.ownInfo);
+    }
+
+    /**
+     * Builds a piece of a state of the user.
+     * @param set the state.
+     * @param info the identifier of the piece.
+     * @return the piece, null if it does not belong to the state.
+     */
+    private PropagatedInformation read(PieceSet set, int info)
+    {
+        int slot = set.get(info);
+        return slot < 0 ? null : this.store.read(slot, info);
+    }
+
+    /**
+     * Builds all the pieces of a state of the user.
+     * @param set the state.
+     * @return a stream containing the pieces.
+     */
+    private Stream<PropagatedInformation> stream(PieceSet set)
+    {
+        // Copy the arrays, so the state can be modified while the stream is consumed.
+        int[] ids = Arrays.copyOf(set.ids, set.size);
+        int[] slots = Arrays.copyOf(set.slots, set.size);
+        return IntStream.range(0, ids.length).mapToObj(i -> this.store.read(slots[i], ids[i]));
+    }
+
+    /**
+     * Adds a piece to a state of the user, or replaces it if it already belonged to the state.
+     * @param set the state.
+     * @param info the piece.
+     */
+    private void write(PieceSet set, PropagatedInformation info)
+    {
+        int slot = set.get(info.getInfoId());
+        if(slot < 0)
+        {
+            set.put(info.getInfoId(), this.store.store(info));
+        }
+        else
+        {
+            this.store.write(slot, info);
+        }
+    }
+
+    /**
+     * Removes a piece from a state of the user.
+     * @param set the state.
+     * @param info the identifier of the piece.
+     * @return true if the piece has been removed, false if it did not belong to the state.
+     */
+    private boolean delete(PieceSet set, int info)
+    {
+        int slot = set.remove(info);
+        if(slot < 0)
+        {
+            return false;
+        }
+        this.store.release(slot);
+        return true;
+    }
+
+    /**
+     * Removes all the pieces from a state of the user.
+     * @param set the state.
+     */
+    private void clear(PieceSet set)
+    {
+        for(int i = 0; i < set.size; ++i)
+        {
+            this.store.release(set.slots[i]);
+        }
+        set.clear();
+    }
+
+    /**
+     * Copies a state of the user, assigning new slots to the pieces.
+     * @param set the state.
+     * @return the copy.
+     */
+    private PieceSet copy(PieceSet set)
+    {
+        PieceSet copy = new PieceSet();
+        copy.ids = Arrays.copyOf(set.ids, set.ids.length);
+        copy.slots = new int[set.slots.length];
+        copy.size = set.size;
+        for(int i = 0; i < set.size; ++i)
+        {
+            copy.slots[i] = this.store.copy(set.slots[i]);
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean equals(Object obj)
+    {
+        if(this.getClass() == obj.getClass())
+        {
+            CompactUser<U> user = (CompactUser<U>) obj;
+            return user.getUserId().equals(this.getUserId());
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = 7;
+        hash = 17 * hash + Objects.hashCode(this.getUserId());
+        return hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public CompactUser<U> clone() throws CloneNotSupportedException
+    {
+        CompactUser<U> compactUser = (CompactUser<U>) super.clone();
+        compactUser.ownInfo = this.copy(this.ownInfo);
+        compactUser.receivedInfo = this.copy(this.receivedInfo);
+        compactUser.propagatedInfo = this.copy(this.propagatedInfo);
+        compactUser.discardedInfo = this.copy(this.discardedInfo);
+        compactUser.seenInfo = this.copy(this.seenInfo);
+        compactUser.allInfo = this.copy(this.allInfo);
+        return compactUser;
+    }
+
+    /**
+     * Set of pieces of a user, stored as a sorted array of piece identifiers, along with
+     * the slots of the pieces in the store.
+     */
+    private static class PieceSet implements Serializable
+    {
+        /**
+         * Sorted identifiers of the pieces.
+         */
+        private int[] ids = new int[0];
+        /**
+         * Slots of the pieces in the store.
+         */
+        private int[] slots = new int[0];
+        /**
+         * Number of pieces in the set.
+         */
+        private int size = 0;
+
+        /**
+         * Checks whether a piece belongs to the set.
+         * @param info the identifier of the piece.
+         * @return true if the piece belongs to the set, false otherwise.
+         */
+        public boolean contains(int info)
+        {
+            return Arrays.binarySearch(this.ids, 0, this.size, info) >= 0;
+        }
+
+        /**
+         * Obtains the slot of a piece.
+         * @param info the identifier of the piece.
+         * @return the slot of the piece, -1 if it does not belong to the set.
+         */
+        public int get(int info)
+        {
+            int pos = Arrays.binarySearch(this.ids, 0, this.size, info);
+            return pos >= 0 ? this.slots[pos] : -1;
+        }
+
+        /**
+         * Adds a piece which does not belong to the set.
+         * @param info the identifier of the piece.
+         * @param slot the slot of the piece.
+         */
+        public void put(int info, int slot)
+        {
+            int pos = -Arrays.binarySearch(this.ids, 0, this.size, info) - 1;
+            if(this.size == this.ids.length)
+            {
+                int capacity = Math.max(4, this.ids.length + (this.ids.length >> 1));
+                this.ids = Arrays.copyOf(this.ids, capacity);
+                this.slots = Arrays.copyOf(this.slots, capacity);
+            }
+            System.arraycopy(this.ids, pos, this.ids, pos + 1, this.size - pos);
+            System.arraycopy(this.slots, pos, this.slots, pos + 1, this.size - pos);
+            this.ids[pos] = info;
+            this.slots[pos] = slot;
+            this.size++;
+        }
+
+        /**
+         * Removes a piece from the set.
+         * @param info the identifier of the piece.
+         * @return the slot of the piece, -1 if it did not belong to the set.
+         */
+        public int remove(int info)
+        {
+            int pos = Arrays.binarySearch(this.ids, 0, this.size, info);
+            if(pos < 0)
+            {
+                return -1;
+            }
+            int slot = this.slots[pos];
+            System.arraycopy(this.ids, pos + 1, this.ids, pos, this.size - pos - 1);
+            System.arraycopy(this.slots, pos + 1, this.slots, pos, this.size - pos - 1);
+            this.size--;
+            return slot;
+        }
+
+        /**
+         * Obtains the identifiers of the pieces in the set.
+         * @return a stream containing the identifiers.
+         */
+        public IntStream ids()
+        {
+            return Arrays.stream(Arrays.copyOf(this.ids, this.size));
+        }
+
+        /**
+         * Removes all the pieces from the set.
+         */
+        public void clear()
+        {
+            this.ids = new int[0];
+            this.slots = new int[0];
+            this.size = 0;
+        }
+    }
+}
@@ -99,6 +99,11 @@ public class Data<U extends Serializable,I extends Serializable,P>
     
     
     private final HashMap<Long, HashMap<U, Set<I>>> realPropagatedByTS;
+    
+    /**
+     * Precomputed index over the types of the edges of the graph (built on demand).
+     */
+    private volatile EdgeTypeIndex<U> edgeTypes;
 
     
     /**
@@ -420,6 +425,30 @@ public class Data<U extends Serializable,I extends Serializable,P>
         return this.graph;
     }
     
+    /**
+     * Obtains a precomputed index over the types of the edges in the graph, which allows finding the type of
+     * an edge, and the recommended and not recommended neighbours of a user, by user index. It is built the first 
+     * time it is requested.
+     * @return the edge type index.
+     */
+    public EdgeTypeIndex<U> getEdgeTypeIndex()
+    {
+        EdgeTypeIndex<U> index = this.edgeTypes;
+        if(index == null)
+        {
+            synchronized(this)
+            {
+                index = this.edgeTypes;
+                if(index == null)
+                {
+                    index = new EdgeTypeIndex<>(this.graph, this.users);
+                    this.edgeTypes = index;
+                }
+            }
+        }
+        return index;
+    }
+    
     /**
      * Obtains the features for a single user.
      * @param user the user.
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.data;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeType;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationEdgeTypes;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Precomputed index over the edges of the simulation graph, which allows recommender-aware mechanisms
+ * to find the type of an edge and the recommended (and not recommended) neighbours of a user without
+ * accessing the graph. Users are identified by their index in the user index of the data. 
+ * 
+ * The index is built once from the graph, so it does not reflect any later modification of it.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class EdgeTypeIndex<U extends Serializable> 
+{
+    /**
+     * Empty list of neighbours.
+     */
+    private static final int[] EMPTY = new int[0];
+    /**
+     * Number of users.
+     */
+    private final int numUsers;
+    /**
+     * Type of each edge, indexed by the pair (origin, destination).
+     */
+    private final Long2IntOpenHashMap types;
+    /**
+     * For each user, the destinations of its outgoing edges.
+     */
+    private final int[][] adjacent;
+    /**
+     * For each user, the origins of its incoming edges.
+     */
+    private final int[][] incident;
+    /**
+     * For each orientation, the recommended neighbours of each user.
+     */
+    private final Map<EdgeOrientation, int[][]> recommended;
+    /**
+     * For each orientation, the neighbours of each user which have not been recommended.
+     */
+    private final Map<EdgeOrientation, int[][]> organic;
+    
+    /**
+     * Constructor.
+     * @param graph the graph.
+     * @param uIndex the user index.
+     */
+    public EdgeTypeIndex(Graph<U> graph, Index<U> uIndex)
+    {
+        this.numUsers = uIndex.numObjects();
+        this.types = new Long2IntOpenHashMap();
+        this.types.defaultReturnValue(EdgeType.getErrorType());
+        this.adjacent = new int[numUsers][];
+        this.incident = new int[numUsers][];
+        this.recommended = new EnumMap<>(EdgeOrientation.class);
+        this.organic = new EnumMap<>(EdgeOrientation.class);
+        
+        IntArrayList aux = new IntArrayList();
+        for(int uidx = 0; uidx < numUsers; ++uidx)
+        {
+            U u = uIndex.idx2object(uidx);
+            if(!graph.containsVertex(u))
+            {
+                this.adjacent[uidx] = EMPTY;
+                this.incident[uidx] = EMPTY;
+                continue;
+            }
+            
+            aux.clear();
+            int orig = uidx;
+            graph.getAdjacentNodesTypes(u).forEach(w -> 
+            {
+                int vidx = uIndex.object2idx(w.getIdx());
+                if(vidx >= 0)
+                {
+                    aux.add(vidx);
+                    this.types.put(key(orig, vidx), (int) w.getValue());
+                }
+            });
+            this.adjacent[uidx] = aux.toIntArray();
+            
+            aux.clear();
+            graph.getIncidentNodes(u).forEach(v -> 
+            {
+                int vidx = uIndex.object2idx(v);
+                if(vidx >= 0)
+                {
+                    aux.add(vidx);
+                }
+            });
+            this.incident[uidx] = aux.toIntArray();
+        }
+    }
+    
+    /**
+     * Obtains the type of an edge.
+     * @param uidx the index of the origin user.
+     * @param vidx the index of the destination user.
+     * @return the type of the edge if it exists, the default error value if not.
+     */
+    public int getEdgeType(int uidx, int vidx)
+    {
+        return this.types.get(key(uidx, vidx));
+    }
+    
+    /**
+     * Checks whether an edge exists.
+     * @param uidx the index of the origin user.
+     * @param vidx the index of the destination user.
+     * @return true if the edge exists, false otherwise.
+     */
+    public boolean containsEdge(int uidx, int vidx)
+    {
+        return this.types.containsKey(key(uidx, vidx));
+    }
+    
+    /**
+     * Checks whether the link between two users has been recommended. When the orientation admits
+     * edges in both directions, the link is recommended if any of the edges between the users has been
+     * recommended.
+     * @param uidx the index of the user.
+     * @param vidx the index of the neighbour.
+     * @param orientation the orientation of the edge, as seen from the user: IN for the edge from the
+     * neighbour to the user, OUT for the edge from the user to the neighbour, UND and MUTUAL for both.
+     * @return true if the link has been recommended, false otherwise (or if it does not exist).
+     */
+    public boolean isRecommended(int uidx, int vidx, EdgeOrientation orientation)
+    {
+        switch(orientation)
+        {
+            case IN:
+                return this.getEdgeType(vidx, uidx) == SimulationEdgeTypes.RECOMMEND;
+            case OUT:
+                return this.getEdgeType(uidx, vidx) == SimulationEdgeTypes.RECOMMEND;
+            default:
+                return this.getEdgeType(uidx, vidx) == SimulationEdgeTypes.RECOMMEND || this.getEdgeType(vidx, uidx) == SimulationEdgeTypes.RECOMMEND;
+        }
+    }
+    
+    /**
+     * Obtains the neighbours of a user whose link has been recommended. The returned array must not be modified.
+     * @param uidx the index of the user.
+     * @param orientation the orientation of the neighbourhood.
+     * @return the indexes of the recommended neighbours.
+     */
+    public int[] getRecommendedNeighbours(int uidx, EdgeOrientation orientation)
+    {
+        return this.getNeighbours(orientation, true)[uidx];
+    }
+    
+    /**
+     * Obtains the neighbours of a user whose link has not been recommended. The returned array must not be modified.
+     * @param uidx the index of the user.
+     * @param orientation the orientation of the neighbourhood.
+     * @return the indexes of the not recommended neighbours.
+     */
+    public int[] getOrganicNeighbours(int uidx, EdgeOrientation orientation)
+    {
+        return this.getNeighbours(orientation, false)[uidx];
+    }
+    
+    /**
+     * Obtains the (recommended or not recommended) neighbourhoods for an orientation, building 
+     * them if they have not been built yet.
+     * @param orientation the orientation.
+     * @param rec true for the recommended neighbours, false for the not recommended ones.
+     * @return the neighbourhoods of all the users.
+     */
+    private synchronized int[][] getNeighbours(EdgeOrientation orientation, boolean rec)
+    {
+        if(!this.recommended.containsKey(orientation))
+        {
+            int[][] recNeighs = new int[numUsers][];
+            int[][] orgNeighs = new int[numUsers][];
+            IntArrayList recAux = new IntArrayList();
+            IntArrayList orgAux = new IntArrayList();
+            Int2IntOpenHashMap count = new Int2IntOpenHashMap();
+            
+            for(int uidx = 0; uidx < numUsers; ++uidx)
+            {
+                recAux.clear();
+                orgAux.clear();
+                if(orientation == EdgeOrientation.IN || orientation == EdgeOrientation.OUT)
+                {
+                    int[] neighs = orientation == EdgeOrientation.IN ? this.incident[uidx] : this.adjacent[uidx];
+                    for(int vidx : neighs)
+                    {
+                        (this.isRecommended(uidx, vidx, orientation) ? recAux : orgAux).add(vidx);
+                    }
+                }
+                else
+                {
+                    // Count the directions in which each neighbour is connected to the user.
+                    count.clear();
+                    for(int vidx : this.adjacent[uidx])
+                    {
+                        count.addTo(vidx, 1);
+                    }
+                    for(int vidx : this.incident[uidx])
+                    {
+                        count.addTo(vidx, 1);
+                    }
+                    
+                    int min = orientation == EdgeOrientation.MUTUAL ? 2 : 1;
+                    for(int vidx : this.adjacent[uidx])
+                    {
+                        if(count.get(vidx) >= min)
+                        {
+                            (this.isRecommended(uidx, vidx, orientation) ? recAux : orgAux).add(vidx);
+                        }
+                    }
+                    if(orientation == EdgeOrientation.UND)
+                    {
+                        for(int vidx : this.incident[uidx])
+                        {
+                            if(count.get(vidx) == 1)
+                            {
+                                (this.isRecommended(uidx, vidx, orientation) ? recAux : orgAux).add(vidx);
+                            }
+                        }
+                    }
+                }
+                recNeighs[uidx] = recAux.isEmpty() ? EMPTY : recAux.toIntArray();
+                orgNeighs[uidx] = orgAux.isEmpty() ? EMPTY : orgAux.toIntArray();
+            }
+            
+            this.recommended.put(orientation, recNeighs);
+            this.organic.put(orientation, orgNeighs);
+        }
+        return rec ? this.recommended.get(orientation) : this.organic.get(orientation);
+    }
+    
+    /**
+     * Obtains the key of an edge.
+     * @param uidx the index of the origin user.
+     * @param vidx the index of the destination user.
+     * @return the key of the edge.
+     */
+    private static long key(int uidx, int vidx)
+    {
+        return (((long) uidx) << 32) | (vidx & 0xFFFFFFFFL);
+    }
+}
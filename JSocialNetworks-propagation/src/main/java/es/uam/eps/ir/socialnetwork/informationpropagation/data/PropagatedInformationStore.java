@@ -0,0 +1,224 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Columnar store for the timestamps and creators of the information pieces held by the users
+ * of a simulation. Instead of keeping a {@link PropagatedInformation} object (and a boxed set of creators)
+ * for each (user, piece) pair, each pair is assigned a slot in the store, and the fields of the piece
+ * are stored in primitive arrays, indexed by slot. Released slots are reused.
+ *
+ * The arrays are divided in fixed-size chunks which are never moved, so slots can be read and written
+ * concurrently (as long as each slot is only modified by a single thread). Only the allocation and release of
+ * slots is synchronized.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class PropagatedInformationStore implements Serializable
+{
+    /**
+     * Number of bits of the position of a slot inside its chunk.
+     */
+    private static final int CHUNKBITS = 12;
+    /**
+     * Number of slots in each chunk.
+     */
+    private static final int CHUNKSIZE = 1 << CHUNKBITS;
+    /**
+     * Mask for obtaining the position of a slot inside its chunk.
+     */
+    private static final int CHUNKMASK = CHUNKSIZE - 1;
+    /**
+     * Empty list of creators.
+     */
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Timestamps of the pieces, divided in chunks.
+     */
+    private volatile long[][] timestamps;
+    /**
+     * Number of times each piece has arrived to the user, divided in chunks.
+     */
+    private volatile int[][] times;
+    /**
+     * Sorted identifiers of the creators of each piece, divided in chunks.
+     */
+    private volatile int[][][] creators;
+    /**
+     * Number of slots which have been used at least once.
+     */
+    private int numSlots;
+    /**
+     * Released slots, available for reuse.
+     */
+    private int[] free;
+    /**
+     * Number of released slots.
+     */
+    private int numFree;
+
+    /**
+     * Constructor.
+     */
+    public PropagatedInformationStore()
+    {
+        this.timestamps = new long[0][];
+        this.times = new int[0][];
+        this.creators = new int[0][][];
+        this.numSlots = 0;
+        this.free = new int[16];
+        this.numFree = 0;
+    }
+
+    /**
+     * Allocates a slot and stores a piece in it.
+     * @param info the piece.
+     * @return the slot.
+     */
+    public int store(PropagatedInformation info)
+    {
+        int slot = this.allocate();
+        this.write(slot, info);
+        return slot;
+    }
+
+    /**
+     * Allocates a slot and copies in it the contents of another slot.
+     * @param slot the slot to copy.
+     * @return the new slot.
+     */
+    public int copy(int slot)
+    {
+        int newSlot = this.allocate();
+        int chunk = slot >>> CHUNKBITS;
+        int pos = slot & CHUNKMASK;
+        int newChunk = newSlot >>> CHUNKBITS;
+        int newPos = newSlot & CHUNKMASK;
+
+        this.timestamps[newChunk][newPos] = this.timestamps[chunk][pos];
+        this.times[newChunk][newPos] = this.times[chunk][pos];
+        this.creators[newChunk][newPos] = this.creators[chunk][pos];
+        return newSlot;
+    }
+
+    /**
+     * Overwrites the contents of a slot.
+     * @param slot the slot.
+     * @param info the piece to store.
+     */
+    public void write(int slot, PropagatedInformation info)
+    {
+        int chunk = slot >>> CHUNKBITS;
+        int pos = slot & CHUNKMASK;
+
+        int[] cr = EMPTY;
+        if(!info.getCreators().isEmpty())
+        {
+            cr = info.getCreators().stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(cr);
+        }
+
+        this.timestamps[chunk][pos] = info.getTimestamp();
+        this.times[chunk][pos] = info.getTimes();
+        this.creators[chunk][pos] = cr;
+    }
+
+    /**
+     * Builds a piece from the contents of a slot. The piece is a new object, so modifying it
+     * does not modify the store.
+     * @param slot the slot.
+     * @param infoId the identifier of the piece.
+     * @return the piece.
+     */
+    public PropagatedInformation read(int slot, int infoId)
+    {
+        int chunk = slot >>> CHUNKBITS;
+        int pos = slot & CHUNKMASK;
+
+        PropagatedInformation info = new PropagatedInformation(infoId, this.timestamps[chunk][pos], this.creators[chunk][pos]);
+        info.setTimes(this.times[chunk][pos]);
+        return info;
+    }
+
+    /**
+     * Obtains the timestamp stored in a slot.
+     * @param slot the slot.
+     * @return the timestamp.
+     */
+    public long getTimestamp(int slot)
+    {
+        return this.timestamps[slot >>> CHUNKBITS][slot & CHUNKMASK];
+    }
+
+    /**
+     * Obtains the number of creators stored in a slot.
+     * @param slot the slot.
+     * @return the number of creators.
+     */
+    public int getNumCreators(int slot)
+    {
+        return this.creators[slot >>> CHUNKBITS][slot & CHUNKMASK].length;
+    }
+
+    /**
+     * Releases a slot, so it can be reused.
+     * @param slot the slot.
+     */
+    public synchronized void release(int slot)
+    {
+        this.creators[slot >>> CHUNKBITS][slot & CHUNKMASK] = EMPTY;
+        if(this.numFree == this.free.length)
+        {
+            this.free = Arrays.copyOf(this.free, 2*this.free.length);
+        }
+        this.free[this.numFree++] = slot;
+    }
+
+    /**
+     * Obtains the number of slots in use.
+     * @return the number of slots in use.
+     */
+    public synchronized int size()
+    {
+        return this.numSlots - this.numFree;
+    }
+
+    /**
+     * Allocates a slot, reusing a released one if possible.
+     * @return the slot.
+     */
+    private synchronized int allocate()
+    {
+        if(this.numFree > 0)
+        {
+            return this.free[--this.numFree];
+        }
+
+        int slot = this.numSlots++;
+        int chunk = slot >>> CHUNKBITS;
+        if(chunk == this.timestamps.length)
+        {
+            // Add a new chunk. The previous chunks are kept, so concurrent readers are not affected.
+            long[][] newTimestamps = Arrays.copyOf(this.timestamps, chunk + 1);
+            int[][] newTimes = Arrays.copyOf(this.times, chunk + 1);
+            int[][][] newCreators = Arrays.copyOf(this.creators, chunk + 1);
+            newTimestamps[chunk] = new long[CHUNKSIZE];
+            newTimes[chunk] = new int[CHUNKSIZE];
+            newCreators[chunk] = new int[CHUNKSIZE][];
+            this.timestamps = newTimestamps;
+            this.times = newTimes;
+            this.creators = newCreators;
+        }
+        return slot;
+    }
+}
@@ -9,6 +9,7 @@
 package es.uam.eps.ir.socialnetwork.informationpropagation.expiration;
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import java.io.Serializable;
 import java.util.stream.Stream;
@@ -20,7 +21,7 @@ import java.util.stream.Stream;
  * @param <I> type of the information
  * @param <P> type of the parameters
  */
-public class AllNotPropagatedExpirationMechanism<U extends Serializable,I extends Serializable,P> implements ExpirationMechanism<U,I,P>
+public class AllNotPropagatedExpirationMechanism<U extends Serializable,I extends Serializable,P> implements ScheduledExpirationMechanism<U,I,P>
 {
 
     @Override
@@ -29,4 +30,10 @@ public class AllNotPropagatedExpirationMechanism<U extends Serializable,I extend
         return user.getReceivedInformationIds();
     }
     
+    @Override
+    public int expirationIteration(UserState<U> user, PropagatedInformation piece, Data<U,I,P> data, int numIter)
+    {
+        return numIter;
+    }
+    
 }
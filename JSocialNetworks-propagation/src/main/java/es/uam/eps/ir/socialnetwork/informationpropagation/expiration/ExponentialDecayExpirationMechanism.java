@@ -6,9 +6,10 @@
 package es.uam.eps.ir.socialnetwork.informationpropagation.expiration;
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import java.io.Serializable;
-import java.util.Random;
 import java.util.stream.Stream;
 
 /**
@@ -19,23 +20,18 @@ import java.util.stream.Stream;
  * @param <I> type of the information
  * @param <P> type of the parameters
  */
-public class ExponentialDecayExpirationMechanism<U extends Serializable,I extends Serializable,P> implements ExpirationMechanism<U,I,P>
+public class ExponentialDecayExpirationMechanism<U extends Serializable,I extends Serializable,P> implements ScheduledExpirationMechanism<U,I,P>
 {
     /**
      * Time before expiration
      */
     private final double decay;
-    /**
-     * Random number generator.
-     */
-    private final Random rng;
     /**
      * Constructor.
      * @param halfLife the time required for the piece to have p = 0.5 of being removed
      */
     public ExponentialDecayExpirationMechanism(double halfLife)
     {
-        this.rng = new Random();
         
         this.decay = halfLife >= 0.0 ? Math.log(2.0)/halfLife : Double.POSITIVE_INFINITY;
     }
@@ -46,11 +42,66 @@ public class ExponentialDecayExpirationMechanism<U extends Serializable,I extend
         return user.getReceivedInformation().filter(piece -> 
         {
             long time = numIter - piece.getTimestamp();
-            double rnd = rng.nextDouble();
+            double rnd = SimulationRandom.current().nextDouble();
             return this.expdecay(time) < rnd;
         }).map(piece -> piece.getInfoId());
     }
     
+    @Override
+    public int expirationIteration(UserState<U> user, PropagatedInformation piece, Data<U,I,P> data, int numIter)
+    {
+        if(this.decay <= 0.0)
+        {
+            return NEVER;
+        }
+        
+        long first = numIter - piece.getTimestamp();
+        if(Double.isInfinite(this.decay))
+        {
+            // The piece is discarded in the first check after its creation.
+            return (int) Math.min(NEVER, numIter + Math.max(0L, 1L - first));
+        }
+        
+        // Checks before the creation of the piece never discard it.
+        long skipped = Math.max(0L, -first);
+        long start = first + skipped;
+        
+        // The piece survives k checks with probability exp(-decay*c(k)), where c(k) = k*start + k*(k-1)/2.
+        // Then, the number of surviving checks is the greatest k such that decay*c(k) <= e, where e follows
+        // an exponential distribution: it is the floor of the positive root of k^2 + (2*start - 1)*k - 2e/decay = 0.
+        double e = -Math.log(1.0 - SimulationRandom.current().nextDouble());
+        double b = 2.0*start - 1.0;
+        double k = Math.floor((-b + Math.sqrt(b*b + 8.0*e/this.decay))/2.0);
+        if(numIter + skipped + k >= NEVER)
+        {
+            return NEVER;
+        }
+        
+        // Correct the rounding errors.
+        while(k > 0.0 && this.decay*this.checks(k, start) > e)
+        {
+            --k;
+        }
+        while(this.decay*this.checks(k + 1.0, start) <= e)
+        {
+            ++k;
+        }
+        
+        double iter = numIter + skipped + k;
+        return iter >= NEVER ? NEVER : (int) iter;
+    }
+    
+    /**
+     * Computes the sum of the times since the creation of the piece over a number of consecutive checks.
+     * @param k the number of checks.
+     * @param start the time since the creation of the piece in the first check.
+     * @return the sum of the times.
+     */
+    private double checks(double k, long start)
+    {
+        return k*start + k*(k - 1.0)/2.0;
+    }
+    
     /**
      * Computes the probability that the information piece stays in the received list.
      * @param time the difference between creation time and current time.
@@ -0,0 +1,45 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.expiration;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
+import java.io.Serializable;
+
+/**
+ * Expiration mechanism which can determine in advance the iteration in which a received piece expires,
+ * as long as it stays in the received list of the user. It allows the event-driven simulations to schedule
+ * the expiration of each piece once, when it is received, instead of checking every received piece in every iteration.
+ * 
+ * For stochastic mechanisms, the iteration is sampled from the same distribution that results from checking the
+ * piece in every iteration.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users
+ * @param <I> type of the information
+ * @param <P> type of the parameters.
+ */
+public interface ScheduledExpirationMechanism<U extends Serializable,I extends Serializable,P> extends ExpirationMechanism<U,I,P>
+{
+    /**
+     * Value indicating that a piece never expires.
+     */
+    public static final int NEVER = Integer.MAX_VALUE;
+    
+    /**
+     * Obtains the iteration in which a received information piece expires.
+     * @param user UserState which has received the piece.
+     * @param piece The received piece.
+     * @param data The full data.
+     * @param numIter First iteration in which the expiration of the piece is checked.
+     * @return the first iteration (greater than or equal to numIter) in which the piece expires, 
+     * {@link #NEVER} if it never does.
+     */
+    public int expirationIteration(UserState<U> user, PropagatedInformation piece, Data<U,I,P> data, int numIter);
+}
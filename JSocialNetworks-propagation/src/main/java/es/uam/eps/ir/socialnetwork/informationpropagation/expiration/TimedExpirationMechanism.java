@@ -6,6 +6,7 @@
 package es.uam.eps.ir.socialnetwork.informationpropagation.expiration;
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import java.io.Serializable;
 import java.util.stream.Stream;
@@ -17,7 +18,7 @@ import java.util.stream.Stream;
  * @param <I> type of the information
  * @param <P> type of the parameters
  */
-public class TimedExpirationMechanism<U extends Serializable,I extends Serializable,P> implements ExpirationMechanism<U,I,P>
+public class TimedExpirationMechanism<U extends Serializable,I extends Serializable,P> implements ScheduledExpirationMechanism<U,I,P>
 {
     /**
      * Time before expiration
@@ -39,4 +40,11 @@ public class TimedExpirationMechanism<U extends Serializable,I extends Serializa
         return user.getReceivedInformation().filter(piece -> (numIter - piece.getTimestamp()) > maxTime).map(piece -> piece.getInfoId());
     }
     
+    @Override
+    public int expirationIteration(UserState<U> user, PropagatedInformation piece, Data<U,I,P> data, int numIter)
+    {
+        long iter = Math.max(numIter, piece.getTimestamp() + maxTime + 1);
+        return iter >= NEVER ? NEVER : (int) iter;
+    }
+    
 }
\ No newline at end of file
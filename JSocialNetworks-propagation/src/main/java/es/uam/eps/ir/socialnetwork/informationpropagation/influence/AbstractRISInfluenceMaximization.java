@@ -0,0 +1,202 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.influence;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.CascadeGraph;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.Serializable;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Seed selection by reverse influence sampling (RIS). A large number of reverse reachable sets (RR-sets) is sampled:
+ * each one contains the users which would have made a random target user active, in a random realization of the 
+ * cascade model. Then, the seeds are greedily selected to cover the maximum number of RR-sets. The proportion of covered
+ * RR-sets, multiplied by the number of users, estimates the spread of the seeds.
+ * 
+ * The RR-sets are sampled in parallel, in a fixed number of chunks, each one with its own random number generator,
+ * so the result only depends on the random seed. The memory is bounded: each chunk stops sampling once its RR-sets 
+ * reach its share of a maximum number of entries (in that case, fewer RR-sets than requested are used). All the
+ * RR-sets are stored in a single flat array.
+ * 
+ * Borgs, C., Brautbar, M., Chayes, J., Lucier, B. Maximizing Social Influence in Nearly Optimal Time. SODA 2014.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public abstract class AbstractRISInfluenceMaximization<U extends Serializable> implements InfluenceMaximization<U>
+{
+    /**
+     * Number of chunks in which the sampling is divided.
+     */
+    private static final int NUMCHUNKS = 64;
+    
+    /**
+     * The network.
+     */
+    protected final CascadeGraph<U> graph;
+    /**
+     * Number of RR-sets to sample.
+     */
+    private final int numSets;
+    /**
+     * Maximum number of entries of all the RR-sets.
+     */
+    private final int maxEntries;
+    /**
+     * Random seed.
+     */
+    private final long seed;
+    
+    /**
+     * Constructor.
+     * @param graph the network.
+     * @param numSets number of RR-sets to sample.
+     * @param maxEntries maximum number of entries (users) of all the RR-sets.
+     * @param seed random seed.
+     */
+    public AbstractRISInfluenceMaximization(CascadeGraph<U> graph, int numSets, int maxEntries, long seed)
+    {
+        this.graph = graph;
+        this.numSets = numSets;
+        this.maxEntries = maxEntries;
+        this.seed = seed;
+    }
+    
+    @Override
+    public SeedSelection<U> select(int k)
+    {
+        int numUsers = this.graph.numUsers();
+        SeedSelection<U> selection = new SeedSelection<>();
+        if(numUsers == 0)
+        {
+            return selection;
+        }
+        
+        // Sample the RR-sets.
+        SplittableRandom rng = new SplittableRandom(this.seed);
+        SplittableRandom[] rngs = new SplittableRandom[NUMCHUNKS];
+        for(int i = 0; i < NUMCHUNKS; ++i)
+        {
+            rngs[i] = rng.split();
+        }
+        
+        IntArrayList[] chunkEntries = new IntArrayList[NUMCHUNKS];
+        IntArrayList[] chunkLengths = new IntArrayList[NUMCHUNKS];
+        int chunkMax = Math.max(1, this.maxEntries / NUMCHUNKS);
+        IntStream.range(0, NUMCHUNKS).parallel().forEach(chunk -> 
+        {
+            int num = this.numSets / NUMCHUNKS + (chunk < this.numSets % NUMCHUNKS ? 1 : 0);
+            IntArrayList entries = new IntArrayList();
+            IntArrayList lengths = new IntArrayList();
+            boolean[] visited = new boolean[numUsers];
+            for(int i = 0; i < num && entries.size() < chunkMax; ++i)
+            {
+                int start = entries.size();
+                this.sample(rngs[chunk].nextInt(numUsers), entries, visited, rngs[chunk]);
+                for(int j = start; j < entries.size(); ++j)
+                {
+                    visited[entries.getInt(j)] = false;
+                }
+                lengths.add(entries.size() - start);
+            }
+            chunkEntries[chunk] = entries;
+            chunkLengths[chunk] = lengths;
+        });
+        
+        // Store the RR-sets in a flat array.
+        int numSampled = 0;
+        int totalEntries = 0;
+        for(int chunk = 0; chunk < NUMCHUNKS; ++chunk)
+        {
+            numSampled += chunkLengths[chunk].size();
+            totalEntries += chunkEntries[chunk].size();
+        }
+        int[] offsets = new int[numSampled + 1];
+        int[] sets = new int[totalEntries];
+        int set = 0;
+        for(int chunk = 0; chunk < NUMCHUNKS; ++chunk)
+        {
+            chunkEntries[chunk].getElements(0, sets, offsets[set], chunkEntries[chunk].size());
+            for(int i = 0; i < chunkLengths[chunk].size(); ++i)
+            {
+                offsets[set + 1] = offsets[set] + chunkLengths[chunk].getInt(i);
+                ++set;
+            }
+            chunkEntries[chunk] = null;
+        }
+        
+        // Index the RR-sets containing each user.
+        int[] coverage = new int[numUsers];
+        for(int uidx : sets)
+        {
+            coverage[uidx]++;
+        }
+        int[] userOffsets = new int[numUsers + 1];
+        for(int uidx = 0; uidx < numUsers; ++uidx)
+        {
+            userOffsets[uidx + 1] = userOffsets[uidx] + coverage[uidx];
+        }
+        int[] userSets = new int[totalEntries];
+        int[] next = new int[numUsers];
+        System.arraycopy(userOffsets, 0, next, 0, numUsers);
+        for(int s = 0; s < numSampled; ++s)
+        {
+            for(int pos = offsets[s]; pos < offsets[s + 1]; ++pos)
+            {
+                userSets[next[sets[pos]]++] = s;
+            }
+        }
+        
+        // Greedy maximum coverage.
+        boolean[] covered = new boolean[numSampled];
+        boolean[] selected = new boolean[numUsers];
+        long numCovered = 0;
+        for(int i = 0; i < k && i < numUsers; ++i)
+        {
+            int best = -1;
+            for(int uidx = 0; uidx < numUsers; ++uidx)
+            {
+                if(!selected[uidx] && (best < 0 || coverage[uidx] > coverage[best]))
+                {
+                    best = uidx;
+                }
+            }
+            
+            selected[best] = true;
+            numCovered += coverage[best];
+            for(int pos = userOffsets[best]; pos < userOffsets[best + 1]; ++pos)
+            {
+                int s = userSets[pos];
+                if(!covered[s])
+                {
+                    covered[s] = true;
+                    for(int j = offsets[s]; j < offsets[s + 1]; ++j)
+                    {
+                        coverage[sets[j]]--;
+                    }
+                }
+            }
+            
+            double spread = numSampled == 0 ? 0.0 : (numCovered + 0.0)*numUsers/numSampled;
+            selection.add(this.graph.idx2object(best), spread);
+        }
+        
+        return selection;
+    }
+    
+    /**
+     * Samples a reverse reachable set.
+     * @param target the identifier of the target user.
+     * @param entries list where the users in the set are appended.
+     * @param visited users already in the set (they have to be marked).
+     * @param rng random number generator.
+     */
+    protected abstract void sample(int target, IntArrayList entries, boolean[] visited, SplittableRandom rng);
+}
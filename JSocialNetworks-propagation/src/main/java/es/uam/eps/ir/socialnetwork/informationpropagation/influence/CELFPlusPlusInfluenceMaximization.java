@@ -0,0 +1,206 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.influence;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.BatchCascadeModel;
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.CascadeGraph;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Lazy greedy seed selection (CELF++). Each iteration, the user with the greatest marginal gain on the 
+ * spread is added to the seeds. By submodularity, marginal gains can only decrease, so they are only 
+ * recomputed for the users at the top of a priority queue. Besides, when the marginal gain of a user is
+ * recomputed, its gain with respect to the seeds plus the best user found in the iteration is also computed:
+ * if that user is selected, the gain does not need to be recomputed in the next iteration.
+ * 
+ * The spreads are estimated with the Monte Carlo replicas of a batched cascade model (see {@link BatchCascadeModel}).
+ * All the estimations use the same random seed. As the batched models derive each random outcome from a hash of the
+ * seed, the replica and the event (an edge or a user), every estimation is computed over the same sampled replicas
+ * (common random numbers): the differences between spreads are not affected by the noise of independent samples,
+ * and the estimated spread is monotone and submodular, as the lazy evaluation requires. The initial gains, and the
+ * gains with respect to the best user of the first pass, are computed in parallel.
+ * 
+ * Goyal, A., Lu, W., Lakshmanan, L.V.S. CELF++: Optimizing the Greedy Algorithm for Influence Maximization in Social Networks. WWW 2011.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class CELFPlusPlusInfluenceMaximization<U extends Serializable> implements InfluenceMaximization<U>
+{
+    /**
+     * The cascade model.
+     */
+    private final BatchCascadeModel<U> model;
+    /**
+     * The network.
+     */
+    private final CascadeGraph<U> graph;
+    /**
+     * Number of Monte Carlo replicas for each estimation.
+     */
+    private final int numReplicas;
+    /**
+     * Random seed.
+     */
+    private final long seed;
+    
+    /**
+     * Constructor.
+     * @param model the cascade model.
+     * @param graph the network of the model.
+     * @param numReplicas number of Monte Carlo replicas for each estimation.
+     * @param seed random seed.
+     */
+    public CELFPlusPlusInfluenceMaximization(BatchCascadeModel<U> model, CascadeGraph<U> graph, int numReplicas, long seed)
+    {
+        this.model = model;
+        this.graph = graph;
+        this.numReplicas = numReplicas;
+        this.seed = seed;
+    }
+    
+    @Override
+    public SeedSelection<U> select(int k)
+    {
+        SeedSelection<U> selection = new SeedSelection<>();
+        IntArrayList seeds = new IntArrayList();
+        double spread = 0.0;
+        
+        // Initial gains (the spread of each user on its own).
+        List<Candidate> initial = IntStream.range(0, this.graph.numUsers()).parallel().mapToObj(uidx -> 
+        {
+            Candidate c = new Candidate(uidx);
+            c.gain = this.spread(seeds, uidx, -1);
+            return c;
+        }).collect(Collectors.toCollection(ArrayList::new));
+        
+        // Gains with respect to the best user of the first pass, which is selected next.
+        Candidate first = initial.stream().max((x,y) -> Double.compare(x.gain, y.gain)).orElse(null);
+        if(first != null && k > 1)
+        {
+            initial.parallelStream().filter(c -> c != first).forEach(c -> 
+            {
+                c.prevBest = first.uidx;
+                c.nextGain = this.spread(seeds, c.uidx, first.uidx) - first.gain;
+            });
+        }
+        
+        PriorityQueue<Candidate> queue = new PriorityQueue<>((x,y) -> Double.compare(y.gain, x.gain));
+        queue.addAll(initial);
+        
+        int lastSeed = -1;
+        Candidate best = null;
+        while(seeds.size() < k && !queue.isEmpty())
+        {
+            Candidate c = queue.poll();
+            if(c.flag == seeds.size())
+            {
+                // The gain is up to date: the user is selected.
+                seeds.add(c.uidx);
+                spread += c.gain;
+                selection.add(this.graph.idx2object(c.uidx), spread);
+                lastSeed = c.uidx;
+                best = null;
+                continue;
+            }
+            
+            if(c.prevBest == lastSeed && c.flag == seeds.size() - 1)
+            {
+                c.gain = c.nextGain;
+            }
+            else
+            {
+                c.gain = this.spread(seeds, c.uidx, -1) - spread;
+                if(best != null)
+                {
+                    c.prevBest = best.uidx;
+                    c.nextGain = this.spread(seeds, c.uidx, best.uidx) - (spread + best.gain);
+                }
+                else
+                {
+                    c.prevBest = -1;
+                }
+            }
+            c.flag = seeds.size();
+            
+            if(best == null || c.gain > best.gain)
+            {
+                best = c;
+            }
+            queue.add(c);
+        }
+        
+        return selection;
+    }
+    
+    /**
+     * Estimates the spread of a piece when it is owned by a set of seeds plus, at most, two more users.
+     * @param seeds the seeds.
+     * @param u the identifier of the first additional user (negative if there is none).
+     * @param v the identifier of the second additional user (negative if there is none).
+     * @return the expected spread.
+     */
+    private double spread(IntArrayList seeds, int u, int v)
+    {
+        IntArrayList aux = new IntArrayList(seeds);
+        if(u >= 0)
+        {
+            aux.add(u);
+        }
+        if(v >= 0)
+        {
+            aux.add(v);
+        }
+        return this.model.estimate(aux.toIntArray(), this.numReplicas, this.seed).getExpectedSpread();
+    }
+    
+    /**
+     * Candidate user in the lazy greedy selection.
+     */
+    private static class Candidate
+    {
+        /**
+         * The identifier of the user.
+         */
+        private final int uidx;
+        /**
+         * Marginal gain of the user with respect to the seeds.
+         */
+        private double gain;
+        /**
+         * Best user of the iteration when the gain was last computed.
+         */
+        private int prevBest;
+        /**
+         * Marginal gain of the user with respect to the seeds plus the previous best user.
+         */
+        private double nextGain;
+        /**
+         * Number of seeds when the gain was last computed.
+         */
+        private int flag;
+        
+        /**
+         * Constructor.
+         * @param uidx the identifier of the user.
+         */
+        public Candidate(int uidx)
+        {
+            this.uidx = uidx;
+            this.prevBest = -1;
+            this.flag = 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.influence;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.CascadeGraph;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.Serializable;
+import java.util.SplittableRandom;
+
+/**
+ * Reverse influence sampling for the Independent Cascade Model (see {@link es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.IndependentCascadeBatchModel}).
+ * Each RR-set is obtained by a reverse breadth-first search from the target user, where each edge
+ * is traversed with its propagation probability.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class IndependentCascadeRISInfluenceMaximization<U extends Serializable> extends AbstractRISInfluenceMaximization<U>
+{
+    /**
+     * Uniform probability (negative if the weights of the edges are used).
+     */
+    private final double prob;
+    
+    /**
+     * Constructor. The probabilities of propagation are the weights of the edges.
+     * @param graph the network.
+     * @param numSets number of RR-sets to sample.
+     * @param maxEntries maximum number of entries (users) of all the RR-sets.
+     * @param seed random seed.
+     */
+    public IndependentCascadeRISInfluenceMaximization(CascadeGraph<U> graph, int numSets, int maxEntries, long seed)
+    {
+        this(graph, -1.0, numSets, maxEntries, seed);
+    }
+    
+    /**
+     * Constructor.
+     * @param graph the network.
+     * @param prob the probability of propagating a piece across an edge.
+     * @param numSets number of RR-sets to sample.
+     * @param maxEntries maximum number of entries (users) of all the RR-sets.
+     * @param seed random seed.
+     */
+    public IndependentCascadeRISInfluenceMaximization(CascadeGraph<U> graph, double prob, int numSets, int maxEntries, long seed)
+    {
+        super(graph, numSets, maxEntries, seed);
+        this.prob = prob;
+    }
+
+    @Override
+    protected void sample(int target, IntArrayList entries, boolean[] visited, SplittableRandom rng)
+    {
+        int start = entries.size();
+        entries.add(target);
+        visited[target] = true;
+        for(int i = start; i < entries.size(); ++i)
+        {
+            int v = entries.getInt(i);
+            for(int pos = this.graph.senderStart(v); pos < this.graph.senderEnd(v); ++pos)
+            {
+                int u = this.graph.sender(pos);
+                double p = this.prob >= 0.0 ? this.prob : this.graph.senderWeight(pos);
+                if(!visited[u] && rng.nextDouble() < p)
+                {
+                    visited[u] = true;
+                    entries.add(u);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.influence;
+
+import java.io.Serializable;
+
+/**
+ * Selects the set of seed users which maximizes the expected spread of an information piece under a cascade model.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public interface InfluenceMaximization<U extends Serializable>
+{
+    /**
+     * Selects the seed users.
+     * @param k the number of seed users to select.
+     * @return the selected users, along with the estimated spread.
+     */
+    public SeedSelection<U> select(int k);
+}
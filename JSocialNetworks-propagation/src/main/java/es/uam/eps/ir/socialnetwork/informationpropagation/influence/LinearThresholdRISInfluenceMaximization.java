@@ -0,0 +1,61 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.influence;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.CascadeGraph;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.Serializable;
+import java.util.SplittableRandom;
+
+/**
+ * Reverse influence sampling for the threshold model with random proportions (see {@link es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.ThresholdBatchModel}),
+ * where a user is activated when the number of senders of the piece exceeds a random proportion of its adjacent nodes. 
+ * This is equivalent to each user choosing one of its adjacent nodes at random, and being activated when the chosen node
+ * is an active sender, so each RR-set is a reverse random walk from the target user, which stops when the chosen node is 
+ * not a sender or has already been visited.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class LinearThresholdRISInfluenceMaximization<U extends Serializable> extends AbstractRISInfluenceMaximization<U>
+{
+    /**
+     * Constructor.
+     * @param graph the network.
+     * @param numSets number of RR-sets to sample.
+     * @param maxEntries maximum number of entries (users) of all the RR-sets.
+     * @param seed random seed.
+     */
+    public LinearThresholdRISInfluenceMaximization(CascadeGraph<U> graph, int numSets, int maxEntries, long seed)
+    {
+        super(graph, numSets, maxEntries, seed);
+    }
+
+    @Override
+    protected void sample(int target, IntArrayList entries, boolean[] visited, SplittableRandom rng)
+    {
+        int v = target;
+        while(!visited[v])
+        {
+            visited[v] = true;
+            entries.add(v);
+            
+            int numAdjacent = this.graph.getNumAdjacent(v);
+            if(numAdjacent == 0)
+            {
+                return;
+            }
+            int choice = rng.nextInt(numAdjacent);
+            if(choice >= this.graph.getNumSenders(v))
+            {
+                return;
+            }
+            v = this.graph.sender(this.graph.senderStart(v) + choice);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.influence;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Seed users selected by an influence maximization algorithm, in selection order, along with the estimated 
+ * spread of the piece when it is owned by the first seeds.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class SeedSelection<U extends Serializable>
+{
+    /**
+     * The seed users, in selection order.
+     */
+    private final List<U> seeds;
+    /**
+     * The estimated spread of the first i+1 seed users, for each position i.
+     */
+    private final List<Double> spreads;
+    
+    /**
+     * Constructor.
+     */
+    public SeedSelection()
+    {
+        this.seeds = new ArrayList<>();
+        this.spreads = new ArrayList<>();
+    }
+    
+    /**
+     * Adds a seed user.
+     * @param u the user.
+     * @param spread the estimated spread of the seeds, including the new one.
+     */
+    public void add(U u, double spread)
+    {
+        this.seeds.add(u);
+        this.spreads.add(spread);
+    }
+    
+    /**
+     * Obtains the seed users.
+     * @return the seed users, in selection order.
+     */
+    public List<U> getSeeds()
+    {
+        return Collections.unmodifiableList(this.seeds);
+    }
+    
+    /**
+     * Obtains the estimated spread of the first seed users.
+     * @param num the number of seed users.
+     * @return the estimated spread.
+     */
+    public double getSpread(int num)
+    {
+        return num == 0 ? 0.0 : this.spreads.get(num - 1);
+    }
+    
+    /**
+     * Obtains the estimated spread of all the seed users.
+     * @return the estimated spread.
+     */
+    public double getSpread()
+    {
+        return this.getSpread(this.seeds.size());
+    }
+}
@@ -0,0 +1,608 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.io;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.generator.EmptyGraphGenerator;
+import es.uam.eps.ir.socialnetwork.graph.generator.GraphGenerator;
+import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorBadConfiguredException;
+import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorNotConfiguredException;
+import es.uam.eps.ir.socialnetwork.index.FastWeightedPairwiseRelation;
+import es.uam.eps.ir.socialnetwork.index.IdxValue;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import es.uam.eps.ir.socialnetwork.index.Relation;
+import es.uam.eps.ir.socialnetwork.index.fast.FastIndex;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Information;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationEdgeTypes;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.ranksys.formats.parsing.Parsers.lp;
+import org.ranksys.formats.rec.RecommendationFormat;
+import org.ranksys.formats.rec.TRECRecommendationFormat;
+
+/**
+ * Reads data from a columnar binary file written by {@link ColumnarDataWriter}. The file is memory-mapped,
+ * and each column is read with a single bulk operation. Once all the columns have been read, the different 
+ * components of the data (graph, indexes and relations) are built in parallel, and each relation is built at once 
+ * from its compressed sparse row representation, instead of inserting its pairs one by one.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class ColumnarDataReader 
+{
+    /**
+     * Read a simple version of the data.
+     * @param file the file containing the data.
+     * @return a Data object if ok, null if not.
+     */
+    public static Data<Long, Long, Long> read(String file)
+    {
+        return ColumnarDataReader.read(file, null, 0);
+    }
+    
+    /**
+     * Read a simple version of the data, and adds some recommended links to the graph.
+     * @param file the file containing the data.
+     * @param recFile File containing the recommendation (null if no recommendation has to be added).
+     * @param topN the number of recommendations to take.
+     * @return a Data object if ok, null if not.
+     */
+    public static Data<Long, Long, Long> read(String file, String recFile, int topN)
+    {
+        return ColumnarDataReader.read(file, recFile, topN, MappedInput.WINDOW);
+    }
+    
+    /**
+     * Read a simple version of the data, and adds some recommended links to the graph.
+     * @param file the file containing the data.
+     * @param recFile File containing the recommendation (null if no recommendation has to be added).
+     * @param topN the number of recommendations to take.
+     * @param window maximum size of each mapped window of the file (in bytes).
+     * @return a Data object if ok, null if not.
+     */
+    static Data<Long, Long, Long> read(String file, String recFile, int topN, long window)
+    {
+        if(file == null) return null;
+        
+        // First, read all the columns.
+        long[] users;
+        GraphColumns graphColumns;
+        long[] pieces;
+        long[] timestamps;
+        int[] creatorPtr;
+        int[] creators;
+        List<FeatureColumns> userFeatColumns = new ArrayList<>();
+        List<FeatureColumns> infoFeatColumns = new ArrayList<>();
+        int[] propPtr;
+        int[] propagated;
+        long[] propTimestamps;
+        
+        try(MappedInput input = new MappedInput(file, window))
+        {
+            if(input.readInt() != ColumnarDataWriter.MAGIC || input.readInt() != ColumnarDataWriter.VERSION)
+            {
+                return null;
+            }
+            
+            users = input.readLongs();
+            graphColumns = new GraphColumns(input);
+            
+            pieces = input.readLongs();
+            timestamps = input.readLongs();
+            creatorPtr = input.readInts();
+            creators = input.readInts();
+            
+            int numUserFeats = input.readInt();
+            for(int i = 0; i < numUserFeats; ++i)
+            {
+                userFeatColumns.add(new FeatureColumns(input));
+            }
+            int numInfoFeats = input.readInt();
+            for(int i = 0; i < numInfoFeats; ++i)
+            {
+                infoFeatColumns.add(new FeatureColumns(input));
+            }
+            
+            propPtr = input.readInts();
+            propagated = input.readInts();
+            propTimestamps = input.readLongs();
+        }
+        catch(IOException ex)
+        {
+            return null;
+        }
+        
+        int numUsers = users.length;
+        int numPieces = pieces.length;
+        
+        // Then, build the different components in parallel.
+        try
+        {
+            CompletableFuture<Graph<Long>> graph = CompletableFuture.supplyAsync(() -> graphColumns.build(recFile, topN));
+            CompletableFuture<Index<Long>> userIndex = CompletableFuture.supplyAsync(() -> buildIndex(users));
+            CompletableFuture<Index<Long>> infoPiecesIndex = CompletableFuture.supplyAsync(() -> buildIndex(pieces));
+            CompletableFuture<Map<Integer, Information<Long>>> infoPieces = CompletableFuture.supplyAsync(() -> 
+            {
+                Map<Integer, Information<Long>> map = new HashMap<>(2*numPieces);
+                for(int i = 0; i < numPieces; ++i)
+                {
+                    map.put(i, new Information<>(pieces[i], timestamps[i]));
+                }
+                return map;
+            });
+            CompletableFuture<Relation<Integer>> userInfo = CompletableFuture.supplyAsync(() -> buildRelation(numUsers, numPieces, creatorPtr, creators, p -> 1, false));
+            List<CompletableFuture<Relation<Double>>> userFeatRels = userFeatColumns.stream()
+                    .map(feat -> CompletableFuture.supplyAsync(() -> feat.buildRelation(numUsers)))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            List<CompletableFuture<Relation<Double>>> infoFeatRels = infoFeatColumns.stream()
+                    .map(feat -> CompletableFuture.supplyAsync(() -> feat.buildRelation(numPieces)))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            CompletableFuture<Relation<Long>> realProp = CompletableFuture.supplyAsync(() -> buildRelation(numUsers, numPieces, propPtr, propagated, p -> propTimestamps[p], true));
+            
+            // Gather the features.
+            Map<String, Index<Long>> feats = new HashMap<>();
+            List<String> userFeatureNames = new ArrayList<>();
+            Map<String, Relation<Double>> userFeatureRels = new HashMap<>();
+            for(int i = 0; i < userFeatColumns.size(); ++i)
+            {
+                FeatureColumns feat = userFeatColumns.get(i);
+                userFeatureNames.add(feat.name);
+                feats.put(feat.name, buildIndex(feat.values));
+                userFeatureRels.put(feat.name, userFeatRels.get(i).join());
+            }
+            
+            List<String> infoFeatureNames = new ArrayList<>();
+            Map<String, Relation<Double>> infoFeatureRels = new HashMap<>();
+            for(int i = 0; i < infoFeatColumns.size(); ++i)
+            {
+                FeatureColumns feat = infoFeatColumns.get(i);
+                infoFeatureNames.add(feat.name);
+                feats.put(feat.name, buildIndex(feat.values));
+                infoFeatureRels.put(feat.name, infoFeatRels.get(i).join());
+            }
+            
+            Graph<Long> g = graph.join();
+            if(g == null)
+            {
+                return null;
+            }
+            
+            return new Data<>(g, userIndex.join(), infoPiecesIndex.join(), infoPieces.join(), userInfo.join(), feats, userFeatureNames, userFeatureRels, infoFeatureNames, infoFeatureRels, realProp.join());
+        }
+        catch(CompletionException ex)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Builds an index.
+     * @param ids the identifiers of the objects, in the order of their indexes.
+     * @return the index.
+     */
+    private static Index<Long> buildIndex(long[] ids)
+    {
+        Index<Long> index = new FastIndex<>();
+        for(long id : ids)
+        {
+            index.addObject(id);
+        }
+        return index;
+    }
+    
+    /**
+     * Builds a relation from its compressed sparse row representation. Both sides of the relation are 
+     * built in parallel.
+     * @param <W> type of the weights.
+     * @param numFirst number of elements of the first kind.
+     * @param numSecond number of elements of the second kind.
+     * @param ptr the offsets of the related elements of each row (in the arrays of related elements).
+     * @param idxs the related elements of the rows.
+     * @param weight function which obtains the weight of a pair, given its position in the arrays.
+     * @param rowsAreFirst true if the rows are elements of the first kind, false if they are elements of the second kind.
+     * @return the relation.
+     */
+    private static <W> Relation<W> buildRelation(int numFirst, int numSecond, int[] ptr, int[] idxs, IntFunction<W> weight, boolean rowsAreFirst)
+    {
+        int numRows = rowsAreFirst ? numFirst : numSecond;
+        int numCols = rowsAreFirst ? numSecond : numFirst;
+        
+        // Lists for the rows.
+        List<List<IdxValue<W>>> rowLists = IntStream.range(0, numRows).parallel().mapToObj(r -> 
+        {
+            List<IdxValue<W>> list = new ArrayList<>(ptr[r+1] - ptr[r]);
+            for(int p = ptr[r]; p < ptr[r+1]; ++p)
+            {
+                list.add(new IdxValue<>(idxs[p], weight.apply(p)));
+            }
+            return list;
+        }).collect(Collectors.toCollection(ArrayList::new));
+        
+        // Transpose the matrix, for obtaining the lists for the columns.
+        int[] colPtr = new int[numCols + 1];
+        for(int idx : idxs)
+        {
+            colPtr[idx + 1]++;
+        }
+        for(int c = 0; c < numCols; ++c)
+        {
+            colPtr[c+1] += colPtr[c];
+        }
+        
+        int[] cursor = new int[numCols];
+        int[] rowOf = new int[idxs.length];
+        int[] posOf = new int[idxs.length];
+        for(int r = 0; r < numRows; ++r)
+        {
+            for(int p = ptr[r]; p < ptr[r+1]; ++p)
+            {
+                int c = idxs[p];
+                int q = colPtr[c] + cursor[c]++;
+                rowOf[q] = r;
+                posOf[q] = p;
+            }
+        }
+        
+        List<List<IdxValue<W>>> colLists = IntStream.range(0, numCols).parallel().mapToObj(c -> 
+        {
+            List<IdxValue<W>> list = new ArrayList<>(colPtr[c+1] - colPtr[c]);
+            for(int q = colPtr[c]; q < colPtr[c+1]; ++q)
+            {
+                list.add(new IdxValue<>(rowOf[q], weight.apply(posOf[q])));
+            }
+            return list;
+        }).collect(Collectors.toCollection(ArrayList::new));
+        
+        // The first list of the relation is indexed by the second kind of elements, and the second one by the first kind.
+        return rowsAreFirst ? new FastWeightedPairwiseRelation<>(colLists, rowLists) : new FastWeightedPairwiseRelation<>(rowLists, colLists);
+    }
+    
+    /**
+     * Columns describing the graph.
+     */
+    private static class GraphColumns
+    {
+        /**
+         * Whether the graph is directed or not.
+         */
+        private final boolean directed;
+        /**
+         * Whether the graph is weighted or not.
+         */
+        private final boolean weighted;
+        /**
+         * Identifiers of the nodes.
+         */
+        private final long[] nodes;
+        /**
+         * Origins of the edges (positions in the array of nodes).
+         */
+        private final int[] orig;
+        /**
+         * Destinations of the edges (positions in the array of nodes).
+         */
+        private final int[] dest;
+        /**
+         * Weights of the edges.
+         */
+        private final double[] weights;
+        /**
+         * Types of the edges.
+         */
+        private final int[] types;
+        
+        /**
+         * Constructor. Reads the columns.
+         * @param input the input.
+         * @throws IOException if something fails while reading.
+         */
+        public GraphColumns(MappedInput input) throws IOException
+        {
+            this.directed = input.readBoolean();
+            this.weighted = input.readBoolean();
+            this.nodes = input.readLongs();
+            this.orig = input.readInts();
+            this.dest = input.readInts();
+            this.weights = input.readDoubles();
+            this.types = input.readInts();
+        }
+        
+        /**
+         * Builds the graph.
+         * @param recFile File containing the recommendation (null if no recommendation has to be added).
+         * @param topN the number of recommendations to take.
+         * @return the graph, null if it could not be built.
+         */
+        public Graph<Long> build(String recFile, int topN)
+        {
+            try
+            {
+                GraphGenerator<Long> ggen = new EmptyGraphGenerator<>();
+                ggen.configure(directed, weighted);
+                Graph<Long> graph = ggen.generate();
+                
+                for(long node : nodes)
+                {
+                    graph.addNode(node);
+                }
+                for(int i = 0; i < orig.length; ++i)
+                {
+                    graph.addEdge(nodes[orig[i]], nodes[dest[i]], weights[i], types[i], false);
+                }
+                
+                // Add the links from recommendation.
+                if(recFile != null)
+                {
+                    RecommendationFormat<Long, Long> format = new TRECRecommendationFormat<>(lp,lp);
+                    format.getReader(recFile).readAll().forEach(rec ->
+                    {
+                        long u = rec.getUser();
+                        rec.getItems().stream().limit(topN).forEach(r -> 
+                        {
+                            graph.addEdge(u, r.v1, 1.0, SimulationEdgeTypes.RECOMMEND);
+                        });
+                    });
+                }
+                
+                return graph;
+            }
+            catch(GeneratorNotConfiguredException | GeneratorBadConfiguredException | IOException ex)
+            {
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * Columns describing a feature.
+     */
+    private static class FeatureColumns
+    {
+        /**
+         * The name of the feature.
+         */
+        private final String name;
+        /**
+         * The values of the feature.
+         */
+        private final long[] values;
+        /**
+         * The offsets of the elements having each value.
+         */
+        private final int[] ptr;
+        /**
+         * The elements (users or information pieces) having each value.
+         */
+        private final int[] idxs;
+        /**
+         * The weights of the values for the elements.
+         */
+        private final double[] weights;
+        
+        /**
+         * Constructor. Reads the columns.
+         * @param input the input.
+         * @throws IOException if something fails while reading.
+         */
+        public FeatureColumns(MappedInput input) throws IOException
+        {
+            this.name = input.readUTF();
+            this.values = input.readLongs();
+            this.ptr = input.readInts();
+            this.idxs = input.readInts();
+            this.weights = input.readDoubles();
+        }
+        
+        /**
+         * Builds the relation between the elements and the feature values.
+         * @param numElements the number of elements (users or information pieces).
+         * @return the relation.
+         */
+        public Relation<Double> buildRelation(int numElements)
+        {
+            return ColumnarDataReader.buildRelation(numElements, values.length, ptr, idxs, p -> weights[p], false);
+        }
+    }
+    
+    /**
+     * Memory-mapped input file. Since a single mapping cannot exceed 2GB, the file is
+     * mapped by windows, which are moved as the file is read.
+     */
+    private static class MappedInput implements AutoCloseable
+    {
+        /**
+         * Maximum size of a window (in bytes).
+         */
+        private static final long WINDOW = 1L << 30;
+        /**
+         * Maximum size of the windows of this file (in bytes).
+         */
+        private final long window;
+        /**
+         * The file channel.
+         */
+        private final FileChannel channel;
+        /**
+         * The size of the file.
+         */
+        private final long size;
+        /**
+         * The position of the current window in the file.
+         */
+        private long base;
+        /**
+         * The current window.
+         */
+        private MappedByteBuffer buffer;
+        
+        /**
+         * Constructor.
+         * @param file the file.
+         * @param window maximum size of the windows (in bytes).
+         * @throws IOException if the file cannot be opened or mapped.
+         */
+        public MappedInput(String file, long window) throws IOException
+        {
+            this.window = window;
+            this.channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+            this.size = channel.size();
+            this.map(0L, 0);
+        }
+        
+        /**
+         * Maps a window of the file.
+         * @param pos the position of the window in the file.
+         * @param bytes the minimum size of the window (in bytes).
+         * @throws IOException if the window cannot be mapped.
+         */
+        private void map(long pos, int bytes) throws IOException
+        {
+            this.base = pos;
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Math.max(this.window, bytes), size - pos));
+        }
+        
+        /**
+         * Ensures that a number of bytes can be read from the current window, moving it if necessary.
+         * @param bytes the number of bytes.
+         * @throws IOException if the end of the file is reached.
+         */
+        private void ensure(int bytes) throws IOException
+        {
+            if(this.buffer.remaining() < bytes)
+            {
+                long pos = this.base + this.buffer.position();
+                if(pos + bytes > size)
+                {
+                    throw new EOFException();
+                }
+                this.map(pos, bytes);
+            }
+        }
+        
+        /**
+         * Reads a boolean value.
+         * @return the value.
+         * @throws IOException if something fails while reading.
+         */
+        public boolean readBoolean() throws IOException
+        {
+            this.ensure(1);
+            return this.buffer.get() != 0;
+        }
+        
+        /**
+         * Reads an integer value.
+         * @return the value.
+         * @throws IOException if something fails while reading.
+         */
+        public int readInt() throws IOException
+        {
+            this.ensure(Integer.BYTES);
+            return this.buffer.getInt();
+        }
+        
+        /**
+         * Reads a string written in modified UTF-8 format.
+         * @return the string.
+         * @throws IOException if something fails while reading.
+         */
+        public String readUTF() throws IOException
+        {
+            this.ensure(Short.BYTES);
+            int length = this.buffer.getShort() & 0xFFFF;
+            byte[] bytes = new byte[length + Short.BYTES];
+            bytes[0] = (byte) (length >>> 8);
+            bytes[1] = (byte) length;
+            this.ensure(length);
+            this.buffer.get(bytes, Short.BYTES, length);
+            return DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(bytes)));
+        }
+        
+        /**
+         * Reads a column of integer values.
+         * @return the values.
+         * @throws IOException if something fails while reading.
+         */
+        public int[] readInts() throws IOException
+        {
+            int[] values = new int[this.readInt()];
+            int off = 0;
+            while(off < values.length)
+            {
+                this.ensure(Integer.BYTES);
+                int k = Math.min(values.length - off, this.buffer.remaining()/Integer.BYTES);
+                this.buffer.asIntBuffer().get(values, off, k);
+                this.buffer.position(this.buffer.position() + k*Integer.BYTES);
+                off += k;
+            }
+            return values;
+        }
+        
+        /**
+         * Reads a column of long values.
+         * @return the values.
+         * @throws IOException if something fails while reading.
+         */
+        public long[] readLongs() throws IOException
+        {
+            long[] values = new long[this.readInt()];
+            int off = 0;
+            while(off < values.length)
+            {
+                this.ensure(Long.BYTES);
+                int k = Math.min(values.length - off, this.buffer.remaining()/Long.BYTES);
+                this.buffer.asLongBuffer().get(values, off, k);
+                this.buffer.position(this.buffer.position() + k*Long.BYTES);
+                off += k;
+            }
+            return values;
+        }
+        
+        /**
+         * Reads a column of double values.
+         * @return the values.
+         * @throws IOException if something fails while reading.
+         */
+        public double[] readDoubles() throws IOException
+        {
+            double[] values = new double[this.readInt()];
+            int off = 0;
+            while(off < values.length)
+            {
+                this.ensure(Double.BYTES);
+                int k = Math.min(values.length - off, this.buffer.remaining()/Double.BYTES);
+                this.buffer.asDoubleBuffer().get(values, off, k);
+                this.buffer.position(this.buffer.position() + k*Double.BYTES);
+                off += k;
+            }
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            this.channel.close();
+        }
+    }
+}
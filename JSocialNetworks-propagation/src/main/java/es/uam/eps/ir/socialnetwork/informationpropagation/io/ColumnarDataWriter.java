@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.io;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.ranksys.core.util.tuples.Tuple2od;
+
+/**
+ * Writes data in a columnar binary file, which can be read by {@link ColumnarDataReader}. Unlike 
+ * {@link BinaryDataWriter}, which interleaves the different fields of each record, each section of the
+ * file is stored as a set of primitive arrays (columns), and relations are stored in compressed sparse
+ * row format (an array of offsets, and arrays with the related elements and their weights). This allows 
+ * reading each column with a single bulk operation.
+ * 
+ * The file contains, in order:
+ * <ul>
+ *  <li>A header (magic number and version).</li>
+ *  <li>The user identifiers.</li>
+ *  <li>The graph: directed and weighted flags, node identifiers, and the origin, destination, weight and type of each edge.</li>
+ *  <li>The information pieces: identifiers, timestamps and creators (as user indexes).</li>
+ *  <li>The user features and the information piece features: for each one, its name, the feature values and the users/pieces having each value.</li>
+ *  <li>The real propagated pieces: for each user, the indexes of the pieces and their timestamps.</li>
+ * </ul>
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class ColumnarDataWriter 
+{
+    /**
+     * Magic number identifying the files in the columnar format.
+     */
+    protected static final int MAGIC = 0x4A534E43;
+    /**
+     * Version of the format.
+     */
+    protected static final int VERSION = 1;
+    
+    /**
+     * Write the data
+     * @param data the data to write.
+     * @param file the file.
+     * @return true if everything went OK, false otherwise.
+     */
+    public static boolean write(Data<Long, Long, Long> data, String file)
+    {
+        if(data == null) return false;
+        
+        try(DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16)))
+        {
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            
+            Index<Long> uIndex = data.getUserIndex();
+            Index<Long> iIndex = data.getInformationPiecesIndex();
+            
+            // First, the user index
+            int numUsers = uIndex.numObjects();
+            LongArrayList users = new LongArrayList(numUsers);
+            for(int i = 0; i < numUsers; ++i)
+            {
+                users.add((long) uIndex.idx2object(i));
+            }
+            writeLongs(dos, users);
+            
+            // The graph
+            ColumnarDataWriter.writeGraph(dos, data.getGraph());
+            
+            // The information pieces, and their creators.
+            int numPieces = iIndex.numObjects();
+            LongArrayList pieces = new LongArrayList(numPieces);
+            LongArrayList timestamps = new LongArrayList(numPieces);
+            IntArrayList ptr = new IntArrayList(numPieces + 1);
+            IntArrayList creators = new IntArrayList();
+            ptr.add(0);
+            for(int i = 0; i < numPieces; ++i)
+            {
+                Long piece = iIndex.idx2object(i);
+                pieces.add((long) piece);
+                timestamps.add(data.getInformation(piece).getTimestamp());
+                data.getCreators(piece).mapToInt(uIndex::object2idx).filter(cidx -> cidx >= 0).forEach(creators::add);
+                ptr.add(creators.size());
+            }
+            writeLongs(dos, pieces);
+            writeLongs(dos, timestamps);
+            writeInts(dos, ptr);
+            writeInts(dos, creators);
+            
+            // User features
+            List<String> userFeatureNames = data.getUserFeatureNames();
+            dos.writeInt(userFeatureNames.size());
+            for(String feature : userFeatureNames)
+            {
+                ColumnarDataWriter.writeFeature(dos, data, feature, uIndex, f -> data.getUsersWithFeature(feature, f));
+            }
+            
+            // Information pieces features
+            List<String> infoFeatureNames = data.getInfoPiecesFeatureNames();
+            dos.writeInt(infoFeatureNames.size());
+            for(String feature : infoFeatureNames)
+            {
+                ColumnarDataWriter.writeFeature(dos, data, feature, iIndex, f -> data.getInformationPiecesWithFeature(feature, f));
+            }
+            
+            // Finally, the real propagated pieces.
+            ptr.clear();
+            IntArrayList propagated = new IntArrayList();
+            LongArrayList propTimestamps = new LongArrayList();
+            ptr.add(0);
+            for(int i = 0; i < numUsers; ++i)
+            {
+                data.getRealPropagatedPiecesWithTimestamp(uIndex.idx2object(i)).forEach(tuple -> 
+                {
+                    int iidx = iIndex.object2idx(tuple.v1());
+                    if(iidx >= 0)
+                    {
+                        propagated.add(iidx);
+                        propTimestamps.add((long) tuple.v2());
+                    }
+                });
+                ptr.add(propagated.size());
+            }
+            writeInts(dos, ptr);
+            writeInts(dos, propagated);
+            writeLongs(dos, propTimestamps);
+            
+            return true;
+        } 
+        catch (IOException ex) 
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * Writes the graph.
+     * @param dos the output stream.
+     * @param graph the graph.
+     * @throws IOException if something fails while writing.
+     */
+    private static void writeGraph(DataOutputStream dos, Graph<Long> graph) throws IOException
+    {
+        boolean directed = graph.isDirected();
+        dos.writeBoolean(directed);
+        dos.writeBoolean(graph.isWeighted());
+        
+        LongArrayList nodes = new LongArrayList();
+        Long2IntOpenHashMap nodeIdx = new Long2IntOpenHashMap();
+        graph.getAllNodes().forEach(u -> 
+        {
+            nodeIdx.put((long) u, nodes.size());
+            nodes.add((long) u);
+        });
+        
+        IntArrayList orig = new IntArrayList();
+        IntArrayList dest = new IntArrayList();
+        DoubleArrayList weights = new DoubleArrayList();
+        IntArrayList types = new IntArrayList();
+        for(int i = 0; i < nodes.size(); ++i)
+        {
+            long u = nodes.getLong(i);
+            int uidx = i;
+            graph.getAdjacentNodesWeights(u).forEach(w -> 
+            {
+                int vidx = nodeIdx.get((long) w.getIdx());
+                // In undirected graphs, each edge is only written once.
+                if(directed || uidx <= vidx)
+                {
+                    orig.add(uidx);
+                    dest.add(vidx);
+                    weights.add((double) w.getValue());
+                    types.add(graph.getEdgeType(u, w.getIdx()));
+                }
+            });
+        }
+        
+        writeLongs(dos, nodes);
+        writeInts(dos, orig);
+        writeInts(dos, dest);
+        writeDoubles(dos, weights);
+        writeInts(dos, types);
+    }
+    
+    /**
+     * Writes a feature.
+     * @param dos the output stream.
+     * @param data the data.
+     * @param feature the name of the feature.
+     * @param index the index of the elements (users or information pieces) which have the feature.
+     * @param elements function which finds the elements having each value of the feature.
+     * @throws IOException if something fails while writing.
+     */
+    private static void writeFeature(DataOutputStream dos, Data<Long, Long, Long> data, String feature, Index<Long> index, Function<Long, Stream<Tuple2od<Long>>> elements) throws IOException
+    {
+        dos.writeUTF(feature);
+        Index<Long> fIndex = data.getFeatureIndex(feature);
+        int numValues = fIndex.numObjects();
+        
+        LongArrayList values = new LongArrayList(numValues);
+        IntArrayList ptr = new IntArrayList(numValues + 1);
+        IntArrayList idxs = new IntArrayList();
+        DoubleArrayList weights = new DoubleArrayList();
+        ptr.add(0);
+        for(int i = 0; i < numValues; ++i)
+        {
+            Long f = fIndex.idx2object(i);
+            values.add((long) f);
+            elements.apply(f).forEach(tuple -> 
+            {
+                int idx = index.object2idx(tuple.v1);
+                if(idx >= 0)
+                {
+                    idxs.add(idx);
+                    weights.add(tuple.v2);
+                }
+            });
+            ptr.add(idxs.size());
+        }
+        
+        writeLongs(dos, values);
+        writeInts(dos, ptr);
+        writeInts(dos, idxs);
+        writeDoubles(dos, weights);
+    }
+    
+    /**
+     * Writes a column of integer values, preceded by its length.
+     * @param dos the output stream.
+     * @param values the values.
+     * @throws IOException if something fails while writing.
+     */
+    private static void writeInts(DataOutputStream dos, IntArrayList values) throws IOException
+    {
+        int size = values.size();
+        dos.writeInt(size);
+        for(int i = 0; i < size; ++i)
+        {
+            dos.writeInt(values.getInt(i));
+        }
+    }
+    
+    /**
+     * Writes a column of long values, preceded by its length.
+     * @param dos the output stream.
+     * @param values the values.
+     * @throws IOException if something fails while writing.
+     */
+    private static void writeLongs(DataOutputStream dos, LongArrayList values) throws IOException
+    {
+        int size = values.size();
+        dos.writeInt(size);
+        for(int i = 0; i < size; ++i)
+        {
+            dos.writeLong(values.getLong(i));
+        }
+    }
+    
+    /**
+     * Writes a column of double values, preceded by its length.
+     * @param dos the output stream.
+     * @param values the values.
+     * @throws IOException if something fails while writing.
+     */
+    private static void writeDoubles(DataOutputStream dos, DoubleArrayList values) throws IOException
+    {
+        int size = values.size();
+        dos.writeInt(size);
+        for(int i = 0; i < size; ++i)
+        {
+            dos.writeDouble(values.getDouble(i));
+        }
+    }
+}
@@ -16,6 +16,7 @@ import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -55,6 +56,20 @@ public class BinarySimulationReader<U extends Serializable, I extends Serializab
         }
     }
     
+    /**
+     * Initializes the simulation reading from an input stream.
+     * @param stream the input stream.
+     * @return true if everything went OK, false if something failed while configuring the reader.
+     */
+    public boolean initialize(InputStream stream)
+    {
+        if(stream == null || ois != null)
+            return false;
+        
+        this.ois = new DataInputStream(stream);
+        return true;
+    }
+    
     @Override
     public Simulation<U,I,P> readSimulation(Data<U,I,P> data)
     {
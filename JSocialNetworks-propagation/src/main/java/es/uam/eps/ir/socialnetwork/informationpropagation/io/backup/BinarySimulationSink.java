@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.io.backup;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.IterationSink;
+import java.io.Serializable;
+
+/**
+ * Writes the iterations of a simulation into a file, as they are produced. The file has the
+ * same format as the ones written by {@link BinarySimulationWriter}, so it can be read by
+ * {@link BinarySimulationReader}. The number of iterations in the header of the file is updated
+ * after every iteration, so the file is valid even if the simulation is interrupted.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ * @param <I> Type of the information pieces.
+ * @param <P> Type of the parameters.
+ */
+public class BinarySimulationSink<U extends Serializable, I extends Serializable, P> implements IterationSink<U,I,P>
+{
+    /**
+     * The name of the file.
+     */
+    private final String file;
+    /**
+     * The writer.
+     */
+    private final BinarySimulationWriter<U,I,P> writer;
+    /**
+     * The data.
+     */
+    private Data<U,I,P> data;
+    /**
+     * The number of iterations written into the file.
+     */
+    private int numIterations;
+    
+    /**
+     * Constructor.
+     * @param file the name of the file where we want to store the simulation.
+     */
+    public BinarySimulationSink(String file)
+    {
+        this.file = file;
+        this.writer = new BinarySimulationWriter<>();
+    }
+    
+    @Override
+    public boolean initialize(Data<U,I,P> data, int initialNumber)
+    {
+        this.data = data;
+        this.numIterations = 0;
+        return data != null && this.writer.initialize(file) && this.writer.writeHeader(initialNumber, 0);
+    }
+
+    @Override
+    public boolean accept(Iteration<U,I,P> iteration)
+    {
+        if(this.writer.writeIteration(this.data, iteration))
+        {
+            this.numIterations++;
+            return this.writer.updateNumIterations(this.numIterations);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean close()
+    {
+        return this.writer.close();
+    }
+}
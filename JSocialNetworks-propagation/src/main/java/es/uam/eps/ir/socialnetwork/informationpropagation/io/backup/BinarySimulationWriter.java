@@ -16,7 +16,9 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +40,10 @@ public class BinarySimulationWriter<U extends Serializable, I extends Serializab
      * Object output stream for writing into file
      */
     private DataOutputStream oos;
+    /**
+     * File output stream, for updating the header of the file.
+     */
+    private FileOutputStream fos;
 
     /**
      * Constructor.
@@ -45,6 +51,7 @@ public class BinarySimulationWriter<U extends Serializable, I extends Serializab
     public BinarySimulationWriter()
     {
         oos = null;
+        fos = null;
     }
     
     @Override
@@ -59,7 +66,8 @@ public class BinarySimulationWriter<U extends Serializable, I extends Serializab
             {
                 f.delete();
             }
-            this.oos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            this.fos = new FileOutputStream(file);
+            this.oos = new DataOutputStream(new BufferedOutputStream(this.fos));
             return true;
         } 
         catch (IOException ex) 
@@ -68,33 +76,93 @@ public class BinarySimulationWriter<U extends Serializable, I extends Serializab
         }
     }
     
+    /**
+     * Initializes the simulation writing over an output stream. The number of iterations
+     * in the header cannot be updated afterwards.
+     * @param stream the output stream.
+     * @return true if everything went OK, false if something failed while configuring the writer.
+     */
+    public boolean initialize(OutputStream stream)
+    {
+        if(stream == null || oos != null)
+            return false;
+        
+        this.fos = null;
+        this.oos = new DataOutputStream(stream);
+        return true;
+    }
+    
     @Override
     public boolean writeSimulation(Simulation<U,I,P> simulation)
     {
         if(simulation == null || this.oos == null)
             return false;
         
+        int initial = simulation.getInitialNumber();
+        int numIter = simulation.getNumIterations();
+        boolean outcome = this.writeHeader(initial, numIter);
+
+        // Write each iteration
+        for(int i = initial; i < (numIter + initial) && outcome == true; ++i)
+        {
+            outcome = outcome && this.writeIteration(simulation, i);
+        }
+        return outcome;
+    }
+    
+    /**
+     * Writes the header of the file: the number of the first iteration, and the number of iterations.
+     * @param initial the number of the first iteration.
+     * @param numIter the number of iterations.
+     * @return true if everything went OK, false if something failed while writing.
+     */
+    public boolean writeHeader(int initial, int numIter)
+    {
+        if(this.oos == null)
+        {
+            return false;
+        }
+        
         try
         {
-            int initial = simulation.getInitialNumber();
             oos.writeInt(initial);
-            int numIter = simulation.getNumIterations();
             // Write the number of iterations
             oos.writeInt(numIter);
-            boolean outcome = true;
-            
-            // Write each iteration
-            for(int i = initial; i < (numIter + initial) && outcome == true; ++i)
-            {
-                outcome = outcome && this.writeIteration(simulation, i);
-            }
-            return outcome;
+            return true;
         }
         catch(IOException exception)
         {
             return false;
         }
+    }
+    
+    /**
+     * Modifies the number of iterations in the header of the file. All the data written until
+     * this moment is flushed to the file.
+     * @param numIter the number of iterations.
+     * @return true if everything went OK, false if something failed while writing.
+     */
+    public boolean updateNumIterations(int numIter)
+    {
+        if(this.oos == null || this.fos == null)
+        {
+            return false;
+        }
         
+        try
+        {
+            oos.flush();
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+            buffer.putInt(numIter);
+            buffer.flip();
+            // The number of iterations is written after the number of the first iteration.
+            this.fos.getChannel().write(buffer, Integer.BYTES);
+            return true;
+        }
+        catch(IOException exception)
+        {
+            return false;
+        }
     }
     
     @Override
@@ -104,15 +172,23 @@ public class BinarySimulationWriter<U extends Serializable, I extends Serializab
         {
             return false;
         }
+        return this.writeIteration(simulation.getData(), simulation.getIteration(numIter));
+    }
+    
+    /**
+     * Writes a single iteration in a file.
+     * @param data the data.
+     * @param iteration the iteration.
+     * @return true if everything went OK, false if something failed while writing.
+     */
+    public boolean writeIteration(Data<U,I,P> data, Iteration<U,I,P> iteration)
+    {
+        if(this.oos == null || data == null || iteration == null)
+        {
+            return false;
+        }
         try
         {
-            Data<U,I,P> data = simulation.getData();
-            Iteration<U,I,P> iteration = simulation.getIteration(numIter);
-            if(iteration == null)
-            {
-                return false;
-            }
-            
             // Write the iteration number
             oos.writeInt(iteration.getIterationNumber());
             
@@ -299,6 +375,7 @@ public class BinarySimulationWriter<U extends Serializable, I extends Serializab
             {
                 oos.close();
                 oos = null;
+                fos = null;
                 return true;
             } 
             catch (IOException ex) 
@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.io.backup;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.IterationSink;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Simulation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationState;
+import es.uam.eps.ir.socialnetwork.informationpropagation.update.UpdateMechanism;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Incremental backup of a simulation. It is formed by two files, stored in a directory:
+ * <ul>
+ *  <li><b>Log:</b> Append-only file, containing a record for each iteration of the simulation. Each record is
+ *  framed by the number of the iteration and the length of its contents (which follow the format of
+ *  {@link BinarySimulationWriter}), and ends with a CRC32 checksum. The log is synchronized with the disk
+ *  every few iterations.</li>
+ *  <li><b>Snapshot:</b> Periodic copy of the state of the users, along with the position of the log
+ *  up to which it is valid. It is written in a temporary file, which then replaces the previous snapshot.</li>
+ * </ul>
+ * Therefore, storing the backup has a cost proportional to the changes in each iteration, and
+ * resuming the simulation only requires loading the last snapshot and replaying the records written after it.
+ * Incomplete or corrupted records at the end of the log (i.e. the ones written while the simulation was
+ * interrupted) are discarded, as well as every record after them. A record is also discarded when it does
+ * not contain the iteration which follows the previous one.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ * @param <I> Type of the information pieces.
+ * @param <P> Type of the parameters.
+ */
+public class CheckpointLog<U extends Serializable, I extends Serializable, P> implements IterationSink<U,I,P>
+{
+    /**
+     * Name of the log file.
+     */
+    private static final String LOG = "iterations.log";
+    /**
+     * Name of the snapshot file.
+     */
+    private static final String SNAPSHOT = "state.snapshot";
+    /**
+     * Identifier of the snapshot files.
+     */
+    private static final int MAGIC = 0x534E4150;
+    /**
+     * Size of the header of a record (the iteration number and the length of the contents).
+     */
+    private static final int HEADER = 2*Integer.BYTES;
+
+    /**
+     * The log file.
+     */
+    private final File log;
+    /**
+     * The snapshot file.
+     */
+    private final File snapshot;
+    /**
+     * Number of records to write before synchronizing the log with the disk.
+     */
+    private final int syncInterval;
+    /**
+     * The data.
+     */
+    private Data<U,I,P> data;
+    /**
+     * Channel for writing the log.
+     */
+    private FileChannel channel;
+    /**
+     * Buffer for serializing the iterations.
+     */
+    private final ByteArrayOutputStream buffer;
+    /**
+     * Number of records written since the last synchronization.
+     */
+    private int pending;
+    /**
+     * Length of the valid part of the log, found while recovering the simulation (-1 if
+     * the simulation has not been recovered).
+     */
+    private long recoveredLength;
+
+    /**
+     * Constructor.
+     * @param directory the directory where the backup is stored.
+     * @param syncInterval number of iterations to write before synchronizing the log with the disk.
+     */
+    public CheckpointLog(String directory, int syncInterval)
+    {
+        this.log = new File(directory, LOG);
+        this.snapshot = new File(directory, SNAPSHOT);
+        this.syncInterval = Math.max(syncInterval, 1);
+        this.buffer = new ByteArrayOutputStream();
+        this.channel = null;
+        this.recoveredLength = -1L;
+    }
+
+    @Override
+    public boolean initialize(Data<U,I,P> data, int initialNumber)
+    {
+        if(data == null || this.channel != null)
+        {
+            return false;
+        }
+
+        try
+        {
+            this.data = data;
+            this.pending = 0;
+            File directory = this.log.getAbsoluteFile().getParentFile();
+            if(!directory.exists() && !directory.mkdirs())
+            {
+                return false;
+            }
+
+            this.channel = FileChannel.open(this.log.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if(this.recoveredLength < 0)
+            {
+                // A new simulation: the previous backup is removed.
+                this.channel.truncate(0L);
+                Files.deleteIfExists(this.snapshot.toPath());
+            }
+            else
+            {
+                this.channel.truncate(this.recoveredLength);
+            }
+            this.channel.position(this.channel.size());
+            return true;
+        }
+        catch(IOException ex)
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean accept(Iteration<U,I,P> iteration)
+    {
+        if(this.channel == null || iteration == null)
+        {
+            return false;
+        }
+
+        this.buffer.reset();
+        BinarySimulationWriter<U,I,P> writer = new BinarySimulationWriter<>();
+        writer.initialize(this.buffer);
+        if(!writer.writeIteration(this.data, iteration))
+        {
+            return false;
+        }
+
+        byte[] contents = this.buffer.toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(HEADER + contents.length + Long.BYTES);
+        record.putInt(iteration.getIterationNumber());
+        record.putInt(contents.length);
+        record.put(contents);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, HEADER + contents.length);
+        record.putLong(crc.getValue());
+        record.flip();
+
+        try
+        {
+            while(record.hasRemaining())
+            {
+                this.channel.write(record);
+            }
+
+            this.pending++;
+            if(this.pending >= this.syncInterval)
+            {
+                this.channel.force(false);
+                this.pending = 0;
+            }
+            return true;
+        }
+        catch(IOException ex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Stores a snapshot of the state of the simulation. It must be called between iterations,
+     * once all the previous iterations have been written in the log.
+     * @param state the state of the simulation.
+     * @param nextIteration the number of the next iteration to run.
+     * @return true if everything went OK, false otherwise.
+     */
+    public boolean snapshot(SimulationState<U,I,P> state, int nextIteration)
+    {
+        if(this.channel == null)
+        {
+            return false;
+        }
+
+        File tmp = new File(this.snapshot.getPath() + ".tmp");
+        try
+        {
+            // The records covered by the snapshot must be in the disk before the snapshot.
+            this.channel.force(false);
+            this.pending = 0;
+            long length = this.channel.position();
+
+            try(FileOutputStream fos = new FileOutputStream(tmp))
+            {
+                CheckedOutputStream cos = new CheckedOutputStream(new BufferedOutputStream(fos), new CRC32());
+                DataOutputStream out = new DataOutputStream(cos);
+                out.writeInt(MAGIC);
+                out.writeInt(nextIteration);
+                out.writeLong(length);
+                state.writeSnapshot(out, this.data);
+                out.flush();
+                long checksum = cos.getChecksum().getValue();
+                out.writeLong(checksum);
+                out.flush();
+                fos.getFD().sync();
+            }
+
+            Files.move(tmp.toPath(), this.snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        catch(IOException ex)
+        {
+            tmp.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Recovers the state of an interrupted simulation: loads the last valid snapshot, and applies
+     * the iterations written in the log after it. Incomplete or corrupted records at the end of the log
+     * are discarded, and new iterations are written after the last valid one.
+     * @param data the data.
+     * @param state the state of the simulation. It is initialized by this method.
+     * @param upd the update mechanism of the simulation.
+     * @return the number of the next iteration to run.
+     */
+    public int recover(Data<U,I,P> data, SimulationState<U,I,P> state, UpdateMechanism upd)
+    {
+        state.initialize(data);
+        int nextIteration = 0;
+        long offset = 0L;
+        // The number of the next record of the log (negative if it is unknown).
+        int expected = -1;
+
+        // Load the snapshot.
+        if(this.snapshot.exists())
+        {
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.snapshot))))
+            {
+                CheckedInputStream cis = new CheckedInputStream(in, new CRC32());
+                DataInputStream checked = new DataInputStream(cis);
+                if(checked.readInt() == MAGIC)
+                {
+                    int next = checked.readInt();
+                    long length = checked.readLong();
+                    state.readSnapshot(checked, data);
+                    long checksum = cis.getChecksum().getValue();
+                    if(in.readLong() == checksum && length <= this.log.length())
+                    {
+                        nextIteration = next;
+                        offset = length;
+                        expected = next;
+                    }
+                    else
+                    {
+                        state.initialize(data);
+                    }
+                }
+            }
+            catch(IOException ex)
+            {
+                // The snapshot is not valid: the whole log is replayed.
+                state.initialize(data);
+            }
+        }
+
+        // Replay the log.
+        long position = offset;
+        if(this.log.exists())
+        {
+            long logLength = this.log.length();
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.log))))
+            {
+                long skipped = 0L;
+                while(skipped < offset)
+                {
+                    skipped += in.skip(offset - skipped);
+                }
+
+                Record<U,I,P> record;
+                while((record = this.readRecord(in, data, logLength - position, expected)) != null)
+                {
+                    state.apply(record.iteration, data, upd);
+                    nextIteration = record.iteration.getIterationNumber() + 1;
+                    expected = nextIteration;
+                    position += record.length;
+                }
+            }
+            catch(IOException ex)
+            {
+                // The valid part of the log has already been applied.
+            }
+        }
+
+        this.recoveredLength = position;
+        return nextIteration;
+    }
+
+    /**
+     * Reads the simulation stored in the log. Only valid records are read.
+     * @param data the data.
+     * @return the simulation, null if the log cannot be read.
+     */
+    public Simulation<U,I,P> readSimulation(Data<U,I,P> data)
+    {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.log))))
+        {
+            Simulation<U,I,P> simulation = null;
+            long remaining = this.log.length();
+            int expected = -1;
+            Record<U,I,P> record;
+            while((record = this.readRecord(in, data, remaining, expected)) != null)
+            {
+                if(simulation == null)
+                {
+                    simulation = new Simulation<>(data, record.iteration.getIterationNumber());
+                }
+                simulation.addIteration(record.iteration);
+                remaining -= record.length;
+                expected = record.iteration.getIterationNumber() + 1;
+            }
+            return simulation == null ? new Simulation<>(data) : simulation;
+        }
+        catch(IOException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the next record of the log.
+     * @param in the input stream, positioned at the beginning of a record.
+     * @param data the data.
+     * @param remaining the number of bytes of the log from the beginning of the record.
+     * @param expected the number of the iteration the record must contain (negative if any number is valid).
+     * @return the record, null if the record is incomplete or invalid.
+     */
+    private Record<U,I,P> readRecord(DataInputStream in, Data<U,I,P> data, long remaining, int expected)
+    {
+        try
+        {
+            if(remaining < HEADER + Long.BYTES)
+            {
+                return null;
+            }
+            
+            byte[] header = new byte[HEADER];
+            in.readFully(header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            int number = headerBuffer.getInt();
+            int length = headerBuffer.getInt();
+            // A corrupted length must not be used for allocating the contents.
+            if(length < 0 || length > remaining - HEADER - Long.BYTES || (expected >= 0 && number != expected))
+            {
+                return null;
+            }
+
+            byte[] contents = new byte[length];
+            in.readFully(contents);
+            long checksum = in.readLong();
+
+            CRC32 crc = new CRC32();
+            crc.update(header);
+            crc.update(contents);
+            if(crc.getValue() != checksum)
+            {
+                return null;
+            }
+
+            BinarySimulationReader<U,I,P> reader = new BinarySimulationReader<>();
+            reader.initialize(new ByteArrayInputStream(contents));
+            Iteration<U,I,P> iteration = reader.readIteration(data);
+            if(iteration == null || iteration.getIterationNumber() != number)
+            {
+                return null;
+            }
+            return new Record<>(iteration, HEADER + length + Long.BYTES);
+        }
+        catch(IOException ex)
+        {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean close()
+    {
+        if(this.channel == null)
+        {
+            return false;
+        }
+
+        try
+        {
+            this.channel.force(false);
+            this.channel.close();
+            this.channel = null;
+            this.recoveredLength = -1L;
+            return true;
+        }
+        catch(IOException ex)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Record of the log.
+     * @param <U> Type of the users.
+     * @param <I> Type of the information pieces.
+     * @param <P> Type of the parameters.
+     */
+    private static class Record<U extends Serializable, I extends Serializable, P>
+    {
+        /**
+         * The iteration stored in the record.
+         */
+        private final Iteration<U,I,P> iteration;
+        /**
+         * The length of the record, in bytes.
+         */
+        private final long length;
+
+        /**
+         * Constructor.
+         * @param iteration the iteration stored in the record.
+         * @param length the length of the record, in bytes.
+         */
+        public Record(Iteration<U,I,P> iteration, long length)
+        {
+            this.iteration = iteration;
+            this.length = length;
+        }
+    }
+}
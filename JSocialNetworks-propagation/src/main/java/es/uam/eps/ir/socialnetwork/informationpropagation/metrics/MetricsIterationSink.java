@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.metrics;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.IterationSink;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes a set of metrics over a simulation, as its iterations are produced. It obtains
+ * the same values as computing each metric over the whole simulation, but the simulation
+ * does not need to be kept in memory.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ * @param <I> Type of the information pieces.
+ * @param <P> Type of the parameters.
+ */
+public class MetricsIterationSink<U extends Serializable, I extends Serializable, P> implements IterationSink<U,I,P>
+{
+    /**
+     * The metrics to compute, indexed by name.
+     */
+    private final Map<String, SimulationMetric<U,I,P>> metrics;
+    /**
+     * The values of each metric for each iteration.
+     */
+    private final Map<String, List<Double>> values;
+    
+    /**
+     * Constructor.
+     * @param metrics the metrics to compute, indexed by name.
+     */
+    public MetricsIterationSink(Map<String, SimulationMetric<U,I,P>> metrics)
+    {
+        this.metrics = metrics;
+        this.values = new HashMap<>();
+    }
+    
+    @Override
+    public boolean initialize(Data<U,I,P> data, int initialNumber)
+    {
+        if(data == null)
+        {
+            return false;
+        }
+        
+        this.values.clear();
+        this.metrics.forEach((name, metric) -> 
+        {
+            metric.clear();
+            metric.initialize(data);
+            this.values.put(name, new ArrayList<>());
+        });
+        return true;
+    }
+
+    @Override
+    public boolean accept(Iteration<U,I,P> iteration)
+    {
+        if(iteration == null)
+        {
+            return false;
+        }
+        
+        this.metrics.forEach((name, metric) -> 
+        {
+            metric.update(iteration);
+            this.values.get(name).add(metric.calculate());
+        });
+        return true;
+    }
+
+    @Override
+    public boolean close()
+    {
+        return true;
+    }
+    
+    /**
+     * Obtains the values of the metrics for each of the received iterations.
+     * @return the values of each metric, indexed by name.
+     */
+    public Map<String, List<Double>> getValues()
+    {
+        return this.values;
+    }
+}
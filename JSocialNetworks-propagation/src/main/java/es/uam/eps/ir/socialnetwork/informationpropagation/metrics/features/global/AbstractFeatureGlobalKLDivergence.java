@@ -10,6 +10,7 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.glob
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.AbstractFeatureGlobalSimulationMetric;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
+import es.uam.eps.ir.socialnetwork.utils.indexes.IncrementalKLDivergence;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -86,6 +87,10 @@ public abstract class AbstractFeatureGlobalKLDivergence<U extends Serializable,I
      */
     protected double sumP;
     
+    /**
+     * The KL divergence between both distributions, updated as the values change.
+     */
+    protected IncrementalKLDivergence divergence;
     
     /**
      * Indicates if a piece of information is considered once (or each time it appears if false).
@@ -104,6 +109,7 @@ public abstract class AbstractFeatureGlobalKLDivergence<U extends Serializable,I
         super(name + "-" + (unique ? "unique" : "repetitions"), userparam, parameter);
         this.qvalues = new HashMap<>();
         this.pvalues = new HashMap<>();
+        this.divergence = new IncrementalKLDivergence();
         this.unique = unique;
     }
     
@@ -121,8 +127,7 @@ public abstract class AbstractFeatureGlobalKLDivergence<U extends Serializable,I
                 {
                     data.getUserFeatures(creator, this.getParameter()).forEach(p ->
                     {
-                        this.qvalues.put(p.v1, this.qvalues.get(p.v1) + p.v2*val);
-                        this.sumQ += p.v2*val;
+                        this.increase(p.v1, p.v2*val);
                     });
                     
                 });
@@ -140,8 +145,7 @@ public abstract class AbstractFeatureGlobalKLDivergence<U extends Serializable,I
                     {
                         data.getUserFeatures(creator, this.getParameter()).forEach(p ->
                         {
-                            this.qvalues.put(p.v1, this.qvalues.get(p.v1) + p.v2*val);
-                            this.sumQ += p.v2*val;
+                            this.increase(p.v1, p.v2*val);
                         });
 
                     });
@@ -163,8 +167,7 @@ public abstract class AbstractFeatureGlobalKLDivergence<U extends Serializable,I
 
                 data.getInfoPiecesFeatures(i.v1(), this.getParameter()).forEach(p ->
                 {
-                    this.qvalues.put(p.v1, this.qvalues.get(p.v1) + p.v2*val);
-                    this.sumQ += p.v2*val;
+                    this.increase(p.v1, p.v2*val);
                 });
             });
         });
@@ -179,14 +182,29 @@ public abstract class AbstractFeatureGlobalKLDivergence<U extends Serializable,I
 
                     data.getInfoPiecesFeatures(i.v1(), this.getParameter()).forEach(p ->
                     {
-                        this.qvalues.put(p.v1, this.qvalues.get(p.v1) + p.v2*val);
-                        this.sumQ += p.v2*val;
+                        this.increase(p.v1, p.v2*val);
                     });
                 });
             });
         }
     }
     
+    /**
+     * Increases the number of times a parameter has been received.
+     * @param p the parameter.
+     * @param val the increment.
+     */
+    private void increase(P p, double val)
+    {
+        double oldValue = this.qvalues.get(p);
+        double newValue = oldValue + val;
+        this.qvalues.put(p, newValue);
+        this.sumQ += val;
+        
+        double pvalue = this.pvalues.get(p);
+        this.divergence.update(pvalue, oldValue, pvalue, newValue);
+    }
+    
     @Override
     public void clear() 
     {
@@ -194,6 +212,7 @@ public abstract class AbstractFeatureGlobalKLDivergence<U extends Serializable,I
         this.qvalues.clear();
         this.sumP = 0.0;
         this.sumQ = 0.0;
+        this.divergence = new IncrementalKLDivergence();
         this.initialized = false;
     }
     
@@ -248,6 +267,9 @@ public abstract class AbstractFeatureGlobalKLDivergence<U extends Serializable,I
                 });
             }
             
+            this.divergence = new IncrementalKLDivergence();
+            this.pvalues.forEach((p, pvalue) -> this.divergence.add(pvalue, this.qvalues.get(p)));
+            
             this.initialized = true;
         }
     }
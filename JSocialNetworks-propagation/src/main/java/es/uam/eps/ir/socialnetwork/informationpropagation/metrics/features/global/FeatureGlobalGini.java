@@ -10,7 +10,7 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.glob
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.AbstractFeatureGlobalSimulationMetric;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
-import es.uam.eps.ir.socialnetwork.utils.indexes.GiniIndex;
+import es.uam.eps.ir.socialnetwork.utils.indexes.IncrementalGini;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -36,14 +36,9 @@ public class FeatureGlobalGini<U extends Serializable,I extends Serializable,P>
     private final Map<P,Double> values;
     
     /**
-     * The total number of external parameters that have reached the different users.
+     * The Gini index of the times each parameter has been received, updated as they change.
      */
-    private double sum;
-    
-    /**
-     * The number of different parameters.
-     */
-    private int count;    
+    private IncrementalGini gini;
     
     /**
      * Indicates if a piece of information is considered once (or each time it appears if false).
@@ -61,6 +56,7 @@ public class FeatureGlobalGini<U extends Serializable,I extends Serializable,P>
         super(GLOBALGINI + "-" + (userparam ? "user" : "info") + "-" + parameter + "-" + (unique ? "unique" : "repetitions"), userparam, parameter);
         
         this.values = new HashMap<>();
+        this.gini = new IncrementalGini();
         this.unique = unique;
     }
 
@@ -70,8 +66,7 @@ public class FeatureGlobalGini<U extends Serializable,I extends Serializable,P>
         if(!this.isInitialized())
             return Double.NaN;
         
-        GiniIndex giniIndex = new GiniIndex();
-        return 1.0 - giniIndex.compute(this.values.values().stream(), true, count, sum);
+        return 1.0 - this.gini.getValue();
     }
     
     @Override
@@ -88,8 +83,7 @@ public class FeatureGlobalGini<U extends Serializable,I extends Serializable,P>
                 {
                     data.getUserFeatures(creator, this.getParameter()).forEach(p ->
                     {
-                        this.values.put(p.v1, this.values.get(p.v1) + p.v2*val);
-                        this.sum += p.v2*val;
+                        this.increase(p.v1, p.v2*val);
                     });
                 });
             });
@@ -106,8 +100,7 @@ public class FeatureGlobalGini<U extends Serializable,I extends Serializable,P>
                     {
                         data.getUserFeatures(creator, this.getParameter()).forEach(p ->
                         {
-                            this.values.put(p.v1, this.values.get(p.v1) + p.v2*val);
-                            this.sum += p.v2*val;
+                            this.increase(p.v1, p.v2*val);
                         });
                     });
                 });
@@ -127,8 +120,7 @@ public class FeatureGlobalGini<U extends Serializable,I extends Serializable,P>
                 double val = (unique ? 1.0 : i.v2().size());
                 data.getInfoPiecesFeatures(i.v1(), this.getParameter()).forEach(p ->
                 {
-                    this.values.put(p.v1, this.values.get(p.v1) + p.v2);
-                    this.sum += p.v2;
+                    this.increase(p.v1, p.v2);
                 });
             });
         });
@@ -140,19 +132,30 @@ public class FeatureGlobalGini<U extends Serializable,I extends Serializable,P>
                 double val = (unique ? 1.0 : i.v2().size());
                 data.getInfoPiecesFeatures(i.v1(), this.getParameter()).forEach(p ->
                 {
-                    this.values.put(p.v1, this.values.get(p.v1) + p.v2);
-                    this.sum += p.v2;
+                    this.increase(p.v1, p.v2);
                 });
             });
         });
     }
     
+    /**
+     * Increases the number of times a parameter has been received.
+     * @param p the parameter.
+     * @param val the increment.
+     */
+    private void increase(P p, double val)
+    {
+        double oldValue = this.values.get(p);
+        double newValue = oldValue + val;
+        this.values.put(p, newValue);
+        this.gini.update(oldValue, newValue);
+    }
+    
     @Override
     public void clear() 
     {
         this.values.clear();
-        this.count = 0;
-        this.sum = 0.0;
+        this.gini = new IncrementalGini();
         this.initialized = false;
     }
     
@@ -163,8 +166,8 @@ public class FeatureGlobalGini<U extends Serializable,I extends Serializable,P>
         if(!this.isInitialized())
         {
             data.getAllFeatureValues(this.getParameter()).forEach(p -> this.values.put(p, 0.0));
-            this.count = this.values.size();
-            this.sum = 0.0;
+            this.gini = new IncrementalGini();
+            this.gini.add(0.0, this.values.size());
             this.initialized = true;
         }
     }
@@ -8,9 +8,7 @@
  */
 package es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.global;
 
-import es.uam.eps.ir.socialnetwork.utils.indexes.KLDivergence;
 import java.io.Serializable;
-import java.util.stream.Stream;
 
 /**
  * This global metric computes the number of bytes of information we expect to lose
@@ -48,10 +46,6 @@ public class FeatureGlobalKLDivergenceInverse<U extends Serializable,I extends S
         if(!this.isInitialized())
             return Double.NaN;
         
-        KLDivergence kldiv = new KLDivergence();
-        Stream<Double> pdistr = this.data.getAllFeatureValues(this.getParameter()).map(p -> this.pvalues.get(p));
-        Stream<Double> qdistr = this.data.getAllFeatureValues(this.getParameter()).map(q -> this.qvalues.get(q));
-        
-        return kldiv.compute(qdistr, pdistr, this.sumQ, this.sumP);
+        return this.divergence.getInverseValue();
     }
 }
@@ -10,10 +10,10 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.glob
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.AbstractFeatureGlobalSimulationMetric;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
+import es.uam.eps.ir.socialnetwork.utils.indexes.IncrementalGini;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeSet;
 
 /**
  * Computes the Gini coefficient complement over the set of pairs (user, hashtag).
@@ -35,9 +35,9 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
     private double freqsum = 0.0;
     
     /**
-     * Main sum for the Gini coefficient.
+     * Gini coefficient of the frequencies of the pairs, updated as they change.
      */
-    private double mainsum = 0.0;
+    private IncrementalGini gini = new IncrementalGini();
     /**
      * Total number of pairs.
      */
@@ -46,18 +46,6 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
      * Map for storing the frequency of the user/feature pairs.
      */
     private final Map<U, Map<P, Double>> frequencies;
-    /**
-     * Auxiliar map for computing Gini coefficient (contains the minimum position for each frequency).
-     */
-    private final Map<Double, Long> minimumPos;
-    /**
-     * Auxiliar map for computing Gini coefficient (contains the maximum position for each frequency).
-     */
-    private final Map<Double, Long> maximumPos;
-    /**
-     * Auxiliar set containing the possible values
-     */
-    private final TreeSet<Double> values;
     
     /**
      * Indicates if a piece of information is considered once (or each time it appears if false).
@@ -75,9 +63,6 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
         super(GINI + "-" + (userparam ? "user" : "info") + "-" + parameter + "-" + (unique ? "unique" : "repetitions"), userparam, parameter);
         
         this.frequencies = new HashMap<>();
-        this.minimumPos = new HashMap<>();
-        this.maximumPos = new HashMap<>();
-        this.values = new TreeSet<>();
         this.unique = unique;
     }
 
@@ -95,28 +80,8 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
                 {
                     data.getUserFeatures(creator, this.getParameter()).forEach(p -> 
                     {
-                        double oldfreq = frequencies.get(u).get(p.v1);
-                        double newfreq = oldfreq + p.v2*val;
-
-                        double increase = this.increaseOld(oldfreq);
-                        increase += this.increaseNew(newfreq);
-                        
-                        Double cursor = oldfreq;
-                        do
-                        {
-                            cursor = this.values.higher(cursor);
-                            if(cursor != null && cursor < newfreq)
-                            {
-                                increase += this.increaseIntermediate(cursor);
-                                
-                            }
-                        }
-                        while(cursor != null && cursor < newfreq);
-                        
-                        this.frequencies.get(u).put(p.v1, newfreq);
-                        
+                        this.update(u, p.v1, p.v2*val);
                         this.freqsum += p.v2;
-                        this.mainsum += increase;
                     });
                 });
             });
@@ -130,28 +95,8 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
                     {
                         data.getUserFeatures(creator, this.getParameter()).forEach(p -> 
                         {
-                            double oldfreq = frequencies.get(u).get(p.v1);
-                            double newfreq = oldfreq + p.v2*val;
-
-                            double increase = this.increaseOld(oldfreq);
-                            increase += this.increaseNew(newfreq);
-
-                            Double cursor = oldfreq;
-                            do
-                            {
-                                cursor = this.values.higher(cursor);
-                                if(cursor != null && cursor < newfreq)
-                                {
-                                    increase += this.increaseIntermediate(cursor);
-
-                                }
-                            }
-                            while(cursor != null && cursor < newfreq);
-
-                            this.frequencies.get(u).put(p.v1, newfreq);
-
+                            this.update(u, p.v1, p.v2*val);
                             this.freqsum += p.v2;
-                            this.mainsum += increase;
                         });
                     });
                 });
@@ -171,30 +116,8 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
                 double val = (unique ? 1.0 : i.v2().size());
                 data.getInfoPiecesFeatures(i.v1(), this.getParameter()).forEach(p -> 
                 {
-                    double oldfreq = frequencies.get(u).get(p.v1);
-                    double newfreq = oldfreq + p.v2*val;
-                    double increase = this.increaseOld(oldfreq);
-
-                    Double cursor = oldfreq;
-                    do
-                    {
-                        cursor = this.values.higher(cursor);
-                        if(cursor != null && cursor < newfreq)
-                        {
-                            increase += this.increaseIntermediate(cursor);
-
-                        }
-                    }
-                    while(cursor != null && cursor < newfreq);
-                    
-                    increase += this.increaseNew(newfreq);
-
-                    
-
-                    this.frequencies.get(u).put(p.v1, newfreq);
-
+                    this.update(u, p.v1, p.v2*val);
                     this.freqsum += p.v2;
-                    this.mainsum += increase;
                 });
             });
             
@@ -205,30 +128,8 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
                     double val = i.v2().size();
                     data.getInfoPiecesFeatures(i.v1(), this.getParameter()).forEach(p -> 
                     {
-                        double oldfreq = frequencies.get(u).get(p.v1);
-                        double newfreq = oldfreq + p.v2*val;
-                        double increase = this.increaseOld(oldfreq);
-
-                        Double cursor = oldfreq;
-                        do
-                        {
-                            cursor = this.values.higher(cursor);
-                            if(cursor != null && cursor < newfreq)
-                            {
-                                increase += this.increaseIntermediate(cursor);
-
-                            }
-                        }
-                        while(cursor != null && cursor < newfreq);
-
-                        increase += this.increaseNew(newfreq);
-
-
-
-                        this.frequencies.get(u).put(p.v1, newfreq);
-
+                        this.update(u, p.v1, p.v2*val);
                         this.freqsum += p.v2;
-                        this.mainsum += increase;
                     });
                 });
             }
@@ -241,9 +142,6 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
         if(this.initialized == false && this.data.doesFeatureExist(this.getParameter()) && this.data.isUserFeature(this.getParameter()) == this.usesUserParam())
         {
             this.frequencies.clear();
-            this.minimumPos.clear();
-            this.maximumPos.clear();
-            this.values.clear();
             
             this.size = this.data.getAllUsers().count()*this.data.getAllFeatureValues(this.getParameter()).count();
 
@@ -257,13 +155,11 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
                 });
                 this.frequencies.put(u, feats);
                 this.freqsum = 0.0;
-                this.mainsum = 0.0;
             });
             
             // At first, no one has elements.
-            this.minimumPos.put(0.0, 1L);
-            this.maximumPos.put(0.0, this.size);
-            this.values.add(0.0);
+            this.gini = new IncrementalGini();
+            this.gini.add(0.0, this.size);
             this.initialized = true;
         }
     }
@@ -274,7 +170,7 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
         if(this.freqsum == 0.0 || this.size <= 1L)
             return Double.NaN;
         else
-            return 1.0 - this.mainsum/(this.freqsum * (this.size - 1.0));
+            return 1.0 - this.gini.getDifferenceSum()/(this.freqsum * (this.size - 1.0));
     }
 
     @Override
@@ -283,10 +179,7 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
         if(this.initialized == true)
         {
             this.frequencies.clear();
-            this.minimumPos.clear();
-            this.maximumPos.clear();
-            this.values.clear();
-            this.mainsum = 0.0;
+            this.gini = new IncrementalGini();
             this.freqsum = 0.0;
             this.initialized = false;
         }
@@ -294,80 +187,16 @@ public class UserFeatureGini<U extends Serializable,I extends Serializable,P> ex
 
     
     /**
-     * Computes the increment for old frequencies.
-     * @param oldfreq old frequency.
-     * @return the variation for the old frequency.
-     */
-    private double increaseOld(double oldfreq) 
-    {
-        long oldMax = maximumPos.get(oldfreq);
-        long oldMin = minimumPos.get(oldfreq);    
-        
-
-        if(oldMax <= oldMin) //It should only be greater or equal, but we add < for safety
-        {
-            maximumPos.remove(oldfreq);
-            minimumPos.remove(oldfreq);
-            this.values.remove(oldfreq);
-        }
-        else
-        {
-            maximumPos.put(oldfreq, oldMax-1);
-        }
-        
-        return oldfreq*(this.size + 1 - 2*oldMax);
-
-        
-    }
-    
-    /**
-     * Computes the increment for new frequencies.
-     * @param newfreq new frequency.
-     * @return the variation for the new frequency.
-     */
-    private double increaseNew(double newfreq)
-    {
-        double increase;
-        // Modify the corresponding values for the new frequency
-        if(maximumPos.containsKey(newfreq))
-        {
-            long newMin = minimumPos.get(newfreq);
-
-            increase = newfreq*(2*newMin - this.size - 3);
-
-            minimumPos.put(newfreq, newMin - 1);
-        }
-        else
-        {
-            double prev = this.values.lower(newfreq);
-
-            long newMax = this.maximumPos.get(prev) + 1;
-            long newMin = newMax;
-
-            increase = newfreq*(2*newMax - this.size - 1);
-
-            minimumPos.put(newfreq, newMin);
-            maximumPos.put(newfreq, newMax);
-            this.values.add(newfreq);
-        }
-        
-        return increase;
-    }
-    
-    /**
-     * Computes the increment for frequencies between old and new.
-     * @param freq new frequency.
-     * @return the variation for the new frequency.
+     * Updates the frequency of a pair (user, feature).
+     * @param u the user.
+     * @param p the feature.
+     * @param increment the increment of the frequency.
      */
-    private double increaseIntermediate(double freq)
+    private void update(U u, P p, double increment)
     {
-        long intMax = maximumPos.get(freq);
-        long intMin = minimumPos.get(freq);
-
-        maximumPos.put(freq, intMax-1);
-        minimumPos.put(freq, intMin-1);
-        
-        return freq * (2*intMin - 2*intMax - 2);
+        double oldfreq = this.frequencies.get(u).get(p);
+        double newfreq = oldfreq + increment;
+        this.gini.update(oldfreq, newfreq);
+        this.frequencies.get(u).put(p, newfreq);
     }
-    
-}
+}
\ No newline at end of file
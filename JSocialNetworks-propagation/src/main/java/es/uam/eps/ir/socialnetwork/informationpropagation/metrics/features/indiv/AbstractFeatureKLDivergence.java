@@ -10,6 +10,7 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.indi
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.AbstractFeatureIndividualSimulationMetric;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
+import es.uam.eps.ir.socialnetwork.utils.indexes.IncrementalKLDivergence;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -87,6 +88,11 @@ public abstract class AbstractFeatureKLDivergence<U extends Serializable,I exten
      */
     protected double sumP;
     
+    /**
+     * For each user, the KL divergence between both distributions, updated as the values change.
+     */
+    protected final Map<U, IncrementalKLDivergence> divergence;
+    
     /**
      * Indicates if a piece of information is considered once (or each time it appears if false).
      */
@@ -105,6 +111,7 @@ public abstract class AbstractFeatureKLDivergence<U extends Serializable,I exten
         this.qvalues = new HashMap<>();
         this.pvalues = new HashMap<>();
         this.sumQ = new HashMap<>();
+        this.divergence = new HashMap<>();
         this.unique = unique;
     }
     
@@ -128,8 +135,7 @@ public abstract class AbstractFeatureKLDivergence<U extends Serializable,I exten
                 {
                     data.getUserFeatures(creator, this.getParameter()).forEach(p ->
                     {
-                        this.qvalues.get(p.v1).put(u, this.qvalues.get(p.v1).get(u) + p.v2*val);
-                        this.sumQ.put(u, this.sumQ.get(u) + p.v2*val);
+                        this.increase(u, p.v1, p.v2*val);
                     });
                     
                 });
@@ -150,8 +156,7 @@ public abstract class AbstractFeatureKLDivergence<U extends Serializable,I exten
                     {
                         data.getUserFeatures(creator, this.getParameter()).forEach(p -> 
                         {
-                            this.qvalues.get(p.v1).put(u, this.qvalues.get(p.v1).get(u) + p.v2*val);
-                            this.sumQ.put(u, this.sumQ.get(u) + p.v2*val);
+                            this.increase(u, p.v1, p.v2*val);
                         });
                     });
                 });
@@ -172,8 +177,7 @@ public abstract class AbstractFeatureKLDivergence<U extends Serializable,I exten
                 
                 data.getInfoPiecesFeatures(i.v1(), this.getParameter()).forEach(p ->
                 {
-                    this.qvalues.get(p.v1).put(u, this.qvalues.get(p.v1).get(u) + p.v2*val);
-                    this.sumQ.put(u, this.sumQ.get(u) + p.v2*val);
+                    this.increase(u, p.v1, p.v2*val);
                 });
             });
         });
@@ -188,14 +192,30 @@ public abstract class AbstractFeatureKLDivergence<U extends Serializable,I exten
                     
                     data.getInfoPiecesFeatures(i.v1(), this.getParameter()).forEach(p -> 
                     {
-                        this.qvalues.get(p.v1).put(u, this.qvalues.get(p.v1).get(u) + p.v2*val);
-                        this.sumQ.put(u, this.sumQ.get(u) + p.v2*val);
+                        this.increase(u, p.v1, p.v2*val);
                     });
                 });
             });
         }
     }
     
+    /**
+     * Increases the number of times a parameter has been received by a user.
+     * @param u the user.
+     * @param p the parameter.
+     * @param val the increment.
+     */
+    private void increase(U u, P p, double val)
+    {
+        double oldValue = this.qvalues.get(p).get(u);
+        double newValue = oldValue + val;
+        this.qvalues.get(p).put(u, newValue);
+        this.sumQ.put(u, this.sumQ.get(u) + val);
+        
+        double pvalue = this.pvalues.get(p);
+        this.divergence.get(u).update(pvalue, oldValue, pvalue, newValue);
+    }
+    
     @Override
     public void clear() 
     {
@@ -203,6 +223,7 @@ public abstract class AbstractFeatureKLDivergence<U extends Serializable,I exten
         this.qvalues.clear();
         this.sumP = 0.0;
         this.sumQ.clear();
+        this.divergence.clear();
         this.initialized = false;
     }
     
@@ -249,6 +270,15 @@ public abstract class AbstractFeatureKLDivergence<U extends Serializable,I exten
                 });
             }
             
+            // Initialize the divergences (at first, the received distribution is uniform).
+            this.divergence.clear();
+            data.getAllUsers().forEach(u -> 
+            {
+                IncrementalKLDivergence div = new IncrementalKLDivergence();
+                this.pvalues.values().forEach(pvalue -> div.add(pvalue, 1.0));
+                this.divergence.put(u, div);
+            });
+            
             this.initialized = true;
         }
     }
@@ -11,7 +11,7 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.indi
 import es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.AbstractFeatureIndividualSimulationMetric;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimpleIteration;
-import es.uam.eps.ir.socialnetwork.utils.indexes.Entropy;
+import es.uam.eps.ir.socialnetwork.utils.indexes.IncrementalEntropy;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -43,14 +43,10 @@ public class FeatureEntropy<U extends Serializable,I extends Serializable,P> ext
     private final static String ENTROPY = "feat-entropy";
        
     /**
-     * For each user, this map register the total number of times each user it has received 
-     * a parameter value. Ex: f there are four possible parameter values, A, B, C and D, and,
-     * for user u, value A has been received thrice (1 in iteration 1, 2 in iteration 3) , value
-     * B has been received once (in iteration 2), value C has not been received, and value
-     * D has been received five times (3 in iteration 2 and 2 in iteration 4), the value of this
-     * map for user u will be equal to 3+1+0+5=9.
+     * For each user, the entropy of the number of times each parameter value has been received,
+     * updated as the values change.
      */
-    private final Map<U, Double> sum;
+    private final Map<U, IncrementalEntropy> entropy;
     
     /**
      * For each user, registers the number of times each parameter value has been received. Ex: 
@@ -81,7 +77,7 @@ public class FeatureEntropy<U extends Serializable,I extends Serializable,P> ext
     public FeatureEntropy(String parameter,boolean userparam, boolean unique) 
     {
         super(ENTROPY + "-" + (userparam ? "user" : "info") + "-" + parameter + "-" + (unique ? "unique" : "repetitions"), userparam, parameter);
-        this.sum = new HashMap<>();
+        this.entropy = new HashMap<>();
         this.indivParamCounter = new HashMap<>();
         this.unique = unique;
     }
@@ -182,7 +178,7 @@ public class FeatureEntropy<U extends Serializable,I extends Serializable,P> ext
             double oldValue = indiv.getOrDefault(p, 0.0);
             double newValue = oldValue + aux.get(p);
 
-            this.sum.put(u, this.sum.get(u) + newValue - oldValue);
+            this.entropy.get(u).update(oldValue, newValue);
             indiv.put(p, newValue);
         });
     }
@@ -192,8 +188,7 @@ public class FeatureEntropy<U extends Serializable,I extends Serializable,P> ext
     {
         if(this.isInitialized() && this.data.containsUser(user))
         {
-            Entropy entropy = new Entropy();
-            return entropy.compute(this.indivParamCounter.get(user).values().stream(), this.sum.get(user));
+            return this.entropy.get(user).getValue();
         }
         
         return Double.NaN;
@@ -203,7 +198,7 @@ public class FeatureEntropy<U extends Serializable,I extends Serializable,P> ext
     public void clear() 
     {
         this.indivParamCounter.clear();
-        this.sum.clear();
+        this.entropy.clear();
         this.count = 0;
         this.initialized = false;
     }
@@ -221,7 +216,7 @@ public class FeatureEntropy<U extends Serializable,I extends Serializable,P> ext
                 data.getAllFeatureValues(this.getParameter()).forEach(p -> indiv.put(p, 0.0));
                 this.indivParamCounter.put(u, indiv);
                 
-                this.sum.put(u, 0.0);
+                this.entropy.put(u, new IncrementalEntropy());
             });
             this.initialized = true;
         }
@@ -10,12 +10,10 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.indi
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.AbstractFeatureIndividualSimulationMetric;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
-import it.unimi.dsi.fastutil.doubles.Double2IntMap;
-import it.unimi.dsi.fastutil.doubles.Double2IntOpenHashMap;
+import es.uam.eps.ir.socialnetwork.utils.indexes.IncrementalGini;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.TreeSet;
 
 /**
  * Computes the proportion of different parameters which have been received by each
@@ -45,21 +43,11 @@ public class FeatureGini<U extends Serializable,I extends Serializable,P> extend
     private final static String GINI = "feat-gini";
        
     /**
-     * For each user, this map register the total number of times each user it has received 
-     * a parameter value. Ex: f there are four possible parameter values, A, B, C and D, and,
-     * for user u, value A has been received thrice (1 in iteration 1, 2 in iteration 3) , value
-     * B has been received once (in iteration 2), value C has not been received, and value
-     * D has been received five times (3 in iteration 2 and 2 in iteration 4), the value of this
-     * map for user u will be equal to 3+1+0+5=9.
+     * For each user, the Gini index of the number of times each parameter value has been received,
+     * updated as the frequencies change. It also keeps the total number of times each user has received
+     * a parameter value.
      */
-    private final Map<U, Double> sum;
-    
-    /**
-     * For each user, registers the number of parameters with a certain frequency of appearance. Ex:
-     * if value A appears 3.0 times, value B appears 3.0 times, and value C appears twice, the map
-     * contains pairs (3.0,2) and (2.0,1).
-     */
-    private final Map<U, Double2IntMap> paramCounter;
+    private final Map<U, IncrementalGini> gini;
     
     /**
      * For each user, registers the number of times each parameter value has been received. Ex: 
@@ -91,8 +79,7 @@ public class FeatureGini<U extends Serializable,I extends Serializable,P> extend
     {
         super(GINI + "-" + (userparam ? "user" : "info") + "-" + parameter + "-" + (unique ? "unique" : "repetitions"), userparam, parameter);
         
-        this.sum = new HashMap<>();
-        this.paramCounter = new HashMap<>();
+        this.gini = new HashMap<>();
         this.indivParamCounter = new HashMap<>();
         this.unique = unique;
     }
@@ -185,28 +172,20 @@ public class FeatureGini<U extends Serializable,I extends Serializable,P> extend
     }
     
     /**
-     * Internal function for updating the individual and counter maps.
+     * Internal function for updating the individual maps and the Gini indexes.
      * @param u the user
      * @param aux an auxiliary map containing the new increments of several parameters for user u.
      */
     private void updateMap(U u, Map<P, Double> aux)
     {
-        Double2IntMap pcount = this.paramCounter.get(u);
+        IncrementalGini ugini = this.gini.get(u);
         
         aux.keySet().forEach(p -> 
         {
             double oldValue = this.indivParamCounter.get(p).getOrDefault(u, 0.0);
             double newValue = oldValue + aux.get(p);
-                
-            this.sum.put(u, this.sum.get(u) + newValue - oldValue);
-                
-            pcount.put(oldValue, pcount.get(oldValue) - 1);
-            if(pcount.get(oldValue) <= 0) 
-            {
-                pcount.remove(oldValue);
-            }
-                
-            pcount.put(newValue, pcount.getOrDefault(newValue, 0) + 1);
+            
+            ugini.update(oldValue, newValue);
             this.indivParamCounter.get(p).put(u, newValue);
         });
     }
@@ -219,36 +198,20 @@ public class FeatureGini<U extends Serializable,I extends Serializable,P> extend
             return Double.NaN;
         }
         
-        Double2IntMap counter = this.paramCounter.get(user);
-        double gini = 0.0;
-        double auxsum = this.sum.get(user);
-        
-        if(auxsum == 0.0)
+        IncrementalGini ugini = this.gini.get(user);
+        if(ugini.getSum() == 0.0)
         {
             return 0.0;
         }
         
-        TreeSet<Double> list = new TreeSet<>(counter.keySet());
-        double min;
-        double max = 0.0;
-        
-        for(double num : list)
-        {
-            min = max + 1;
-            max = min + counter.get(num) - 1;
-            gini += num*(max - min + 1.0)*(max + min - this.count - 1);
-        }
-        
-        return 1.0 - gini/((this.count - 1)*auxsum);
-    
+        return 1.0 - ugini.getValue();
     }
 
     @Override
     public void clear() 
     {
         this.indivParamCounter.clear();
-        this.paramCounter.clear();
-        this.sum.clear();
+        this.gini.clear();
         this.count = 0;
         this.initialized = false;
     }
@@ -269,14 +232,10 @@ public class FeatureGini<U extends Serializable,I extends Serializable,P> extend
                     
             data.getAllUsers().forEach(u -> 
             {
-                this.sum.put(u, 0.0);
-
-                // Initialize the counter map:
-                Double2IntMap pcount = new Double2IntOpenHashMap();
-                pcount.defaultReturnValue(0);
-                pcount.put(0.0, this.count);
-                this.paramCounter.put(u, pcount);
-                
+                // Initialize the Gini index: all the values have not been received yet.
+                IncrementalGini ugini = new IncrementalGini();
+                ugini.add(0.0, this.count);
+                this.gini.put(u, ugini);
             });
             this.initialized = true;
         }
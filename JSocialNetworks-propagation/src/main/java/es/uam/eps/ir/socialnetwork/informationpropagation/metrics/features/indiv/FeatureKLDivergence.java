@@ -8,12 +8,7 @@
  */
 package es.uam.eps.ir.socialnetwork.informationpropagation.metrics.features.indiv;
 
-import es.uam.eps.ir.socialnetwork.utils.indexes.KLDivergence;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * This individual metric computes the number of bytes of information we expect to lose
@@ -56,12 +51,6 @@ public class FeatureKLDivergence<U extends Serializable,I extends Serializable,P
         if(!this.isInitialized())
             return Double.NaN;
         
-        KLDivergence kldiv = new KLDivergence();
-        List<P> features = this.data.getAllFeatureValues(this.getParameter()).collect(Collectors.toCollection(ArrayList::new));
-        
-        Stream<Double> pdistr = features.stream().map(p -> this.pvalues.get(p));
-        Stream<Double> qdistr = features.stream().map(p -> this.qvalues.get(p).get(user));
-        
-        return kldiv.compute(pdistr, qdistr, this.sumP, this.sumQ.get(user));
+        return this.divergence.get(user).getValue();
     }
 }
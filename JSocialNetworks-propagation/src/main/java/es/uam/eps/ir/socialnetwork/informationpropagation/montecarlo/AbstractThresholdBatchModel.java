@@ -0,0 +1,148 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.Serializable;
+
+/**
+ * Batched version of the threshold models: a user is activated when the number of users it has received the piece 
+ * from reaches a threshold.
+ * 
+ * The counters of the users are bit-sliced: for each user, the i-th bit of the counter of every replica of the 
+ * block is stored in a single bit mask, so a new sender is added to every replica with a few bitwise operations.
+ * The thresholds are stored in the same way, so they can be different for each replica.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public abstract class AbstractThresholdBatchModel<U extends Serializable> extends BatchCascadeModel<U>
+{
+    /**
+     * Constructor.
+     * @param graph the network.
+     */
+    public AbstractThresholdBatchModel(CascadeGraph<U> graph)
+    {
+        super(graph);
+    }
+    
+    @Override
+    protected void cascade(Cascade cascade)
+    {
+        // Counters and thresholds of the users which have received the piece.
+        Int2ObjectOpenHashMap<long[]> counters = new Int2ObjectOpenHashMap<>();
+        IntArrayList touched = new IntArrayList();
+        
+        while(!cascade.isFinished())
+        {
+            for(int i = 0; i < cascade.frontierSize(); ++i)
+            {
+                int u = cascade.frontierUser(i);
+                long mask = cascade.frontierMask(u);
+                for(int pos = this.graph.start(u); pos < this.graph.end(u); ++pos)
+                {
+                    int v = this.graph.follower(pos);
+                    long candidates = mask & cascade.inactive(v);
+                    if(candidates != 0L)
+                    {
+                        long[] planes = counters.get(v);
+                        if(planes == null)
+                        {
+                            planes = this.initialize(v, cascade);
+                            counters.put(v, planes);
+                        }
+                        add(planes, candidates);
+                        touched.add(v);
+                    }
+                }
+            }
+            
+            for(int i = 0; i < touched.size(); ++i)
+            {
+                int v = touched.getInt(i);
+                cascade.activate(v, reached(counters.get(v)) & cascade.inactive(v));
+            }
+            touched.clear();
+            cascade.advance();
+        }
+    }
+    
+    /**
+     * Obtains the threshold of a user in a replica.
+     * @param uidx the identifier of the user.
+     * @param rnd a uniform random number in [0,1), fixed for the user and the replica.
+     * @return the minimum number of senders for activating the user.
+     */
+    protected abstract int getThreshold(int uidx, double rnd);
+    
+    /**
+     * Builds the bit-sliced counter of a user, along with its thresholds.
+     * @param uidx the identifier of the user.
+     * @param cascade the state of the replicas of the block.
+     * @return the bit planes of the counter (first half) and the threshold (second half).
+     */
+    private long[] initialize(int uidx, Cascade cascade)
+    {
+        // Thresholds above the number of senders cannot be reached, so they are stored as that number plus one.
+        int max = this.graph.getNumSenders(uidx) + 1;
+        int width = Integer.SIZE - Integer.numberOfLeadingZeros(max);
+        long[] planes = new long[2*width];
+        for(long remaining = cascade.getLanes(); remaining != 0L; remaining &= remaining - 1L)
+        {
+            long lane = remaining & -remaining;
+            int threshold = Math.min(max, Math.max(1, this.getThreshold(uidx, cascade.uniform(lane, uidx))));
+            for(int b = 0; b < width; ++b)
+            {
+                if(((threshold >>> b) & 1) != 0)
+                {
+                    planes[width + b] |= lane;
+                }
+            }
+        }
+        return planes;
+    }
+    
+    /**
+     * Adds one to the bit-sliced counter of a user in some replicas.
+     * @param planes the bit planes of the counter and the threshold.
+     * @param mask the bit mask of the replicas.
+     */
+    private static void add(long[] planes, long mask)
+    {
+        int width = planes.length/2;
+        long carry = mask;
+        for(int b = 0; b < width && carry != 0L; ++b)
+        {
+            long aux = planes[b] & carry;
+            planes[b] ^= carry;
+            carry = aux;
+        }
+    }
+    
+    /**
+     * Finds the replicas where the counter of a user has reached its threshold.
+     * @param planes the bit planes of the counter and the threshold.
+     * @return the bit mask of the replicas.
+     */
+    private static long reached(long[] planes)
+    {
+        int width = planes.length/2;
+        long greater = 0L;
+        long equal = -1L;
+        for(int b = width - 1; b >= 0; --b)
+        {
+            long count = planes[b];
+            long threshold = planes[width + b];
+            greater |= equal & count & ~threshold;
+            equal &= ~(count ^ threshold);
+        }
+        return greater | equal;
+    }
+}
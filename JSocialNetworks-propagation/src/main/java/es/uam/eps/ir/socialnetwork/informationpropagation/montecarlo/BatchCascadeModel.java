@@ -0,0 +1,392 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Runs many Monte Carlo replicas of a cascade model at once, as a fast alternative to the repeated execution
+ * of the general simulator for estimating the spread of a single piece from a set of seed users.
+ * 
+ * The replicas are run in blocks of 64: the state of each user in a block is a bit mask, with one bit per replica,
+ * so the propagation of a piece between two users is computed for every replica of the block with a few bitwise
+ * operations. Blocks are run in parallel.
+ * 
+ * Random outcomes are not drawn from a sequential generator: the outcome of each random event of the model (the
+ * coin of an edge, the threshold of a user) in a replica is derived from a hash of the seed, the replica and the event.
+ * Therefore, the result only depends on the seed and the number of replicas and, for a given seed, the same replica
+ * of two estimations with different seed users samples the same outcomes (common random numbers).
+ * 
+ * Coins are drawn for the 64 replicas of a block at once: each hashed word provides one random bit for every replica,
+ * and the bits are compared with the binary expansion of the probability. As each word settles half of the pending
+ * replicas, a coin costs about eight hashes, whatever the number of replicas in the block. Uniform numbers (used for
+ * the thresholds) are drawn for each replica separately, once for each user reached in the block.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public abstract class BatchCascadeModel<U extends Serializable>
+{
+    /**
+     * Increment of the SplitMix64 generator.
+     */
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    
+    /**
+     * The network.
+     */
+    protected final CascadeGraph<U> graph;
+    /**
+     * Bit masks of each thread, reused between blocks.
+     */
+    private final ThreadLocal<Cascade> cascades;
+    
+    /**
+     * Constructor.
+     * @param graph the network.
+     */
+    public BatchCascadeModel(CascadeGraph<U> graph)
+    {
+        this.graph = graph;
+        this.cascades = ThreadLocal.withInitial(() -> new Cascade(graph.numUsers()));
+    }
+    
+    /**
+     * Estimates the spread of a piece.
+     * @param seeds the users who own the piece.
+     * @param numReplicas the number of Monte Carlo replicas.
+     * @param seed the random seed.
+     * @return the result of the replicas.
+     */
+    public BatchCascadeResult<U> estimate(Collection<U> seeds, int numReplicas, long seed)
+    {
+        int[] seedIdxs = seeds.stream().filter(graph::containsUser).mapToInt(graph::object2idx).distinct().toArray();
+        return this.estimate(seedIdxs, numReplicas, seed);
+    }
+    
+    /**
+     * Estimates the spread of a piece.
+     * @param seeds the identifiers of the users who own the piece.
+     * @param numReplicas the number of Monte Carlo replicas.
+     * @param seed the random seed.
+     * @return the result of the replicas.
+     */
+    public BatchCascadeResult<U> estimate(int[] seeds, int numReplicas, long seed)
+    {
+        int numBlocks = (numReplicas + Long.SIZE - 1) / Long.SIZE;
+        
+        long[] counts = new long[this.graph.numUsers()];
+        int[] spreads = new int[numReplicas];
+        IntStream.range(0, numBlocks).parallel().forEach(block -> 
+        {
+            int width = Math.min(Long.SIZE, numReplicas - block*Long.SIZE);
+            long lanes = width == Long.SIZE ? -1L : (1L << width) - 1L;
+            
+            int first = block*Long.SIZE;
+            
+            Cascade cascade = this.cascades.get();
+            cascade.start(seeds, lanes, seed, first);
+            this.cascade(cascade);
+            
+            // Store the result of the replicas of the block.
+            synchronized(counts)
+            {
+                IntArrayList activated = cascade.activated;
+                for(int i = 0; i < activated.size(); ++i)
+                {
+                    int v = activated.getInt(i);
+                    long mask = cascade.active[v];
+                    counts[v] += Long.bitCount(mask);
+                    for(; mask != 0L; mask &= mask - 1L)
+                    {
+                        spreads[first + Long.numberOfTrailingZeros(mask)]++;
+                    }
+                }
+            }
+            cascade.finish();
+        });
+        
+        return new BatchCascadeResult<>(this.graph, numReplicas, spreads, counts);
+    }
+    
+    /**
+     * Runs the replicas of a block, until no more users are activated.
+     * @param cascade the state of the replicas of the block, where the seed users are already activated.
+     */
+    protected abstract void cascade(Cascade cascade);
+    
+    /**
+     * Scrambles the bits of a number (finalizer of the SplitMix64 generator).
+     * @param z the number.
+     * @return the scrambled number.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * State of the replicas of a block. For each user, it stores the bit masks of the replicas where the user
+     * is active, where it was activated in the previous step (frontier) and where it is activated in the current one.
+     */
+    protected static class Cascade
+    {
+        /**
+         * Replicas where each user is active.
+         */
+        private final long[] active;
+        /**
+         * Replicas where each user of the frontier was activated in the previous step.
+         */
+        private long[] current;
+        /**
+         * Replicas where each user is activated in the current step.
+         */
+        private long[] next;
+        /**
+         * Users activated in some replica.
+         */
+        private final IntArrayList activated;
+        /**
+         * Users activated in some replica in the previous step.
+         */
+        private IntArrayList frontier;
+        /**
+         * Users activated in some replica in the current step.
+         */
+        private IntArrayList nextFrontier;
+        /**
+         * The bit mask of the replicas of the block.
+         */
+        private long lanes;
+        /**
+         * The random seed.
+         */
+        private long seed;
+        /**
+         * The number of the first replica of the block.
+         */
+        private int first;
+        
+        /**
+         * Constructor.
+         * @param numUsers the number of users.
+         */
+        private Cascade(int numUsers)
+        {
+            this.active = new long[numUsers];
+            this.current = new long[numUsers];
+            this.next = new long[numUsers];
+            this.activated = new IntArrayList();
+            this.frontier = new IntArrayList();
+            this.nextFrontier = new IntArrayList();
+        }
+        
+        /**
+         * Activates the seed users in every replica.
+         * @param seeds the identifiers of the seed users.
+         * @param lanes the bit mask of the replicas of the block.
+         * @param seed the random seed.
+         * @param first the number of the first replica of the block.
+         */
+        private void start(int[] seeds, long lanes, long seed, int first)
+        {
+            this.lanes = lanes;
+            this.seed = seed;
+            this.first = first;
+            for(int s : seeds)
+            {
+                this.activate(s, lanes);
+            }
+            this.advance();
+        }
+        
+        /**
+         * Clears the masks, so they can be reused by another block.
+         */
+        private void finish()
+        {
+            for(int i = 0; i < this.activated.size(); ++i)
+            {
+                this.active[this.activated.getInt(i)] = 0L;
+            }
+            for(int i = 0; i < this.frontier.size(); ++i)
+            {
+                this.current[this.frontier.getInt(i)] = 0L;
+            }
+            this.activated.clear();
+            this.frontier.clear();
+        }
+        
+        /**
+         * Obtains the bit mask of the replicas of the block.
+         * @return the bit mask.
+         */
+        public long getLanes()
+        {
+            return this.lanes;
+        }
+        
+        /**
+         * Obtains a uniform random number for a random event of the model in a replica of the block.
+         * @param lane the bit mask of the replica (it must contain a single bit).
+         * @param event the identifier of the event.
+         * @return a random number in [0,1), which only depends on the seed, the replica and the event.
+         */
+        public double uniform(long lane, int event)
+        {
+            long replica = this.first + Long.numberOfTrailingZeros(lane);
+            long h = mix(this.seed + mix((replica << Integer.SIZE) | (event & 0xFFFFFFFFL)));
+            return (h >>> 11) * 0x1.0p-53;
+        }
+        
+        /**
+         * Selects each replica in a bit mask with a given probability. The uniform numbers of the replicas are
+         * generated bit by bit, 64 replicas at a time, and compared with the binary expansion of the probability: 
+         * a replica is selected at the first bit where its number and the probability differ, if the bit of the
+         * probability is one. The outcome of each replica only depends on the seed, the replica and the event.
+         * @param candidates the bit mask of the candidate replicas.
+         * @param p the probability of selecting each replica.
+         * @param event the identifier of the event.
+         * @return the bit mask of the selected replicas.
+         */
+        public long bernoulli(long candidates, double p, int event)
+        {
+            if(p >= 1.0)
+            {
+                return candidates;
+            }
+            else if(p <= 0.0 || candidates == 0L)
+            {
+                return 0L;
+            }
+            
+            long state = mix(this.seed + mix(((long) this.first << Integer.SIZE) | (event & 0xFFFFFFFFL)) + GOLDEN);
+            long selected = 0L;
+            long undecided = candidates;
+            double frac = p;
+            while(undecided != 0L && frac > 0.0)
+            {
+                state += GOLDEN;
+                long bits = mix(state);
+                frac *= 2.0;
+                if(frac >= 1.0)
+                {
+                    frac -= 1.0;
+                    selected |= undecided & ~bits;
+                    undecided &= bits;
+                }
+                else
+                {
+                    undecided &= ~bits;
+                }
+            }
+            return selected;
+        }
+        
+        /**
+         * Checks whether the cascade has finished in every replica.
+         * @return true if no user was activated in the previous step.
+         */
+        public boolean isFinished()
+        {
+            return this.frontier.isEmpty();
+        }
+        
+        /**
+         * Obtains the number of users in the frontier.
+         * @return the number of users activated in the previous step.
+         */
+        public int frontierSize()
+        {
+            return this.frontier.size();
+        }
+        
+        /**
+         * Obtains a user in the frontier.
+         * @param i the position of the user in the frontier.
+         * @return the identifier of the user.
+         */
+        public int frontierUser(int i)
+        {
+            return this.frontier.getInt(i);
+        }
+        
+        /**
+         * Obtains the replicas where a user was activated in the previous step.
+         * @param uidx the identifier of the user.
+         * @return the bit mask of the replicas.
+         */
+        public long frontierMask(int uidx)
+        {
+            return this.current[uidx];
+        }
+        
+        /**
+         * Obtains the replicas where a user has not been activated yet.
+         * @param uidx the identifier of the user.
+         * @return the bit mask of the replicas.
+         */
+        public long inactive(int uidx)
+        {
+            return this.lanes & ~(this.active[uidx] | this.next[uidx]);
+        }
+        
+        /**
+         * Activates a user in some replicas in the current step.
+         * @param uidx the identifier of the user.
+         * @param mask the bit mask of the replicas.
+         */
+        public void activate(int uidx, long mask)
+        {
+            if(mask != 0L)
+            {
+                if(this.next[uidx] == 0L)
+                {
+                    this.nextFrontier.add(uidx);
+                }
+                this.next[uidx] |= mask;
+            }
+        }
+        
+        /**
+         * Finishes the current step: the users activated in it become the frontier.
+         */
+        public void advance()
+        {
+            for(int i = 0; i < this.frontier.size(); ++i)
+            {
+                this.current[this.frontier.getInt(i)] = 0L;
+            }
+            for(int i = 0; i < this.nextFrontier.size(); ++i)
+            {
+                int uidx = this.nextFrontier.getInt(i);
+                long mask = this.next[uidx] & ~this.active[uidx];
+                if(this.active[uidx] == 0L)
+                {
+                    this.activated.add(uidx);
+                }
+                this.active[uidx] |= mask;
+            }
+            
+            long[] aux = this.current;
+            this.current = this.next;
+            this.next = aux;
+            IntArrayList auxList = this.frontier;
+            this.frontier = this.nextFrontier;
+            this.nextFrontier = auxList;
+            this.nextFrontier.clear();
+        }
+    }
+}
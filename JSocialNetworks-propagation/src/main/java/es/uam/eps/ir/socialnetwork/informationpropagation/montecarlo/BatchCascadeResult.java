@@ -0,0 +1,101 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Result of the Monte Carlo replicas of a cascade model: the number of users reached in each
+ * replica, and the number of replicas where each user was reached.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class BatchCascadeResult<U extends Serializable>
+{
+    /**
+     * The network.
+     */
+    private final CascadeGraph<U> graph;
+    /**
+     * The number of replicas.
+     */
+    private final int numReplicas;
+    /**
+     * The number of users activated in each replica (including the seeds).
+     */
+    private final int[] spreads;
+    /**
+     * The number of replicas where each user was activated.
+     */
+    private final long[] counts;
+    
+    /**
+     * Constructor.
+     * @param graph the network.
+     * @param numReplicas the number of replicas.
+     * @param spreads the number of users activated in each replica.
+     * @param counts the number of replicas where each user was activated.
+     */
+    public BatchCascadeResult(CascadeGraph<U> graph, int numReplicas, int[] spreads, long[] counts)
+    {
+        this.graph = graph;
+        this.numReplicas = numReplicas;
+        this.spreads = spreads;
+        this.counts = counts;
+    }
+    
+    /**
+     * Obtains the number of replicas.
+     * @return the number of replicas.
+     */
+    public int getNumReplicas()
+    {
+        return this.numReplicas;
+    }
+    
+    /**
+     * Obtains the number of users activated in a replica (including the seeds).
+     * @param replica the replica.
+     * @return the number of activated users.
+     */
+    public int getSpread(int replica)
+    {
+        return this.spreads[replica];
+    }
+    
+    /**
+     * Obtains the mean number of activated users over the replicas.
+     * @return the expected spread.
+     */
+    public double getExpectedSpread()
+    {
+        return this.numReplicas == 0 ? 0.0 : Arrays.stream(this.spreads).asDoubleStream().sum()/this.numReplicas;
+    }
+    
+    /**
+     * Obtains the proportion of replicas where a user was activated.
+     * @param u the user.
+     * @return the activation probability of the user.
+     */
+    public double getActivationProbability(U u)
+    {
+        return this.graph.containsUser(u) ? this.getActivationProbability(this.graph.object2idx(u)) : 0.0;
+    }
+    
+    /**
+     * Obtains the proportion of replicas where a user was activated.
+     * @param uidx the identifier of the user.
+     * @return the activation probability of the user.
+     */
+    public double getActivationProbability(int uidx)
+    {
+        return this.numReplicas == 0 ? 0.0 : (this.counts[uidx] + 0.0)/this.numReplicas;
+    }
+}
@@ -0,0 +1,288 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.Weight;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Primitive representation of the network over which the batched cascades run. For each user,
+ * the users who receive the pieces it propagates (its incident nodes, i.e. its followers) are stored
+ * in compressed sparse row form, along with the weight of the edge that links them (the follower is
+ * the origin of the edge). The inverse relation (the senders of each user) is also stored, for reverse searches.
+ * Users are identified by their indexes in the user index of the data.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class CascadeGraph<U extends Serializable>
+{
+    /**
+     * The user index.
+     */
+    private final Index<U> index;
+    /**
+     * Position of the followers of each user in the follower array (the last
+     * element is the total number of followers).
+     */
+    private final int[] offsets;
+    /**
+     * Followers of the users.
+     */
+    private final int[] followers;
+    /**
+     * Weights of the edges between the followers and the users.
+     */
+    private final double[] weights;
+    /**
+     * Position of the senders of each user in the sender array (the last
+     * element is the total number of senders).
+     */
+    private final int[] senderOffsets;
+    /**
+     * Senders of the users (users they follow).
+     */
+    private final int[] senders;
+    /**
+     * Weights of the edges between the users and the senders.
+     */
+    private final double[] senderWeights;
+    /**
+     * Number of adjacent nodes of each user.
+     */
+    private final int[] numAdjacent;
+    /**
+     * Number of users each user receives pieces from.
+     */
+    private final int[] numSenders;
+    
+    /**
+     * Constructor.
+     * @param data the data of the simulation.
+     */
+    public CascadeGraph(Data<U,?,?> data)
+    {
+        this(data.getGraph(), data.getUserIndex());
+    }
+    
+    /**
+     * Constructor.
+     * @param graph the network.
+     * @param index the user index. Only the users in the index are considered.
+     */
+    public CascadeGraph(Graph<U> graph, Index<U> index)
+    {
+        this.index = index;
+        int numUsers = index.numObjects();
+        
+        int[][] foll = new int[numUsers][];
+        double[][] ws = new double[numUsers][];
+        this.numAdjacent = new int[numUsers];
+        index.getAllObjectsIds().parallel().forEach(uidx -> 
+        {
+            U u = index.idx2object(uidx);
+            List<Weight<U,Double>> list = graph.getIncidentNodesWeights(u).filter(w -> index.containsObject(w.getIdx())).collect(Collectors.toList());
+            foll[uidx] = new int[list.size()];
+            ws[uidx] = new double[list.size()];
+            for(int j = 0; j < list.size(); ++j)
+            {
+                foll[uidx][j] = index.object2idx(list.get(j).getIdx());
+                ws[uidx][j] = list.get(j).getValue();
+            }
+            this.numAdjacent[uidx] = graph.getAdjacentNodesCount(u);
+        });
+        
+        this.offsets = new int[numUsers + 1];
+        this.numSenders = new int[numUsers];
+        for(int i = 0; i < numUsers; ++i)
+        {
+            int length = foll[i] == null ? 0 : foll[i].length;
+            this.offsets[i + 1] = this.offsets[i] + length;
+        }
+        this.followers = new int[this.offsets[numUsers]];
+        this.weights = new double[this.offsets[numUsers]];
+        for(int i = 0; i < numUsers; ++i)
+        {
+            if(foll[i] != null)
+            {
+                System.arraycopy(foll[i], 0, this.followers, this.offsets[i], foll[i].length);
+                System.arraycopy(ws[i], 0, this.weights, this.offsets[i], ws[i].length);
+                for(int v : foll[i])
+                {
+                    this.numSenders[v]++;
+                }
+            }
+        }
+        
+        // Invert the relation.
+        this.senderOffsets = new int[numUsers + 1];
+        for(int i = 0; i < numUsers; ++i)
+        {
+            this.senderOffsets[i + 1] = this.senderOffsets[i] + this.numSenders[i];
+        }
+        this.senders = new int[this.followers.length];
+        this.senderWeights = new double[this.followers.length];
+        int[] next = new int[numUsers];
+        System.arraycopy(this.senderOffsets, 0, next, 0, numUsers);
+        for(int u = 0; u < numUsers; ++u)
+        {
+            for(int pos = this.offsets[u]; pos < this.offsets[u + 1]; ++pos)
+            {
+                int v = this.followers[pos];
+                this.senders[next[v]] = u;
+                this.senderWeights[next[v]] = this.weights[pos];
+                next[v]++;
+            }
+        }
+    }
+    
+    /**
+     * Obtains the number of users.
+     * @return the number of users.
+     */
+    public int numUsers()
+    {
+        return this.numSenders.length;
+    }
+    
+    /**
+     * Checks whether a user belongs to the network.
+     * @param u the user.
+     * @return true if the user belongs to the network, false otherwise.
+     */
+    public boolean containsUser(U u)
+    {
+        return this.index.containsObject(u);
+    }
+    
+    /**
+     * Obtains the identifier of a user.
+     * @param u the user.
+     * @return the identifier of the user.
+     */
+    public int object2idx(U u)
+    {
+        return this.index.object2idx(u);
+    }
+    
+    /**
+     * Obtains the user with a given identifier.
+     * @param uidx the identifier.
+     * @return the user.
+     */
+    public U idx2object(int uidx)
+    {
+        return this.index.idx2object(uidx);
+    }
+    
+    /**
+     * Obtains the first position of the followers of a user.
+     * @param uidx the identifier of the user.
+     * @return the first position of the followers.
+     */
+    public int start(int uidx)
+    {
+        return this.offsets[uidx];
+    }
+    
+    /**
+     * Obtains the position after the last one of the followers of a user.
+     * @param uidx the identifier of the user.
+     * @return the position after the end of the followers.
+     */
+    public int end(int uidx)
+    {
+        return this.offsets[uidx + 1];
+    }
+    
+    /**
+     * Obtains the follower stored in a position.
+     * @param pos the position.
+     * @return the identifier of the follower.
+     */
+    public int follower(int pos)
+    {
+        return this.followers[pos];
+    }
+    
+    /**
+     * Obtains the weight of the edge between the follower stored in a position and the followed user.
+     * @param pos the position.
+     * @return the weight of the edge.
+     */
+    public double weight(int pos)
+    {
+        return this.weights[pos];
+    }
+    
+    /**
+     * Obtains the first position of the senders of a user.
+     * @param uidx the identifier of the user.
+     * @return the first position of the senders.
+     */
+    public int senderStart(int uidx)
+    {
+        return this.senderOffsets[uidx];
+    }
+    
+    /**
+     * Obtains the position after the last one of the senders of a user.
+     * @param uidx the identifier of the user.
+     * @return the position after the end of the senders.
+     */
+    public int senderEnd(int uidx)
+    {
+        return this.senderOffsets[uidx + 1];
+    }
+    
+    /**
+     * Obtains the sender stored in a position.
+     * @param pos the position.
+     * @return the identifier of the sender.
+     */
+    public int sender(int pos)
+    {
+        return this.senders[pos];
+    }
+    
+    /**
+     * Obtains the weight of the edge between the user and the sender stored in a position.
+     * @param pos the position.
+     * @return the weight of the edge.
+     */
+    public double senderWeight(int pos)
+    {
+        return this.senderWeights[pos];
+    }
+    
+    /**
+     * Obtains the number of adjacent nodes of a user in the network.
+     * @param uidx the identifier of the user.
+     * @return the number of adjacent nodes.
+     */
+    public int getNumAdjacent(int uidx)
+    {
+        return this.numAdjacent[uidx];
+    }
+    
+    /**
+     * Obtains the number of users a user might receive pieces from.
+     * @param uidx the identifier of the user.
+     * @return the number of senders.
+     */
+    public int getNumSenders(int uidx)
+    {
+        return this.numSenders[uidx];
+    }
+}
@@ -0,0 +1,42 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo;
+
+import java.io.Serializable;
+
+/**
+ * Batched version of the count threshold model (see {@link es.uam.eps.ir.socialnetwork.informationpropagation.protocols.CountThresholdModelProtocol}):
+ * a user is activated when it has received the piece from a fixed number of users.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class CountThresholdBatchModel<U extends Serializable> extends AbstractThresholdBatchModel<U>
+{
+    /**
+     * The number of senders.
+     */
+    private final int threshold;
+    
+    /**
+     * Constructor.
+     * @param graph the network.
+     * @param threshold the number of users a user has to receive the piece from.
+     */
+    public CountThresholdBatchModel(CascadeGraph<U> graph, int threshold)
+    {
+        super(graph);
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected int getThreshold(int uidx, double rnd)
+    {
+        return this.threshold;
+    }
+}
@@ -0,0 +1,71 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo;
+
+import java.io.Serializable;
+
+/**
+ * Batched version of the Independent Cascade Model (see {@link es.uam.eps.ir.socialnetwork.informationpropagation.protocols.IndependentCascadeModelProtocol}):
+ * each time a user is activated, each one of its followers is activated with a certain probability, which is either uniform, 
+ * or the weight of the edge from the follower to the user. In each replica, the coin of an edge is the same in every estimation
+ * with the same seed.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class IndependentCascadeBatchModel<U extends Serializable> extends BatchCascadeModel<U>
+{
+    /**
+     * Uniform probability (negative if the weights of the edges are used).
+     */
+    private final double prob;
+    
+    /**
+     * Constructor. The probabilities of propagation are the weights of the edges.
+     * @param graph the network.
+     */
+    public IndependentCascadeBatchModel(CascadeGraph<U> graph)
+    {
+        this(graph, -1.0);
+    }
+    
+    /**
+     * Constructor.
+     * @param graph the network.
+     * @param prob the probability of propagating a piece across an edge.
+     */
+    public IndependentCascadeBatchModel(CascadeGraph<U> graph, double prob)
+    {
+        super(graph);
+        this.prob = prob;
+    }
+
+    @Override
+    protected void cascade(Cascade cascade)
+    {
+        while(!cascade.isFinished())
+        {
+            for(int i = 0; i < cascade.frontierSize(); ++i)
+            {
+                int u = cascade.frontierUser(i);
+                long mask = cascade.frontierMask(u);
+                for(int pos = this.graph.start(u); pos < this.graph.end(u); ++pos)
+                {
+                    int v = this.graph.follower(pos);
+                    long candidates = mask & cascade.inactive(v);
+                    if(candidates != 0L)
+                    {
+                        double p = this.prob >= 0.0 ? this.prob : this.graph.weight(pos);
+                        cascade.activate(v, cascade.bernoulli(candidates, p, pos));
+                    }
+                }
+            }
+            cascade.advance();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo;
+
+import java.io.Serializable;
+
+/**
+ * Batched version of the threshold model (see {@link es.uam.eps.ir.socialnetwork.informationpropagation.protocols.ThresholdModelProtocol}):
+ * a user is activated when the number of users it has received the piece from exceeds a proportion of its adjacent nodes.
+ * The proportion can be fixed, or chosen uniformly at random for each user and replica, as in the Linear Threshold Model.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> type of the users.
+ */
+public class ThresholdBatchModel<U extends Serializable> extends AbstractThresholdBatchModel<U>
+{
+    /**
+     * The proportion of adjacent nodes (negative if it is chosen at random).
+     */
+    private final double threshold;
+    
+    /**
+     * Constructor. The proportion is chosen at random for each user and replica.
+     * @param graph the network.
+     */
+    public ThresholdBatchModel(CascadeGraph<U> graph)
+    {
+        this(graph, -1.0);
+    }
+    
+    /**
+     * Constructor.
+     * @param graph the network.
+     * @param threshold the proportion of adjacent nodes that has to be surpassed.
+     */
+    public ThresholdBatchModel(CascadeGraph<U> graph, double threshold)
+    {
+        super(graph);
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected int getThreshold(int uidx, double rnd)
+    {
+        double prop = this.threshold >= 0.0 ? this.threshold : rnd;
+        return (int) Math.min(Integer.MAX_VALUE - 1, Math.floor(this.graph.getNumAdjacent(uidx)*prop)) + 1;
+    }
+}
@@ -11,13 +11,14 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.propagation;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -82,7 +83,7 @@ public class PullPushStrategyPropagationMechanism<U extends Serializable,I exten
     @Override
     public void resetSelections(Data<U,I,P> data)
     {
-        Random rng = new Random();
+        SplittableRandom rng = SimulationRandom.current();
         propagationList = new HashMap<>();
         data.getAllUsers().forEach((u)-> 
         {
@@ -8,17 +8,22 @@
  */
 package es.uam.eps.ir.socialnetwork.informationpropagation.propagation;
 
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.index.Index;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.EdgeTypeIndex;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
-import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationEdgeTypes;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
 import java.util.stream.Stream;
 
 /**
@@ -42,9 +47,9 @@ public class PullPushStrategyPureRecommenderPropagationMechanism<U extends Seria
      */
     private Map<U, List<U>> propagationList;
     /**
-     * The list of users in the last iterations
+     * For each user (identified by its index), the users visited in the last iterations.
      */
-    private final Map<U, List<U>> lastIterations;
+    private final Int2ObjectMap<VisitHistory> lastIterations;
     
     /**
      * Constructor.
@@ -53,7 +58,7 @@ public class PullPushStrategyPureRecommenderPropagationMechanism<U extends Seria
     public PullPushStrategyPureRecommenderPropagationMechanism(int waitTime)
     {
         this.waitTime = waitTime;
-        this.lastIterations = new HashMap<>();
+        this.lastIterations = new Int2ObjectOpenHashMap<>();
     }
 
     @Override
@@ -67,33 +72,32 @@ public class PullPushStrategyPureRecommenderPropagationMechanism<U extends Seria
     @Override
     public void resetSelections(Data<U,I,P> data)
     {
-        Random rng = new Random();
+        SplittableRandom rng = SimulationRandom.current();
+        EdgeTypeIndex<U> edgeTypes = data.getEdgeTypeIndex();
+        Index<U> uIndex = data.getUserIndex();
+        IntArrayList notVisited = new IntArrayList();
+        
         propagationList = new HashMap<>();
         data.getAllUsers().forEach((u)-> 
         {
-            List<U> neighbours = data.getGraph().getAdjacentNodes(u).filter(v -> (data.getGraph().getEdgeType(u, v) == SimulationEdgeTypes.RECOMMEND)).collect(Collectors.toCollection(ArrayList::new));
-            List<U> alreadyVisited = lastIterations.containsKey(u) ? lastIterations.get(u) : new ArrayList<>();
+            int uidx = uIndex.object2idx(u);
+            int[] neighbours = edgeTypes.getRecommendedNeighbours(uidx, EdgeOrientation.OUT);
+            if(!this.lastIterations.containsKey(uidx)) this.lastIterations.put(uidx, new VisitHistory(Math.min(this.waitTime, neighbours.length - 1)));
+            VisitHistory alreadyVisited = this.lastIterations.get(uidx);
             U neigh;
-            boolean selected = false;
             
-            // Select the neighbour
-            do
+            // Select the neighbour among those which have not been recently visited.
+            alreadyVisited.filter(neighbours, notVisited);
+            if(!notVisited.isEmpty())
             {
-                if(neighbours.size() > 0)
-                {
-                    int index = rng.nextInt(neighbours.size());
-                    neigh = neighbours.get(index);
-
-                    if(!alreadyVisited.contains(neigh))
-                        selected = true;
-                }
-                else
-                {
-                    neigh = null;
-                    selected = true;
-                }
+                int vidx = notVisited.getInt(rng.nextInt(notVisited.size()));
+                neigh = uIndex.idx2object(vidx);
+                alreadyVisited.visit(vidx);
+            }
+            else
+            {
+                neigh = null;
             }
-            while(!selected);
             
             if(neigh != null)
             {
@@ -106,18 +110,6 @@ public class PullPushStrategyPureRecommenderPropagationMechanism<U extends Seria
                     propagationList.put(u, new ArrayList<>());
                 if(!propagationList.get(u).contains(neigh))
                     propagationList.get(u).add(neigh);
-
-                alreadyVisited.add(0, neigh);
-            }
-            
-            // Prune the list
-            int maxSize = Math.min(this.waitTime, neighbours.size());
-            if(alreadyVisited.size() > maxSize)
-            {
-                for(int i = alreadyVisited.size()-1; i >= maxSize; --i)
-                {
-                    alreadyVisited.remove(i);
-                }
             }
         });
         
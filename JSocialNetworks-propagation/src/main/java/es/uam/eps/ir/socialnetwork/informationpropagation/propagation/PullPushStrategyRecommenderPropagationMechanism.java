@@ -9,17 +9,21 @@
 package es.uam.eps.ir.socialnetwork.informationpropagation.propagation;
 
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.index.Index;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.EdgeTypeIndex;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
-import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationEdgeTypes;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
 import java.util.stream.Stream;
 
 /**
@@ -47,18 +51,14 @@ public class PullPushStrategyRecommenderPropagationMechanism<U extends Serializa
      */
     private Map<U, List<U>> propagationList;
     /**
-     * The list of users in the last iterations
+     * For each user (identified by its index), the users visited in the last iterations.
      */
-    private final Map<U, List<U>> lastIterations;
+    private final Int2ObjectMap<VisitHistory> lastIterations;
     
     /**
      * Probability of selecting a recommended link for propagation
      */
     private final double recProb;
-    /**
-     * Random number generator
-     */
-    private final Random rng;
     
      /**
      * Constructor.
@@ -80,9 +80,8 @@ public class PullPushStrategyRecommenderPropagationMechanism<U extends Serializa
     {
         this.waitTime = waitTime;
         this.orientation = orientation;
-        this.lastIterations = new HashMap<>();
+        this.lastIterations = new Int2ObjectOpenHashMap<>();
         this.recProb = recProb;
-        this.rng = new Random();
 
     }
 
@@ -97,69 +96,41 @@ public class PullPushStrategyRecommenderPropagationMechanism<U extends Serializa
     @Override
     public void resetSelections(Data<U,I,P> data)
     {
+        SplittableRandom rng = SimulationRandom.current();
+        EdgeTypeIndex<U> edgeTypes = data.getEdgeTypeIndex();
+        Index<U> uIndex = data.getUserIndex();
+        IntArrayList recNeighs = new IntArrayList();
+        IntArrayList nonRecNeighs = new IntArrayList();
+        
         propagationList = new HashMap<>();
         data.getAllUsers().forEach((u)-> 
         {
-            List<U> recNeighs = new ArrayList<>();
-            List<U> nonRecNeighs = new ArrayList<>();
-            data.getGraph().getNeighbourhood(u, orientation).forEach(v -> 
-            {
-                if(orientation.equals(EdgeOrientation.IN))
-                {
-                    if(data.getGraph().getEdgeType(v, u) == SimulationEdgeTypes.RECOMMEND)
-                    {
-                        recNeighs.add(v);
-                    }
-                    else
-                    {
-                        nonRecNeighs.add(v);
-                    }
-                }
-                
-            });
-            
-            
-            if(!this.lastIterations.containsKey(u)) this.lastIterations.put(u, new ArrayList<>());
-            List<U> alreadyVisited = this.lastIterations.get(u);
+            int uidx = uIndex.object2idx(u);
+            if(!this.lastIterations.containsKey(uidx)) this.lastIterations.put(uidx, new VisitHistory(this.waitTime));
+            VisitHistory alreadyVisited = this.lastIterations.get(uidx);
             U neigh;
             
-            recNeighs.removeAll(alreadyVisited);
-            nonRecNeighs.removeAll(alreadyVisited);
+            // Find the neighbours which have not been recently visited.
+            alreadyVisited.filter(edgeTypes.getRecommendedNeighbours(uidx, orientation), recNeighs);
+            alreadyVisited.filter(edgeTypes.getOrganicNeighbours(uidx, orientation), nonRecNeighs);
             
-            if(recNeighs.isEmpty())
-            {
-                recNeighs.addAll(nonRecNeighs);
-            }
-            else if(nonRecNeighs.isEmpty())
+            // If there are no neighbours of one of the types, the other one is used.
+            double nextDouble = rng.nextDouble();
+            IntArrayList neighs = nextDouble < this.recProb ? recNeighs : nonRecNeighs;
+            if(neighs.isEmpty())
             {
-                nonRecNeighs.addAll(recNeighs);
+                neighs = (neighs == recNeighs) ? nonRecNeighs : recNeighs;
             }
             
-            double nextDouble = rng.nextDouble();
-            
-            if(nextDouble < this.recProb)
+            if(!neighs.isEmpty())
             {
-                if(!recNeighs.isEmpty())
-                {
-                    int index = rng.nextInt(recNeighs.size());
-                    neigh = recNeighs.get(index);
-                }
-                else
-                {
-                    neigh = null;
-                }
+                int vidx = neighs.getInt(rng.nextInt(neighs.size()));
+                neigh = uIndex.idx2object(vidx);
+                alreadyVisited.visit(vidx);
             }
             else
             {
-                if(!nonRecNeighs.isEmpty())
-                {
-                    int index = rng.nextInt(nonRecNeighs.size());
-                    neigh = nonRecNeighs.get(index);
-                }
-                else
-                {
-                    neigh = null;
-                }
+                neigh = null;
             }
             
             if(neigh != null)
@@ -173,18 +144,6 @@ public class PullPushStrategyRecommenderPropagationMechanism<U extends Serializa
                     propagationList.put(u, new ArrayList<>());
                 if(!propagationList.get(u).contains(neigh))
                     propagationList.get(u).add(neigh);
-
-                alreadyVisited.add(0, neigh);
-            }
-            
-            // Prune the list
-            int maxSize = this.waitTime;
-            if(alreadyVisited.size() > maxSize)
-            {
-                for(int i = alreadyVisited.size()-1; i >= maxSize; --i)
-                {
-                    alreadyVisited.remove(i);
-                }
             }
         });
         
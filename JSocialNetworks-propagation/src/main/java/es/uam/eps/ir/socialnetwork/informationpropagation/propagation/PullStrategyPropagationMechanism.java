@@ -10,13 +10,14 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.propagation;
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -64,7 +65,7 @@ public class PullStrategyPropagationMechanism<U extends Serializable,I extends S
     @Override
     public void resetSelections(Data<U,I,P> data)
     {
-        Random rng = new Random();
+        SplittableRandom rng = SimulationRandom.current();
         propagationList = new HashMap<>();
         data.getAllUsers().forEach((u)-> {
             List<U> neighbours = data.getGraph().getAdjacentNodes(u).collect(Collectors.toCollection(ArrayList::new));
@@ -0,0 +1,102 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.propagation;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+/**
+ * Bounded history of the last users visited by a user in pull-push strategies. It keeps the last
+ * visited users in a circular buffer, and a set for checking in constant time whether a user has been
+ * visited recently. The visited users must not be repeated in the history.
+ * @author Javier Sanz-Cruzado Puig
+ */
+class VisitHistory 
+{
+    /**
+     * Circular buffer with the last visited users.
+     */
+    private final int[] visits;
+    /**
+     * Position of the oldest visit in the buffer.
+     */
+    private int first;
+    /**
+     * Number of visits in the buffer.
+     */
+    private int size;
+    /**
+     * Set of visited users.
+     */
+    private final IntOpenHashSet visited;
+    
+    /**
+     * Constructor.
+     * @param capacity maximum number of visits to keep.
+     */
+    public VisitHistory(int capacity)
+    {
+        this.visits = new int[Math.max(capacity, 0)];
+        this.first = 0;
+        this.size = 0;
+        this.visited = new IntOpenHashSet();
+    }
+    
+    /**
+     * Checks whether a user has been recently visited.
+     * @param vidx the index of the user.
+     * @return true if the user is in the history, false otherwise.
+     */
+    public boolean contains(int vidx)
+    {
+        return this.visited.contains(vidx);
+    }
+    
+    /**
+     * Finds the users in a list which have not been recently visited.
+     * @param users the indexes of the users.
+     * @param notVisited list where the not visited users are stored (its previous contents are removed).
+     */
+    public void filter(int[] users, IntArrayList notVisited)
+    {
+        notVisited.clear();
+        for(int vidx : users)
+        {
+            if(!this.visited.contains(vidx))
+            {
+                notVisited.add(vidx);
+            }
+        }
+    }
+    
+    /**
+     * Adds a visit to the history. If the history is full, the oldest visit is forgotten.
+     * @param vidx the index of the visited user.
+     */
+    public void visit(int vidx)
+    {
+        if(this.visits.length == 0)
+        {
+            return;
+        }
+        
+        if(this.size == this.visits.length)
+        {
+            this.visited.remove(this.visits[this.first]);
+            this.visits[this.first] = vidx;
+            this.first = (this.first + 1) % this.visits.length;
+        }
+        else
+        {
+            this.visits[(this.first + this.size) % this.visits.length] = vidx;
+            this.size++;
+        }
+        this.visited.add(vidx);
+    }
+}
@@ -10,13 +10,13 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.selections;
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationState;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -42,10 +42,6 @@ public class CountSelectionMechanism<U extends Serializable,I extends Serializab
      * Number of information pieces to repropagate for each user and iteration.
      */
     private final int numRepropagate;
-    /**
-     * Random number generator
-     */
-    protected final Random rng;
     
     /**
      * Constructor.
@@ -58,7 +54,6 @@ public class CountSelectionMechanism<U extends Serializable,I extends Serializab
         this.numOwn = numOwn;
         this.numPropagate = numPropagate;
         this.numRepropagate = numRepropagate;
-        this.rng = new Random();
     }
     
     /**
@@ -99,6 +94,15 @@ public class CountSelectionMechanism<U extends Serializable,I extends Serializab
         return this.getPropagatedInformation(userId, this.numRepropagate, numIter, repInfo);        
     }
     
+    @Override
+    public boolean isActive(UserState<U> user)
+    {
+        // Received pieces are always considered, since subclasses might propagate them even when numPropagate is NONE.
+        return (this.numOwn != SelectionConstants.NONE && user.getOwnInformationIds().findAny().isPresent()) ||
+               user.getReceivedInformationIds().findAny().isPresent() ||
+               (this.numRepropagate != SelectionConstants.NONE && user.getPropagatedInformationIds().findAny().isPresent());
+    }
+    
     /**
      * Obtains the repropagated information from a list of pieces.
      * @param userId the user identifier.
@@ -122,7 +126,7 @@ public class CountSelectionMechanism<U extends Serializable,I extends Serializab
             {
                 while(setInfo.size() < this.numOwn)
                 {
-                    setInfo.add(propInfo.get(rng.nextInt(size)).getInfoId());
+                    setInfo.add(propInfo.get(SimulationRandom.current().nextInt(size)).getInfoId());
                 }
 
                 setInfo.stream().forEach(idx -> propagatedPieces.add(new PropagatedInformation(idx, numIter, userId)));
@@ -12,6 +12,7 @@ import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationState;
 import java.io.Serializable;
@@ -133,7 +134,7 @@ public class IndependentCascadeModelSelectionMechanism<U extends Serializable,I
         {
             for(int creator : info.getCreators())
             {
-                double r = rng.nextDouble();
+                double r = SimulationRandom.current().nextDouble();
                 double edgeweight;
                 U v = data.getUserIndex().idx2object(creator);
                 if(this.orient.equals(EdgeOrientation.IN)) // Tweets come from your followers
@@ -167,7 +168,7 @@ public class IndependentCascadeModelSelectionMechanism<U extends Serializable,I
                         }
                         else
                         {
-                            r = rng.nextDouble();
+                            r = SimulationRandom.current().nextDouble();
                         }
                     }
                     
@@ -206,7 +207,7 @@ public class IndependentCascadeModelSelectionMechanism<U extends Serializable,I
         {
             for(int creator : info.getCreators())
             {
-                double r = rng.nextDouble();
+                double r = SimulationRandom.current().nextDouble();
                 if(r < this.prob)
                 {
                     toPropagate.add(new PropagatedInformation(info.getInfoId(), numIter, userId));
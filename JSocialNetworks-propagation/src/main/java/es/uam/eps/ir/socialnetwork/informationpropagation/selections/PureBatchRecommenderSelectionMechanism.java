@@ -11,6 +11,7 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.selections;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationEdgeTypes;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationState;
@@ -140,7 +141,7 @@ public class PureBatchRecommenderSelectionMechanism<U extends Serializable,I ext
             }
         });
         
-        double r = rng.nextDouble();
+        double r = SimulationRandom.current().nextDouble();
         
         if(r < this.prob)
         {
@@ -148,7 +149,7 @@ public class PureBatchRecommenderSelectionMechanism<U extends Serializable,I ext
             {
                 // Decides which information pieces we want to propagate
 
-                setInfo.add(fromRec.get(rng.nextInt(fromRec.size())));
+                setInfo.add(fromRec.get(SimulationRandom.current().nextInt(fromRec.size())));
                 setInfo.stream().forEach(idx -> receivedToPropagate.add(new PropagatedInformation(idx, numIter, userId)));
             }    
         }
@@ -158,7 +159,7 @@ public class PureBatchRecommenderSelectionMechanism<U extends Serializable,I ext
             {
                 // Decides which information pieces we want to propagate
 
-                setInfo.add(fromRec.get(rng.nextInt(fromNeigh.size())));
+                setInfo.add(fromRec.get(SimulationRandom.current().nextInt(fromNeigh.size())));
                 setInfo.stream().forEach(idx -> receivedToPropagate.add(new PropagatedInformation(idx, numIter, userId)));
             }
         }
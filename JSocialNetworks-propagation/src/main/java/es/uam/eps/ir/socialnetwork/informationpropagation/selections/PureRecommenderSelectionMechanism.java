@@ -10,14 +10,18 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.selections;
 
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.EdgeTypeIndex;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
-import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationEdgeTypes;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationState;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * Selects the propagated pieces depending on the recommendations. When the user has to propagate
@@ -81,81 +85,52 @@ public class PureRecommenderSelectionMechanism<U extends Serializable,I extends
     {
         List<PropagatedInformation> receivedToPropagate = new ArrayList<>();
 
-        List<Integer> fromNeigh = new ArrayList<>();
-        List<Integer> fromRec = new ArrayList<>();
+        IntArrayList fromNeigh = new IntArrayList();
+        IntArrayList fromRec = new IntArrayList();
 
-        HashSet<Integer> setInfo = new HashSet<>();
-            
+        IntOpenHashSet setInfo = new IntOpenHashSet();
+        
+        EdgeTypeIndex<U> edgeTypes = data.getEdgeTypeIndex();
         U u = user.getUserId();
         int userId = data.getUserIndex().object2idx(u);
         user.getReceivedInformation().forEach(info -> 
         {
-            List<Integer> creators = new ArrayList<>();
-            creators.addAll(info.getCreators());
-            List<Integer> indexesToDelete = new ArrayList<>();
-            for(int i = 0; i < creators.size();++i)
+            for(Integer creator : info.getCreators())
             {
-                Integer creator = creators.get(i);
-                if(creator == null) // Checks if the index has to be deleted (null source)
+                // Null sources are ignored.
+                if(creator != null)
                 {
-                    indexesToDelete.add(i);
-                }
-                else
-                {
-                    U creatorUser = data.getUserIndex().idx2object(creator);
-                    boolean rec = false;
-                    if(this.orientation == EdgeOrientation.IN)
-                    {
-                        if(data.getGraph().getEdgeType(creatorUser, u) == SimulationEdgeTypes.RECOMMEND)
-                            rec = true;
-                    }
-                    else if(this.orientation == EdgeOrientation.OUT)
-                    {
-                        if(data.getGraph().getEdgeType(u, creatorUser) == SimulationEdgeTypes.RECOMMEND)
-                            rec = true;
-                    }
-                    else
-                    {
-                        if(data.getGraph().containsEdge(u, creatorUser))
-                            rec = rec || (data.getGraph().getEdgeType(u, creatorUser) == SimulationEdgeTypes.RECOMMEND);
-                        if(data.getGraph().containsEdge(creatorUser, u))
-                            rec = rec || (data.getGraph().getEdgeType(creatorUser, u) == SimulationEdgeTypes.RECOMMEND);
-                    }
-                    
-                    if(rec)
+                    if(edgeTypes.isRecommended(userId, creator, this.orientation))
                         fromRec.add(info.getInfoId());
                     else
                         fromNeigh.add(info.getInfoId());   
                 }
-                
-            }
-            
-            // Remove the corresponding null sources
-            for(int i = indexesToDelete.size()-1; i >= 0; --i)
-            {
-                creators.remove((int) indexesToDelete.get(i)); 
-                System.out.println(creators);
             }
         });
         
         
         // Propagates a fraction of the total
+        SplittableRandom rng = SimulationRandom.current();
         for(int i = 0; i < this.getNumPropagate(); ++i)
         {
             // Decides which information pieces we want to propagate
             double r = rng.nextDouble();
             if(r < this.prob && !fromRec.isEmpty())
             {
-                setInfo.add(fromRec.get(rng.nextInt(fromRec.size())));
+                setInfo.add(fromRec.getInt(rng.nextInt(fromRec.size())));
             }
             else if(r >= this.prob && !fromNeigh.isEmpty())
             {
-                setInfo.add(fromNeigh.get(rng.nextInt(fromNeigh.size())));
+                setInfo.add(fromNeigh.getInt(rng.nextInt(fromNeigh.size())));
             }
             
         }
 
-        setInfo.stream().forEach(idx -> receivedToPropagate.add(new PropagatedInformation(idx, numIter, userId)));
+        IntIterator it = setInfo.iterator();
+        while(it.hasNext())
+        {
+            receivedToPropagate.add(new PropagatedInformation(it.nextInt(), numIter, userId));
+        }
 
         return receivedToPropagate;
     }
@@ -10,6 +10,7 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.selections;
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationEdgeTypes;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationState;
@@ -17,8 +18,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -68,7 +69,7 @@ public class RecommenderSelectionMechanism<U extends Serializable,I extends Seri
         // Variables for generating the selection
         int userId = data.getUserIndex().object2idx(user.getUserId());
         
-        Random rng = new Random();
+        SplittableRandom rng = SimulationRandom.current();
         List<PropagatedInformation> ownToPropagate = new ArrayList<>();
         List<PropagatedInformation> receivedToPropagate = new ArrayList<>();
         
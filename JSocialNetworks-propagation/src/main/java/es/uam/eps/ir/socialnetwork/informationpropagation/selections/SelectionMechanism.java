@@ -43,4 +43,16 @@ public interface SelectionMechanism<U extends Serializable,I extends Serializabl
      * @return a stream containing those users.
      */
     public Stream<U> getSelectableUsers(Data<U, I, P> data, SimulationState<U,I,P> state, int numIter, Long timestamp);
+    
+    /**
+     * Checks whether a user might propagate some information piece if it is selected, considering only 
+     * its own state. Event-driven simulations only select the active users, and only check again whether
+     * a user is active when its state changes. By default, every user is active.
+     * @param user the user to analyze.
+     * @return false if the user cannot propagate any piece until its state changes, true otherwise.
+     */
+    public default boolean isActive(UserState<U> user)
+    {
+        return true;
+    }
 }
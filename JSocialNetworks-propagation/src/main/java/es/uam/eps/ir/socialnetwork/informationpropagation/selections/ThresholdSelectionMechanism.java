@@ -10,6 +10,7 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.selections;
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationState;
 import java.io.Serializable;
@@ -67,7 +68,7 @@ public class ThresholdSelectionMechanism<U extends Serializable,I extends Serial
         {
             for(int i = 0; i < this.getNumPropagate(); ++i)
             {
-                int idx = rng.nextInt(aux.size());
+                int idx = SimulationRandom.current().nextInt(aux.size());
                 receivedToPropagate.add(aux.get(idx));
                 aux.remove(aux.get(idx));
             }
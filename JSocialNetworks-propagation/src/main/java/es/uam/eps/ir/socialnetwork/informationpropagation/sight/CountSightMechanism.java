@@ -13,10 +13,10 @@ import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInforma
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -43,7 +43,7 @@ public class CountSightMechanism<U extends Serializable,I extends Serializable,P
     public CountSightMechanism(int numSight)
     {
         this.numSight = numSight;
-        map = new HashMap<>();
+        map = new ConcurrentHashMap<>();
     }
     
    /* @Override
@@ -68,9 +68,10 @@ public class CountSightMechanism<U extends Serializable,I extends Serializable,P
     public boolean seesInformation(UserState<U> user, Data<U,I,P> data, PropagatedInformation prop)
     {
         U u = user.getUserId();
-        if(this.map.get(u) < this.numSight)
+        int count = this.map.getOrDefault(u, 0);
+        if(count < this.numSight)
         {
-            this.map.put(u, this.map.get(u)+1);
+            this.map.put(u, count+1);
             return !user.containsPropagatedInformation(prop.getInfoId());
         }
         
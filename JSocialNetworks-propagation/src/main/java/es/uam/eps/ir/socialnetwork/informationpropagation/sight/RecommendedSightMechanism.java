@@ -10,6 +10,7 @@ package es.uam.eps.ir.socialnetwork.informationpropagation.sight;
 
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationRandom;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationEdgeTypes;
@@ -19,7 +20,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -52,10 +52,6 @@ public class RecommendedSightMechanism<U extends Serializable,I extends Serializ
      * Probability of observing a piece of information that comes from a training user.
      */
     private final double probTrain;
-    /**
-     * Random number generator
-     */
-    private final Random rng;
     
     /**
      * Constructor. 
@@ -67,7 +63,6 @@ public class RecommendedSightMechanism<U extends Serializable,I extends Serializ
         this.neighbors = new HashMap<>();
         this.probRec = probRec;
         this.probTrain = probTrain;
-        this.rng = new Random();
     }
     
 /*    @Override
@@ -80,7 +75,7 @@ public class RecommendedSightMechanism<U extends Serializable,I extends Serializ
         {
             boolean propagate = info.getCreators().stream().map(creator -> 
             {
-                double rnd = rng.nextDouble();
+                double rnd = SimulationRandom.current().nextDouble();
                 U cr = data.getUserIndex().idx2object(creator);
                 if(this.neighbors.get(u).contains(cr))
                 {
@@ -125,7 +120,7 @@ public class RecommendedSightMechanism<U extends Serializable,I extends Serializ
     {
         boolean propagate = prop.getCreators().stream().map(creator -> 
         {
-            double rnd = rng.nextDouble();
+            double rnd = SimulationRandom.current().nextDouble();
             U cr = data.getUserIndex().idx2object(creator);
             if(this.neighbors.get(user.getUserId()).contains(cr))
             {
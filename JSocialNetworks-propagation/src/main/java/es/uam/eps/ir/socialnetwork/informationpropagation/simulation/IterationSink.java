@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.simulation;
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import java.io.Serializable;
+
+/**
+ * Receiver of the iterations of a simulation, as they are produced by the simulator. Sinks
+ * allow processing (evaluating, storing...) long simulations without keeping all their iterations
+ * in memory.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ * @param <I> Type of the information pieces.
+ * @param <P> Type of the parameters.
+ */
+public interface IterationSink<U extends Serializable, I extends Serializable, P>
+{
+    /**
+     * Prepares the sink for receiving the iterations of a simulation.
+     * @param data the data.
+     * @param initialNumber the number of the first iteration of the simulation.
+     * @return true if everything went OK, false otherwise.
+     */
+    public boolean initialize(Data<U,I,P> data, int initialNumber);
+    
+    /**
+     * Receives a new iteration of the simulation. Iterations are received in order.
+     * @param iteration the iteration.
+     * @return true if everything went OK, false otherwise.
+     */
+    public boolean accept(Iteration<U,I,P> iteration);
+    
+    /**
+     * Indicates that the simulation has finished.
+     * @return true if everything went OK, false otherwise.
+     */
+    public boolean close();
+}
@@ -49,6 +49,10 @@ public class Simulation<U extends Serializable,I extends Serializable,P>
      * Initial iteration number
      */
     private final int initialNumber;
+    /**
+     * Indicates whether the iterations are kept in memory or not.
+     */
+    private final boolean storeIterations;
     
     /**
      * Constructor.
@@ -56,11 +60,24 @@ public class Simulation<U extends Serializable,I extends Serializable,P>
      * @param initialNumber initial iteration number
      */
     public Simulation(Data<U,I,P> data, int initialNumber)
+    {
+        this(data, initialNumber, true);
+    }
+    
+    /**
+     * Constructor.
+     * @param data the real data.
+     * @param initialNumber initial iteration number
+     * @param storeIterations true if the iterations have to be kept in memory, false if only their number
+     * has to be registered (for instance, when they are processed by {@link IterationSink} objects).
+     */
+    public Simulation(Data<U,I,P> data, int initialNumber, boolean storeIterations)
     {
         this.data = data;
         this.numIterations = 0;
         this.iterations = new ArrayList<>();
         this.initialNumber = initialNumber;
+        this.storeIterations = storeIterations;
     }
     
     /**
@@ -82,7 +99,10 @@ public class Simulation<U extends Serializable,I extends Serializable,P>
         if(iteration != null && iteration.getIterationNumber() == (this.numIterations + this.initialNumber))
         {
             this.numIterations++;
-            this.iterations.add(iteration);
+            if(this.storeIterations)
+            {
+                this.iterations.add(iteration);
+            }
             return true;
         }
         return false;
@@ -91,11 +111,11 @@ public class Simulation<U extends Serializable,I extends Serializable,P>
     /**
      * Gets an individual iteration in the simulation.
      * @param number the number of the iteration.
-     * @return the iteration if it exists, null if it does not.
+     * @return the iteration if it exists, null if it does not (or if the iterations are not kept in memory).
      */
     public Iteration<U,I,P> getIteration(int number)
     {
-        if(number >= this.initialNumber && number < (this.numIterations + this.initialNumber))
+        if(this.storeIterations && number >= this.initialNumber && number < (this.numIterations + this.initialNumber))
         {
             return this.iterations.get(number - this.initialNumber);
         }
@@ -103,6 +123,15 @@ public class Simulation<U extends Serializable,I extends Serializable,P>
         return null;
     }
     
+    /**
+     * Indicates whether the iterations are kept in memory or not.
+     * @return true if the iterations are kept in memory, false otherwise.
+     */
+    public boolean isStoringIterations()
+    {
+        return this.storeIterations;
+    }
+    
     /**
      * Obtains the current number of iterations in the simulation.
      * @return the current number of iterations in the simulation.
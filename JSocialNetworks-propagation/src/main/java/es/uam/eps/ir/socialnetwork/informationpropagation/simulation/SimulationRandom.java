@@ -0,0 +1,52 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.informationpropagation.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Source of random numbers for the stochastic mechanisms of a simulation (selection, expiration,
+ * propagation and sight). Each thread has its own random number generator. In parallel simulations,
+ * the simulator assigns a generator, split from a common seed, to the thread processing each group
+ * of users, so the simulation is reproducible.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class SimulationRandom
+{
+    /**
+     * The random number generator of each thread.
+     */
+    private static final ThreadLocal<SplittableRandom> RNG = ThreadLocal.withInitial(SplittableRandom::new);
+
+    /**
+     * Constructor. It cannot be instantiated.
+     */
+    private SimulationRandom()
+    {
+        
+    }
+
+    /**
+     * Obtains the random number generator of the current thread.
+     * @return the random number generator.
+     */
+    public static SplittableRandom current()
+    {
+        return RNG.get();
+    }
+
+    /**
+     * Assigns a random number generator to the current thread.
+     * @param rng the random number generator.
+     */
+    static void set(SplittableRandom rng)
+    {
+        RNG.set(rng);
+    }
+}
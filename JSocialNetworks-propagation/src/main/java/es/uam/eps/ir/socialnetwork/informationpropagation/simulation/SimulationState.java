@@ -8,9 +8,15 @@
  */
 package es.uam.eps.ir.socialnetwork.informationpropagation.simulation;
 
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.CompactUser;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.FastUser;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformationStore;
+import es.uam.eps.ir.socialnetwork.informationpropagation.update.UpdateMechanism;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -18,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -33,6 +40,33 @@ public class SimulationState<U extends Serializable,I extends Serializable,P>
      * Current state of the users
      */
     private final Map<U, UserState<U>> userState = new HashMap<>();
+    /**
+     * Indicates whether the state of the users is stored in compact form ({@link CompactUser}) or not ({@link FastUser}).
+     */
+    private final boolean compact;
+    /**
+     * For compact users, the store containing the timestamps and creators of their pieces.
+     */
+    private PropagatedInformationStore store;
+    
+    /**
+     * Constructor. The state of the users is stored in {@link FastUser} objects.
+     */
+    public SimulationState()
+    {
+        this(false);
+    }
+    
+    /**
+     * Constructor.
+     * @param compact true if the state of the users has to be stored in compact form (see {@link CompactUser}),
+     * false if it has to be stored in {@link FastUser} objects.
+     */
+    public SimulationState(boolean compact)
+    {
+        this.compact = compact;
+        this.store = null;
+    }
     
     /**
      * Clears the structures for a new simulation.
@@ -49,9 +83,10 @@ public class SimulationState<U extends Serializable,I extends Serializable,P>
     public void initialize(Data<U,I,P> data)
     {
         this.clear();
+        this.store = this.compact ? new PropagatedInformationStore() : null;
         data.getAllUsers().forEach(u -> 
         {
-            UserState<U> user = new FastUser<>(u);
+            UserState<U> user = this.compact ? new CompactUser<>(u, this.store) : new FastUser<>(u);
             user.resetOwnInformation(data.getPieces(u).map(i -> 
             {
                 int uidx = data.getUserIndex().object2idx(u);
@@ -151,4 +186,190 @@ public class SimulationState<U extends Serializable,I extends Serializable,P>
     {
         return userState.values().stream();
     }
+    
+    /**
+     * Writes a snapshot of the state of the users. The newly seen pieces are not stored, since
+     * they are always empty between iterations.
+     * @param out the output stream.
+     * @param data the data.
+     * @throws IOException if something fails while writing.
+     */
+    public void writeSnapshot(DataOutputStream out, Data<U,I,P> data) throws IOException
+    {
+        out.writeInt(this.userState.size());
+        for(UserState<U> user : this.userState.values())
+        {
+            out.writeInt(data.getUserIndex().object2idx(user.getUserId()));
+            this.writePieces(out, user.getOwnInformation().collect(Collectors.toList()));
+            this.writePieces(out, user.getReceivedInformation().collect(Collectors.toList()));
+            this.writePieces(out, user.getPropagatedInformation().collect(Collectors.toList()));
+            this.writePieces(out, user.getDiscardedInformation().collect(Collectors.toList()));
+            this.writePieces(out, user.getAllInformation().collect(Collectors.toList()));
+        }
+    }
+    
+    /**
+     * Restores the state of the users from a snapshot. The structures must have been initialized before.
+     * @param in the input stream.
+     * @param data the data.
+     * @throws IOException if something fails while reading.
+     */
+    public void readSnapshot(DataInputStream in, Data<U,I,P> data) throws IOException
+    {
+        int numUsers = in.readInt();
+        for(int i = 0; i < numUsers; ++i)
+        {
+            U u = data.getUserIndex().idx2object(in.readInt());
+            UserState<U> user = this.userState.get(u);
+            if(user == null)
+            {
+                throw new IOException("Unknown user in the snapshot");
+            }
+            
+            user.clear();
+            for(PropagatedInformation info : this.readPieces(in))
+            {
+                user.addOwnInformation(info);
+            }
+            for(PropagatedInformation info : this.readPieces(in))
+            {
+                user.addReceivedInformation(info);
+            }
+            for(PropagatedInformation info : this.readPieces(in))
+            {
+                user.addPropagatedInformation(info);
+            }
+            for(PropagatedInformation info : this.readPieces(in))
+            {
+                user.addDiscardedInformation(info);
+            }
+            for(PropagatedInformation info : this.readPieces(in))
+            {
+                user.addAllInformation(info);
+            }
+        }
+    }
+    
+    /**
+     * Writes a list of pieces.
+     * @param out the output stream.
+     * @param pieces the pieces.
+     * @throws IOException if something fails while writing.
+     */
+    private void writePieces(DataOutputStream out, List<PropagatedInformation> pieces) throws IOException
+    {
+        out.writeInt(pieces.size());
+        for(PropagatedInformation info : pieces)
+        {
+            out.writeInt(info.getInfoId());
+            out.writeLong(info.getTimestamp());
+            out.writeInt(info.getTimes());
+            out.writeInt(info.getCreators().size());
+            for(int creator : info.getCreators())
+            {
+                out.writeInt(creator);
+            }
+        }
+    }
+    
+    /**
+     * Reads a list of pieces.
+     * @param in the input stream.
+     * @return the pieces.
+     * @throws IOException if something fails while reading.
+     */
+    private List<PropagatedInformation> readPieces(DataInputStream in) throws IOException
+    {
+        int numPieces = in.readInt();
+        List<PropagatedInformation> pieces = new ArrayList<>(numPieces);
+        for(int j = 0; j < numPieces; ++j)
+        {
+            int iidx = in.readInt();
+            long timestamp = in.readLong();
+            int times = in.readInt();
+            int[] creators = new int[in.readInt()];
+            for(int k = 0; k < creators.length; ++k)
+            {
+                creators[k] = in.readInt();
+            }
+            PropagatedInformation info = new PropagatedInformation(iidx, timestamp, creators);
+            info.setTimes(times);
+            pieces.add(info);
+        }
+        return pieces;
+    }
+    
+    /**
+     * Applies the changes registered in an iteration over the state of the users. Changes
+     * are applied in the same way as when the final state of a simulation is computed (see
+     * {@link Simulation#getFinalState(UpdateMechanism)}): first, the propagated pieces, then the
+     * discarded ones and, finally, the received ones.
+     * @param iteration the iteration.
+     * @param data the data.
+     * @param upd the update mechanism.
+     */
+    public void apply(Iteration<U,I,P> iteration, Data<U,I,P> data, UpdateMechanism upd)
+    {
+        long iter = iteration.getIterationNumber();
+        
+        iteration.getPropagatingUsers().forEach(u -> 
+        {
+            UserState<U> user = this.userState.get(u);
+            int uidx = data.getUserIndex().object2idx(u);
+            iteration.getPropagatedInformation(u).forEach(info -> 
+            {
+                int iidx = data.getInformationPiecesIndex().object2idx(info);
+                user.deleteReceivedInformation(iidx);
+                user.deleteOwnInformation(iidx);
+                user.addPropagatedInformation(new PropagatedInformation(iidx, iter, uidx));
+            });
+        });
+        
+        iteration.getDiscardingUsers().forEach(u -> 
+        {
+            UserState<U> user = this.userState.get(u);
+            user.discardReceivedInformation(iteration.getDiscardedInformation(u).map(info -> data.getInformationPiecesIndex().object2idx(info)));
+        });
+        
+        iteration.getReceivingUsers().forEach(u -> 
+        {
+            UserState<U> user = this.userState.get(u);
+            iteration.getSeenInformation(u).forEach(t -> 
+            {
+                int iidx = data.getInformationPiecesIndex().object2idx(t.v1());
+                Set<Integer> creators = t.v2().stream().map(v -> data.getUserIndex().object2idx(v)).collect(Collectors.toCollection(HashSet::new));
+                PropagatedInformation info = new PropagatedInformation(iidx, iter, creators);
+                user.addReceivedInformation(info);
+                user.addAllInformation(info);
+            });
+        });
+        
+        iteration.getReReceivingUsers().forEach(u -> 
+        {
+            UserState<U> user = this.userState.get(u);
+            iteration.getReReceivedInformation(u).forEach(t -> 
+            {
+                int iidx = data.getInformationPiecesIndex().object2idx(t.v1());
+                Set<Integer> creators = t.v2().stream().map(v -> data.getUserIndex().object2idx(v)).collect(Collectors.toCollection(HashSet::new));
+                PropagatedInformation info = new PropagatedInformation(iidx, iter, creators);
+                
+                // If the information was previously discarded...
+                if(user.containsDiscardedInformation(iidx))
+                {
+                    info = upd.updateDiscarded(user.getDiscardedInformation(iidx), info);
+                    if(info == null)
+                    {
+                        return;
+                    }
+                }
+                // If the information was previously received...
+                if(user.containsReceivedInformation(iidx))
+                {
+                    info = upd.updateSeen(user.getReceivedInformation(iidx), info);
+                }
+                user.addReceivedInformation(info);
+                user.addAllInformation(info);
+            });
+        });
+    }
 }
@@ -12,19 +12,47 @@ import es.uam.eps.ir.socialnetwork.informationpropagation.stop.StopCondition;
 import es.uam.eps.ir.socialnetwork.informationpropagation.selections.Selection;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
 import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.expiration.ScheduledExpirationMechanism;
 import es.uam.eps.ir.socialnetwork.informationpropagation.io.backup.BinarySimulationWriter;
+import es.uam.eps.ir.socialnetwork.informationpropagation.io.backup.CheckpointLog;
 import es.uam.eps.ir.socialnetwork.informationpropagation.protocols.Protocol;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Class for the execution of information propagation simulations.
+ * 
+ * Simulations can be run in parallel, in a bulk-synchronous way: the users are divided in
+ * a fixed number of partitions (according to their identifiers), and each phase of an iteration
+ * (selection, expiration, propagation and reception) is run in parallel over the partitions.
+ * The changes that a partition makes over users of other partitions (i.e. the propagated pieces)
+ * are stored in outboxes, which are delivered once all the partitions have finished the phase.
+ * The random number generators of the stochastic mechanisms (see {@link SimulationRandom}) are split
+ * from a common seed for each partition and phase, so the result of the simulation only depends
+ * on the seed and the number of partitions.
+ * 
+ * Sequential simulations can also be run in an event-driven way: only the users whose state might
+ * lead them to propagate some piece (see {@link es.uam.eps.ir.socialnetwork.informationpropagation.selections.SelectionMechanism#isActive(UserState)})
+ * are selected, and, if the expiration mechanism allows it (see {@link ScheduledExpirationMechanism}), the
+ * iteration in which each received piece expires is sampled once, when the piece is received, and stored
+ * in a timing wheel, so only the pieces which expire in an iteration are discarded, without checking
+ * all the received pieces. The results are statistically equivalent to the ones of the default simulation.
+ * 
  * @author Javier Sanz-Cruzado Puig
  * @param <U> type of the users.
  * @param <I> type of the information pieces.
@@ -69,6 +97,43 @@ public class Simulator<U extends Serializable,I extends Serializable,P> implemen
      * For time-based simulations, the current timestamp.
      */
     private Long currentTimestamp;
+    /**
+     * Random seed for parallel simulations.
+     */
+    private final long seed;
+    /**
+     * Number of partitions of the users for parallel simulations (0 if the simulation is sequential).
+     */
+    private final int numPartitions;
+    /**
+     * Sinks receiving the iterations of the simulation as they are produced.
+     */
+    private final List<IterationSink<U,I,P>> sinks;
+    /**
+     * Indicates whether the iterations are kept in memory in the simulation returned by the simulator.
+     */
+    private boolean storeIterations;
+    /**
+     * Incremental backup of the simulation (null if it is not used).
+     */
+    private CheckpointLog<U,I,P> checkpoint;
+    /**
+     * Number of iterations between two snapshots of the state of the simulation.
+     */
+    private int snapshotInterval;
+    /**
+     * Indicates whether sequential simulations are event-driven or not.
+     */
+    private boolean eventDriven;
+    /**
+     * Users which might propagate some piece in the next iteration (only for event-driven simulations).
+     */
+    private Set<U> activeUsers;
+    /**
+     * Timing wheel: the expiration events, indexed by the iteration in which they take place (only for event-driven simulations).
+     */
+    private Int2ObjectOpenHashMap<List<ExpirationEvent<U>>> wheel;
+    
     /**
      * Full Constructor.
      * @param protocol Communication protocol.
@@ -77,10 +142,93 @@ public class Simulator<U extends Serializable,I extends Serializable,P> implemen
      * do not include them in this map.
      */
     public Simulator(Protocol<U,I,P> protocol, StopCondition<U,I,P> stop)
+    {
+        this(protocol, stop, 0L, 0);
+    }
+    
+    /**
+     * Constructor for parallel simulations.
+     * @param protocol Communication protocol.
+     * @param stop Stop condition for the simulation.
+     * @param seed Random seed.
+     * @param numPartitions Number of partitions of the users (0 for a sequential simulation).
+     */
+    public Simulator(Protocol<U,I,P> protocol, StopCondition<U,I,P> stop, long seed, int numPartitions)
+    {
+        this(protocol, stop, seed, numPartitions, false);
+    }
+    
+    /**
+     * Constructor.
+     * @param protocol Communication protocol.
+     * @param stop Stop condition for the simulation.
+     * @param seed Random seed.
+     * @param numPartitions Number of partitions of the users (0 for a sequential simulation).
+     * @param compactUsers true if the state of the users has to be stored in compact form, to reduce
+     * the memory usage of large simulations (see {@link es.uam.eps.ir.socialnetwork.informationpropagation.data.CompactUser}).
+     */
+    public Simulator(Protocol<U,I,P> protocol, StopCondition<U,I,P> stop, long seed, int numPartitions, boolean compactUsers)
     {
         this.protocol = protocol;
         this.stop = stop;
-        this.state = new SimulationState<>();
+        this.state = new SimulationState<>(compactUsers);
+        this.seed = seed;
+        this.numPartitions = numPartitions;
+        this.sinks = new ArrayList<>();
+        this.storeIterations = true;
+    }
+    
+    /**
+     * Registers a sink, which will receive the iterations of the simulation as they are produced.
+     * @param sink the sink.
+     */
+    public void addSink(IterationSink<U,I,P> sink)
+    {
+        this.sinks.add(sink);
+    }
+    
+    /**
+     * Establishes an incremental backup for the simulation. Each iteration is appended to the
+     * backup log, and the state of the simulation is stored every few iterations.
+     * @param checkpoint the incremental backup.
+     * @param snapshotInterval number of iterations between two snapshots of the state of the simulation.
+     */
+    public void setCheckpoint(CheckpointLog<U,I,P> checkpoint, int snapshotInterval)
+    {
+        if(this.checkpoint != null)
+        {
+            this.sinks.remove(this.checkpoint);
+        }
+        this.checkpoint = checkpoint;
+        this.snapshotInterval = snapshotInterval;
+        if(checkpoint != null)
+        {
+            this.sinks.add(checkpoint);
+        }
+    }
+    
+    /**
+     * Indicates whether the iterations have to be kept in memory in the simulation returned by the
+     * simulator or not. When they are not, the simulation only contains the number of iterations, and
+     * they can only be processed through the registered sinks. This allows long simulations to run
+     * in bounded memory. By default, the iterations are kept.
+     * @param storeIterations true if the iterations have to be kept in memory, false otherwise.
+     */
+    public void setStoreIterations(boolean storeIterations)
+    {
+        this.storeIterations = storeIterations;
+    }
+    
+    /**
+     * Indicates whether sequential simulations have to be run in an event-driven way or not. In event-driven
+     * simulations, idle users are skipped: only users which might propagate some piece are selected and,
+     * when the expiration mechanism is a {@link ScheduledExpirationMechanism}, only the pieces which expire in
+     * the iteration are discarded. Parallel simulations ignore this option. By default, simulations are not event-driven.
+     * @param eventDriven true if the simulation has to be event-driven, false otherwise.
+     */
+    public void setEventDriven(boolean eventDriven)
+    {
+        this.eventDriven = eventDriven;
     }
     
     /**
@@ -109,12 +257,38 @@ public class Simulator<U extends Serializable,I extends Serializable,P> implemen
         System.out.println("Filtering done");
         System.out.println(this.data.dataSummary());
         this.numIter = simulation.getInitialNumber() + simulation.getNumIterations();
+        this.currentTimestamp = this.findTimestamp(this.numIter);
+    }
+    
+    /**
+     * Initializes and prepares the data, resuming an interrupted simulation from its incremental
+     * backup. The new iterations are appended to the backup.
+     * @param data Full data
+     * @param checkpoint the incremental backup of the simulation.
+     * @param snapshotInterval number of iterations between two snapshots of the state of the simulation.
+     */
+    public void initialize(Data<U,I,P> data, CheckpointLog<U,I,P> checkpoint, int snapshotInterval)
+    {
+        this.data = data;
+        this.numIter = checkpoint.recover(data, this.state, this.protocol.getUpdate());
+        System.out.println(this.data.dataSummary());
+        this.currentTimestamp = this.findTimestamp(this.numIter);
+        this.setCheckpoint(checkpoint, snapshotInterval);
+    }
+    
+    /**
+     * Finds the timestamp of an iteration.
+     * @param numIter the number of the iteration.
+     * @return the timestamp.
+     */
+    private Long findTimestamp(int numIter)
+    {
         long timestamp = data.getTimestamps().first();
-        for(int i = 0; i < simulation.getInitialNumber() + simulation.getNumIterations(); ++i)
+        for(int i = 0; i < numIter; ++i)
         {
             timestamp = data.getTimestamps().higher(timestamp);
         }
-        this.currentTimestamp = timestamp;
+        return timestamp;
     }
     
     /**
@@ -127,19 +301,22 @@ public class Simulator<U extends Serializable,I extends Serializable,P> implemen
     }
     
     /**
-     * Executes the simulation and stores the results in a file.
+     * Executes the simulation and stores the results in a file. The backup is only stored if the
+     * iterations are kept in memory.
      * @param backup File where we want to backup the simulation, to prevent errors.
      * @return the simulation evolution.
      */
     public Simulation<U,I,P> simulate(String backup) 
     {
-        Simulation<U,I,P> simulation = new Simulation<>(this.data, this.numIter);
+        Simulation<U,I,P> simulation = new Simulation<>(this.data, this.numIter, this.storeIterations);
+        this.sinks.forEach(sink -> sink.initialize(this.data, this.numIter));
         
         long initTime = System.currentTimeMillis();
         long alarmTime = 0L;
         long totalpropagated = 0L;
         
         Map<U, Long> receivedCount = new HashMap<>();
+        SplittableRandom rng = new SplittableRandom(this.seed);
         this.state.getAllUsers().forEach(u -> 
         {
             long count = u.getReceivedInformation().count();
@@ -147,6 +324,11 @@ public class Simulator<U extends Serializable,I extends Serializable,P> implemen
                 receivedCount.put(u.getUserId(), count);
         });
         
+        if(this.numPartitions <= 0 && this.eventDriven)
+        {
+            this.initializeEvents();
+        }
+        
         do // Start propagation
         {
             // Store the state of the simulation in this iteration (i.e. the newly received pieces of information)
@@ -158,199 +340,780 @@ public class Simulator<U extends Serializable,I extends Serializable,P> implemen
             this.currentPropagated = 0;
             this.currentPropagatingUsers = 0;
     
-            // Resets the selected users in the propagated protocol
-            this.protocol.getProp().resetSelections(data);
+            if(this.numPartitions > 0)
+            {
+                this.parallelIteration(iteration, receivedCount, rng.split());
+            }
+            else if(this.eventDriven)
+            {
+                this.eventDrivenIteration(iteration, receivedCount);
+            }
+            else
+            {
+                this.sequentialIteration(iteration, receivedCount);
+            }
+
+            totalpropagated += this.currentPropagated;
+            simulation.addIteration(iteration);
+            this.sinks.forEach(sink -> sink.accept(iteration));
+            
+            // Select the information that the different users see
+            /*this.state.getAllUsers().parallel().forEach(user -> 
+            {
+                user.updateSeen(this.protocol.getSight().seeInformation(user, data));
+            });
+            this.newlyPropagatedInfo = this.state.getAllUsers().parallel().mapToLong(user -> user.getSeenInformation().count()).sum();
+            */
+                
+            // Move all the newly observed pieces to the received set.
             
-            Map<U, Selection> allPropInfo = new HashMap<>();
+            alarmTime += (System.currentTimeMillis() - initialTime);
             
-            // for each user, select the pieces to propagate.
-            this.protocol.getSelection().getSelectableUsers(data, state, numIter, this.currentTimestamp).forEach(u ->
+            if(numIter%100 == 0)
             {
-                UserState<U> user = state.getUser(u);
-                // Select which information pieces will be propagated for the user.
-                Selection sel = this.protocol.getSelection().select(user, data, state, numIter, this.currentTimestamp);
-                int numProp = sel.numPropagated();
-                if(numProp > 0)
-                {
-                    ++this.currentPropagatingUsers;
-                    this.currentPropagated += sel.numPropagated();
+                System.out.println("Iteration " + numIter + " finished (" + alarmTime + " ms.)");
+            }
+            
+            numIter++;
+            this.currentTimestamp = this.data.getTimestamps().higher(this.currentTimestamp);
+            
+            if(this.checkpoint != null && this.snapshotInterval > 0 && numIter % this.snapshotInterval == 0)
+            {
+                this.checkpoint.snapshot(this.state, numIter);
+            }
+            
+            long endTime = System.currentTimeMillis();
+            if(backup != null && this.storeIterations && (endTime - initTime) > 3600 * 1000) // Each hour of simulation, store a backup
+            {
+                BinarySimulationWriter<U,I,P> bsw = new BinarySimulationWriter<>();
+                bsw.initialize(backup);
+                bsw.writeSimulation(simulation);
+                initTime = System.currentTimeMillis();
+            }
                 
-                    // Update the user: the selected pieces are moved to the propagated list.
-                    user.updateReceivedToPropagated(sel.getPropagateSelection().map(info -> info.getInfoId()));
-                    user.updateOwnToPropagated(sel.getOwnSelection().map(info -> info.getInfoId()));
+        }
+        while(!this.stop.stop(numIter, currentPropagated, currentPropagatingUsers, this.newlyPropagatedInfo, totalpropagated, data, currentTimestamp));
+        
+        this.sinks.forEach(sink -> sink.close());
+        return simulation;
+    }
+
+    /**
+     * Runs the selection, expiration, propagation and reception phases of an iteration, sequentially.
+     * @param iteration the iteration.
+     * @param receivedCount number of received pieces of each user.
+     */
+    private void sequentialIteration(Iteration<U,I,P> iteration, Map<U, Long> receivedCount)
+    {
+        // Resets the selected users in the propagated protocol
+        this.protocol.getProp().resetSelections(data);
+        
+        // for each user, select the pieces to propagate.
+        Map<U, Selection> allPropInfo = this.select(this.protocol.getSelection().getSelectableUsers(data, state, numIter, this.currentTimestamp));
+       
+        // for each user, expire the selected information.
+        this.expire(iteration, receivedCount);
+        
+        Set<U> receivedUsers = this.distribute(iteration, allPropInfo);
+        
+        receivedUsers.forEach(user -> 
+        {
+            Map<I, Set<U>> seenInfo = new HashMap<>();
+            Map<I, Set<U>> rereceivedInfo = new HashMap<>();
+            int numRec = this.receive(user, seenInfo, rereceivedInfo);
+            this.addReceived(iteration, receivedCount, user, seenInfo, rereceivedInfo, numRec);
+        });
+    }
+    
+    /**
+     * Runs the selection, expiration, propagation and reception phases of an iteration, sequentially,
+     * skipping the idle users.
+     * @param iteration the iteration.
+     * @param receivedCount number of received pieces of each user.
+     */
+    private void eventDrivenIteration(Iteration<U,I,P> iteration, Map<U, Long> receivedCount)
+    {
+        // Resets the selected users in the propagated protocol
+        this.protocol.getProp().resetSelections(data);
+        
+        // for each active user, select the pieces to propagate.
+        Map<U, Selection> allPropInfo = this.select(this.protocol.getSelection().getSelectableUsers(data, state, numIter, this.currentTimestamp).filter(this.activeUsers::contains));
+        
+        // Expire the information: if the expiration iterations are known, only the scheduled events are processed.
+        Set<U> discardingUsers;
+        if(this.protocol.getExpiration() instanceof ScheduledExpirationMechanism)
+        {
+            discardingUsers = new HashSet<>();
+            List<ExpirationEvent<U>> events = this.wheel.remove(this.numIter);
+            if(events != null)
+            {
+                Map<U, List<Integer>> expired = new HashMap<>();
+                events.forEach(event -> 
+                {
+                    // Events of pieces which have been propagated, discarded or received again since they were scheduled are ignored.
+                    UserState<U> user = state.getUser(event.user);
+                    if(user.containsReceivedInformation(event.info) && user.getReceivedInformation(event.info).getTimestamp() == event.timestamp)
+                    {
+                        expired.computeIfAbsent(event.user, u -> new ArrayList<>()).add(event.info);
+                    }
+                });
                 
-                    allPropInfo.put(user.getUserId(), sel);
+                expired.forEach((u, deleted) -> 
+                {
+                    if(this.discard(iteration, receivedCount, u, deleted))
+                    {
+                        receivedCount.remove(u);
+                    }
+                });
+                discardingUsers.addAll(expired.keySet());
+            }
+        }
+        else
+        {
+            discardingUsers = this.expire(iteration, receivedCount);
+        }
+        
+        Set<U> receivedUsers = this.distribute(iteration, allPropInfo);
+        
+        receivedUsers.forEach(user -> 
+        {
+            UserState<U> uState = state.getUser(user);
+            
+            // Find the previous timestamps of the seen pieces which had already been received.
+            Int2LongOpenHashMap previous = new Int2LongOpenHashMap();
+            uState.getSeenInformationIds().filter(uState::containsReceivedInformation).forEach(info -> 
+                previous.put(info.intValue(), uState.getReceivedInformation(info).getTimestamp()));
+            
+            Map<I, Set<U>> seenInfo = new HashMap<>();
+            Map<I, Set<U>> rereceivedInfo = new HashMap<>();
+            int numRec = this.receive(user, seenInfo, rereceivedInfo);
+            this.addReceived(iteration, receivedCount, user, seenInfo, rereceivedInfo, numRec);
+            
+            // Schedule the expiration of the new pieces (and of the ones whose timestamp has changed). 
+            Stream.concat(seenInfo.keySet().stream(), rereceivedInfo.keySet().stream()).forEach(i -> 
+            {
+                int info = this.data.getInformationPiecesIndex().object2idx(i);
+                if(uState.containsReceivedInformation(info))
+                {
+                    PropagatedInformation piece = uState.getReceivedInformation(info);
+                    if(!previous.containsKey(info) || previous.get(info) != piece.getTimestamp())
+                    {
+                        this.schedule(uState, piece, this.numIter + 1);
+                    }
                 }
             });
-           
-            List<U> toRemove = new ArrayList<>();
-            // for each user, expire the selected information.
-            receivedCount.keySet().stream().forEach(u ->
+        });
+        
+        // Only the users whose state has changed might have become active or idle.
+        Stream.concat(Stream.concat(allPropInfo.keySet().stream(), receivedUsers.stream()), discardingUsers.stream()).forEach(this::updateActive);
+    }
+    
+    /**
+     * Finds the active users and schedules the expiration of the received pieces at the beginning of an event-driven simulation.
+     */
+    private void initializeEvents()
+    {
+        this.activeUsers = new HashSet<>();
+        this.wheel = new Int2ObjectOpenHashMap<>();
+        this.state.getAllUsers().forEach(user -> 
+        {
+            this.updateActive(user.getUserId());
+            user.getReceivedInformation().forEach(piece -> this.schedule(user, piece, this.numIter));
+        });
+    }
+    
+    /**
+     * Checks whether a user is active or not, and updates the set of active users.
+     * @param u the user.
+     */
+    private void updateActive(U u)
+    {
+        if(this.protocol.getSelection().isActive(this.state.getUser(u)))
+        {
+            this.activeUsers.add(u);
+        }
+        else
+        {
+            this.activeUsers.remove(u);
+        }
+    }
+    
+    /**
+     * Schedules the expiration of a received piece, if the expiration mechanism allows it.
+     * @param user the user who has received the piece.
+     * @param piece the piece.
+     * @param firstIter the first iteration in which the expiration of the piece is checked.
+     */
+    private void schedule(UserState<U> user, PropagatedInformation piece, int firstIter)
+    {
+        if(this.protocol.getExpiration() instanceof ScheduledExpirationMechanism)
+        {
+            ScheduledExpirationMechanism<U,I,P> exp = (ScheduledExpirationMechanism<U,I,P>) this.protocol.getExpiration();
+            int iter = exp.expirationIteration(user, piece, data, firstIter);
+            if(iter != ScheduledExpirationMechanism.NEVER)
+            {
+                if(!this.wheel.containsKey(iter))
+                {
+                    this.wheel.put(iter, new ArrayList<>());
+                }
+                this.wheel.get(iter).add(new ExpirationEvent<>(user.getUserId(), piece.getInfoId(), piece.getTimestamp()));
+            }
+        }
+    }
+    
+    /**
+     * Selects the pieces that a group of users propagate in the current iteration.
+     * @param users the users.
+     * @return the selections of the users which propagate some piece.
+     */
+    private Map<U, Selection> select(Stream<U> users)
+    {
+        Map<U, Selection> allPropInfo = new HashMap<>();
+        
+        // for each user, select the pieces to propagate.
+        users.forEach(u ->
+        {
+            UserState<U> user = state.getUser(u);
+            // Select which information pieces will be propagated for the user.
+            Selection sel = this.protocol.getSelection().select(user, data, state, numIter, this.currentTimestamp);
+            int numProp = sel.numPropagated();
+            if(numProp > 0)
+            {
+                ++this.currentPropagatingUsers;
+                this.currentPropagated += sel.numPropagated();
+            
+                // Update the user: the selected pieces are moved to the propagated list.
+                user.updateReceivedToPropagated(sel.getPropagateSelection().map(info -> info.getInfoId()));
+                user.updateOwnToPropagated(sel.getOwnSelection().map(info -> info.getInfoId()));
+            
+                allPropInfo.put(user.getUserId(), sel);
+            }
+        });
+        
+        return allPropInfo;
+    }
+    
+    /**
+     * Checks the expiration of the pieces received by all the users with received pieces, and discards the expired ones.
+     * @param iteration the iteration.
+     * @param receivedCount number of received pieces of each user.
+     * @return the users which have discarded some piece.
+     */
+    private Set<U> expire(Iteration<U,I,P> iteration, Map<U, Long> receivedCount)
+    {
+        Set<U> discardingUsers = new HashSet<>();
+        List<U> toRemove = new ArrayList<>();
+        receivedCount.keySet().stream().forEach(u ->
+        {
+            UserState<U> user = state.getUser(u);
+            // Apply the expiration of the received information pieces.
+            List<Integer> deleted = this.protocol.getExpiration().expire(user, data, numIter, this.currentTimestamp)
+                    .collect(Collectors.toCollection(ArrayList::new));
+            
+            if(!deleted.isEmpty())
+            {
+                discardingUsers.add(u);
+            }
+            if(this.discard(iteration, receivedCount, u, deleted))
+            {
+                toRemove.add(u);
+            }
+        });
+        
+        toRemove.forEach(u -> receivedCount.remove(u));
+        return discardingUsers;
+    }
+    
+    /**
+     * Discards some of the pieces received by a user.
+     * @param iteration the iteration.
+     * @param receivedCount number of received pieces of each user.
+     * @param u the user.
+     * @param deleted the identifiers of the pieces to discard.
+     * @return true if the user has no remaining received pieces, false otherwise.
+     */
+    private boolean discard(Iteration<U,I,P> iteration, Map<U, Long> receivedCount, U u, List<Integer> deleted)
+    {
+        UserState<U> user = state.getUser(u);
+        
+        // Store the information about the discarded pieces this iteration.
+        List<I> discardedInfo = new ArrayList<>();
+        deleted.forEach(i -> discardedInfo.add(this.data.getInformationPiecesIndex().idx2object(i)));
+
+        boolean empty = false;
+        if(!discardedInfo.isEmpty())
+        {
+            iteration.addDiscardingUser(user.getUserId(), discardedInfo);
+            long c = receivedCount.get(u) - discardedInfo.size();
+            empty = c <= 0;
+            receivedCount.put(u, c);
+        }
+        user.discardReceivedInformation(deleted.stream());
+        return empty;
+    }
+    
+    /**
+     * Distributes the selected pieces among the users who see them.
+     * @param iteration the iteration.
+     * @param allPropInfo the selections of the users which propagate some piece.
+     * @return the users who have seen some piece.
+     */
+    private Set<U> distribute(Iteration<U,I,P> iteration, Map<U, Selection> allPropInfo)
+    {
+        this.newlyPropagatedInfo = 0;
+        // Resets the users to obtain information pieces from.
+        this.protocol.getSight().resetSelections(data);
+
+        Set<U> receivedUsers = new HashSet<>();
+        // Now that information pieces have been selected for propagation, and the remaining
+        // have been pruned, now, we can distribute the pieces among the different users.
+        allPropInfo.keySet().forEach(u -> 
+        {
+            Selection sel = allPropInfo.get(u);
+            List<I> propInfo = new ArrayList<>();
+            sel.getAll().forEach(info -> propInfo.add(this.data.getInformationPiecesIndex().idx2object(info.getInfoId())));
+            if(!propInfo.isEmpty())
+            {
+                iteration.addPropagatingUser(u,propInfo);
+            }
+            
+            // In case the selection of users that receive the information do not depend on which piece do we send
+            if(!this.protocol.getProp().dependsOnInformationPiece())
+            {
+                PropagatedInformation auxpp = new PropagatedInformation(-1,0,0);
+                this.protocol.getProp().getUsersToPropagate(auxpp, state.getUser(u), data).forEach(v ->
+                {
+                    UserState<U> uState = this.state.getUser(v);
+                    sel.getAll().filter(piece -> this.protocol.getSight().seesInformation(uState, data, piece)).forEach(piece ->
+                    {
+                        uState.updateSeen(piece);
+                        this.newlyPropagatedInfo++;
+                        receivedUsers.add(v);
+                    });
+                });
+            }
+            else // In case different pieces could go to different users.
+            {
+                sel.getAll().forEach(info -> 
+                {
+                    
+                    I i = this.data.getInformationPiecesIndex().idx2object(info.getInfoId());
+                    propInfo.add(i);
+
+                    this.protocol.getProp().getUsersToPropagate(info, state.getUser(u), data).forEach(v -> 
+                    {
+                        UserState<U> vState = this.state.getUser(v);
+                        if(this.protocol.getSight().seesInformation(vState, data, info))
+                        {
+                            vState.updateSeen(info);
+                            this.newlyPropagatedInfo++;
+                            receivedUsers.add(v);
+                        }
+                    });
+                });
+            }
+        });
+        
+        return receivedUsers;
+    }
+    
+    /**
+     * Runs the selection, expiration, propagation and reception phases of an iteration, in parallel
+     * over the partitions of the users.
+     * @param iteration the iteration.
+     * @param receivedCount number of received pieces of each user.
+     * @param rng the random number generator for the iteration.
+     */
+    private void parallelIteration(Iteration<U,I,P> iteration, Map<U, Long> receivedCount, SplittableRandom rng)
+    {
+        // Resets the selected users in the propagated protocol
+        SimulationRandom.set(rng.split());
+        this.protocol.getProp().resetSelections(data);
+        
+        // Selection phase: first, the pieces to propagate are selected, and then, the users are updated.
+        List<List<U>> selectable = this.partition(this.protocol.getSelection().getSelectableUsers(data, state, numIter, this.currentTimestamp));
+        SplittableRandom[] rngs = this.split(rng);
+        List<Map<U, Selection>> selections = this.runPartitions(p ->
+        {
+            SimulationRandom.set(rngs[p]);
+            Map<U, Selection> sels = new LinkedHashMap<>();
+            for(U u : selectable.get(p))
+            {
+                Selection sel = this.protocol.getSelection().select(state.getUser(u), data, state, numIter, this.currentTimestamp);
+                if(sel.numPropagated() > 0)
+                {
+                    sels.put(u, sel);
+                }
+            }
+            return sels;
+        });
+        
+        this.runPartitions(p -> 
+        {
+            selections.get(p).forEach((u, sel) ->
+            {
+                // Update the user: the selected pieces are moved to the propagated list.
+                UserState<U> user = state.getUser(u);
+                user.updateReceivedToPropagated(sel.getPropagateSelection().map(info -> info.getInfoId()));
+                user.updateOwnToPropagated(sel.getOwnSelection().map(info -> info.getInfoId()));
+            });
+            return null;
+        });
+        
+        Map<U, Selection> allPropInfo = new LinkedHashMap<>();
+        selections.forEach(sels -> sels.forEach((u, sel) -> 
+        {
+            ++this.currentPropagatingUsers;
+            this.currentPropagated += sel.numPropagated();
+            allPropInfo.put(u, sel);
+        }));
+        
+        // Expiration phase.
+        List<List<U>> expirable = this.partition(receivedCount.keySet().stream());
+        SplittableRandom[] expRngs = this.split(rng);
+        List<Map<U, List<I>>> discarded = this.runPartitions(p -> 
+        {
+            SimulationRandom.set(expRngs[p]);
+            Map<U, List<I>> disc = new LinkedHashMap<>();
+            for(U u : expirable.get(p))
             {
                 UserState<U> user = state.getUser(u);
-                // Expire the information
-                // Apply the expiration of the received information pieces.
                 List<Integer> deleted = this.protocol.getExpiration().expire(user, data, numIter, this.currentTimestamp)
                         .collect(Collectors.toCollection(ArrayList::new));
-              
-                // Store the information about the discarded pieces this iteration.
+                
                 List<I> discardedInfo = new ArrayList<>();
                 deleted.forEach(i -> discardedInfo.add(this.data.getInformationPiecesIndex().idx2object(i)));
-                
                 if(!discardedInfo.isEmpty())
                 {
-                    iteration.addDiscardingUser(user.getUserId(), discardedInfo);
-                    long c = receivedCount.get(u) - discardedInfo.size();
-                    if(c <= 0) toRemove.add(u);
-                    receivedCount.put(u, receivedCount.get(u) - discardedInfo.size());
+                    disc.put(u, discardedInfo);
                 }
                 user.discardReceivedInformation(deleted.stream());
-            });
-            
-            toRemove.forEach(u -> receivedCount.remove(u));
+            }
+            return disc;
+        });
+        
+        discarded.forEach(disc -> disc.forEach((u, discardedInfo) -> 
+        {
+            iteration.addDiscardingUser(u, discardedInfo);
+            long c = receivedCount.get(u) - discardedInfo.size();
+            if(c <= 0)
+            {
+                receivedCount.remove(u);
+            }
+            else
+            {
+                receivedCount.put(u, c);
+            }
+        }));
+        
+        this.newlyPropagatedInfo = 0;
+        // Resets the users to obtain information pieces from.
+        SimulationRandom.set(rng.split());
+        this.protocol.getSight().resetSelections(data);
+        
+        // Propagation phase: each partition stores the pieces sent to the users of every partition in a different outbox.
+        List<List<U>> senders = this.partition(allPropInfo.keySet().stream());
+        SplittableRandom[] propRngs = this.split(rng);
+        Index<U> uIndex = this.data.getUserIndex();
+        List<List<List<Message<U>>>> outboxes = this.runPartitions(p -> 
+        {
+            SimulationRandom.set(propRngs[p]);
+            List<List<Message<U>>> outbox = new ArrayList<>();
+            for(int q = 0; q < this.numPartitions; ++q)
+            {
+                outbox.add(new ArrayList<>());
+            }
             
-            this.newlyPropagatedInfo = 0;
-            // Resets the users to obtain information pieces from.
-            this.protocol.getSight().resetSelections(data);
-
-            Set<U> receivedUsers = new HashSet<>();
-            // Now that information pieces have been selected for propagation, and the remaining
-            // have been pruned, now, we can distribute the pieces among the different users.
-            allPropInfo.keySet().forEach(u -> 
+            for(U u : senders.get(p))
             {
                 Selection sel = allPropInfo.get(u);
-                List<I> propInfo = new ArrayList<>();
-                sel.getAll().forEach(info -> propInfo.add(this.data.getInformationPiecesIndex().idx2object(info.getInfoId())));
-                if(!propInfo.isEmpty())
-                {
-                    iteration.addPropagatingUser(u,propInfo);
-                }
-                
-                // In case the selection of users that receive the information do not depend on which piece do we send
                 if(!this.protocol.getProp().dependsOnInformationPiece())
                 {
                     PropagatedInformation auxpp = new PropagatedInformation(-1,0,0);
-                    this.protocol.getProp().getUsersToPropagate(auxpp, state.getUser(u), data).forEach(v ->
+                    this.protocol.getProp().getUsersToPropagate(auxpp, state.getUser(u), data).forEach(v -> 
                     {
-                        UserState<U> uState = this.state.getUser(v);
-                        sel.getAll().filter(piece -> this.protocol.getSight().seesInformation(uState, data, piece)).forEach(piece ->
-                        {
-                            uState.updateSeen(piece);
-                            this.newlyPropagatedInfo++;
-                            receivedUsers.add(v);
-                        });
+                        List<Message<U>> box = outbox.get(this.partitionOf(uIndex.object2idx(v)));
+                        sel.getAll().forEach(piece -> box.add(new Message<>(v, piece)));
                     });
                 }
-                else // In case different pieces could go to different users.
+                else
                 {
                     sel.getAll().forEach(info -> 
-                    {
-                        
-                        I i = this.data.getInformationPiecesIndex().idx2object(info.getInfoId());
-                        propInfo.add(i);
-
                         this.protocol.getProp().getUsersToPropagate(info, state.getUser(u), data).forEach(v -> 
-                        {
-                            UserState<U> vState = this.state.getUser(v);
-                            if(this.protocol.getSight().seesInformation(vState, data, info))
-                            {
-                                vState.updateSeen(info);
-                                this.newlyPropagatedInfo++;
-                                receivedUsers.add(v);
-                            }
-                        });
-                    });
+                            outbox.get(this.partitionOf(uIndex.object2idx(v))).add(new Message<>(v, info))));
                 }
-            });
-                      
-            
-            receivedUsers.forEach(user -> 
+            }
+            return outbox;
+        });
+        
+        allPropInfo.forEach((u, sel) -> 
+        {
+            List<I> propInfo = new ArrayList<>();
+            sel.getAll().forEach(info -> propInfo.add(this.data.getInformationPiecesIndex().idx2object(info.getInfoId())));
+            if(!propInfo.isEmpty())
             {
-                Map<I, Set<U>> seenInfo = new HashMap<>();
-                Map<I, Set<U>> rereceivedInfo = new HashMap<>();
-                
-                UserState<U> uState = state.getUser(user);
-                
-
-                int numRec = uState.getSeenInformation().mapToInt(propInfo -> 
+                iteration.addPropagatingUser(u, propInfo);
+            }
+        });
+        
+        // Delivery: each partition receives the messages for its users, in the order of the senders.
+        SplittableRandom[] sightRngs = this.split(rng);
+        long[] newlyPropagated = new long[this.numPartitions];
+        List<Set<U>> receivedUsers = this.runPartitions(q -> 
+        {
+            SimulationRandom.set(sightRngs[q]);
+            Set<U> received = new LinkedHashSet<>();
+            for(List<List<Message<U>>> outbox : outboxes)
+            {
+                for(Message<U> message : outbox.get(q))
                 {
-                    int numRereceived = 0;
-                    int info = propInfo.getInfoId();
-                    Set<U> authors = new HashSet<>();
-                    propInfo.getCreators().forEach(cidx -> authors.add(data.getUserIndex().idx2object(cidx)));
-                    
-                    if(!uState.containsDiscardedInformation(info) && !uState.containsOwnInformation(info) && !uState.containsPropagatedInformation(info) && !uState.containsReceivedInformation(info))
-                    {
-                        seenInfo.put(data.getInformationPiecesIndex().idx2object(info), authors);
-                    }
-                    else if((uState.containsReceivedInformation(info) || uState.containsDiscardedInformation(info)) && !uState.containsOwnInformation(info) && !uState.containsPropagatedInformation(info))
+                    UserState<U> vState = this.state.getUser(message.user);
+                    if(this.protocol.getSight().seesInformation(vState, data, message.piece))
                     {
-                        if(!uState.containsReceivedInformation(info)) numRereceived++;
-                        rereceivedInfo.put(data.getInformationPiecesIndex().idx2object(info), authors);
+                        // Each receiver gets its own copy of the piece, since the updates of the receiver modify it.
+                        vState.updateSeen(new PropagatedInformation(message.piece.getInfoId(), message.piece.getTimestamp(), message.piece.getCreators()));
+                        newlyPropagated[q]++;
+                        received.add(message.user);
                     }
-                    
-                    uState.updateSeenToReceived(info, this.protocol.getUpdate());
-                    
-                    return numRereceived;
-                }).sum();
-                
-                uState.clearSeenInformation();
-                
-                if(!seenInfo.isEmpty())
-                {
-                    iteration.addReceivingUser(user, seenInfo);
-                    numRec += seenInfo.size();
                 }
-                
-                if(!rereceivedInfo.isEmpty())
-                {
-                    iteration.addReReceivingUser(user, rereceivedInfo);
-                }
-                
-                if(receivedCount.containsKey(user))
-                {
-                    receivedCount.put(user, numRec + receivedCount.get(user));
-                }
-                else
-                {
-                    receivedCount.put(user, numRec + 0L);
-                }
-            });
-
-            totalpropagated += this.currentPropagated;
-            simulation.addIteration(iteration);
-            
-            // Select the information that the different users see
-            /*this.state.getAllUsers().parallel().forEach(user -> 
+            }
+            return received;
+        });
+        this.newlyPropagatedInfo = Arrays.stream(newlyPropagated).sum();
+        
+        // Reception phase.
+        List<List<Received<U,I>>> allReceived = this.runPartitions(q -> 
+        {
+            List<Received<U,I>> list = new ArrayList<>();
+            for(U user : receivedUsers.get(q))
             {
-                user.updateSeen(this.protocol.getSight().seeInformation(user, data));
-            });
-            this.newlyPropagatedInfo = this.state.getAllUsers().parallel().mapToLong(user -> user.getSeenInformation().count()).sum();
-            */
-                
-            // Move all the newly observed pieces to the received set.
-            
-            alarmTime += (System.currentTimeMillis() - initialTime);
-            
-            if(numIter%100 == 0)
+                Received<U,I> rec = new Received<>(user);
+                rec.numRec = this.receive(user, rec.seenInfo, rec.rereceivedInfo);
+                list.add(rec);
+            }
+            return list;
+        });
+        
+        allReceived.forEach(list -> list.forEach(rec -> this.addReceived(iteration, receivedCount, rec.user, rec.seenInfo, rec.rereceivedInfo, rec.numRec)));
+    }
+    
+    /**
+     * Moves the pieces seen by a user to the received ones.
+     * @param user the user.
+     * @param seenInfo map to store the newly received pieces, along with their creators.
+     * @param rereceivedInfo map to store the pieces which had been previously received, along with their creators.
+     * @return the number of pieces which count as new received pieces for the user (the rereceived pieces that had been discarded).
+     */
+    private int receive(U user, Map<I, Set<U>> seenInfo, Map<I, Set<U>> rereceivedInfo)
+    {
+        UserState<U> uState = state.getUser(user);
+
+        int numRec = uState.getSeenInformation().mapToInt(propInfo -> 
+        {
+            int numRereceived = 0;
+            int info = propInfo.getInfoId();
+            Set<U> authors = new HashSet<>();
+            propInfo.getCreators().forEach(cidx -> authors.add(data.getUserIndex().idx2object(cidx)));
+
+            if(!uState.containsDiscardedInformation(info) && !uState.containsOwnInformation(info) && !uState.containsPropagatedInformation(info) && !uState.containsReceivedInformation(info))
             {
-                System.out.println("Iteration " + numIter + " finished (" + alarmTime + " ms.)");
+                seenInfo.put(data.getInformationPiecesIndex().idx2object(info), authors);
             }
-            
-            numIter++;
-            this.currentTimestamp = this.data.getTimestamps().higher(this.currentTimestamp);
-            
-            long endTime = System.currentTimeMillis();
-            if(backup != null && (endTime - initTime) > 3600 * 1000) // Each hour of simulation, store a backup
+            else if((uState.containsReceivedInformation(info) || uState.containsDiscardedInformation(info)) && !uState.containsOwnInformation(info) && !uState.containsPropagatedInformation(info))
             {
-                BinarySimulationWriter<U,I,P> bsw = new BinarySimulationWriter<>();
-                bsw.initialize(backup);
-                bsw.writeSimulation(simulation);
-                initTime = System.currentTimeMillis();
+                if(!uState.containsReceivedInformation(info)) numRereceived++;
+                rereceivedInfo.put(data.getInformationPiecesIndex().idx2object(info), authors);
             }
-                
+
+            uState.updateSeenToReceived(info, this.protocol.getUpdate());
+
+            return numRereceived;
+        }).sum();
+
+        uState.clearSeenInformation();
+        return numRec;
+    }
+    
+    /**
+     * Stores the pieces received by a user in the iteration.
+     * @param iteration the iteration.
+     * @param receivedCount number of received pieces of each user.
+     * @param user the user.
+     * @param seenInfo the newly received pieces, along with their creators.
+     * @param rereceivedInfo the pieces which had been previously received, along with their creators.
+     * @param numRec the number of rereceived pieces which count as new received pieces.
+     */
+    private void addReceived(Iteration<U,I,P> iteration, Map<U, Long> receivedCount, U user, Map<I, Set<U>> seenInfo, Map<I, Set<U>> rereceivedInfo, int numRec)
+    {
+        if(!seenInfo.isEmpty())
+        {
+            iteration.addReceivingUser(user, seenInfo);
+            numRec += seenInfo.size();
+        }
+
+        if(!rereceivedInfo.isEmpty())
+        {
+            iteration.addReReceivingUser(user, rereceivedInfo);
+        }
+
+        if(receivedCount.containsKey(user))
+        {
+            receivedCount.put(user, numRec + receivedCount.get(user));
+        }
+        else
+        {
+            receivedCount.put(user, numRec + 0L);
+        }
+    }
+    
+    /**
+     * Finds the partition of a user.
+     * @param uidx the identifier of the user.
+     * @return the partition.
+     */
+    private int partitionOf(int uidx)
+    {
+        return (int) ((long) uidx * this.numPartitions / Math.max(this.data.numUsers(), 1));
+    }
+    
+    /**
+     * Divides a set of users in partitions. Within each partition, users are sorted by identifier.
+     * @param users the users.
+     * @return the partitions.
+     */
+    private List<List<U>> partition(Stream<U> users)
+    {
+        Index<U> uIndex = this.data.getUserIndex();
+        int[] uidxs = users.mapToInt(uIndex::object2idx).sorted().toArray();
+        List<List<U>> partitions = new ArrayList<>();
+        for(int p = 0; p < this.numPartitions; ++p)
+        {
+            partitions.add(new ArrayList<>());
+        }
+        for(int uidx : uidxs)
+        {
+            partitions.get(this.partitionOf(uidx)).add(uIndex.idx2object(uidx));
+        }
+        return partitions;
+    }
+    
+    /**
+     * Creates a random number generator for each partition.
+     * @param rng the random number generator to split.
+     * @return the random number generators.
+     */
+    private SplittableRandom[] split(SplittableRandom rng)
+    {
+        SplittableRandom[] rngs = new SplittableRandom[this.numPartitions];
+        for(int p = 0; p < this.numPartitions; ++p)
+        {
+            rngs[p] = rng.split();
+        }
+        return rngs;
+    }
+    
+    /**
+     * Runs a task over each partition, in parallel, and waits until all of them have finished.
+     * @param <T> type of the results.
+     * @param task the task.
+     * @return the result of the task for each partition.
+     */
+    private <T> List<T> runPartitions(java.util.function.IntFunction<T> task)
+    {
+        return IntStream.range(0, this.numPartitions).parallel().mapToObj(task).collect(Collectors.toList());
+    }
+    
+    /**
+     * Piece of information sent to a user.
+     * @param <U> type of the users.
+     */
+    private static class Message<U>
+    {
+        /**
+         * The user who receives the piece.
+         */
+        private final U user;
+        /**
+         * The piece.
+         */
+        private final PropagatedInformation piece;
+        
+        /**
+         * Constructor.
+         * @param user the user who receives the piece.
+         * @param piece the piece.
+         */
+        public Message(U user, PropagatedInformation piece)
+        {
+            this.user = user;
+            this.piece = piece;
+        }
+    }
+    
+    /**
+     * Pieces received by a user in an iteration.
+     * @param <U> type of the users.
+     * @param <I> type of the information pieces.
+     */
+    private static class Received<U,I>
+    {
+        /**
+         * The user.
+         */
+        private final U user;
+        /**
+         * The newly received pieces, along with their creators.
+         */
+        private final Map<I, Set<U>> seenInfo = new HashMap<>();
+        /**
+         * The pieces which had been previously received, along with their creators.
+         */
+        private final Map<I, Set<U>> rereceivedInfo = new HashMap<>();
+        /**
+         * The number of rereceived pieces which count as new received pieces.
+         */
+        private int numRec;
+        
+        /**
+         * Constructor.
+         * @param user the user.
+         */
+        public Received(U user)
+        {
+            this.user = user;
+        }
+    }
+    
+    /**
+     * Scheduled expiration of a received piece.
+     * @param <U> type of the users.
+     */
+    private static class ExpirationEvent<U> implements Serializable
+    {
+        /**
+         * The user who has received the piece.
+         */
+        private final U user;
+        /**
+         * The identifier of the piece.
+         */
+        private final int info;
+        /**
+         * The timestamp of the piece when the event was scheduled.
+         */
+        private final long timestamp;
+        
+        /**
+         * Constructor.
+         * @param user the user who has received the piece.
+         * @param info the identifier of the piece.
+         * @param timestamp the timestamp of the piece when the event was scheduled.
+         */
+        public ExpirationEvent(U user, int info, long timestamp)
+        {
+            this.user = user;
+            this.info = info;
+            this.timestamp = timestamp;
         }
-        while(!this.stop.stop(numIter, currentPropagated, currentPropagatingUsers, this.newlyPropagatedInfo, totalpropagated, data, currentTimestamp));
-        return simulation;
     }
 }
@@ -0,0 +1,208 @@
+package es.uam.eps.ir.socialnetwork.informationpropagation.data;
+
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
+import es.uam.eps.ir.socialnetwork.informationpropagation.update.IndependentCascadeModelUpdateMechanism;
+import es.uam.eps.ir.socialnetwork.informationpropagation.update.OlderUpdateMechanism;
+import es.uam.eps.ir.socialnetwork.informationpropagation.update.UpdateMechanism;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the compact user states. The same random sequences of operations are
+ * applied to a compact user and a fast user, and their states are compared after each step.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class CompactUserTest 
+{
+    /**
+     * Number of pieces of information.
+     */
+    private static final int NUMINFO = 30;
+    /**
+     * Number of users which might propagate the pieces.
+     */
+    private static final int NUMCREATORS = 10;
+    /**
+     * Number of steps of each sequence.
+     */
+    private static final int NUMSTEPS = 500;
+    
+    @Test
+    public void olderUpdateTest()
+    {
+        this.randomSequences(new OlderUpdateMechanism(), 0L);
+    }
+    
+    @Test
+    public void independentCascadeUpdateTest()
+    {
+        this.randomSequences(new IndependentCascadeModelUpdateMechanism(), 1L);
+    }
+    
+    /**
+     * Applies several random sequences of operations to a compact and a fast user, and compares them.
+     * @param update the update mechanism.
+     * @param seed the random seed.
+     */
+    private void randomSequences(UpdateMechanism update, long seed)
+    {
+        Random rng = new Random(seed);
+        // All the compact users share the same store, as in the simulation.
+        PropagatedInformationStore store = new PropagatedInformationStore();
+        for(int user = 0; user < 20; ++user)
+        {
+            UserState<Integer> fast = new FastUser<>(user);
+            UserState<Integer> compact = new CompactUser<>(user, store);
+            
+            int[] own = IntStream.range(0, NUMINFO).filter(i -> rng.nextInt(5) == 0).toArray();
+            int id = user;
+            fast.resetOwnInformation(IntStream.of(own).mapToObj(i -> new PropagatedInformation(i, 0, id)));
+            compact.resetOwnInformation(IntStream.of(own).mapToObj(i -> new PropagatedInformation(i, 0, id)));
+            this.compare(fast, compact, "initial");
+            
+            for(int step = 1; step <= NUMSTEPS; ++step)
+            {
+                int op = rng.nextInt(6);
+                String msg = "user " + user + ", step " + step + ", operation " + op;
+                switch(op)
+                {
+                    case 0: // New pieces arrive
+                        List<PropagatedInformation> pieces = this.randomPieces(rng, step);
+                        fast.updateSeen(this.copy(pieces));
+                        compact.updateSeen(this.copy(pieces));
+                        break;
+                    case 1: // A single piece arrives
+                        PropagatedInformation piece = this.randomPieces(rng, step).get(0);
+                        fast.updateSeen(this.copy(piece));
+                        compact.updateSeen(this.copy(piece));
+                        break;
+                    case 2: // Seen pieces are moved to received
+                        fast.updateSeenToReceived(update);
+                        compact.updateSeenToReceived(update);
+                        break;
+                    case 3: // A single seen piece is moved to received
+                        int info = rng.nextInt(NUMINFO);
+                        fast.updateSeenToReceived(info, update);
+                        compact.updateSeenToReceived(info, update);
+                        break;
+                    case 4: // Some pieces are propagated
+                        List<Integer> received = this.randomIds(rng);
+                        List<Integer> owned = this.randomIds(rng);
+                        fast.updateReceivedToPropagated(received.stream());
+                        compact.updateReceivedToPropagated(received.stream());
+                        fast.updateOwnToPropagated(owned.stream());
+                        compact.updateOwnToPropagated(owned.stream());
+                        break;
+                    default: // Some pieces are discarded
+                        List<Integer> discarded = this.randomIds(rng);
+                        fast.discardReceivedInformation(discarded.stream());
+                        compact.discardReceivedInformation(discarded.stream());
+                }
+                this.compare(fast, compact, msg);
+            }
+        }
+    }
+    
+    /**
+     * Generates a random list of pieces of information.
+     * @param rng the random number generator.
+     * @param timestamp the timestamp of the pieces.
+     * @return the list of pieces.
+     */
+    private List<PropagatedInformation> randomPieces(Random rng, long timestamp)
+    {
+        int num = 1 + rng.nextInt(5);
+        List<PropagatedInformation> pieces = new ArrayList<>();
+        for(int i = 0; i < num; ++i)
+        {
+            int[] creators = IntStream.range(0, 1 + rng.nextInt(3)).map(j -> rng.nextInt(NUMCREATORS)).toArray();
+            pieces.add(new PropagatedInformation(rng.nextInt(NUMINFO), timestamp, creators));
+        }
+        return pieces;
+    }
+    
+    /**
+     * Generates a random list of information identifiers.
+     * @param rng the random number generator.
+     * @return the list of identifiers.
+     */
+    private List<Integer> randomIds(Random rng)
+    {
+        return IntStream.range(0, NUMINFO).filter(i -> rng.nextInt(3) == 0).boxed().collect(Collectors.toList());
+    }
+    
+    /**
+     * Copies a list of pieces, so each user receives its own pieces.
+     * @param pieces the pieces.
+     * @return a stream containing the copies.
+     */
+    private Stream<PropagatedInformation> copy(List<PropagatedInformation> pieces)
+    {
+        return pieces.stream().map(this::copy);
+    }
+    
+    /**
+     * Copies a piece of information.
+     * @param piece the piece.
+     * @return the copy.
+     */
+    private PropagatedInformation copy(PropagatedInformation piece)
+    {
+        return new PropagatedInformation(piece.getInfoId(), piece.getTimestamp(), new ArrayList<>(piece.getCreators()));
+    }
+    
+    /**
+     * Checks that the states of both users are equal.
+     * @param fast the fast user.
+     * @param compact the compact user.
+     * @param msg the message to show if the states differ.
+     */
+    private void compare(UserState<Integer> fast, UserState<Integer> compact, String msg)
+    {
+        this.compare(fast.getOwnInformation(), compact.getOwnInformation(), msg + " (own)");
+        this.compare(fast.getReceivedInformation(), compact.getReceivedInformation(), msg + " (received)");
+        this.compare(fast.getSeenInformation(), compact.getSeenInformation(), msg + " (seen)");
+        this.compare(fast.getPropagatedInformation(), compact.getPropagatedInformation(), msg + " (propagated)");
+        this.compare(fast.getDiscardedInformation(), compact.getDiscardedInformation(), msg + " (discarded)");
+        this.compare(fast.getAllInformation(), compact.getAllInformation(), msg + " (all)");
+        
+        for(int info = 0; info < NUMINFO; ++info)
+        {
+            Assert.assertEquals(msg, fast.containsOwnInformation(info), compact.containsOwnInformation(info));
+            Assert.assertEquals(msg, fast.containsReceivedInformation(info), compact.containsReceivedInformation(info));
+            Assert.assertEquals(msg, fast.containsSeenInformation(info), compact.containsSeenInformation(info));
+            Assert.assertEquals(msg, fast.containsPropagatedInformation(info), compact.containsPropagatedInformation(info));
+            Assert.assertEquals(msg, fast.containsDiscardedInformation(info), compact.containsDiscardedInformation(info));
+            Assert.assertEquals(msg, fast.containsAllInformation(info), compact.containsAllInformation(info));
+        }
+    }
+    
+    /**
+     * Checks that two sets of pieces contain the same identifiers and timestamps.
+     * @param fast the pieces of the fast user.
+     * @param compact the pieces of the compact user.
+     * @param msg the message to show if the sets differ.
+     */
+    private void compare(Stream<PropagatedInformation> fast, Stream<PropagatedInformation> compact, String msg)
+    {
+        Map<Integer, Long> fastTimestamps = fast.collect(Collectors.toMap(PropagatedInformation::getInfoId, PropagatedInformation::getTimestamp));
+        Map<Integer, Long> compactTimestamps = compact.collect(Collectors.toMap(PropagatedInformation::getInfoId, PropagatedInformation::getTimestamp));
+        Assert.assertEquals(msg, fastTimestamps, compactTimestamps);
+    }
+}
@@ -0,0 +1,167 @@
+package es.uam.eps.ir.socialnetwork.informationpropagation.expiration;
+
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.FastUser;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.PropagatedInformation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
+import es.uam.eps.ir.socialnetwork.informationpropagation.update.OlderUpdateMechanism;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the exponential decay expiration mechanism. The expiration iterations sampled in advance
+ * are compared with the ones obtained by checking the piece in every iteration.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class ExponentialDecayExpirationMechanismTest 
+{
+    /**
+     * Number of sampled expiration iterations.
+     */
+    private static final int NUMSAMPLES = 50000;
+    /**
+     * Maximum difference between the cumulative distributions.
+     */
+    private static final double TOLERANCE = 0.02;
+    
+    @Test
+    public void receivedAfterCreationTest()
+    {
+        this.compare(3.0, 2, 5);
+    }
+    
+    @Test
+    public void receivedBeforeCreationTest()
+    {
+        this.compare(3.0, 8, 5);
+    }
+    
+    @Test
+    public void longHalfLifeTest()
+    {
+        this.compare(20.0, 0, 0);
+    }
+    
+    @Test
+    public void zeroHalfLifeTest()
+    {
+        ExponentialDecayExpirationMechanism<Long,Long,Long> mechanism = new ExponentialDecayExpirationMechanism<>(0.0);
+        for(long timestamp = 3; timestamp <= 7; ++timestamp)
+        {
+            UserState<Long> user = this.user(timestamp);
+            Assert.assertEquals(this.checkEveryIteration(mechanism, user, 5), mechanism.expirationIteration(user, this.piece(user), null, 5));
+        }
+    }
+    
+    @Test
+    public void hugeHalfLifeTest()
+    {
+        // The expiration iteration is sampled directly, without visiting the iterations before it.
+        ExponentialDecayExpirationMechanism<Long,Long,Long> mechanism = new ExponentialDecayExpirationMechanism<>(1e12);
+        UserState<Long> user = this.user(0);
+        for(int i = 0; i < 1000; ++i)
+        {
+            Assert.assertTrue(mechanism.expirationIteration(user, this.piece(user), null, 10) >= 10);
+        }
+    }
+    
+    /**
+     * Compares the distribution of the expiration iterations sampled in advance with the one of the
+     * iterations obtained by checking the piece in every iteration.
+     * @param halfLife the half life of the pieces.
+     * @param timestamp the timestamp of the piece.
+     * @param numIter the first iteration in which the piece is checked.
+     */
+    private void compare(double halfLife, long timestamp, int numIter)
+    {
+        ExponentialDecayExpirationMechanism<Long,Long,Long> mechanism = new ExponentialDecayExpirationMechanism<>(halfLife);
+        UserState<Long> user = this.user(timestamp);
+        
+        int maxIter = numIter;
+        int[] scheduled = new int[NUMSAMPLES];
+        int[] checked = new int[NUMSAMPLES];
+        for(int i = 0; i < NUMSAMPLES; ++i)
+        {
+            scheduled[i] = mechanism.expirationIteration(user, this.piece(user), null, numIter);
+            checked[i] = this.checkEveryIteration(mechanism, user, numIter);
+            Assert.assertTrue(scheduled[i] >= numIter);
+            maxIter = Math.max(maxIter, Math.max(scheduled[i], checked[i]));
+        }
+        
+        double[] scheduledCdf = this.cdf(scheduled, numIter, maxIter);
+        double[] checkedCdf = this.cdf(checked, numIter, maxIter);
+        for(int i = 0; i < scheduledCdf.length; ++i)
+        {
+            Assert.assertEquals(checkedCdf[i], scheduledCdf[i], TOLERANCE);
+        }
+    }
+    
+    /**
+     * Finds the expiration iteration of a piece by checking it in every iteration.
+     * @param mechanism the expiration mechanism.
+     * @param user the user who has received the piece.
+     * @param numIter the first iteration in which the piece is checked.
+     * @return the iteration in which the piece is discarded.
+     */
+    private int checkEveryIteration(ExponentialDecayExpirationMechanism<Long,Long,Long> mechanism, UserState<Long> user, int numIter)
+    {
+        int iter = numIter;
+        while(mechanism.expire(user, null, iter, null).count() == 0)
+        {
+            ++iter;
+        }
+        return iter;
+    }
+    
+    /**
+     * Computes the empirical cumulative distribution of a sample of iterations.
+     * @param sample the sample.
+     * @param minIter the minimum iteration.
+     * @param maxIter the maximum iteration.
+     * @return the proportion of the sample which is smaller than or equal to each iteration.
+     */
+    private double[] cdf(int[] sample, int minIter, int maxIter)
+    {
+        double[] cdf = new double[maxIter - minIter + 1];
+        for(int iter : sample)
+        {
+            cdf[iter - minIter] += 1.0/sample.length;
+        }
+        for(int i = 1; i < cdf.length; ++i)
+        {
+            cdf[i] += cdf[i-1];
+        }
+        return cdf;
+    }
+    
+    /**
+     * Builds a user which has received a single piece.
+     * @param timestamp the timestamp of the piece.
+     * @return the user.
+     */
+    private UserState<Long> user(long timestamp)
+    {
+        UserState<Long> user = new FastUser<>(0L);
+        user.updateSeen(new PropagatedInformation(0, timestamp, 1));
+        user.updateSeenToReceived(0, new OlderUpdateMechanism());
+        return user;
+    }
+    
+    /**
+     * Obtains the piece received by a user.
+     * @param user the user.
+     * @return the piece.
+     */
+    private PropagatedInformation piece(UserState<Long> user)
+    {
+        return user.getReceivedInformation().findFirst().get();
+    }
+}
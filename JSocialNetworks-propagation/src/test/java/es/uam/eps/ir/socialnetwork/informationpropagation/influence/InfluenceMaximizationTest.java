@@ -0,0 +1,184 @@
+package es.uam.eps.ir.socialnetwork.informationpropagation.influence;
+
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastDirectedWeightedGraph;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import es.uam.eps.ir.socialnetwork.index.fast.FastIndex;
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.BatchCascadeModel;
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.CascadeGraph;
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.IndependentCascadeBatchModel;
+import es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo.ThresholdBatchModel;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the influence maximization algorithms. The seeds selected by CELF++ are compared with
+ * the ones selected by the plain greedy algorithm, and the spreads estimated by reverse influence sampling
+ * are compared with the Monte Carlo estimations of the batched models.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class InfluenceMaximizationTest 
+{
+    /**
+     * Number of users.
+     */
+    private static final int NUMUSERS = 40;
+    /**
+     * Number of edges.
+     */
+    private static final int NUMEDGES = 120;
+    /**
+     * Number of seeds to select.
+     */
+    private static final int K = 5;
+    /**
+     * Number of Monte Carlo replicas for the greedy selections.
+     */
+    private static final int GREEDYREPLICAS = 1000;
+    /**
+     * Number of Monte Carlo replicas for checking the reverse influence sampling.
+     */
+    private static final int NUMREPLICAS = 50000;
+    /**
+     * Number of RR-sets.
+     */
+    private static final int NUMSETS = 200000;
+    /**
+     * Maximum relative difference between the spreads estimated by RIS and Monte Carlo.
+     */
+    private static final double TOLERANCE = 0.03;
+    
+    @Test
+    public void celfIndependentCascadeTest()
+    {
+        CascadeGraph<Long> graph = this.graph();
+        this.checkGreedy(graph, new IndependentCascadeBatchModel<>(graph));
+    }
+    
+    @Test
+    public void celfThresholdTest()
+    {
+        CascadeGraph<Long> graph = this.graph();
+        this.checkGreedy(graph, new ThresholdBatchModel<>(graph));
+    }
+    
+    @Test
+    public void risIndependentCascadeTest()
+    {
+        CascadeGraph<Long> graph = this.graph();
+        this.checkRIS(graph, new IndependentCascadeRISInfluenceMaximization<>(graph, NUMSETS, Integer.MAX_VALUE, 1L), new IndependentCascadeBatchModel<>(graph));
+    }
+    
+    @Test
+    public void risUniformIndependentCascadeTest()
+    {
+        CascadeGraph<Long> graph = this.graph();
+        this.checkRIS(graph, new IndependentCascadeRISInfluenceMaximization<>(graph, 0.2, NUMSETS, Integer.MAX_VALUE, 1L), new IndependentCascadeBatchModel<>(graph, 0.2));
+    }
+    
+    @Test
+    public void risThresholdTest()
+    {
+        CascadeGraph<Long> graph = this.graph();
+        this.checkRIS(graph, new LinearThresholdRISInfluenceMaximization<>(graph, NUMSETS, Integer.MAX_VALUE, 1L), new ThresholdBatchModel<>(graph));
+    }
+    
+    /**
+     * Checks that CELF++ selects the same seeds as the plain greedy algorithm, when both use the same
+     * Monte Carlo replicas.
+     * @param graph the network.
+     * @param model the cascade model.
+     */
+    private void checkGreedy(CascadeGraph<Long> graph, BatchCascadeModel<Long> model)
+    {
+        SeedSelection<Long> celf = new CELFPlusPlusInfluenceMaximization<>(model, graph, GREEDYREPLICAS, 1L).select(K);
+        
+        IntArrayList seeds = new IntArrayList();
+        boolean[] selected = new boolean[graph.numUsers()];
+        for(int i = 0; i < K; ++i)
+        {
+            int best = -1;
+            double bestSpread = Double.NEGATIVE_INFINITY;
+            for(int uidx = 0; uidx < graph.numUsers(); ++uidx)
+            {
+                if(!selected[uidx])
+                {
+                    IntArrayList aux = new IntArrayList(seeds);
+                    aux.add(uidx);
+                    double spread = model.estimate(aux.toIntArray(), GREEDYREPLICAS, 1L).getExpectedSpread();
+                    if(spread > bestSpread)
+                    {
+                        best = uidx;
+                        bestSpread = spread;
+                    }
+                }
+            }
+            seeds.add(best);
+            selected[best] = true;
+            
+            Assert.assertEquals(graph.idx2object(best), celf.getSeeds().get(i));
+            Assert.assertEquals(bestSpread, celf.getSpread(i + 1), 1e-9);
+        }
+        Assert.assertEquals(K, celf.getSeeds().size());
+    }
+    
+    /**
+     * Checks that the spreads estimated by reverse influence sampling for each prefix of the selected
+     * seeds are close to the Monte Carlo estimations.
+     * @param graph the network.
+     * @param ris the reverse influence sampling algorithm.
+     * @param model the equivalent cascade model.
+     */
+    private void checkRIS(CascadeGraph<Long> graph, InfluenceMaximization<Long> ris, BatchCascadeModel<Long> model)
+    {
+        SeedSelection<Long> selection = ris.select(K);
+        List<Long> seeds = selection.getSeeds();
+        Assert.assertEquals(K, seeds.size());
+        for(int i = 1; i <= K; ++i)
+        {
+            double expected = model.estimate(seeds.subList(0, i), NUMREPLICAS, 2L).getExpectedSpread();
+            Assert.assertEquals(expected, selection.getSpread(i), TOLERANCE*expected);
+        }
+    }
+    
+    /**
+     * Builds a random weighted network.
+     * @return the network.
+     */
+    private CascadeGraph<Long> graph()
+    {
+        Random rng = new Random(0);
+        Graph<Long> graph = new FastDirectedWeightedGraph<>();
+        Index<Long> index = new FastIndex<>();
+        for(long u = 0; u < NUMUSERS; ++u)
+        {
+            graph.addNode(u);
+            index.addObject(u);
+        }
+        
+        int numEdges = 0;
+        while(numEdges < NUMEDGES)
+        {
+            long u = rng.nextInt(NUMUSERS);
+            long v = rng.nextInt(NUMUSERS);
+            if(u != v && !graph.containsEdge(u, v))
+            {
+                graph.addEdge(u, v, 0.5*rng.nextDouble());
+                ++numEdges;
+            }
+        }
+        return new CascadeGraph<>(graph, index);
+    }
+}
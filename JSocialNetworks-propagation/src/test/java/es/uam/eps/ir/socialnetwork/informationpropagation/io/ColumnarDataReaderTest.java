@@ -0,0 +1,315 @@
+package es.uam.eps.ir.socialnetwork.informationpropagation.io;
+
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastDirectedWeightedGraph;
+import es.uam.eps.ir.socialnetwork.index.FastWeightedPairwiseRelation;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import es.uam.eps.ir.socialnetwork.index.Relation;
+import es.uam.eps.ir.socialnetwork.index.fast.FastIndex;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Information;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the columnar binary data format. The data read by {@link ColumnarDataReader} is compared
+ * with the data read by {@link BinaryDataReader} from the same input.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class ColumnarDataReaderTest 
+{
+    /**
+     * Number of users.
+     */
+    private static final int NUMUSERS = 20;
+    /**
+     * Number of information pieces.
+     */
+    private static final int NUMPIECES = 30;
+    /**
+     * Number of edges.
+     */
+    private static final int NUMEDGES = 60;
+    /**
+     * Sizes of the mapped windows: a single window, and small windows, not aligned with the values, 
+     * so reads cross the window boundaries.
+     */
+    private static final long[] WINDOWS = {1L << 30, 64L, 61L, 13L};
+    
+    @Test
+    public void binaryEquivalenceTest() throws IOException
+    {
+        File directory = Files.createTempDirectory("columnar").toFile();
+        File binary = new File(directory, "data.bin");
+        File columnar = new File(directory, "data.col");
+        try
+        {
+            // The information pieces features are not included, since BinaryDataWriter does not store them correctly.
+            Data<Long,Long,Long> data = this.data(false);
+            Assert.assertTrue(BinaryDataWriter.write(data, binary.getPath()));
+            Data<Long,Long,Long> expected = BinaryDataReader.read(binary.getPath());
+            Assert.assertNotNull(expected);
+            
+            Assert.assertTrue(ColumnarDataWriter.write(expected, columnar.getPath()));
+            for(long window : WINDOWS)
+            {
+                Data<Long,Long,Long> actual = ColumnarDataReader.read(columnar.getPath(), null, 0, window);
+                Assert.assertNotNull(actual);
+                this.compare(expected, actual);
+            }
+            this.compare(expected, ColumnarDataReader.read(columnar.getPath()));
+        }
+        finally
+        {
+            binary.delete();
+            columnar.delete();
+            directory.delete();
+        }
+    }
+    
+    @Test
+    public void infoPiecesFeaturesTest() throws IOException
+    {
+        File directory = Files.createTempDirectory("columnar").toFile();
+        File columnar = new File(directory, "data.col");
+        try
+        {
+            Data<Long,Long,Long> expected = this.data(true);
+            Assert.assertTrue(ColumnarDataWriter.write(expected, columnar.getPath()));
+            for(long window : WINDOWS)
+            {
+                Data<Long,Long,Long> actual = ColumnarDataReader.read(columnar.getPath(), null, 0, window);
+                Assert.assertNotNull(actual);
+                this.compare(expected, actual);
+            }
+        }
+        finally
+        {
+            columnar.delete();
+            directory.delete();
+        }
+    }
+    
+    @Test
+    public void truncatedFileTest() throws IOException
+    {
+        File directory = Files.createTempDirectory("columnar").toFile();
+        File columnar = new File(directory, "data.col");
+        try
+        {
+            Assert.assertTrue(ColumnarDataWriter.write(this.data(true), columnar.getPath()));
+            byte[] bytes = Files.readAllBytes(columnar.toPath());
+            Files.write(columnar.toPath(), java.util.Arrays.copyOf(bytes, bytes.length - 5));
+            Assert.assertNull(ColumnarDataReader.read(columnar.getPath(), null, 0, 61L));
+        }
+        finally
+        {
+            columnar.delete();
+            directory.delete();
+        }
+    }
+    
+    /**
+     * Checks that two data objects contain the same graph, information pieces, features and real propagated pieces.
+     * @param expected the expected data.
+     * @param actual the read data.
+     */
+    private void compare(Data<Long,Long,Long> expected, Data<Long,Long,Long> actual)
+    {
+        // Users and graph.
+        Assert.assertEquals(expected.getUserIndex().numObjects(), actual.getUserIndex().numObjects());
+        Graph<Long> expGraph = expected.getGraph();
+        Graph<Long> actGraph = actual.getGraph();
+        Assert.assertEquals(expGraph.isDirected(), actGraph.isDirected());
+        Assert.assertEquals(expGraph.isWeighted(), actGraph.isWeighted());
+        Assert.assertEquals(expGraph.getEdgeCount(), actGraph.getEdgeCount());
+        Assert.assertEquals(expGraph.getAllNodes().collect(Collectors.toSet()), actGraph.getAllNodes().collect(Collectors.toSet()));
+        for(int uidx = 0; uidx < expected.getUserIndex().numObjects(); ++uidx)
+        {
+            Long u = expected.getUserIndex().idx2object(uidx);
+            Assert.assertEquals(u, actual.getUserIndex().idx2object(uidx));
+            
+            Set<Long> adj = expGraph.getAdjacentNodes(u).collect(Collectors.toSet());
+            Assert.assertEquals(adj, actGraph.getAdjacentNodes(u).collect(Collectors.toSet()));
+            for(Long v : adj)
+            {
+                Assert.assertEquals(expGraph.getEdgeWeight(u, v), actGraph.getEdgeWeight(u, v), 0.0);
+                Assert.assertEquals(expGraph.getEdgeType(u, v), actGraph.getEdgeType(u, v));
+            }
+            
+            // Real propagated pieces.
+            Map<Long, Long> expProp = new HashMap<>();
+            expected.getRealPropagatedPiecesWithTimestamp(u).forEach(t -> expProp.put(t.v1(), t.v2()));
+            Map<Long, Long> actProp = new HashMap<>();
+            actual.getRealPropagatedPiecesWithTimestamp(u).forEach(t -> actProp.put(t.v1(), t.v2()));
+            Assert.assertEquals(expProp, actProp);
+        }
+        
+        // Information pieces.
+        Assert.assertEquals(expected.getInformationPiecesIndex().numObjects(), actual.getInformationPiecesIndex().numObjects());
+        for(int iidx = 0; iidx < expected.getInformationPiecesIndex().numObjects(); ++iidx)
+        {
+            Long i = expected.getInformationPiecesIndex().idx2object(iidx);
+            Assert.assertEquals(i, actual.getInformationPiecesIndex().idx2object(iidx));
+            Assert.assertEquals(expected.getInformation(i).getTimestamp(), actual.getInformation(i).getTimestamp());
+            Assert.assertEquals(expected.getCreators(i).collect(Collectors.toSet()), actual.getCreators(i).collect(Collectors.toSet()));
+        }
+        
+        // Features.
+        Assert.assertEquals(expected.getUserFeatureNames(), actual.getUserFeatureNames());
+        Assert.assertEquals(expected.getInfoPiecesFeatureNames(), actual.getInfoPiecesFeatureNames());
+        List<String> features = new ArrayList<>(expected.getUserFeatureNames());
+        features.addAll(expected.getInfoPiecesFeatureNames());
+        for(String feature : features)
+        {
+            Index<Long> expIndex = expected.getFeatureIndex(feature);
+            Index<Long> actIndex = actual.getFeatureIndex(feature);
+            Assert.assertEquals(expIndex.numObjects(), actIndex.numObjects());
+            for(int fidx = 0; fidx < expIndex.numObjects(); ++fidx)
+            {
+                Long f = expIndex.idx2object(fidx);
+                Assert.assertEquals(f, actIndex.idx2object(fidx));
+                
+                Map<Long, Double> expValues = new HashMap<>();
+                Map<Long, Double> actValues = new HashMap<>();
+                if(expected.isUserFeature(feature))
+                {
+                    expected.getUsersWithFeature(feature, f).forEach(t -> expValues.put(t.v1(), t.v2()));
+                    actual.getUsersWithFeature(feature, f).forEach(t -> actValues.put(t.v1(), t.v2()));
+                }
+                else
+                {
+                    expected.getInformationPiecesWithFeature(feature, f).forEach(t -> expValues.put(t.v1(), t.v2()));
+                    actual.getInformationPiecesWithFeature(feature, f).forEach(t -> actValues.put(t.v1(), t.v2()));
+                }
+                Assert.assertFalse(expValues.isEmpty());
+                Assert.assertEquals(expValues, actValues);
+            }
+        }
+    }
+    
+    /**
+     * Builds a random data object.
+     * @param withInfoFeatures true if the information pieces have features.
+     * @return the data.
+     */
+    private Data<Long,Long,Long> data(boolean withInfoFeatures)
+    {
+        Random rng = new Random(0);
+        
+        Graph<Long> graph = new FastDirectedWeightedGraph<>();
+        Index<Long> users = new FastIndex<>();
+        for(long u = 0; u < NUMUSERS; ++u)
+        {
+            Long user = 100L + u;
+            graph.addNode(user);
+            users.addObject(user);
+        }
+        int numEdges = 0;
+        while(numEdges < NUMEDGES)
+        {
+            Long u = 100L + rng.nextInt(NUMUSERS);
+            Long v = 100L + rng.nextInt(NUMUSERS);
+            if(!u.equals(v) && !graph.containsEdge(u, v))
+            {
+                graph.addEdge(u, v, rng.nextDouble(), rng.nextInt(2), false);
+                ++numEdges;
+            }
+        }
+        
+        Index<Long> pieces = new FastIndex<>();
+        Map<Integer, Information<Long>> information = new HashMap<>();
+        Relation<Integer> userInformation = new FastWeightedPairwiseRelation<>();
+        Relation<Long> realPropagated = new FastWeightedPairwiseRelation<>();
+        for(int uidx = 0; uidx < NUMUSERS; ++uidx)
+        {
+            userInformation.addFirstItem(uidx);
+            realPropagated.addFirstItem(uidx);
+        }
+        for(long i = 0; i < NUMPIECES; ++i)
+        {
+            int iidx = pieces.addObject(1000L + i);
+            information.put(iidx, new Information<>(1000L + i, rng.nextInt(50)));
+            userInformation.addSecondItem(iidx);
+            realPropagated.addSecondItem(iidx);
+            userInformation.addRelation(rng.nextInt(NUMUSERS), iidx, 1);
+            if(rng.nextBoolean())
+            {
+                userInformation.addRelation(rng.nextInt(NUMUSERS), iidx, 1);
+            }
+            for(int uidx = 0; uidx < NUMUSERS; ++uidx)
+            {
+                if(rng.nextDouble() < 0.1)
+                {
+                    realPropagated.addRelation(uidx, iidx, 50L + rng.nextInt(50));
+                }
+            }
+        }
+        
+        Map<String, Index<Long>> features = new HashMap<>();
+        List<String> userFeatureNames = new ArrayList<>();
+        Map<String, Relation<Double>> userFeatures = new HashMap<>();
+        List<String> infoFeatureNames = new ArrayList<>();
+        Map<String, Relation<Double>> infoFeatures = new HashMap<>();
+        this.feature("community", 4, NUMUSERS, rng, features, userFeatureNames, userFeatures);
+        this.feature("age", 3, NUMUSERS, rng, features, userFeatureNames, userFeatures);
+        if(withInfoFeatures)
+        {
+            this.feature("topic", 5, NUMPIECES, rng, features, infoFeatureNames, infoFeatures);
+        }
+        
+        return new Data<>(graph, users, pieces, information, userInformation, features, userFeatureNames, userFeatures, infoFeatureNames, infoFeatures, realPropagated);
+    }
+    
+    /**
+     * Builds a random feature, where each element takes one value.
+     * @param name the name of the feature.
+     * @param numValues the number of values of the feature.
+     * @param numElements the number of elements (users or information pieces).
+     * @param rng the random number generator.
+     * @param features the indexes of the feature values.
+     * @param names the names of the features.
+     * @param relations the relations between the elements and the feature values.
+     */
+    private void feature(String name, int numValues, int numElements, Random rng, Map<String, Index<Long>> features, List<String> names, Map<String, Relation<Double>> relations)
+    {
+        Index<Long> values = new FastIndex<>();
+        Relation<Double> relation = new FastWeightedPairwiseRelation<>();
+        for(int i = 0; i < numElements; ++i)
+        {
+            relation.addFirstItem(i);
+        }
+        for(long f = 0; f < numValues; ++f)
+        {
+            relation.addSecondItem(values.addObject(10L*f));
+        }
+        // Every value is assigned to some element.
+        for(int i = 0; i < numElements; ++i)
+        {
+            relation.addRelation(i, i < numValues ? i : rng.nextInt(numValues), 1.0 + rng.nextInt(3));
+        }
+        
+        features.put(name, values);
+        names.add(name);
+        relations.put(name, relation);
+    }
+}
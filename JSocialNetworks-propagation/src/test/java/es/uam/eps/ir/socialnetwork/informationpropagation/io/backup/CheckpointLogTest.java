@@ -0,0 +1,358 @@
+package es.uam.eps.ir.socialnetwork.informationpropagation.io.backup;
+
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastDirectedUnweightedGraph;
+import es.uam.eps.ir.socialnetwork.index.FastWeightedPairwiseRelation;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import es.uam.eps.ir.socialnetwork.index.Relation;
+import es.uam.eps.ir.socialnetwork.index.fast.FastIndex;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Data;
+import es.uam.eps.ir.socialnetwork.informationpropagation.data.Information;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Iteration;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimpleIteration;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.Simulation;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.SimulationState;
+import es.uam.eps.ir.socialnetwork.informationpropagation.simulation.UserState;
+import es.uam.eps.ir.socialnetwork.informationpropagation.update.OlderUpdateMechanism;
+import es.uam.eps.ir.socialnetwork.informationpropagation.update.UpdateMechanism;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the incremental backups of simulations. A simulation is backed up, its log
+ * is damaged, and the recovered state is compared with the state of the simulation at the last
+ * iteration that should survive the damage.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class CheckpointLogTest 
+{
+    /**
+     * Number of users.
+     */
+    private static final int NUMUSERS = 5;
+    /**
+     * Number of information pieces.
+     */
+    private static final int NUMPIECES = 20;
+    /**
+     * Number of iterations of the simulation.
+     */
+    private static final int NUMITER = 10;
+    /**
+     * Iteration after which the snapshot is stored.
+     */
+    private static final int SNAPSHOT = 5;
+    /**
+     * Size of the header of a record.
+     */
+    private static final int HEADER = 2*Integer.BYTES;
+    
+    @Test
+    public void truncatedTailTest() throws IOException
+    {
+        File directory = this.backup();
+        try
+        {
+            // Cut the last record in half.
+            File log = new File(directory, "iterations.log");
+            List<Long> offsets = this.offsets(log);
+            long start = offsets.get(NUMITER - 1);
+            try(RandomAccessFile file = new RandomAccessFile(log, "rw"))
+            {
+                file.setLength(start + (file.length() - start)/2);
+            }
+            
+            this.checkRecovery(directory, NUMITER - 1);
+        }
+        finally
+        {
+            this.delete(directory);
+        }
+    }
+    
+    @Test
+    public void corruptedRecordTest() throws IOException
+    {
+        File directory = this.backup();
+        try
+        {
+            // Corrupt the contents of the first record after the snapshot: the following
+            // records are valid, but they cannot be applied.
+            File log = new File(directory, "iterations.log");
+            long start = this.offsets(log).get(SNAPSHOT);
+            try(RandomAccessFile file = new RandomAccessFile(log, "rw"))
+            {
+                file.seek(start + HEADER);
+                int value = file.read();
+                file.seek(start + HEADER);
+                file.write(value ^ 0xFF);
+            }
+            
+            this.checkRecovery(directory, SNAPSHOT);
+        }
+        finally
+        {
+            this.delete(directory);
+        }
+    }
+    
+    @Test
+    public void corruptedLengthTest() throws IOException
+    {
+        File directory = this.backup();
+        try
+        {
+            // The length of the last record exceeds the size of the log.
+            File log = new File(directory, "iterations.log");
+            long start = this.offsets(log).get(NUMITER - 1);
+            try(RandomAccessFile file = new RandomAccessFile(log, "rw"))
+            {
+                file.seek(start + Integer.BYTES);
+                file.writeInt(Integer.MAX_VALUE - 64);
+            }
+            
+            Simulation<Long,Long,Long> simulation = new CheckpointLog<Long,Long,Long>(directory.getPath(), 1).readSimulation(this.data());
+            Assert.assertNotNull(simulation);
+            Assert.assertEquals(NUMITER - 1, simulation.getNumIterations());
+            
+            this.checkRecovery(directory, NUMITER - 1);
+        }
+        finally
+        {
+            this.delete(directory);
+        }
+    }
+    
+    @Test
+    public void wrongIterationTest() throws IOException
+    {
+        File directory = this.backup();
+        try
+        {
+            // A record with a valid checksum, but out of sequence.
+            File log = new File(directory, "iterations.log");
+            List<Long> offsets = this.offsets(log);
+            long start = offsets.get(SNAPSHOT + 2);
+            int length = (int) (offsets.get(SNAPSHOT + 3) - start);
+            try(RandomAccessFile file = new RandomAccessFile(log, "rw"))
+            {
+                byte[] record = new byte[length];
+                file.seek(start);
+                file.readFully(record);
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                buffer.putInt(0, SNAPSHOT + 3);
+                CRC32 crc = new CRC32();
+                crc.update(record, 0, length - Long.BYTES);
+                buffer.putLong(length - Long.BYTES, crc.getValue());
+                file.seek(start);
+                file.write(record);
+            }
+            
+            this.checkRecovery(directory, SNAPSHOT + 2);
+        }
+        finally
+        {
+            this.delete(directory);
+        }
+    }
+    
+    /**
+     * Recovers the backup, and checks that the recovered state is the one obtained after running
+     * the iterations previous to a given one.
+     * @param directory the directory of the backup.
+     * @param next the number of the next iteration to run after the recovery.
+     */
+    private void checkRecovery(File directory, int next)
+    {
+        Data<Long,Long,Long> data = this.data();
+        UpdateMechanism upd = new OlderUpdateMechanism();
+        
+        CheckpointLog<Long,Long,Long> checkpoint = new CheckpointLog<>(directory.getPath(), 1);
+        SimulationState<Long,Long,Long> recovered = new SimulationState<>();
+        Assert.assertEquals(next, checkpoint.recover(data, recovered, upd));
+        
+        SimulationState<Long,Long,Long> expected = new SimulationState<>();
+        expected.initialize(data);
+        for(int i = 0; i < next; ++i)
+        {
+            expected.apply(this.iteration(i), data, upd);
+        }
+        
+        data.getAllUsers().forEach(u -> 
+        {
+            UserState<Long> exp = expected.getUser(u);
+            UserState<Long> rec = recovered.getUser(u);
+            Assert.assertEquals(this.ids(exp.getOwnInformationIds()), this.ids(rec.getOwnInformationIds()));
+            Assert.assertEquals(this.ids(exp.getReceivedInformationIds()), this.ids(rec.getReceivedInformationIds()));
+            Assert.assertEquals(this.ids(exp.getPropagatedInformationIds()), this.ids(rec.getPropagatedInformationIds()));
+            Assert.assertEquals(this.ids(exp.getDiscardedInformationIds()), this.ids(rec.getDiscardedInformationIds()));
+            Assert.assertEquals(this.ids(exp.getAllInformationIds()), this.ids(rec.getAllInformationIds()));
+        });
+        
+        // New iterations are appended after the last valid record.
+        Assert.assertTrue(checkpoint.initialize(data, next));
+        Assert.assertTrue(checkpoint.accept(this.iteration(next)));
+        Assert.assertTrue(checkpoint.close());
+        Assert.assertEquals(next + 1, new CheckpointLog<Long,Long,Long>(directory.getPath(), 1).recover(data, new SimulationState<>(), upd));
+    }
+    
+    /**
+     * Writes the backup of a simulation, with a snapshot in the middle.
+     * @return the directory of the backup.
+     * @throws IOException if something fails while creating the directory.
+     */
+    private File backup() throws IOException
+    {
+        File directory = Files.createTempDirectory("checkpoint").toFile();
+        Data<Long,Long,Long> data = this.data();
+        UpdateMechanism upd = new OlderUpdateMechanism();
+        
+        CheckpointLog<Long,Long,Long> checkpoint = new CheckpointLog<>(directory.getPath(), 1);
+        SimulationState<Long,Long,Long> state = new SimulationState<>();
+        state.initialize(data);
+        Assert.assertTrue(checkpoint.initialize(data, 0));
+        for(int i = 0; i < NUMITER; ++i)
+        {
+            if(i == SNAPSHOT)
+            {
+                Assert.assertTrue(checkpoint.snapshot(state, i));
+            }
+            Iteration<Long,Long,Long> iteration = this.iteration(i);
+            Assert.assertTrue(checkpoint.accept(iteration));
+            state.apply(iteration, data, upd);
+        }
+        Assert.assertTrue(checkpoint.close());
+        return directory;
+    }
+    
+    /**
+     * Builds the data: a ring of users, where each user owns some information pieces.
+     * @return the data.
+     */
+    private Data<Long,Long,Long> data()
+    {
+        Graph<Long> graph = new FastDirectedUnweightedGraph<>();
+        Index<Long> users = new FastIndex<>();
+        Index<Long> pieces = new FastIndex<>();
+        Relation<Integer> userInformation = new FastWeightedPairwiseRelation<>();
+        Map<Integer, Information<Long>> information = new HashMap<>();
+        
+        for(long u = 0; u < NUMUSERS; ++u)
+        {
+            graph.addNode(u);
+            userInformation.addFirstItem(users.addObject(u));
+        }
+        for(long u = 0; u < NUMUSERS; ++u)
+        {
+            graph.addEdge(u, (u + 1) % NUMUSERS);
+        }
+        for(long i = 0; i < NUMPIECES; ++i)
+        {
+            int iidx = pieces.addObject(i);
+            userInformation.addSecondItem(iidx);
+            information.put(iidx, new Information<>(i, i));
+            userInformation.addRelation(users.object2idx(i % NUMUSERS), iidx, 1);
+        }
+        
+        return new Data<>(graph, users, pieces, information, userInformation, new HashMap<>(), new ArrayList<>(), new HashMap<>(), new ArrayList<>(), new HashMap<>());
+    }
+    
+    /**
+     * Builds an iteration of the simulation. In the k-th iteration, the k-th user (modulo the number
+     * of users) propagates one of its pieces to the next user in the ring, who discards a
+     * previously received piece.
+     * @param number the number of the iteration.
+     * @return the iteration.
+     */
+    private Iteration<Long,Long,Long> iteration(int number)
+    {
+        long u = number % NUMUSERS;
+        long v = (u + 1) % NUMUSERS;
+        long piece = number % NUMPIECES;
+        
+        SimpleIteration<Long,Long,Long> iteration = new SimpleIteration<>(number);
+        iteration.addPropagatingUser(u, Collections.singletonList(piece));
+        Map<Long, Set<Long>> seen = new HashMap<>();
+        seen.put(piece, new HashSet<>(Collections.singletonList(u)));
+        iteration.addReceivingUser(v, seen);
+        if(number >= NUMUSERS)
+        {
+            iteration.addDiscardingUser(u, Collections.singletonList((long) (number - NUMUSERS + 1) % NUMPIECES));
+        }
+        return iteration;
+    }
+    
+    /**
+     * Finds the position of each record in the log.
+     * @param log the log file.
+     * @return the positions of the records.
+     * @throws IOException if something fails while reading the log.
+     */
+    private List<Long> offsets(File log) throws IOException
+    {
+        List<Long> offsets = new ArrayList<>();
+        try(RandomAccessFile file = new RandomAccessFile(log, "r"))
+        {
+            long position = 0L;
+            while(position < file.length())
+            {
+                offsets.add(position);
+                file.seek(position + Integer.BYTES);
+                position += HEADER + file.readInt() + Long.BYTES;
+            }
+        }
+        Assert.assertEquals(NUMITER, offsets.size());
+        return offsets;
+    }
+    
+    /**
+     * Collects a stream of information identifiers.
+     * @param ids the stream.
+     * @return the set of identifiers.
+     */
+    private Set<Integer> ids(Stream<Integer> ids)
+    {
+        return ids.collect(Collectors.toSet());
+    }
+    
+    /**
+     * Removes the directory of a backup.
+     * @param directory the directory.
+     */
+    private void delete(File directory)
+    {
+        File[] files = directory.listFiles();
+        if(files != null)
+        {
+            for(File file : files)
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
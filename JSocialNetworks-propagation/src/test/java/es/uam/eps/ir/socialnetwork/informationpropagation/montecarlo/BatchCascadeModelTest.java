@@ -0,0 +1,258 @@
+package es.uam.eps.ir.socialnetwork.informationpropagation.montecarlo;
+
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastDirectedUnweightedGraph;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastDirectedWeightedGraph;
+import es.uam.eps.ir.socialnetwork.index.Index;
+import es.uam.eps.ir.socialnetwork.index.fast.FastIndex;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the batched Monte Carlo cascades. The activation probabilities estimated by the
+ * batched models are compared with the ones obtained by running the replicas one by one.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class BatchCascadeModelTest 
+{
+    /**
+     * Number of users.
+     */
+    private static final int NUMUSERS = 40;
+    /**
+     * Number of edges.
+     */
+    private static final int NUMEDGES = 120;
+    /**
+     * Number of replicas (not a multiple of the size of a block).
+     */
+    private static final int NUMREPLICAS = 20000;
+    /**
+     * Maximum difference between the activation probabilities of a user.
+     */
+    private static final double TOLERANCE = 0.03;
+    /**
+     * The seed users.
+     */
+    private static final int[] SEEDS = {0, 1};
+    
+    @Test
+    public void uniformIndependentCascadeTest()
+    {
+        CascadeGraph<Long> graph = this.graph(false);
+        BatchCascadeModel<Long> model = new IndependentCascadeBatchModel<>(graph, 0.2);
+        
+        this.check(graph, model.estimate(SEEDS, NUMREPLICAS, 1L), this.independentCascade(graph, 0.2));
+    }
+    
+    @Test
+    public void weightedIndependentCascadeTest()
+    {
+        CascadeGraph<Long> graph = this.graph(true);
+        BatchCascadeModel<Long> model = new IndependentCascadeBatchModel<>(graph);
+        
+        this.check(graph, model.estimate(SEEDS, NUMREPLICAS, 2L), this.independentCascade(graph, -1.0));
+    }
+    
+    @Test
+    public void thresholdTest()
+    {
+        CascadeGraph<Long> graph = this.graph(false);
+        ThresholdBatchModel<Long> model = new ThresholdBatchModel<>(graph);
+        
+        this.check(graph, model.estimate(SEEDS, NUMREPLICAS, 3L), this.threshold(graph, model));
+    }
+    
+    @Test
+    public void countThresholdTest()
+    {
+        CascadeGraph<Long> graph = this.graph(false);
+        CountThresholdBatchModel<Long> model = new CountThresholdBatchModel<>(graph, 1);
+        
+        // The model is deterministic: every replica activates the same users.
+        BatchCascadeResult<Long> result = model.estimate(SEEDS, NUMREPLICAS, 4L);
+        double[] expected = this.threshold(graph, model);
+        for(int uidx = 0; uidx < NUMUSERS; ++uidx)
+        {
+            Assert.assertEquals(expected[uidx], result.getActivationProbability(uidx), 1e-9);
+        }
+    }
+    
+    @Test
+    public void commonRandomNumbersTest()
+    {
+        CascadeGraph<Long> graph = this.graph(false);
+        BatchCascadeModel<Long> model = new IndependentCascadeBatchModel<>(graph, 0.2);
+        
+        // With the same seed, adding a user to the seeds cannot reduce the spread of any replica.
+        BatchCascadeResult<Long> small = model.estimate(SEEDS, NUMREPLICAS, 5L);
+        BatchCascadeResult<Long> again = model.estimate(SEEDS, NUMREPLICAS, 5L);
+        BatchCascadeResult<Long> large = model.estimate(new int[]{SEEDS[0], SEEDS[1], 2}, NUMREPLICAS, 5L);
+        for(int i = 0; i < NUMREPLICAS; ++i)
+        {
+            Assert.assertEquals(small.getSpread(i), again.getSpread(i));
+            Assert.assertTrue(large.getSpread(i) >= small.getSpread(i));
+        }
+    }
+    
+    /**
+     * Checks that the activation probabilities estimated by a batched model are close to the expected ones.
+     * @param graph the network.
+     * @param result the result of the batched model.
+     * @param expected the expected activation probabilities.
+     */
+    private void check(CascadeGraph<Long> graph, BatchCascadeResult<Long> result, double[] expected)
+    {
+        Assert.assertEquals(NUMREPLICAS, result.getNumReplicas());
+        double spread = 0.0;
+        for(int uidx = 0; uidx < graph.numUsers(); ++uidx)
+        {
+            Assert.assertEquals(expected[uidx], result.getActivationProbability(uidx), TOLERANCE);
+            spread += expected[uidx];
+        }
+        Assert.assertEquals(spread, result.getExpectedSpread(), TOLERANCE*Math.sqrt(graph.numUsers()));
+    }
+    
+    /**
+     * Builds a random network.
+     * @param weighted true if the edges have random weights (used as propagation probabilities).
+     * @return the network.
+     */
+    private CascadeGraph<Long> graph(boolean weighted)
+    {
+        Random rng = new Random(0);
+        Graph<Long> graph = weighted ? new FastDirectedWeightedGraph<>() : new FastDirectedUnweightedGraph<>();
+        Index<Long> index = new FastIndex<>();
+        for(long u = 0; u < NUMUSERS; ++u)
+        {
+            graph.addNode(u);
+            index.addObject(u);
+        }
+        
+        int numEdges = 0;
+        while(numEdges < NUMEDGES)
+        {
+            long u = rng.nextInt(NUMUSERS);
+            long v = rng.nextInt(NUMUSERS);
+            if(u != v && !graph.containsEdge(u, v))
+            {
+                graph.addEdge(u, v, weighted ? 0.5*rng.nextDouble() : 1.0);
+                ++numEdges;
+            }
+        }
+        return new CascadeGraph<>(graph, index);
+    }
+    
+    /**
+     * Runs the Independent Cascade Model replica by replica.
+     * @param graph the network.
+     * @param prob the probability of propagating a piece across an edge (negative if the weights are used).
+     * @return the activation probability of each user.
+     */
+    private double[] independentCascade(CascadeGraph<Long> graph, double prob)
+    {
+        Random rng = new Random(1);
+        double[] probs = new double[graph.numUsers()];
+        for(int r = 0; r < NUMREPLICAS; ++r)
+        {
+            boolean[] active = new boolean[graph.numUsers()];
+            Deque<Integer> frontier = new ArrayDeque<>();
+            for(int s : SEEDS)
+            {
+                active[s] = true;
+                frontier.add(s);
+            }
+            
+            while(!frontier.isEmpty())
+            {
+                int u = frontier.poll();
+                for(int pos = graph.start(u); pos < graph.end(u); ++pos)
+                {
+                    int v = graph.follower(pos);
+                    double p = prob >= 0.0 ? prob : graph.weight(pos);
+                    if(!active[v] && rng.nextDouble() < p)
+                    {
+                        active[v] = true;
+                        frontier.add(v);
+                    }
+                }
+            }
+            this.add(probs, active);
+        }
+        return probs;
+    }
+    
+    /**
+     * Runs a threshold model replica by replica.
+     * @param graph the network.
+     * @param model the batched model, which provides the thresholds of the users.
+     * @return the activation probability of each user.
+     */
+    private double[] threshold(CascadeGraph<Long> graph, AbstractThresholdBatchModel<Long> model)
+    {
+        Random rng = new Random(2);
+        double[] probs = new double[graph.numUsers()];
+        for(int r = 0; r < NUMREPLICAS; ++r)
+        {
+            int[] thresholds = new int[graph.numUsers()];
+            for(int uidx = 0; uidx < graph.numUsers(); ++uidx)
+            {
+                thresholds[uidx] = Math.min(graph.getNumSenders(uidx) + 1, Math.max(1, model.getThreshold(uidx, rng.nextDouble())));
+            }
+            
+            boolean[] active = new boolean[graph.numUsers()];
+            int[] counts = new int[graph.numUsers()];
+            Deque<Integer> frontier = new ArrayDeque<>();
+            for(int s : SEEDS)
+            {
+                active[s] = true;
+                frontier.add(s);
+            }
+            
+            while(!frontier.isEmpty())
+            {
+                int u = frontier.poll();
+                for(int pos = graph.start(u); pos < graph.end(u); ++pos)
+                {
+                    int v = graph.follower(pos);
+                    counts[v]++;
+                    if(!active[v] && counts[v] >= thresholds[v])
+                    {
+                        active[v] = true;
+                        frontier.add(v);
+                    }
+                }
+            }
+            this.add(probs, active);
+        }
+        return probs;
+    }
+    
+    /**
+     * Adds the users activated in a replica to the activation probabilities.
+     * @param probs the activation probabilities.
+     * @param active the users activated in the replica.
+     */
+    private void add(double[] probs, boolean[] active)
+    {
+        for(int uidx = 0; uidx < probs.length; ++uidx)
+        {
+            if(active[uidx])
+            {
+                probs[uidx] += 1.0/NUMREPLICAS;
+            }
+        }
+    }
+}
@@ -10,18 +10,26 @@ package es.uam.eps.ir.socialnetwork.partition;
 
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeType;
+import es.uam.eps.ir.socialnetwork.graph.fast.FastGraph;
 import es.uam.eps.ir.socialnetwork.graph.generator.EmptyGraphGenerator;
 import es.uam.eps.ir.socialnetwork.graph.generator.EmptyMultiGraphGenerator;
 import es.uam.eps.ir.socialnetwork.graph.generator.GraphGenerator;
 import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorBadConfiguredException;
 import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorNotConfiguredException;
+import es.uam.eps.ir.socialnetwork.graph.masked.EdgeIndex;
+import es.uam.eps.ir.socialnetwork.graph.masked.MaskedGraph;
 import es.uam.eps.ir.socialnetwork.graph.multigraph.MultiGraph;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Pair;
+import java.util.BitSet;
 import java.util.List;
 import java.util.function.Predicate;
 
 /**
- * Abstract partition.
+ * Abstract partition. When the partitioned graph is a fast graph, partitions might represent
+ * the training and test graphs as read-only views of it (see {@link MaskedGraph}), instead of copying
+ * their edges. In that case, the views (and cleaned views) can be obtained with {@link #getTrainView()},
+ * {@link #getTestView()} and the rest of view methods, whereas the methods in {@link Partition} keep
+ * returning modifiable graphs, which are built from the views only when they are requested.
  * @author Javier Sanz-Cruzado Puig
  * @param <U> Type of the users.
  */
@@ -35,16 +43,207 @@ public abstract class AbstractPartition<U> implements Partition<U>
      * The test graph.
      */
     protected Graph<U> test = null;
+    /**
+     * The view of the training graph (null if the partition does not use views).
+     */
+    protected MaskedGraph<U> trainView = null;
+    /**
+     * The view of the test graph (null if the partition does not use views).
+     */
+    protected MaskedGraph<U> testView = null;
+    
+    /**
+     * Builds an edge index over a graph, so the training and test graphs can be represented as views of it.
+     * @param graph the graph.
+     * @return the edge index, null if the graph does not support views.
+     */
+    protected EdgeIndex<U> getEdgeIndex(Graph<U> graph)
+    {
+        if(graph instanceof FastGraph && !graph.isMultigraph())
+        {
+            return new EdgeIndex<>((FastGraph<U>) graph);
+        }
+        return null;
+    }
+    
+    /**
+     * Stores the training and test graphs as views of the same graph. Modifiable copies
+     * of them are only built if they are requested.
+     * @param trainView the view of the training graph.
+     * @param testView the view of the test graph.
+     */
+    protected void setViews(MaskedGraph<U> trainView, MaskedGraph<U> testView)
+    {
+        this.trainView = trainView;
+        this.testView = testView;
+        this.train = null;
+        this.test = null;
+    }
+    
+    /**
+     * Checks whether the training and test graphs are views of the same graph.
+     * @return true if they are views of the same graph, false otherwise.
+     */
+    private boolean hasViews()
+    {
+        return this.trainView != null && this.testView != null && this.trainView.getIndex() == this.testView.getIndex();
+    }
+    
+    /**
+     * Checks whether the cleaning operations can be performed over the views. This happens
+     * when no modifiable copy of the training or test graphs has been requested (since such 
+     * copies might have been modified afterwards).
+     * @return true if the cleaning operations can be performed over the views, false otherwise.
+     */
+    private boolean isMasked()
+    {
+        return this.hasViews() && this.train == null && this.test == null;
+    }
+    
+    /**
+     * Builds modifiable copies of the training and test views, if they have not been built yet.
+     */
+    private void materializeViews()
+    {
+        this.getTrainGraph();
+        this.getTestGraph();
+    }
+    
+    /**
+     * Cleans the test graph when the training and test graphs are views of the same graph.
+     * The result is another view, so no edge is copied.
+     * @param nodes the identifiers of the nodes to keep in the test graph.
+     * @param clean true if the edges in the training graph have to be removed from the test graph.
+     * @param removeTestReciprocal true if the reciprocal edges of training edges have to be removed from the test graph.
+     * @return the cleaned test graph.
+     */
+    private MaskedGraph<U> cleanMaskedGraph(BitSet nodes, boolean clean, boolean removeTestReciprocal)
+    {
+        EdgeIndex<U> index = this.trainView.getIndex();
+        
+        BitSet trainEdges = this.trainView.getEdgeMask();
+        BitSet edges = (BitSet) this.testView.getEdgeMask().clone();
+        if(clean)
+        {
+            edges.andNot(trainEdges);
+        }
+        
+        if(removeTestReciprocal && this.testView.isDirected())
+        {
+            for(int id = edges.nextSetBit(0); id >= 0; id = edges.nextSetBit(id + 1))
+            {
+                int reciprocal = index.edgeId(index.target(id), index.source(id));
+                if(reciprocal >= 0 && trainEdges.get(reciprocal))
+                {
+                    edges.clear(id);
+                }
+            }
+        }
+        
+        return index.view(nodes, edges);
+    }
+    
+    /**
+     * Gets the view of the training graph.
+     * @return the view of the training graph if the partition uses views, null if not.
+     */
+    public MaskedGraph<U> getTrainView()
+    {
+        return this.trainView;
+    }
+    
+    /**
+     * Gets the view of the test graph.
+     * @return the view of the test graph if the partition uses views, null if not.
+     */
+    public MaskedGraph<U> getTestView()
+    {
+        return this.testView;
+    }
+    
+    /**
+     * Equivalent to {@link #cleanTest()}, but the result is a view of the original graph.
+     * @return the cleaned test view if the partition uses views, null if not.
+     */
+    public MaskedGraph<U> cleanTestView()
+    {
+        if(!this.hasViews())
+        {
+            return null;
+        }
+        return this.cleanMaskedGraph(this.trainView.getNodeMask(), true, false);
+    }
+    
+    /**
+     * Equivalent to {@link #removeTestReciprocal()}, but the result is a view of the original graph.
+     * @return the cleaned test view if the partition uses views, null if not.
+     */
+    public MaskedGraph<U> removeTestReciprocalView()
+    {
+        if(!this.hasViews())
+        {
+            return null;
+        }
+        else if(!this.testView.isDirected()) // There are no reciprocal links in undirected networks
+        {
+            return this.testView;
+        }
+        return this.cleanMaskedGraph(this.testView.getNodeMask(), false, true);
+    }
+    
+    /**
+     * Equivalent to {@link #cleanAndRemoveTestReciprocal()}, but the result is a view of the original graph.
+     * @return the cleaned test view if the partition uses views, null if not.
+     */
+    public MaskedGraph<U> cleanAndRemoveTestReciprocalView()
+    {
+        if(!this.hasViews())
+        {
+            return null;
+        }
+        return this.cleanMaskedGraph(this.trainView.getNodeMask(), true, true);
+    }
+    
+    /**
+     * Equivalent to {@link #restrictToUsers(Predicate, boolean, boolean)}, but the results are views of the original graph.
+     * @param usersSelection the set of users.
+     * @param clean indicates if the test has to be cleaned
+     * @param removeReciprocalsTest remove reciprocal nodes from test.
+     * @return the split, restricted to the corresponding set of users, if the partition uses views, null if not.
+     */
+    public Pair<MaskedGraph<U>> restrictToUsersView(Predicate<U> usersSelection, boolean clean, boolean removeReciprocalsTest)
+    {
+        if(!this.hasViews())
+        {
+            return null;
+        }
+        
+        EdgeIndex<U> index = this.trainView.getIndex();
+        BitSet nodes = new BitSet();
+        this.trainView.getAllNodes().filter(usersSelection).forEach(u -> nodes.set(index.getGraph().object2idx(u)));
+
+        MaskedGraph<U> trainCleaned = index.view(nodes, this.trainView.getEdgeMask());
+        MaskedGraph<U> testCleaned = this.cleanMaskedGraph(nodes, clean, clean && removeReciprocalsTest);
+        return new Pair<>(trainCleaned, testCleaned);
+    }
     
     @Override
     public Graph<U> getTrainGraph() 
     {
+        if(this.train == null && this.trainView != null)
+        {
+            this.train = this.trainView.materialize();
+        }
         return train;
     }
 
     @Override
     public Graph<U> getTestGraph() 
     {
+        if(this.test == null && this.testView != null)
+        {
+            this.test = this.testView.materialize();
+        }
         return test;
     }
 
@@ -52,6 +251,12 @@ public abstract class AbstractPartition<U> implements Partition<U>
     @Override
     public Graph<U> cleanTest() 
     {
+        if(this.isMasked())
+        {
+            return this.cleanTestView().materialize();
+        }
+        
+        this.materializeViews();
         if(this.train == null || this.test == null)
         {
             return null;
@@ -75,6 +280,12 @@ public abstract class AbstractPartition<U> implements Partition<U>
     {
         try 
         {
+            if(this.isMasked())
+            {
+                return this.removeTestReciprocalView().materialize();
+            }
+            
+            this.materializeViews();
             if(this.train == null || this.test == null)
             {
                 return null;
@@ -117,6 +328,12 @@ public abstract class AbstractPartition<U> implements Partition<U>
     @Override
     public Graph<U> cleanAndRemoveTestReciprocal() 
     {
+        if(this.isMasked())
+        {
+            return this.cleanAndRemoveTestReciprocalView().materialize();
+        }
+        
+        this.materializeViews();
         if(this.train == null || this.test == null)
         {
             return null;
@@ -348,6 +565,13 @@ public abstract class AbstractPartition<U> implements Partition<U>
     @Override
     public Pair<Graph<U>> restrictToUsers(Predicate<U> usersSelection, boolean clean, boolean removeReciprocalsTest)
     {
+        if(this.isMasked())
+        {
+            Pair<MaskedGraph<U>> views = this.restrictToUsersView(usersSelection, clean, removeReciprocalsTest);
+            return new Pair<>(views.v1().materialize(), views.v2().materialize());
+        }
+        
+        this.materializeViews();
         // Generate an empty multigraph
         GraphGenerator<U> gg = new EmptyGraphGenerator<>();
         gg.configure(this.train.isDirected(),this.train.isWeighted());
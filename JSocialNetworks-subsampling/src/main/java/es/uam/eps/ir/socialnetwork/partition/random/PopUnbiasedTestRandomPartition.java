@@ -14,9 +14,11 @@ import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.graph.generator.EmptyGraphGenerator;
 import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorBadConfiguredException;
 import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorNotConfiguredException;
+import es.uam.eps.ir.socialnetwork.graph.masked.EdgeIndex;
 import es.uam.eps.ir.socialnetwork.metrics.vertex.Degree;
 import es.uam.eps.ir.socialnetwork.partition.AbstractPartition;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -32,6 +34,9 @@ import org.ranksys.core.util.tuples.Tuple2od;
  * 
  * Bellogín, A., Castells, P., Cantador, I. Statistical biases in Information Retrieval Metrics for Recommender Systems. Information Retrieval Journal 20(6), 606-634 (2017)
  * 
+ * If the graph is a fast graph, the training and test graphs are views of it (see {@link #getTrainView()}
+ * and {@link #getTestView()}), so no edge is copied until a modifiable graph is requested.
+ * 
  * @author Javier Sanz-Cruzado Puig
  * @param <V> type of the nodes of the graph.
  * 
@@ -115,15 +120,23 @@ public class PopUnbiasedTestRandomPartition<V> extends AbstractPartition<V>
             boolean weighted = graph.isWeighted();
             
             // Configure the split.
-            EmptyGraphGenerator<V> gg = new EmptyGraphGenerator<>();
-            gg.configure(directed, weighted);
-            this.train = gg.generate();
-            this.test = gg.generate();
-            
-            graph.getAllNodes().forEach((node)->{
-                this.train.addNode(node);
-                this.test.addNode(node);
-            });
+            EdgeIndex<V> index = this.getEdgeIndex(graph);
+            BitSet trainEdges = new BitSet();
+            BitSet testEdges = new BitSet();
+            if(index == null)
+            {
+                EmptyGraphGenerator<V> gg = new EmptyGraphGenerator<>();
+                gg.configure(directed, weighted);
+                this.train = gg.generate();
+                this.test = gg.generate();
+                this.trainView = null;
+                this.testView = null;
+
+                graph.getAllNodes().forEach((node)->{
+                    this.train.addNode(node);
+                    this.test.addNode(node);
+                });
+            }
             
             // Classify in train / test
             for(V candidate : candidates)
@@ -133,6 +146,14 @@ public class PopUnbiasedTestRandomPartition<V> extends AbstractPartition<V>
                 
                 Collections.shuffle(links);
                 
+                if(index != null)
+                {
+                    int cidx = graph.object2idx(candidate);
+                    IntStream.range(0, links.size() - num).forEach(i -> trainEdges.set(index.edgeId(graph.object2idx(links.get(i).getIdx()), cidx)));
+                    IntStream.range(links.size() - num, links.size()).forEach(i -> testEdges.set(index.edgeId(graph.object2idx(links.get(i).getIdx()), cidx)));
+                    continue;
+                }
+                
                 IntStream.range(0, links.size() - num).forEach(i -> 
                 {
                    this.train.addEdge(links.get(i).getIdx(), candidate, links.get(i).getValue()); 
@@ -143,6 +164,11 @@ public class PopUnbiasedTestRandomPartition<V> extends AbstractPartition<V>
                    this.test.addEdge(links.get(i).getIdx(), candidate, links.get(i).getValue()); 
                 });
             }
+            
+            if(index != null)
+            {
+                this.setViews(index.view(index.allNodes(), trainEdges), index.view(index.allNodes(), testEdges));
+            }
             System.out.println("perc:" + (1.0 - sigma) + " epsilon:" + epsilon + " zeta: " + zeta + " nu:" + nu);
             
             return true;
@@ -12,13 +12,17 @@ import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.generator.EmptyGraphGenerator;
 import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorBadConfiguredException;
 import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorNotConfiguredException;
+import es.uam.eps.ir.socialnetwork.graph.masked.EdgeIndex;
 import es.uam.eps.ir.socialnetwork.partition.AbstractPartition;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Random;
 
 /**
- * Class that performs a random partition of a graph.
+ * Class that performs a random partition of a graph. If the graph is a fast graph,
+ * the training and test graphs are views of it (see {@link #getTrainView()} and {@link #getTestView()}),
+ * so no edge is copied until a modifiable graph is requested.
  * @author Javier Sanz-Cruzado Puig
  * @param <V> type of the nodes of the graph.
  */ 
@@ -50,6 +54,13 @@ public class RandomPartition<V> extends AbstractPartition<V>
                 return false;
             }
             
+            EdgeIndex<V> index = this.getEdgeIndex(graph);
+            if(index != null)
+            {
+                this.doMaskedPartition(index);
+                return true;
+            }
+            
             boolean directed = graph.isDirected();
             boolean weighted = graph.isWeighted();
             
@@ -57,6 +68,8 @@ public class RandomPartition<V> extends AbstractPartition<V>
             gg.configure(directed, weighted);
             this.train = gg.generate();
             this.test = gg.generate();
+            this.trainView = null;
+            this.testView = null;
                    
             graph.getAllNodes().forEach((node)->{
                 this.train.addNode(node);
@@ -120,6 +133,39 @@ public class RandomPartition<V> extends AbstractPartition<V>
         }
     }
     
+    /**
+     * Performs the partition when the training and test graphs are views of the original graph.
+     * @param index the edge index of the original graph.
+     */
+    private void doMaskedPartition(EdgeIndex<V> index)
+    {
+        BitSet trainEdges = new BitSet(index.numPositions());
+        BitSet testEdges = new BitSet(index.numPositions());
+        
+        Random rng = new Random();
+        for(int uidx = 0; uidx < index.numNodes(); ++uidx)
+        {
+            for(int pos = index.start(uidx); pos < index.end(uidx); ++pos)
+            {
+                // Each edge is only visited once, and autoloops are discarded.
+                if(index.target(pos) != uidx && index.isEdgeId(pos))
+                {
+                    // With probability = percentage, add the edge to train
+                    if(rng.nextDouble() < percentage)
+                    {
+                        trainEdges.set(pos);
+                    }
+                    else //With probability = 1 - percentage, add it to test.
+                    {
+                        testEdges.set(pos);
+                    }
+                }
+            }
+        }
+        
+        this.setViews(index.view(index.allNodes(), trainEdges), index.view(index.allNodes(), testEdges));
+    }
+    
     /**
      * Gets the current percentage of edges in the train set.
      * @return The current percentage of edges in the train set.
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.randomwalk;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Engine for running random walks over a graph. The neighbourhoods of the nodes are precomputed once,
+ * in compressed sparse row form, so the neighbour of a node can be sampled in constant time and
+ * without allocating any object: in unweighted walks, by directly selecting a random position
+ * of the neighbourhood, and in weighted walks, by using an alias table for each node.
+ *
+ * Several walkers can be advanced at the same time. Each walker has its own random number generator,
+ * split from a common seed, so the walkers are advanced in parallel.
+ *
+ * Vose, M.D. A linear algorithm for generating random numbers with a given distribution. IEEE Transactions on Software Engineering 17(9), 1991.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class RandomWalkEngine<U>
+{
+    /**
+     * The nodes of the graph, indexed by identifier.
+     */
+    private final List<U> nodes;
+    /**
+     * The identifiers of the nodes.
+     */
+    private final Object2IntMap<U> ids;
+    /**
+     * Position of the neighbourhood of each node in the neighbour array (the last
+     * element is the total number of neighbours).
+     */
+    private final int[] offsets;
+    /**
+     * Neighbours of the nodes.
+     */
+    private final int[] neighbors;
+    /**
+     * For weighted walks, the probability of keeping each position of the alias tables (null if the walk is unweighted).
+     */
+    private final double[] aliasProbs;
+    /**
+     * For weighted walks, the alias of each position of the alias tables (null if the walk is unweighted).
+     */
+    private final int[] aliases;
+
+    /**
+     * Constructor. Builds an engine for unweighted random walks, where neighbours are selected uniformly at random.
+     * @param graph the graph.
+     * @param orientation the orientation of the edges the walkers follow.
+     */
+    public RandomWalkEngine(Graph<U> graph, EdgeOrientation orientation)
+    {
+        this(graph, orientation, false);
+    }
+
+    /**
+     * Constructor.
+     * @param graph the graph.
+     * @param orientation the orientation of the edges the walkers follow.
+     * @param weighted true if the neighbours are selected with probability proportional to the weight
+     * of the edges, false if they are selected uniformly at random.
+     */
+    public RandomWalkEngine(Graph<U> graph, EdgeOrientation orientation, boolean weighted)
+    {
+        this.nodes = graph.getAllNodes().collect(Collectors.toCollection(ArrayList::new));
+        this.ids = new Object2IntOpenHashMap<>();
+        this.ids.defaultReturnValue(-1);
+        for(int i = 0; i < nodes.size(); ++i)
+        {
+            this.ids.put(nodes.get(i), i);
+        }
+
+        int numNodes = nodes.size();
+        this.offsets = new int[numNodes + 1];
+        IntArrayList neighs = new IntArrayList();
+        List<double[]> weights = weighted ? new ArrayList<>() : null;
+        for(int i = 0; i < numNodes; ++i)
+        {
+            U u = nodes.get(i);
+            if(weighted)
+            {
+                weights.add(graph.getNeighbourhoodWeights(u, orientation).mapToDouble(w ->
+                {
+                    neighs.add(this.ids.getInt(w.getIdx()));
+                    return w.getValue();
+                }).toArray());
+            }
+            else
+            {
+                graph.getNeighbourhood(u, orientation).forEach(v -> neighs.add(this.ids.getInt(v)));
+            }
+            this.offsets[i + 1] = neighs.size();
+        }
+        this.neighbors = neighs.toIntArray();
+
+        if(weighted)
+        {
+            this.aliasProbs = new double[this.neighbors.length];
+            this.aliases = new int[this.neighbors.length];
+            IntStream.range(0, numNodes).parallel().forEach(i -> this.buildAliasTable(i, weights.get(i)));
+        }
+        else
+        {
+            this.aliasProbs = null;
+            this.aliases = null;
+        }
+    }
+
+    /**
+     * Builds the alias table of a node.
+     * @param node the identifier of the node.
+     * @param weights the weights of the edges towards the neighbours of the node.
+     */
+    private void buildAliasTable(int node, double[] weights)
+    {
+        int start = this.offsets[node];
+        int size = weights.length;
+        double sum = 0.0;
+        for(double w : weights)
+        {
+            sum += w;
+        }
+
+        double[] probs = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int numSmall = 0;
+        int numLarge = 0;
+        for(int j = 0; j < size; ++j)
+        {
+            probs[j] = sum > 0.0 ? weights[j]*size/sum : 1.0;
+            if(probs[j] < 1.0)
+            {
+                small[numSmall++] = j;
+            }
+            else
+            {
+                large[numLarge++] = j;
+            }
+        }
+
+        while(numSmall > 0 && numLarge > 0)
+        {
+            int s = small[--numSmall];
+            int l = large[--numLarge];
+            this.aliasProbs[start + s] = probs[s];
+            this.aliases[start + s] = l;
+            probs[l] = (probs[l] + probs[s]) - 1.0;
+            if(probs[l] < 1.0)
+            {
+                small[numSmall++] = l;
+            }
+            else
+            {
+                large[numLarge++] = l;
+            }
+        }
+
+        // The remaining positions are always kept (numerical errors might leave some of them in the small list).
+        while(numLarge > 0)
+        {
+            int l = large[--numLarge];
+            this.aliasProbs[start + l] = 1.0;
+            this.aliases[start + l] = l;
+        }
+        while(numSmall > 0)
+        {
+            int s = small[--numSmall];
+            this.aliasProbs[start + s] = 1.0;
+            this.aliases[start + s] = s;
+        }
+    }
+
+    /**
+     * Obtains the number of nodes in the graph.
+     * @return the number of nodes.
+     */
+    public int numNodes()
+    {
+        return this.nodes.size();
+    }
+
+    /**
+     * Obtains the identifier of a node.
+     * @param node the node.
+     * @return the identifier of the node, -1 if it does not exist.
+     */
+    public int node2idx(U node)
+    {
+        return this.ids.getInt(node);
+    }
+
+    /**
+     * Obtains the node with a given identifier.
+     * @param idx the identifier.
+     * @return the node.
+     */
+    public U idx2node(int idx)
+    {
+        return this.nodes.get(idx);
+    }
+
+    /**
+     * Obtains the number of neighbours of a node.
+     * @param idx the identifier of the node.
+     * @return the number of neighbours of the node.
+     */
+    public int degree(int idx)
+    {
+        return this.offsets[idx + 1] - this.offsets[idx];
+    }
+
+    /**
+     * Selects a node of the graph uniformly at random.
+     * @param rng the random number generator.
+     * @return the identifier of the selected node.
+     */
+    public int sampleNode(SplittableRandom rng)
+    {
+        return rng.nextInt(this.nodes.size());
+    }
+
+    /**
+     * Selects a neighbour of a node at random (uniformly, or proportionally to the edge weights,
+     * for weighted walks).
+     * @param idx the identifier of the node.
+     * @param rng the random number generator.
+     * @return the identifier of the selected neighbour, -1 if the node has no neighbours.
+     */
+    public int sampleNeighbor(int idx, SplittableRandom rng)
+    {
+        int start = this.offsets[idx];
+        int size = this.offsets[idx + 1] - start;
+        if(size == 0)
+        {
+            return -1;
+        }
+
+        int pos = rng.nextInt(size);
+        if(this.aliasProbs != null && rng.nextDouble() >= this.aliasProbs[start + pos])
+        {
+            pos = this.aliases[start + pos];
+        }
+        return this.neighbors[start + pos];
+    }
+
+    /**
+     * Creates the random number generators for a set of walkers. Each generator is split
+     * from a generator with the given seed, so the walkers follow independent streams.
+     * @param numWalkers the number of walkers.
+     * @param seed the random seed.
+     * @return the random number generators.
+     */
+    public SplittableRandom[] walkerRNGs(int numWalkers, long seed)
+    {
+        SplittableRandom rng = new SplittableRandom(seed);
+        SplittableRandom[] rngs = new SplittableRandom[numWalkers];
+        for(int i = 0; i < numWalkers; ++i)
+        {
+            rngs[i] = rng.split();
+        }
+        return rngs;
+    }
+
+    /**
+     * Advances a set of walkers a single step. Walkers are advanced in parallel.
+     * @param walkers the identifiers of the nodes the walkers are visiting. After the call, it
+     * contains the nodes they move to.
+     * @param rngs the random number generators of the walkers.
+     * @param step the function that selects the next node of each walker.
+     */
+    public void advance(int[] walkers, SplittableRandom[] rngs, Step step)
+    {
+        IntStream.range(0, walkers.length).parallel().forEach(i -> walkers[i] = step.next(i, walkers[i], rngs[i]));
+    }
+
+    /**
+     * Function that selects the next node a walker moves to.
+     */
+    @FunctionalInterface
+    public interface Step
+    {
+        /**
+         * Selects the next node a walker moves to.
+         * @param walker the index of the walker.
+         * @param current the identifier of the node the walker is visiting.
+         * @param rng the random number generator of the walker.
+         * @return the identifier of the next node.
+         */
+        public int next(int walker, int current, SplittableRandom rng);
+    }
+}
@@ -11,14 +11,13 @@ package es.uam.eps.ir.socialnetwork.subsampling.randomwalk.edge;
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.subsampling.AbstractEdgeSampler;
+import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.RandomWalkEngine;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Pair;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Random;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
 
 /**
  * Abstract class for random walk samplers.
@@ -28,6 +27,10 @@ import java.util.stream.Collectors;
  * This variant recovers a certain number of edges, and, after they have been found,
  * retrieves all nodes in their endpoints and add them to the graph.
  * 
+ * The random walks are run over a {@link RandomWalkEngine}: at each iteration, every
+ * walk advances a single step, and the different walks are advanced in parallel (each
+ * of them with its own random number generator).
+ * 
  */
 public abstract class AbstractEdgeRandomWalkSampler<U> extends AbstractEdgeSampler<U> 
 {
@@ -74,52 +77,55 @@ public abstract class AbstractEdgeRandomWalkSampler<U> extends AbstractEdgeSampl
     @Override
     protected Collection<Pair<U>> sampleEdges(Graph<U> fullGraph, int num) 
     {
-        List<U> vertices = fullGraph.getAllNodes().collect(Collectors.toCollection(ArrayList::new));
-        int max = vertices.size();
-        List<U> origins = new ArrayList<>();
-        List<U> randomWalks = new ArrayList<>();
+        RandomWalkEngine<U> engine = new RandomWalkEngine<>(fullGraph, orientation);
+        SplittableRandom[] rngs = engine.walkerRNGs(this.numInitial, rng.nextLong());
+        int[] origins = new int[this.numInitial];
+        int[] randomWalks = new int[this.numInitial];
 
-        while(randomWalks.size() < this.numInitial)
+        for(int i = 0; i < this.numInitial; ++i)
         {
-            int idx = rng.nextInt(max);
-            origins.add(vertices.get(idx));
-            randomWalks.add(vertices.get(idx));
+            origins[i] = engine.sampleNode(rngs[i]);
+            randomWalks[i] = origins[i];
         }
         
         Set<Pair<U>> visited = new HashSet<>();
         
+        int[] previous = new int[this.numInitial];
         int iter = 0;
         while(visited.size() < num)
         {
-            for(int i = 0; i < randomWalks.size(); ++i)
+            // Advance the random walks.
+            System.arraycopy(randomWalks, 0, previous, 0, this.numInitial);
+            boolean stuck = iter >= maxNumIterMultiplier*num;
+            engine.advance(randomWalks, rngs, (i, actual, random) ->
             {
-                U actual = randomWalks.get(i);
-                
-                U next;
-                if(iter >= maxNumIterMultiplier*num)
+                int next;
+                if(stuck)
                 {
                     // Randomly select another node: the rw is stuck. This new node will be the new origin.
-                    int idx = rng.nextInt(max);
-                    next = vertices.get(idx);
-                    origins.set(i, next);
+                    next = engine.sampleNode(random);
+                    origins[i] = next;
                 }
-                else if (rng.nextDouble() < this.r)
+                else if (random.nextDouble() < this.r)
                 {
-                    next = this.teleport(fullGraph, actual, origins.get(i));
+                    next = this.teleport(engine, actual, origins[i], random);
                 }
                 else // Randomly select a neighborhood node
                 {
-                    List<U> neighbors = fullGraph.getNeighbourhood(actual, orientation).collect(Collectors.toCollection(ArrayList::new));
-                    next = this.selectNeighbor(fullGraph, actual, neighbors);
-                    
-                    if(next == null)
+                    next = this.selectNeighbor(engine, actual, random);
+                    if(next == -1)
                         next = actual;
-                    
                 }
-                
+                return next;
+            });
+            
+            for(int i = 0; i < this.numInitial; ++i)
+            {
                 // Store the new edge
-                if(next != actual)
+                if(previous[i] != randomWalks[i])
                 {
+                    U actual = engine.idx2node(previous[i]);
+                    U next = engine.idx2node(randomWalks[i]);
                     if(!fullGraph.isDirected() || this.orientation.equals(EdgeOrientation.OUT))
                     {
                         visited.add(new Pair<>(actual, next));
@@ -136,10 +142,6 @@ public abstract class AbstractEdgeRandomWalkSampler<U> extends AbstractEdgeSampl
                             visited.add(new Pair<>(next, actual));
                     }
                 }
-                
-                
-                // Advance the random walk.
-                randomWalks.set(i, next);
             }
             ++iter;
         }
@@ -148,24 +150,25 @@ public abstract class AbstractEdgeRandomWalkSampler<U> extends AbstractEdgeSampl
     
     /**
      * Finds a node to teleport to.
-     * @param fullGraph the full graph.
-     * @param actual the actual visiting node.
-     * @param origin the origin node of the random walk.
-     * @return the new node to teleport to.
+     * @param engine the random walk engine over the full graph.
+     * @param actual the identifier of the actual visiting node.
+     * @param origin the identifier of the origin node of the random walk.
+     * @param rng the random number generator of the random walk.
+     * @return the identifier of the new node to teleport to.
      */
-    protected abstract U teleport(Graph<U> fullGraph, U actual, U origin);
+    protected abstract int teleport(RandomWalkEngine<U> engine, int actual, int origin, SplittableRandom rng);
     
     /**
      * Finds a neighbor node of the actual node to travel to.
-     * @param fullGraph the full graph.
-     * @param actual the actual visiting node.
-     * @param neighbors the set of neighbors of the visiting node
-     * @return the selected neighbor, or null if none has been selected.
+     * @param engine the random walk engine over the full graph.
+     * @param actual the identifier of the actual visiting node.
+     * @param rng the random number generator of the random walk.
+     * @return the identifier of the selected neighbor, or -1 if none has been selected.
      */
-    protected abstract U selectNeighbor(Graph<U> fullGraph, U actual, List<U> neighbors);
+    protected abstract int selectNeighbor(RandomWalkEngine<U> engine, int actual, SplittableRandom rng);
     
     /**
-     * Get the random number generator.
+     * Get the random number generator (it provides the seeds of the random walks).
      * @return The random number generator
      */
     protected Random getRNG()
@@ -8,10 +8,10 @@
  */
 package es.uam.eps.ir.socialnetwork.subsampling.randomwalk.edge.uniform;
 
-import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.RandomWalkEngine;
 import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.edge.AbstractEdgeRandomWalkSampler;
-import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * Abstract class for representing uniform random walk samplers. These methods 
@@ -41,12 +41,9 @@ public abstract class AbstractEdgeUniformRandomWalkSampler<U> extends AbstractEd
     }
     
     @Override
-    protected U selectNeighbor(Graph<U> fullGraph, U actual, List<U> neighbors) 
+    protected int selectNeighbor(RandomWalkEngine<U> engine, int actual, SplittableRandom rng) 
     {
-        if(neighbors == null || neighbors.isEmpty())
-            return null;
-        else
-            return neighbors.get(this.getRNG().nextInt(neighbors.size()));
+        return engine.sampleNeighbor(actual, rng);
     }
     
 }
@@ -8,11 +8,9 @@
  */
 package es.uam.eps.ir.socialnetwork.subsampling.randomwalk.edge.uniform;
 
-import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.RandomWalkEngine;
+import java.util.SplittableRandom;
 
 /**
  * Uniform Random walk sampler that selects nodes uniformly from their neighborhoods. This 
@@ -39,10 +37,8 @@ public class EdgeRandomWalkJumpSampler<U> extends AbstractEdgeUniformRandomWalkS
     }
 
     @Override
-    protected U teleport(Graph<U> fullGraph, U actual, U origin) 
+    protected int teleport(RandomWalkEngine<U> engine, int actual, int origin, SplittableRandom rng) 
     {
-        List<U> vertices = fullGraph.getAllNodes().collect(Collectors.toCollection(ArrayList::new));
-        int idx = this.getRNG().nextInt(vertices.size());
-        return vertices.get(idx);
+        return engine.sampleNode(rng);
     }
 }
@@ -8,8 +8,9 @@
  */
 package es.uam.eps.ir.socialnetwork.subsampling.randomwalk.edge.uniform;
 
-import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.RandomWalkEngine;
+import java.util.SplittableRandom;
 
 /**
  * Uniform Random walk sampler that selects nodes uniformly from their neighborhoods. This 
@@ -38,7 +39,7 @@ public class EdgeRootedRandomWalkSampler<U> extends AbstractEdgeUniformRandomWal
     }
 
     @Override
-    protected U teleport(Graph<U> fullGraph, U actual, U origin) 
+    protected int teleport(RandomWalkEngine<U> engine, int actual, int origin, SplittableRandom rng) 
     {
         return origin;
     }
@@ -11,13 +11,14 @@ package es.uam.eps.ir.socialnetwork.subsampling.randomwalk.node;
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.subsampling.AbstractNodeSampler;
-import java.util.ArrayList;
+import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.RandomWalkEngine;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Random;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
 
 /**
  * Abstract class for random walk samplers.
@@ -25,6 +26,10 @@ import java.util.stream.Collectors;
  * This variant recovers a certain number of nodes, and, after they have been found,
  * retrieves all edges among them.
  * 
+ * The random walks are run over a {@link RandomWalkEngine}: at each iteration, every
+ * walk advances a single step, and the different walks are advanced in parallel (each
+ * of them with its own random number generator).
+ * 
  * @author Javier Sanz-Cruzado Puig
  * @param <U> Type of the users
  */
@@ -73,76 +78,82 @@ public abstract class AbstractNodeRandomWalkSampler<U> extends AbstractNodeSampl
     @Override
     protected Collection<U> sampleNodes(Graph<U> fullGraph, int num) 
     {
-        List<U> vertices = fullGraph.getAllNodes().collect(Collectors.toCollection(ArrayList::new));
-        int max = vertices.size();
-        List<U> origins = new ArrayList<>();
-        List<U> randomWalks = new ArrayList<>();
+        RandomWalkEngine<U> engine = new RandomWalkEngine<>(fullGraph, orientation);
+        SplittableRandom[] rngs = engine.walkerRNGs(this.numInitial, rng.nextLong());
+        int[] origins = new int[this.numInitial];
+        int[] randomWalks = new int[this.numInitial];
 
-        while(randomWalks.size() < this.numInitial)
+        for(int i = 0; i < this.numInitial; ++i)
         {
-            int idx = rng.nextInt(max);
-            origins.add(vertices.get(idx));
-            randomWalks.add(vertices.get(idx));
+            origins[i] = engine.sampleNode(rngs[i]);
+            randomWalks[i] = origins[i];
         }
         
-        Set<U> visited = new HashSet<>();
+        IntSet visited = new IntOpenHashSet();
         
         int iter = 0;
         while(visited.size() < num)
         {
-            for(int i = 0; i < randomWalks.size(); ++i)
+            for(int actual : randomWalks)
             {
-                U actual = randomWalks.get(i);
                 visited.add(actual);
-                
-                U next;
-                if(iter >= maxNumIterMultiplier*num)
+            }
+            
+            // Advance the random walks.
+            boolean stuck = iter >= maxNumIterMultiplier*num;
+            engine.advance(randomWalks, rngs, (i, actual, random) ->
+            {
+                int next;
+                if(stuck)
                 {
                     // Randomly select another node: the rw is stuck. This new node will be the new origin.
-                    int idx = rng.nextInt(max);
-                    next = vertices.get(idx);
-                    origins.set(i, next);
+                    next = engine.sampleNode(random);
+                    origins[i] = next;
                 }
-                else if (rng.nextDouble() < this.r)
+                else if (random.nextDouble() < this.r)
                 {
-                    next = this.teleport(fullGraph, actual, origins.get(i));
+                    next = this.teleport(engine, actual, origins[i], random);
                 }
                 else // Randomly select a neighborhood node
                 {
-                    List<U> neighbors = fullGraph.getNeighbourhood(actual, orientation).collect(Collectors.toCollection(ArrayList::new));
-                    next = this.selectNeighbor(fullGraph, actual, neighbors);
-                    if(next == null)
+                    next = this.selectNeighbor(engine, actual, random);
+                    if(next == -1)
                         next = actual;
                 }
-                
-                // Advance the random walk.
-                randomWalks.set(i, next);
-            }
+                return next;
+            });
             ++iter;
         }
-        return visited;
+        
+        Set<U> sample = new HashSet<>();
+        for(int idx : visited)
+        {
+            sample.add(engine.idx2node(idx));
+        }
+        return sample;
     }
     
     /**
      * Finds a node to teleport to.
-     * @param fullGraph the full graph.
-     * @param actual the actual visiting node.
-     * @param origin the origin node of the random walk.
-     * @return the new node to teleport to.
+     * @param engine the random walk engine over the full graph.
+     * @param actual the identifier of the actual visiting node.
+     * @param origin the identifier of the origin node of the random walk.
+     * @param rng the random number generator of the random walk.
+     * @return the identifier of the new node to teleport to.
      */
-    protected abstract U teleport(Graph<U> fullGraph, U actual, U origin);
+    protected abstract int teleport(RandomWalkEngine<U> engine, int actual, int origin, SplittableRandom rng);
     
     /**
      * Finds a neighbor node of the actual node to travel to.
-     * @param fullGraph the full graph.
-     * @param actual the actual visiting node.
-     * @param neighbors the set of neighbors of the visiting node
-     * @return the selected neighbor, or null if none has been selected.
+     * @param engine the random walk engine over the full graph.
+     * @param actual the identifier of the actual visiting node.
+     * @param rng the random number generator of the random walk.
+     * @return the identifier of the selected neighbor, or -1 if none has been selected.
      */
-    protected abstract U selectNeighbor(Graph<U> fullGraph, U actual, List<U> neighbors);
+    protected abstract int selectNeighbor(RandomWalkEngine<U> engine, int actual, SplittableRandom rng);
     
     /**
-     * Get the random number generator.
+     * Get the random number generator (it provides the seeds of the random walks).
      * @return The random number generator
      */
     protected Random getRNG()
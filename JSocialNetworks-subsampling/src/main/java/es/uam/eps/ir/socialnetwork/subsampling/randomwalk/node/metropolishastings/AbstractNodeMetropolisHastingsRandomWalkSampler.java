@@ -8,10 +8,10 @@
  */
 package es.uam.eps.ir.socialnetwork.subsampling.randomwalk.node.metropolishastings;
 
-import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.RandomWalkEngine;
 import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.node.AbstractNodeRandomWalkSampler;
-import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * Abstract class for representing Metropolis-Hastings random walk samplers. These methods
@@ -45,14 +45,14 @@ public abstract class AbstractNodeMetropolisHastingsRandomWalkSampler<U> extends
     }
     
     @Override
-    protected U selectNeighbor(Graph<U> fullGraph, U actual, List<U> neighbors) 
+    protected int selectNeighbor(RandomWalkEngine<U> engine, int actual, SplittableRandom rng) 
     {
-        U next = null;
-        if(neighbors != null && !neighbors.isEmpty())
+        int next = -1;
+        int selected = engine.sampleNeighbor(actual, rng);
+        if(selected != -1)
         {
-            U selected = neighbors.get(this.getRNG().nextInt(neighbors.size()));
-            double actualSize = neighbors.size() + 0.0;
-            double selectedSize = fullGraph.getNeighbourhoodSize(selected, this.getOrientation()) + 0.0;
+            double actualSize = engine.degree(actual) + 0.0;
+            double selectedSize = engine.degree(selected) + 0.0;
 
             if(selectedSize == 0)
             {
@@ -61,7 +61,7 @@ public abstract class AbstractNodeMetropolisHastingsRandomWalkSampler<U> extends
             else
             {
                 double value = Math.min(1.0, actualSize/selectedSize);
-                if(this.getRNG().nextDouble() < value)
+                if(rng.nextDouble() < value)
                 {
                     next = selected;
                 }
@@ -8,8 +8,9 @@
  */
 package es.uam.eps.ir.socialnetwork.subsampling.randomwalk.node.metropolishastings;
 
-import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.subsampling.randomwalk.RandomWalkEngine;
+import java.util.SplittableRandom;
 
 /**
  * Metropolis-Hastings Random walk sampler. This 
@@ -38,7 +39,7 @@ public class NodeRootedMetropolisHastingsRandomWalkSampler<U> extends AbstractNo
     }
 
     @Override
-    protected U teleport(Graph<U> fullGraph, U actual, U origin) 
+    protected int teleport(RandomWalkEngine<U> engine, int actual, int origin, SplittableRandom rng) 
     {
         return origin;
     }
@@ -0,0 +1,498 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.search;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Level-synchronous parallel search over a graph, for search-based samplers (BFS, Snowball, Forest Fire...).
+ * The neighbourhoods of the nodes are precomputed once, in compressed sparse row form. Then, the nodes
+ * in the frontier of each level are split in as many chunks as threads, and the chunks are expanded
+ * in parallel, each one with its own random number generator. The visited nodes are stored in a
+ * concurrent bitset.
+ *
+ * When several nodes of the frontier select the same child, the child is assigned to the first of them
+ * (in frontier order). Therefore, the order in which nodes are visited is the same as in a sequential
+ * breadth-first search, and the sample only depends on the random seed and the number of threads.
+ *
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class LevelSynchronousSearch<U>
+{
+    /**
+     * Flag for edges going from the visited node to the neighbour.
+     */
+    public static final int OUT = 1;
+    /**
+     * Flag for edges going from the neighbour to the visited node.
+     */
+    public static final int IN = 2;
+
+    /**
+     * The nodes of the graph, indexed by identifier.
+     */
+    private final List<U> nodes;
+    /**
+     * The identifiers of the nodes.
+     */
+    private final Object2IntMap<U> ids;
+    /**
+     * Position of the neighbourhood of each node in the neighbour array (the last
+     * element is the total number of neighbours).
+     */
+    private final int[] offsets;
+    /**
+     * Neighbours of the nodes.
+     */
+    private final int[] neighbors;
+    /**
+     * Edges between each node and its neighbours (combination of the OUT and IN flags).
+     */
+    private final byte[] directions;
+
+    /**
+     * Constructor.
+     * @param graph the graph.
+     * @param orientation the neighbourhood selection.
+     */
+    public LevelSynchronousSearch(Graph<U> graph, EdgeOrientation orientation)
+    {
+        this.nodes = graph.getAllNodes().collect(Collectors.toCollection(ArrayList::new));
+        this.ids = new Object2IntOpenHashMap<>();
+        this.ids.defaultReturnValue(-1);
+        for(int i = 0; i < nodes.size(); ++i)
+        {
+            this.ids.put(nodes.get(i), i);
+        }
+
+        int numNodes = nodes.size();
+        int[][] neighs = new int[numNodes][];
+        byte[][] dirs = new byte[numNodes][];
+        IntStream.range(0, numNodes).parallel().forEach(i ->
+        {
+            U u = nodes.get(i);
+            List<U> list = graph.getNeighbourhood(u, orientation).collect(Collectors.toCollection(ArrayList::new));
+            neighs[i] = new int[list.size()];
+            dirs[i] = new byte[list.size()];
+            for(int j = 0; j < list.size(); ++j)
+            {
+                U v = list.get(j);
+                neighs[i][j] = this.ids.getInt(v);
+                if(!graph.isDirected() || orientation.equals(EdgeOrientation.OUT))
+                {
+                    dirs[i][j] = OUT;
+                }
+                else if(orientation.equals(EdgeOrientation.IN))
+                {
+                    dirs[i][j] = IN;
+                }
+                else
+                {
+                    dirs[i][j] = (byte) ((graph.containsEdge(u, v) ? OUT : 0) | (graph.containsEdge(v, u) ? IN : 0));
+                }
+            }
+        });
+
+        this.offsets = new int[numNodes + 1];
+        for(int i = 0; i < numNodes; ++i)
+        {
+            this.offsets[i + 1] = this.offsets[i] + neighs[i].length;
+        }
+        this.neighbors = new int[this.offsets[numNodes]];
+        this.directions = new byte[this.offsets[numNodes]];
+        for(int i = 0; i < numNodes; ++i)
+        {
+            System.arraycopy(neighs[i], 0, this.neighbors, this.offsets[i], neighs[i].length);
+            System.arraycopy(dirs[i], 0, this.directions, this.offsets[i], dirs[i].length);
+        }
+    }
+
+    /**
+     * Obtains the number of nodes in the graph.
+     * @return the number of nodes.
+     */
+    public int numNodes()
+    {
+        return this.nodes.size();
+    }
+
+    /**
+     * Obtains the node with a given identifier.
+     * @param idx the identifier.
+     * @return the node.
+     */
+    public U idx2node(int idx)
+    {
+        return this.nodes.get(idx);
+    }
+
+    /**
+     * Obtains the first position of the neighbourhood of a node.
+     * @param idx the identifier of the node.
+     * @return the first position of the neighbourhood.
+     */
+    public int start(int idx)
+    {
+        return this.offsets[idx];
+    }
+
+    /**
+     * Obtains the position after the last one of the neighbourhood of a node.
+     * @param idx the identifier of the node.
+     * @return the position after the end of the neighbourhood.
+     */
+    public int end(int idx)
+    {
+        return this.offsets[idx + 1];
+    }
+
+    /**
+     * Obtains the neighbour stored in a position.
+     * @param pos the position.
+     * @return the identifier of the neighbour.
+     */
+    public int neighbor(int pos)
+    {
+        return this.neighbors[pos];
+    }
+
+    /**
+     * Obtains the edges between a node and the neighbour stored in a position.
+     * @param pos the position.
+     * @return a combination of the OUT and IN flags.
+     */
+    public int direction(int pos)
+    {
+        return this.directions[pos];
+    }
+
+    /**
+     * Runs the search.
+     * @param numInitial number of initial nodes (selected at random, with replacement).
+     * @param num maximum number of nodes to visit.
+     * @param seed random seed.
+     * @param numThreads number of threads.
+     * @param selector the function that selects the children of each visited node.
+     * @param traverse true if the traversed edges have to be retrieved.
+     * @return the result of the search.
+     */
+    public Result search(int numInitial, int num, long seed, int numThreads, ChildSelector<U> selector, boolean traverse)
+    {
+        int numNodes = this.numNodes();
+        AtomicLongArray visited = new AtomicLongArray((numNodes >> 6) + 1);
+        AtomicIntegerArray owners = new AtomicIntegerArray(numNodes);
+        for(int i = 0; i < numNodes; ++i)
+        {
+            owners.set(i, Integer.MAX_VALUE);
+        }
+
+        IntArrayList order = new IntArrayList();
+        IntArrayList sources = new IntArrayList();
+        IntArrayList targets = new IntArrayList();
+        if(numNodes == 0 || num <= 0)
+        {
+            return new Result(order.toIntArray(), sources.toIntArray(), targets.toIntArray());
+        }
+
+        // Select the initial nodes.
+        SplittableRandom rng = new SplittableRandom(seed);
+        IntArrayList frontier = new IntArrayList();
+        for(int i = 0; i < numInitial; ++i)
+        {
+            int idx = rng.nextInt(numNodes);
+            if(mark(visited, idx))
+            {
+                frontier.add(idx);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try
+        {
+            while(!frontier.isEmpty() && order.size() < num)
+            {
+                // Only the first nodes of the frontier are visited, if the sample is full.
+                if(order.size() + frontier.size() > num)
+                {
+                    for(int i = num - order.size(); i < frontier.size(); ++i)
+                    {
+                        unmark(visited, frontier.getInt(i));
+                    }
+                    frontier.size(num - order.size());
+                }
+                order.addAll(frontier);
+                if(order.size() >= num)
+                {
+                    break;
+                }
+
+                int[] current = frontier.toIntArray();
+                SplittableRandom levelRng = rng.split();
+                SplittableRandom[] rngs = new SplittableRandom[numThreads];
+                for(int c = 0; c < numThreads; ++c)
+                {
+                    rngs[c] = levelRng.split();
+                }
+
+                Chunk[] chunks = new Chunk[numThreads];
+
+                // Phase 1: select the children of the nodes in the frontier, and claim the unvisited ones.
+                pool.submit(() -> IntStream.range(0, numThreads).parallel().forEach(c ->
+                {
+                    Chunk chunk = new Chunk();
+                    int from = (int) ((long) current.length * c / numThreads);
+                    int to = (int) ((long) current.length * (c + 1) / numThreads);
+                    for(int p = from; p < to; ++p)
+                    {
+                        int parent = current[p];
+                        int parentPos = p;
+                        selector.select(this, parent, rngs[c], (pos, dir) ->
+                        {
+                            int child = this.neighbors[pos];
+                            if(traverse)
+                            {
+                                if((dir & OUT) != 0)
+                                {
+                                    chunk.sources.add(parent);
+                                    chunk.targets.add(child);
+                                }
+                                if((dir & IN) != 0)
+                                {
+                                    chunk.sources.add(child);
+                                    chunk.targets.add(parent);
+                                }
+                            }
+
+                            if(!isMarked(visited, child))
+                            {
+                                owners.accumulateAndGet(child, parentPos, Math::min);
+                                chunk.candidates.add(child);
+                                chunk.parents.add(parentPos);
+                            }
+                        });
+                    }
+                    chunks[c] = chunk;
+                })).join();
+
+                // Phase 2: each child is assigned to the first parent which selected it.
+                pool.submit(() -> IntStream.range(0, numThreads).parallel().forEach(c ->
+                {
+                    Chunk chunk = chunks[c];
+                    for(int i = 0; i < chunk.candidates.size(); ++i)
+                    {
+                        int child = chunk.candidates.getInt(i);
+                        if(owners.get(child) == chunk.parents.getInt(i))
+                        {
+                            chunk.winners.add(child);
+                            mark(visited, child);
+                        }
+                    }
+                })).join();
+
+                frontier = new IntArrayList();
+                for(Chunk chunk : chunks)
+                {
+                    frontier.addAll(chunk.winners);
+                    for(int i = 0; i < chunk.candidates.size(); ++i)
+                    {
+                        owners.set(chunk.candidates.getInt(i), Integer.MAX_VALUE);
+                    }
+                    if(traverse)
+                    {
+                        sources.addAll(chunk.sources);
+                        targets.addAll(chunk.targets);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        // Only keep the traversed edges between visited nodes.
+        IntArrayList defSources = new IntArrayList();
+        IntArrayList defTargets = new IntArrayList();
+        for(int i = 0; i < sources.size(); ++i)
+        {
+            if(isMarked(visited, sources.getInt(i)) && isMarked(visited, targets.getInt(i)))
+            {
+                defSources.add(sources.getInt(i));
+                defTargets.add(targets.getInt(i));
+            }
+        }
+
+        return new Result(order.toIntArray(), defSources.toIntArray(), defTargets.toIntArray());
+    }
+
+    /**
+     * Marks a node as visited.
+     * @param visited the bitset of visited nodes.
+     * @param idx the identifier of the node.
+     * @return true if the node was not previously visited, false otherwise.
+     */
+    private static boolean mark(AtomicLongArray visited, int idx)
+    {
+        int word = idx >> 6;
+        long bit = 1L << idx;
+        long old = visited.getAndAccumulate(word, bit, (x,y) -> x | y);
+        return (old & bit) == 0;
+    }
+
+    /**
+     * Marks a node as not visited.
+     * @param visited the bitset of visited nodes.
+     * @param idx the identifier of the node.
+     */
+    private static void unmark(AtomicLongArray visited, int idx)
+    {
+        visited.getAndAccumulate(idx >> 6, ~(1L << idx), (x,y) -> x & y);
+    }
+
+    /**
+     * Checks whether a node has been visited.
+     * @param visited the bitset of visited nodes.
+     * @param idx the identifier of the node.
+     * @return true if the node has been visited, false otherwise.
+     */
+    private static boolean isMarked(AtomicLongArray visited, int idx)
+    {
+        return (visited.get(idx >> 6) & (1L << idx)) != 0;
+    }
+
+    /**
+     * Data generated by a thread during the expansion of a level.
+     */
+    private static class Chunk
+    {
+        /**
+         * Unvisited children selected by the nodes of the chunk.
+         */
+        private final IntArrayList candidates = new IntArrayList();
+        /**
+         * Position in the frontier of the parent of each candidate.
+         */
+        private final IntArrayList parents = new IntArrayList();
+        /**
+         * Children assigned to the nodes of the chunk.
+         */
+        private final IntArrayList winners = new IntArrayList();
+        /**
+         * Origins of the traversed edges.
+         */
+        private final IntArrayList sources = new IntArrayList();
+        /**
+         * Destinations of the traversed edges.
+         */
+        private final IntArrayList targets = new IntArrayList();
+    }
+
+    /**
+     * Result of a search.
+     */
+    public static class Result
+    {
+        /**
+         * Identifiers of the visited nodes, in visiting order.
+         */
+        private final int[] visited;
+        /**
+         * Origins of the traversed edges between visited nodes.
+         */
+        private final int[] sources;
+        /**
+         * Destinations of the traversed edges between visited nodes.
+         */
+        private final int[] targets;
+
+        /**
+         * Constructor.
+         * @param visited identifiers of the visited nodes, in visiting order.
+         * @param sources origins of the traversed edges between visited nodes.
+         * @param targets destinations of the traversed edges between visited nodes.
+         */
+        public Result(int[] visited, int[] sources, int[] targets)
+        {
+            this.visited = visited;
+            this.sources = sources;
+            this.targets = targets;
+        }
+
+        /**
+         * Obtains the identifiers of the visited nodes, in visiting order.
+         * @return the identifiers of the visited nodes.
+         */
+        public int[] getVisited()
+        {
+            return visited;
+        }
+
+        /**
+         * Obtains the origins of the traversed edges between visited nodes (empty if the edges were not retrieved).
+         * @return the origins of the edges.
+         */
+        public int[] getSources()
+        {
+            return sources;
+        }
+
+        /**
+         * Obtains the destinations of the traversed edges between visited nodes (empty if the edges were not retrieved).
+         * @return the destinations of the edges.
+         */
+        public int[] getTargets()
+        {
+            return targets;
+        }
+    }
+
+    /**
+     * Function that selects the children of a visited node.
+     * @param <U> Type of the users.
+     */
+    @FunctionalInterface
+    public interface ChildSelector<U>
+    {
+        /**
+         * Selects the children of a visited node.
+         * @param search the search, which provides the neighbourhood of the node.
+         * @param idx the identifier of the visited node.
+         * @param rng the random number generator of the thread.
+         * @param children receives the position of each selected neighbour, and the traversed edges (combination of the OUT and IN flags).
+         */
+        public void select(LevelSynchronousSearch<U> search, int idx, SplittableRandom rng, ChildConsumer children);
+    }
+
+    /**
+     * Receives the children selected for a visited node.
+     */
+    @FunctionalInterface
+    public interface ChildConsumer
+    {
+        /**
+         * Receives a selected child.
+         * @param pos the position of the child in the neighbourhood array.
+         * @param direction the traversed edges (combination of the OUT and IN flags).
+         */
+        public void accept(int pos, int direction);
+    }
+}
@@ -11,6 +11,8 @@ package es.uam.eps.ir.socialnetwork.subsampling.search.node;
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
 import es.uam.eps.ir.socialnetwork.subsampling.AbstractNodeSampler;
+import es.uam.eps.ir.socialnetwork.subsampling.search.LevelSynchronousSearch;
+import es.uam.eps.ir.socialnetwork.subsampling.search.LevelSynchronousSearch.ChildSelector;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -22,6 +24,10 @@ import java.util.stream.Collectors;
 
 /**
  * Abstract class for search-based samplers, like BFS or SnowBall.
+ * 
+ * If the sampler provides a child selector, and a number of threads is given, the
+ * search is run in parallel, level by level (see {@link LevelSynchronousSearch}).
+ * 
  * @author Javier Sanz-Cruzado Puig
  * @param <U> Type of the users.
  */
@@ -35,6 +41,14 @@ public abstract class AbstractNodeSearchSampler<U> extends AbstractNodeSampler<U
      * Neighborhood selection
      */
     private final EdgeOrientation orientation;
+    /**
+     * Random seed for the parallel search.
+     */
+    private final long seed;
+    /**
+     * Number of threads for the parallel search (0 if the search is sequential).
+     */
+    private final int numThreads;
     
     /**
      * Constructor.
@@ -42,15 +56,42 @@ public abstract class AbstractNodeSearchSampler<U> extends AbstractNodeSampler<U
      * @param numInitial Number of initial nodes.
      */
     public AbstractNodeSearchSampler(EdgeOrientation orientation, int numInitial)
+    {
+        this(orientation, numInitial, 0L, 0);
+    }
+    
+    /**
+     * Constructor for the parallel search.
+     * @param orientation Neighborhood selection.
+     * @param numInitial Number of initial nodes.
+     * @param seed Random seed.
+     * @param numThreads Number of threads (0 for a sequential search).
+     */
+    public AbstractNodeSearchSampler(EdgeOrientation orientation, int numInitial, long seed, int numThreads)
     {
         this.numInitial = numInitial;
         this.orientation = orientation;
+        this.seed = seed;
+        this.numThreads = numThreads;
     }
     
     
     @Override
     protected Collection<U> sampleNodes(Graph<U> fullGraph, int num) 
     {
+        ChildSelector<U> selector = this.getChildSelector(fullGraph);
+        if(this.numThreads > 0 && selector != null)
+        {
+            LevelSynchronousSearch<U> search = new LevelSynchronousSearch<>(fullGraph, orientation);
+            int[] visited = search.search(this.numInitial, num, this.seed, this.numThreads, selector, false).getVisited();
+            List<U> sampled = new ArrayList<>();
+            for(int idx : visited)
+            {
+                sampled.add(search.idx2node(idx));
+            }
+            return sampled;
+        }
+        
         List<U> vertices = fullGraph.getAllNodes().collect(Collectors.toCollection(ArrayList::new));
         int max = vertices.size();
         Random r = new Random();
@@ -116,6 +157,17 @@ public abstract class AbstractNodeSearchSampler<U> extends AbstractNodeSampler<U
      */
     protected abstract U nextActual(LinkedList<U> queue);
     
+    /**
+     * Obtains the function that selects the children of the visited nodes in the parallel search.
+     * By default, the parallel search is not supported.
+     * @param fullGraph the original graph.
+     * @return the child selector, null if the parallel search is not supported.
+     */
+    protected ChildSelector<U> getChildSelector(Graph<U> fullGraph)
+    {
+        return null;
+    }
+    
     /**
      * Obtains the neighborhood selection.
      * @return the neighborhood selection.
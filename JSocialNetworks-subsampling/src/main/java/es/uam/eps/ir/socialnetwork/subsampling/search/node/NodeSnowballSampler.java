@@ -10,6 +10,10 @@ package es.uam.eps.ir.socialnetwork.subsampling.search.node;
 
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.subsampling.search.LevelSynchronousSearch.ChildSelector;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -53,6 +57,20 @@ public class NodeSnowballSampler<U> extends AbstractNodeSearchSampler<U>
         this.numNeighbors = numNeighbors;
     }
     
+    /**
+     * Constructor for the parallel search.
+     * @param orientation Neighborhood selection.
+     * @param numInitialNodes Number of initial nodes.
+     * @param numNeighbors Number of neighbors to select from the visited node.
+     * @param seed Random seed.
+     * @param numThreads Number of threads.
+     */
+    public NodeSnowballSampler(EdgeOrientation orientation, int numInitialNodes, int numNeighbors, long seed, int numThreads)
+    {
+        super(orientation, numInitialNodes, seed, numThreads);
+        this.numNeighbors = numNeighbors;
+    }
+    
     @Override
     protected Collection<U> getChildren(Graph<U> fullGraph, U actual, List<U> allChildren) 
     {
@@ -70,6 +88,40 @@ public class NodeSnowballSampler<U> extends AbstractNodeSearchSampler<U>
         return children;
     }
     
+    @Override
+    protected ChildSelector<U> getChildSelector(Graph<U> fullGraph)
+    {
+        return (search, idx, r, children) ->
+        {
+            int start = search.start(idx);
+            int size = search.end(idx) - start;
+            if(size <= this.numNeighbors)
+            {
+                for(int pos = start; pos < start + size; ++pos)
+                {
+                    children.accept(pos, search.direction(pos));
+                }
+                return;
+            }
+            
+            // Select numNeighbors different positions (Floyd's algorithm)
+            IntSet selected = new IntOpenHashSet();
+            IntArrayList positions = new IntArrayList();
+            for(int j = size - this.numNeighbors; j < size; ++j)
+            {
+                int k = r.nextInt(j + 1);
+                int pos = selected.add(k) ? k : j;
+                selected.add(pos);
+                positions.add(pos);
+            }
+            
+            for(int k : positions)
+            {
+                children.accept(start + k, search.direction(start + k));
+            }
+        };
+    }
+    
     @Override
     protected U nextActual(LinkedList<U> queue) 
     {
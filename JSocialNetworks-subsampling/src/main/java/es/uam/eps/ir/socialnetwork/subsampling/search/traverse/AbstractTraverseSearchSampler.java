@@ -15,6 +15,8 @@ import es.uam.eps.ir.socialnetwork.graph.generator.GraphGenerator;
 import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorBadConfiguredException;
 import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorNotConfiguredException;
 import es.uam.eps.ir.socialnetwork.subsampling.Sampler;
+import es.uam.eps.ir.socialnetwork.subsampling.search.LevelSynchronousSearch;
+import es.uam.eps.ir.socialnetwork.subsampling.search.LevelSynchronousSearch.ChildSelector;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Pair;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Tuple2oo;
 import java.util.ArrayList;
@@ -32,6 +34,9 @@ import java.util.stream.Collectors;
  * In this version, only traversed edges are sampled, but the sample is oriented
  * to retrieve a fixed number of nodes.
  * 
+ * If the sampler provides a child selector, and a number of threads is given, the
+ * search is run in parallel, level by level (see {@link LevelSynchronousSearch}).
+ * 
  * @author Javier Sanz-Cruzado Puig
  * @param <U> Type of the users.
  */
@@ -45,6 +50,14 @@ public abstract class AbstractTraverseSearchSampler<U> implements Sampler<U>
      * Neighborhood selection
      */
     private final EdgeOrientation orientation;
+    /**
+     * Random seed for the parallel search.
+     */
+    private final long seed;
+    /**
+     * Number of threads for the parallel search (0 if the search is sequential).
+     */
+    private final int numThreads;
     
     /**
      * Constructor
@@ -52,9 +65,23 @@ public abstract class AbstractTraverseSearchSampler<U> implements Sampler<U>
      * @param numInitial number of random seeds.
      */
     public AbstractTraverseSearchSampler(EdgeOrientation orientation, int numInitial)
+    {
+        this(orientation, numInitial, 0L, 0);
+    }
+    
+    /**
+     * Constructor for the parallel search.
+     * @param orientation neighborhood selection.
+     * @param numInitial number of random seeds.
+     * @param seed random seed.
+     * @param numThreads number of threads (0 for a sequential search).
+     */
+    public AbstractTraverseSearchSampler(EdgeOrientation orientation, int numInitial, long seed, int numThreads)
     {
         this.numInitial = numInitial;
         this.orientation = orientation;
+        this.seed = seed;
+        this.numThreads = numThreads;
     }
     
     
@@ -82,6 +109,27 @@ public abstract class AbstractTraverseSearchSampler<U> implements Sampler<U>
                 return sample;
             }
             
+            ChildSelector<U> selector = this.getChildSelector(fullGraph);
+            if(this.numThreads > 0 && selector != null)
+            {
+                LevelSynchronousSearch<U> search = new LevelSynchronousSearch<>(fullGraph, orientation);
+                LevelSynchronousSearch.Result result = search.search(this.numInitial, num, this.seed, this.numThreads, selector, true);
+                for(int idx : result.getVisited())
+                {
+                    sample.addNode(search.idx2node(idx));
+                }
+                
+                int[] sources = result.getSources();
+                int[] targets = result.getTargets();
+                for(int i = 0; i < sources.length; ++i)
+                {
+                    U u = search.idx2node(sources[i]);
+                    U v = search.idx2node(targets[i]);
+                    sample.addEdge(u, v, fullGraph.getEdgeWeight(u, v), fullGraph.getEdgeType(u, v));
+                }
+                return sample;
+            }
+            
             List<U> vertices = fullGraph.getAllNodes().collect(Collectors.toCollection(ArrayList::new));
             int max = vertices.size();
             Random r = new Random();
@@ -189,6 +237,17 @@ public abstract class AbstractTraverseSearchSampler<U> implements Sampler<U>
      */
     protected abstract U nextActual(LinkedList<U> queue);
     
+    /**
+     * Obtains the function that selects the children of the visited nodes in the parallel search.
+     * By default, the parallel search is not supported.
+     * @param fullGraph the original graph.
+     * @return the child selector, null if the parallel search is not supported.
+     */
+    protected ChildSelector<U> getChildSelector(Graph<U> fullGraph)
+    {
+        return null;
+    }
+    
     /**
      * Obtains the neighborhood selection.
      * @return the neighborhood selection.
@@ -10,6 +10,7 @@ package es.uam.eps.ir.socialnetwork.subsampling.search.traverse;
 
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.subsampling.search.LevelSynchronousSearch.ChildSelector;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Tuple2oo;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -37,6 +38,17 @@ public class TraverseBFSSampler<U> extends AbstractTraverseSearchSampler<U>
     {
         super(orientation, 1);
     }
+    
+    /**
+     * Constructor for the parallel search.
+     * @param orientation The orientation.
+     * @param seed Random seed.
+     * @param numThreads Number of threads.
+     */
+    public TraverseBFSSampler(EdgeOrientation orientation, long seed, int numThreads) 
+    {
+        super(orientation, 1, seed, numThreads);
+    }
 
     @Override
     protected Collection<Tuple2oo<U,EdgeOrientation>> getChildren(Graph<U> fullGraph, U actual,List<U> allChildren) 
@@ -46,6 +58,18 @@ public class TraverseBFSSampler<U> extends AbstractTraverseSearchSampler<U>
         return orient;
     }
 
+    @Override
+    protected ChildSelector<U> getChildSelector(Graph<U> fullGraph)
+    {
+        return (search, idx, r, children) ->
+        {
+            for(int pos = search.start(idx); pos < search.end(idx); ++pos)
+            {
+                children.accept(pos, search.direction(pos));
+            }
+        };
+    }
+
     @Override
     protected U nextActual(LinkedList<U> queue) 
     {
@@ -10,6 +10,8 @@ package es.uam.eps.ir.socialnetwork.subsampling.search.traverse;
 
 import es.uam.eps.ir.socialnetwork.graph.Graph;
 import es.uam.eps.ir.socialnetwork.graph.edges.EdgeOrientation;
+import es.uam.eps.ir.socialnetwork.subsampling.search.LevelSynchronousSearch;
+import es.uam.eps.ir.socialnetwork.subsampling.search.LevelSynchronousSearch.ChildSelector;
 import es.uam.eps.ir.socialnetwork.utils.datatypes.Tuple2oo;
 import java.util.Collection;
 import java.util.HashSet;
@@ -53,10 +55,12 @@ public class TraverseForestFireSampler<U> extends AbstractTraverseSearchSampler<
      * @param numInitial number of initial nodes.
      * @param probForward probability of selecting outgoing neighbors (between 0.0 and 1.0)
      * @param probBackward probability of selecting incoming neighbors (between 0.0 and 1.0)
+     * @param seed random seed for the parallel search.
+     * @param numThreads number of threads for the parallel search (0 for a sequential search).
      */
-    private TraverseForestFireSampler(EdgeOrientation orientation, int numInitial, double probForward, double probBackward)
+    private TraverseForestFireSampler(EdgeOrientation orientation, int numInitial, double probForward, double probBackward, long seed, int numThreads)
     {
-        super(orientation, numInitial);
+        super(orientation, numInitial, seed, numThreads);
         this.probForward = probForward;
         this.probBackward = probBackward;
         this.rng = new Random();
@@ -71,7 +75,21 @@ public class TraverseForestFireSampler<U> extends AbstractTraverseSearchSampler<
      */
     public TraverseForestFireSampler(EdgeOrientation orientation, int numInitial, double prob) 
     {
-        this(orientation, numInitial, prob, prob);
+        this(orientation, numInitial, prob, prob, 0L, 0);
+    }
+    
+    /**
+     * Constructor for the parallel search. It considers that all nodes have the same probability of
+     * being sampled.
+     * @param orientation neighborhood selection.
+     * @param numInitial number of initial nodes.
+     * @param prob probability that a neighbor node is selected (between 0.0 and 1.0).
+     * @param seed random seed.
+     * @param numThreads number of threads.
+     */
+    public TraverseForestFireSampler(EdgeOrientation orientation, int numInitial, double prob, long seed, int numThreads) 
+    {
+        this(orientation, numInitial, prob, prob, seed, numThreads);
     }
     
     /**
@@ -85,7 +103,23 @@ public class TraverseForestFireSampler<U> extends AbstractTraverseSearchSampler<
      */
     public TraverseForestFireSampler(int numInitial, double probForward, double probBackward)
     {
-        this(EdgeOrientation.UND, numInitial, probForward, probBackward);
+        this(EdgeOrientation.UND, numInitial, probForward, probBackward, 0L, 0);
+    }
+    
+    /**
+     * Constructor for the parallel search. It considers that all neighbors (IN/OUT) are potentially sampled, but
+     * with different probabilities. By default (undir. graphs), the probForward probability
+     * will be used.
+     * 
+     * @param numInitial number of initial nodes.
+     * @param probForward probability of selecting outgoing neighbors (between 0.0 and 1.0)
+     * @param probBackward probability of selecting incoming neighbors (between 0.0 and 1.0)
+     * @param seed random seed.
+     * @param numThreads number of threads.
+     */
+    public TraverseForestFireSampler(int numInitial, double probForward, double probBackward, long seed, int numThreads)
+    {
+        this(EdgeOrientation.UND, numInitial, probForward, probBackward, seed, numThreads);
     }
 
     @Override
@@ -148,6 +182,25 @@ public class TraverseForestFireSampler<U> extends AbstractTraverseSearchSampler<
         return children;    
     }
 
+    @Override
+    protected ChildSelector<U> getChildSelector(Graph<U> fullGraph)
+    {
+        // Outgoing edges are traversed with the forward probability, and incoming edges with the backwards probability.
+        return (search, idx, r, children) ->
+        {
+            for(int pos = search.start(idx); pos < search.end(idx); ++pos)
+            {
+                int direction = search.direction(pos);
+                boolean addedOut = (direction & LevelSynchronousSearch.OUT) != 0 && r.nextDouble() < this.probForward;
+                boolean addedIn = (direction & LevelSynchronousSearch.IN) != 0 && r.nextDouble() < this.probBackward;
+                if(addedOut || addedIn)
+                {
+                    children.accept(pos, (addedOut ? LevelSynchronousSearch.OUT : 0) | (addedIn ? LevelSynchronousSearch.IN : 0));
+                }
+            }
+        };
+    }
+
     @Override
     protected U nextActual(LinkedList<U> queue) 
     {
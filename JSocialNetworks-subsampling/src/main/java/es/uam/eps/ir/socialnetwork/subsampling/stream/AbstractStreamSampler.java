@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import java.util.Random;
+
+/**
+ * Abstract class for stream samplers. The edges of the stream are processed one by one,
+ * and the sample is kept in a reservoir whose size is bounded by the size of the sample.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public abstract class AbstractStreamSampler<U> implements StreamSampler<U>
+{
+    /**
+     * Random seed.
+     */
+    private final long seed;
+
+    /**
+     * Constructor.
+     * @param seed random seed, so the samples can be reproduced.
+     */
+    public AbstractStreamSampler(long seed)
+    {
+        this.seed = seed;
+    }
+
+    @Override
+    public Graph<U> sample(EdgeStream<U> stream, int num)
+    {
+        ReservoirGraph<U> reservoir = new ReservoirGraph<>(stream.isDirected());
+        if(num <= 0) // If the sample needs no nodes/edges, return an empty graph.
+        {
+            return reservoir.toGraph(stream.isWeighted());
+        }
+
+        this.initialize(num);
+        Random rng = new Random(seed);
+        long[] count = new long[1];
+        boolean read = stream.forEach(edge -> this.process(reservoir, edge, ++count[0], num, rng));
+        return read ? reservoir.toGraph(stream.isWeighted()) : null;
+    }
+
+    /**
+     * Prepares the sampler for reading a new stream. By default, it does nothing.
+     * @param num the maximum number of nodes/edges in the sample (depending on the method).
+     */
+    protected void initialize(int num)
+    {
+        
+    }
+    
+    /**
+     * Processes an edge of the stream.
+     * @param reservoir the sample under construction.
+     * @param edge the edge.
+     * @param t the number of edges read so far (including this one).
+     * @param num the maximum number of nodes/edges in the sample (depending on the method).
+     * @param rng the random number generator.
+     */
+    protected abstract void process(ReservoirGraph<U> reservoir, StreamEdge<U> edge, long t, int num, Random rng);
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+import java.util.function.Consumer;
+
+/**
+ * Source of edges which are read one by one, without loading the full graph in memory.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public interface EdgeStream<U>
+{
+    /**
+     * Reads the edges of the stream, once.
+     * @param consumer the function that receives each edge, in the order they are read.
+     * @return true if the stream was completely read, false if an error occurred.
+     */
+    public boolean forEach(Consumer<StreamEdge<U>> consumer);
+
+    /**
+     * Indicates whether the edges of the stream are directed or not.
+     * @return true if the edges are directed, false otherwise.
+     */
+    public boolean isDirected();
+
+    /**
+     * Indicates whether the edges of the stream are weighted or not.
+     * @return true if the edges are weighted, false otherwise.
+     */
+    public boolean isWeighted();
+}
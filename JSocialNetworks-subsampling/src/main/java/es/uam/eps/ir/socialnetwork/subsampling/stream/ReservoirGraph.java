@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+import es.uam.eps.ir.socialnetwork.graph.generator.EmptyGraphGenerator;
+import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorBadConfiguredException;
+import es.uam.eps.ir.socialnetwork.graph.generator.exception.GeneratorNotConfiguredException;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Sample under construction in a stream sampler. Unlike fast graphs, it allows removing nodes and
+ * edges in constant time (with respect to the size of the sample), and selecting random nodes and edges.
+ * Its size is bounded by the size of the sample, not by the size of the stream.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+class ReservoirGraph<U>
+{
+    /**
+     * Indicates whether the sampled graph is directed or not.
+     */
+    private final boolean directed;
+    /**
+     * Edges of the sample, indexed by origin and destination. In undirected graphs, each
+     * edge is stored in both directions.
+     */
+    private final Map<U, Map<U, StreamEdge<U>>> outEdges = new Object2ObjectOpenHashMap<>();
+    /**
+     * Origins of the incoming edges of each node (only for directed graphs).
+     */
+    private final Map<U, Set<U>> inNodes = new Object2ObjectOpenHashMap<>();
+    /**
+     * List of nodes in the sample.
+     */
+    private final List<U> nodes = new ArrayList<>();
+    /**
+     * Position of each node in the list of nodes.
+     */
+    private final Object2IntOpenHashMap<U> nodePositions = new Object2IntOpenHashMap<>();
+    /**
+     * List of edges in the sample.
+     */
+    private final List<StreamEdge<U>> edges = new ArrayList<>();
+    /**
+     * Position of each edge in the list of edges.
+     */
+    private final Object2IntOpenHashMap<StreamEdge<U>> edgePositions = new Object2IntOpenHashMap<>();
+
+    /**
+     * Constructor.
+     * @param directed whether the sampled graph is directed or not.
+     */
+    public ReservoirGraph(boolean directed)
+    {
+        this.directed = directed;
+        this.nodePositions.defaultReturnValue(-1);
+        this.edgePositions.defaultReturnValue(-1);
+    }
+
+    /**
+     * Obtains the number of nodes in the sample.
+     * @return the number of nodes.
+     */
+    public int numNodes()
+    {
+        return this.nodes.size();
+    }
+
+    /**
+     * Obtains the number of edges in the sample.
+     * @return the number of edges.
+     */
+    public int numEdges()
+    {
+        return this.edges.size();
+    }
+
+    /**
+     * Checks whether a node belongs to the sample.
+     * @param u the node.
+     * @return true if the node belongs to the sample, false otherwise.
+     */
+    public boolean containsNode(U u)
+    {
+        return this.nodePositions.containsKey(u);
+    }
+
+    /**
+     * Finds an edge of the sample.
+     * @param u the origin node.
+     * @param v the destination node.
+     * @return the edge, null if it does not belong to the sample.
+     */
+    public StreamEdge<U> getEdge(U u, U v)
+    {
+        Map<U, StreamEdge<U>> out = this.outEdges.get(u);
+        return out == null ? null : out.get(v);
+    }
+
+    /**
+     * Adds a node to the sample.
+     * @param u the node.
+     * @return true if the node was added, false if it already belonged to the sample.
+     */
+    public boolean addNode(U u)
+    {
+        if(this.containsNode(u))
+        {
+            return false;
+        }
+
+        this.nodePositions.put(u, this.nodes.size());
+        this.nodes.add(u);
+        this.outEdges.put(u, new Object2ObjectOpenHashMap<>());
+        if(this.directed)
+        {
+            this.inNodes.put(u, new ObjectOpenHashSet<>());
+        }
+        return true;
+    }
+
+    /**
+     * Adds an edge to the sample. Both endpoints must belong to the sample.
+     * @param edge the edge.
+     * @return true if the edge was added, false if it already belonged to the sample.
+     */
+    public boolean addEdge(StreamEdge<U> edge)
+    {
+        U u = edge.getOrigin();
+        U v = edge.getDest();
+        if(this.getEdge(u, v) != null)
+        {
+            return false;
+        }
+
+        this.outEdges.get(u).put(v, edge);
+        if(this.directed)
+        {
+            this.inNodes.get(v).add(u);
+        }
+        else
+        {
+            this.outEdges.get(v).put(u, edge);
+        }
+
+        this.edgePositions.put(edge, this.edges.size());
+        this.edges.add(edge);
+        return true;
+    }
+
+    /**
+     * Removes an edge from the sample.
+     * @param edge the edge.
+     */
+    public void removeEdge(StreamEdge<U> edge)
+    {
+        int pos = this.edgePositions.removeInt(edge);
+        if(pos < 0)
+        {
+            return;
+        }
+
+        // Move the last edge to the position of the removed one.
+        StreamEdge<U> last = this.edges.remove(this.edges.size() - 1);
+        if(last != edge)
+        {
+            this.edges.set(pos, last);
+            this.edgePositions.put(last, pos);
+        }
+
+        U u = edge.getOrigin();
+        U v = edge.getDest();
+        this.outEdges.get(u).remove(v);
+        if(this.directed)
+        {
+            this.inNodes.get(v).remove(u);
+        }
+        else
+        {
+            this.outEdges.get(v).remove(u);
+        }
+    }
+
+    /**
+     * Removes a node, and all its edges, from the sample.
+     * @param u the node.
+     */
+    public void removeNode(U u)
+    {
+        int pos = this.nodePositions.removeInt(u);
+        if(pos < 0)
+        {
+            return;
+        }
+
+        for(StreamEdge<U> edge : new ArrayList<>(this.outEdges.get(u).values()))
+        {
+            this.removeEdge(edge);
+        }
+        if(this.directed)
+        {
+            for(U w : new ArrayList<>(this.inNodes.get(u)))
+            {
+                this.removeEdge(this.getEdge(w, u));
+            }
+            this.inNodes.remove(u);
+        }
+        this.outEdges.remove(u);
+
+        // Move the last node to the position of the removed one.
+        U last = this.nodes.remove(this.nodes.size() - 1);
+        if(!last.equals(u))
+        {
+            this.nodes.set(pos, last);
+            this.nodePositions.put(last, pos);
+        }
+    }
+
+    /**
+     * Selects a node of the sample uniformly at random.
+     * @param rng the random number generator.
+     * @return the selected node.
+     */
+    public U randomNode(Random rng)
+    {
+        return this.nodes.get(rng.nextInt(this.nodes.size()));
+    }
+
+    /**
+     * Selects an edge of the sample uniformly at random.
+     * @param rng the random number generator.
+     * @return the selected edge.
+     */
+    public StreamEdge<U> randomEdge(Random rng)
+    {
+        return this.edges.get(rng.nextInt(this.edges.size()));
+    }
+
+    /**
+     * Checks whether two nodes of the sample share a neighbour (other than themselves),
+     * regardless of the orientation of the edges.
+     * @param u the first node.
+     * @param v the second node.
+     * @return true if both nodes share a neighbour, i.e. an edge between them closes a triangle.
+     */
+    public boolean haveCommonNeighbour(U u, U v)
+    {
+        if(!this.containsNode(u) || !this.containsNode(v))
+        {
+            return false;
+        }
+
+        // Iterate over the smallest neighbourhood.
+        U a = this.degree(u) <= this.degree(v) ? u : v;
+        U b = a == u ? v : u;
+
+        for(U w : this.outEdges.get(a).keySet())
+        {
+            if(!w.equals(b) && !w.equals(a) && this.areNeighbours(b, w))
+            {
+                return true;
+            }
+        }
+        if(this.directed)
+        {
+            for(U w : this.inNodes.get(a))
+            {
+                if(!w.equals(b) && !w.equals(a) && this.areNeighbours(b, w))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a node of the sample has no edges.
+     * @param u the node.
+     * @return true if the node belongs to the sample and has no edges, false otherwise.
+     */
+    public boolean isIsolated(U u)
+    {
+        return this.containsNode(u) && this.degree(u) == 0;
+    }
+
+    /**
+     * Obtains the number of edges incident to a node in the sample.
+     * @param u the node.
+     * @return the number of edges.
+     */
+    private int degree(U u)
+    {
+        return this.outEdges.get(u).size() + (this.directed ? this.inNodes.get(u).size() : 0);
+    }
+
+    /**
+     * Checks whether two nodes are connected in the sample, regardless of the orientation of the edge.
+     * @param u the first node.
+     * @param v the second node.
+     * @return true if they are connected, false otherwise.
+     */
+    private boolean areNeighbours(U u, U v)
+    {
+        return this.getEdge(u, v) != null || (this.directed && this.getEdge(v, u) != null);
+    }
+
+    /**
+     * Builds a graph containing the sample.
+     * @param weighted whether the graph is weighted or not.
+     * @return the graph, null if it could not be built.
+     */
+    public Graph<U> toGraph(boolean weighted)
+    {
+        try
+        {
+            EmptyGraphGenerator<U> gg = new EmptyGraphGenerator<>();
+            gg.configure(this.directed, weighted);
+            Graph<U> sample = gg.generate();
+
+            this.nodes.forEach(sample::addNode);
+            this.edges.forEach(edge -> sample.addEdge(edge.getOrigin(), edge.getDest(), edge.getWeight(), edge.getType()));
+            return sample;
+        }
+        catch(GeneratorNotConfiguredException | GeneratorBadConfiguredException ex)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+/**
+ * Edge read from an edge stream.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class StreamEdge<U>
+{
+    /**
+     * The origin node of the edge.
+     */
+    private final U origin;
+    /**
+     * The destination node of the edge.
+     */
+    private final U dest;
+    /**
+     * The weight of the edge.
+     */
+    private final double weight;
+    /**
+     * The type of the edge.
+     */
+    private final int type;
+
+    /**
+     * Constructor.
+     * @param origin the origin node of the edge.
+     * @param dest the destination node of the edge.
+     * @param weight the weight of the edge.
+     * @param type the type of the edge.
+     */
+    public StreamEdge(U origin, U dest, double weight, int type)
+    {
+        this.origin = origin;
+        this.dest = dest;
+        this.weight = weight;
+        this.type = type;
+    }
+
+    /**
+     * Obtains the origin node of the edge.
+     * @return the origin node.
+     */
+    public U getOrigin()
+    {
+        return origin;
+    }
+
+    /**
+     * Obtains the destination node of the edge.
+     * @return the destination node.
+     */
+    public U getDest()
+    {
+        return dest;
+    }
+
+    /**
+     * Obtains the weight of the edge.
+     * @return the weight.
+     */
+    public double getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Obtains the type of the edge.
+     * @return the type.
+     */
+    public int getType()
+    {
+        return type;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+import java.util.Random;
+
+/**
+ * Partially-induced edge stream sampler (PIES). The endpoints of the edges are included in a reservoir
+ * of nodes of fixed size, with the probability of a reservoir sample. Besides the sampled edges, every
+ * later edge between two nodes of the reservoir is included in the sample.
+ * 
+ * Ahmed, N.K., Neville, J., Kompella, R. Network Sampling: from Static to Streaming Graphs. ACM TKDD 8(2), 2014.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class StreamInducedEdgeSampler<U> extends AbstractStreamSampler<U>
+{
+    /**
+     * Constructor.
+     * @param seed random seed, so the samples can be reproduced.
+     */
+    public StreamInducedEdgeSampler(long seed)
+    {
+        super(seed);
+    }
+
+    @Override
+    protected void process(ReservoirGraph<U> reservoir, StreamEdge<U> edge, long t, int num, Random rng)
+    {
+        U u = edge.getOrigin();
+        U v = edge.getDest();
+        boolean hasU = reservoir.containsNode(u);
+        boolean hasV = reservoir.containsNode(v);
+
+        if(reservoir.numNodes() < num) // Fill the reservoir
+        {
+            if(!hasU)
+            {
+                reservoir.addNode(u);
+            }
+            if(!hasV && reservoir.numNodes() < num)
+            {
+                reservoir.addNode(v);
+            }
+            if(reservoir.containsNode(v))
+            {
+                reservoir.addEdge(edge);
+            }
+        }
+        else if(rng.nextDouble() < (num + 0.0)/t) // Sample the edge
+        {
+            if(!hasU)
+            {
+                reservoir.removeNode(reservoir.randomNode(rng));
+                reservoir.addNode(u);
+            }
+            if(!hasV)
+            {
+                U w = reservoir.randomNode(rng);
+                while(w.equals(u) && reservoir.numNodes() > 1)
+                {
+                    w = reservoir.randomNode(rng);
+                }
+                reservoir.removeNode(w);
+                reservoir.addNode(v);
+            }
+            if(reservoir.containsNode(u) && reservoir.containsNode(v))
+            {
+                reservoir.addEdge(edge);
+            }
+        }
+        else if(hasU && hasV) // Induced edge
+        {
+            reservoir.addEdge(edge);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Stream node sampler. It keeps a uniform sample of the nodes of the stream, of fixed size,
+ * and the edges between them. Each node receives a pseudo-random priority (a hash of the node),
+ * and the nodes with the smallest priorities are kept. Since the priority of a node does not change,
+ * the sample does not depend on the number of times the node appears in the stream, and no
+ * information has to be kept about the discarded nodes.
+ * 
+ * Ahmed, N.K., Neville, J., Kompella, R. Network Sampling: from Static to Streaming Graphs. ACM TKDD 8(2), 2014.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class StreamNodeSampler<U> extends AbstractStreamSampler<U>
+{
+    /**
+     * Random seed (used for computing the priorities of the nodes).
+     */
+    private final long seed;
+    /**
+     * Nodes in the sample, sorted by decreasing priority.
+     */
+    private PriorityQueue<U> queue;
+
+    /**
+     * Constructor.
+     * @param seed random seed, so the samples can be reproduced.
+     */
+    public StreamNodeSampler(long seed)
+    {
+        super(seed);
+        this.seed = seed;
+    }
+
+    @Override
+    protected void initialize(int num)
+    {
+        this.queue = new PriorityQueue<>(Math.max(num, 1), (x,y) -> Long.compareUnsigned(this.priority(y), this.priority(x)));
+    }
+
+    @Override
+    protected void process(ReservoirGraph<U> reservoir, StreamEdge<U> edge, long t, int num, Random rng)
+    {
+        this.offer(reservoir, edge.getOrigin(), num);
+        this.offer(reservoir, edge.getDest(), num);
+
+        if(reservoir.containsNode(edge.getOrigin()) && reservoir.containsNode(edge.getDest()))
+        {
+            reservoir.addEdge(edge);
+        }
+    }
+
+    /**
+     * Tries to include a node in the sample.
+     * @param reservoir the sample under construction.
+     * @param u the node.
+     * @param num the maximum number of nodes in the sample.
+     */
+    private void offer(ReservoirGraph<U> reservoir, U u, int num)
+    {
+        if(reservoir.containsNode(u))
+        {
+            return;
+        }
+
+        if(reservoir.numNodes() < num)
+        {
+            reservoir.addNode(u);
+            this.queue.add(u);
+        }
+        else if(Long.compareUnsigned(this.priority(u), this.priority(this.queue.peek())) < 0)
+        {
+            reservoir.removeNode(this.queue.poll());
+            reservoir.addNode(u);
+            this.queue.add(u);
+        }
+    }
+
+    /**
+     * Computes the priority of a node.
+     * @param u the node.
+     * @return the priority.
+     */
+    private long priority(U u)
+    {
+        // SplitMix64 finalizer over the hash of the node.
+        long z = u.hashCode() + this.seed * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+import es.uam.eps.ir.socialnetwork.graph.Graph;
+
+/**
+ * Interface for the classes that generate subsamples of a graph by reading its edges
+ * as a stream, only once, and keeping in memory just the sample.
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public interface StreamSampler<U>
+{
+    /**
+     * Generates a subsample from a stream of edges.
+     * @param stream the stream of edges.
+     * @param num the maximum number of nodes/edges in the sample (depending on the method).
+     * @return the required subsample, or null if an error ocurred.
+     */
+    public Graph<U> sample(EdgeStream<U> stream, int num);
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+import java.util.Random;
+
+/**
+ * Triangle-preserving stream edge sampler. It keeps a reservoir of edges of fixed size. Edges are included
+ * in the reservoir with the probability of a reservoir sample, as in the TRIEST algorithm but, in addition, every edge
+ * which closes a triangle in the current sample is included, replacing (if possible) an edge which
+ * does not take part in any triangle. This way, the clustering of the original network is better preserved.
+ * 
+ * De Stefani, L., Epasto, A., Riondato, M., Upfal, E. TRIEST: Counting Local and Global Triangles in Fully-Dynamic Streams with Fixed Memory Size. KDD 2016.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class StreamTriangleSampler<U> extends AbstractStreamSampler<U>
+{
+    /**
+     * Maximum number of edges to examine when looking for an edge which does not take part in any triangle.
+     */
+    private final int maxTries;
+
+    /**
+     * Constructor.
+     * @param seed random seed, so the samples can be reproduced.
+     * @param maxTries maximum number of random edges to examine when looking for an edge which does not take part in any triangle.
+     */
+    public StreamTriangleSampler(long seed, int maxTries)
+    {
+        super(seed);
+        this.maxTries = maxTries;
+    }
+
+    @Override
+    protected void process(ReservoirGraph<U> reservoir, StreamEdge<U> edge, long t, int num, Random rng)
+    {
+        U u = edge.getOrigin();
+        U v = edge.getDest();
+        if(reservoir.getEdge(u, v) != null)
+        {
+            return;
+        }
+
+        if(reservoir.numEdges() < num) // Fill the reservoir
+        {
+            this.add(reservoir, edge);
+        }
+        else if(reservoir.haveCommonNeighbour(u, v)) // The edge closes a triangle
+        {
+            StreamEdge<U> victim = null;
+            for(int i = 0; i < maxTries && victim == null; ++i)
+            {
+                StreamEdge<U> candidate = reservoir.randomEdge(rng);
+                if(!reservoir.haveCommonNeighbour(candidate.getOrigin(), candidate.getDest()))
+                {
+                    victim = candidate;
+                }
+            }
+
+            if(victim != null)
+            {
+                this.remove(reservoir, victim);
+                this.add(reservoir, edge);
+            }
+            else if(rng.nextDouble() < (num + 0.0)/t)
+            {
+                this.remove(reservoir, reservoir.randomEdge(rng));
+                this.add(reservoir, edge);
+            }
+        }
+        else if(rng.nextDouble() < (num + 0.0)/t) // Sample the edge
+        {
+            this.remove(reservoir, reservoir.randomEdge(rng));
+            this.add(reservoir, edge);
+        }
+    }
+
+    /**
+     * Adds an edge, and its endpoints, to the reservoir.
+     * @param reservoir the sample under construction.
+     * @param edge the edge.
+     */
+    private void add(ReservoirGraph<U> reservoir, StreamEdge<U> edge)
+    {
+        reservoir.addNode(edge.getOrigin());
+        reservoir.addNode(edge.getDest());
+        reservoir.addEdge(edge);
+    }
+
+    /**
+     * Removes an edge from the reservoir, and its endpoints, if they become isolated.
+     * @param reservoir the sample under construction.
+     * @param edge the edge.
+     */
+    private void remove(ReservoirGraph<U> reservoir, StreamEdge<U> edge)
+    {
+        reservoir.removeEdge(edge);
+        if(reservoir.isIsolated(edge.getOrigin()))
+        {
+            reservoir.removeNode(edge.getOrigin());
+        }
+        if(reservoir.isIsolated(edge.getDest()))
+        {
+            reservoir.removeNode(edge.getDest());
+        }
+    }
+}
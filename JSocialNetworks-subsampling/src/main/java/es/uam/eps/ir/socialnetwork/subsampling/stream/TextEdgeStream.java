@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.function.Consumer;
+import org.ranksys.formats.parsing.Parser;
+import org.ranksys.formats.parsing.Parsers;
+
+/**
+ * Reads the edges of a graph, one by one, from a file.
+ * 
+ * The read format is the same as the one of the text graph reader:
+ * 
+ * userA userB (weight) (types)
+ * 
+ * where the weight must appear only if the graph is weighted, and the type must only appear
+ * if it is going to be read. Columns are separated by a certain delimiter.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ * @param <U> Type of the users.
+ */
+public class TextEdgeStream<U> implements EdgeStream<U>
+{
+    /**
+     * The file containing the edges.
+     */
+    private final String file;
+    /**
+     * Indicates if the graph to read is directed (true) or not (false)
+     */
+    private final boolean directed;
+    /**
+     * Indicates if the graph to read is weighted (true) or not (false)
+     */
+    private final boolean weighted;
+    /**
+     * Indicates if the graph to read allows autoloops (true) or not (false)
+     */
+    private final boolean selfloops;
+    /**
+     * Indicates if the types of the edges have to be read (true) or not (false)
+     */
+    private final boolean readTypes;
+    /**
+     * File delimiter
+     */
+    private final String delimiter;
+    /**
+     * Parser for reading the users
+     */
+    private final Parser<U> uParser;
+
+    /**
+     * Constructor.
+     * @param file the file containing the edges.
+     * @param directed Indicates if the graph to read is directed (true) or not (false)
+     * @param weighted Indicates if the graph to read is weighted (true) or not (false)
+     * @param selfloops Indicates if the graph to read allows autoloops (true) or not (false)
+     * @param readTypes Indicates if the types of the edges have to be read (true) or not (false)
+     * @param delimiter File delimiter
+     * @param uParser Parser for reading the users
+     */
+    public TextEdgeStream(String file, boolean directed, boolean weighted, boolean selfloops, boolean readTypes, String delimiter, Parser<U> uParser)
+    {
+        this.file = file;
+        this.directed = directed;
+        this.weighted = weighted;
+        this.selfloops = selfloops;
+        this.readTypes = readTypes;
+        this.delimiter = delimiter;
+        this.uParser = uParser;
+    }
+
+    @Override
+    public boolean forEach(Consumer<StreamEdge<U>> consumer)
+    {
+        try(BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file))))
+        {
+            String line;
+            while((line = br.readLine()) != null)
+            {
+                String[] splits = line.split(delimiter);
+                U origin = uParser.parse(splits[0]);
+                U destiny = uParser.parse(splits[1]);
+
+                if(!origin.equals(destiny) || selfloops)
+                {
+                    double weight = 1.0;
+                    int type = 0;
+                    if(weighted)
+                    {
+                        weight = Parsers.dp.parse(splits[2]);
+                    }
+
+                    if(readTypes && weighted)
+                    {
+                        type = Parsers.ip.parse(splits[3]);
+                    }
+                    else if(readTypes)
+                    {
+                        type = Parsers.ip.parse(splits[2]);
+                    }
+
+                    consumer.accept(new StreamEdge<>(origin, destiny, weight, type));
+                }
+            }
+            return true;
+        }
+        catch(IOException ioe)
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isDirected()
+    {
+        return directed;
+    }
+
+    @Override
+    public boolean isWeighted()
+    {
+        return weighted;
+    }
+}
@@ -0,0 +1,13 @@
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+/**
+ * Samplers which read the edges of a graph as a stream, keeping only the sample in memory.
+ */
+package es.uam.eps.ir.socialnetwork.subsampling.stream;
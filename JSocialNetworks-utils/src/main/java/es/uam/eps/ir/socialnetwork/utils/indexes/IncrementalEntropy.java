@@ -0,0 +1,102 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.utils.indexes;
+
+import java.io.Serializable;
+
+/**
+ * Incremental computation of the entropy of a collection of values which changes over time. The entropy is 
+ * computed as log(S) - (sum_i x_i log(x_i))/S, where S is the sum of the values, so only these two sums are
+ * maintained, and each change takes constant time.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class IncrementalEntropy implements Serializable
+{
+    /**
+     * Sum of the values.
+     */
+    private double sum;
+    /**
+     * Sum of x log_2(x) for all the values x.
+     */
+    private double xlogx;
+    
+    /**
+     * Constructor. Builds an empty collection.
+     */
+    public IncrementalEntropy()
+    {
+        this.sum = 0.0;
+        this.xlogx = 0.0;
+    }
+    
+    /**
+     * Adds a value.
+     * @param value the value.
+     */
+    public void add(double value)
+    {
+        this.sum += value;
+        this.xlogx += xlogx(value);
+    }
+    
+    /**
+     * Removes a value.
+     * @param value the value.
+     */
+    public void remove(double value)
+    {
+        this.sum -= value;
+        this.xlogx -= xlogx(value);
+    }
+    
+    /**
+     * Replaces a value by another one.
+     * @param oldValue the old value.
+     * @param newValue the new value.
+     */
+    public void update(double oldValue, double newValue)
+    {
+        this.remove(oldValue);
+        this.add(newValue);
+    }
+    
+    /**
+     * Obtains the sum of the values.
+     * @return the sum of the values.
+     */
+    public double getSum()
+    {
+        return this.sum;
+    }
+    
+    /**
+     * Obtains the value of the entropy (in bits).
+     * @return the entropy (0 if all the values are zero).
+     */
+    public double getValue()
+    {
+        if(this.sum <= 0.0)
+        {
+            return 0.0;
+        }
+        return Math.log(this.sum)/Math.log(2.0) - this.xlogx/this.sum;
+    }
+    
+    /**
+     * Computes x log_2(x).
+     * @param x the value.
+     * @return x log_2(x), 0 if x is zero.
+     */
+    private static double xlogx(double x)
+    {
+        return x == 0.0 ? 0.0 : x*Math.log(x)/Math.log(2.0);
+    }
+}
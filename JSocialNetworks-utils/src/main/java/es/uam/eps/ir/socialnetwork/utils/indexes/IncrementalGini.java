@@ -0,0 +1,378 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.utils.indexes;
+
+import java.io.Serializable;
+import java.util.SplittableRandom;
+
+/**
+ * Incremental computation of the Gini index of a collection of values which changes over time. Instead of sorting
+ * the values each time the index is computed, it maintains the sum of the absolute differences between all pairs of
+ * values, which is equal to the numerator of the Gini index. When a value is added or removed, the sum changes by the
+ * absolute differences between that value and the rest, which are obtained from the number and the sum of the values
+ * smaller than it. These are stored in an order-statistics tree (a treap, indexed by value), so each change takes
+ * logarithmic time in the number of different values.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class IncrementalGini implements Serializable
+{
+    /**
+     * Root of the tree.
+     */
+    private Node root;
+    /**
+     * Number of values.
+     */
+    private long size;
+    /**
+     * Sum of the values.
+     */
+    private double sum;
+    /**
+     * Sum of the absolute differences between all the pairs of values.
+     */
+    private double diffSum;
+    /**
+     * Random number generator for the priorities of the nodes.
+     */
+    private final SplittableRandom rng;
+    
+    /**
+     * Constructor. Builds an empty collection.
+     */
+    public IncrementalGini()
+    {
+        this.root = null;
+        this.size = 0L;
+        this.sum = 0.0;
+        this.diffSum = 0.0;
+        this.rng = new SplittableRandom(0L);
+    }
+    
+    /**
+     * Adds a value.
+     * @param value the value.
+     */
+    public void add(double value)
+    {
+        this.add(value, 1L);
+    }
+    
+    /**
+     * Adds several copies of a value.
+     * @param value the value.
+     * @param times the number of copies.
+     */
+    public void add(double value, long times)
+    {
+        if(times <= 0L)
+        {
+            return;
+        }
+        
+        this.diffSum += times*this.deviation(value);
+        this.root = this.insert(this.root, value, times);
+        this.size += times;
+        this.sum += times*value;
+    }
+    
+    /**
+     * Removes a value. If the value is not in the collection, nothing is done.
+     * @param value the value.
+     * @return true if the value has been removed, false otherwise.
+     */
+    public boolean remove(double value)
+    {
+        long before = this.size;
+        this.root = this.delete(this.root, value);
+        if(before == this.size)
+        {
+            return false;
+        }
+        
+        this.sum -= value;
+        this.diffSum -= this.deviation(value);
+        return true;
+    }
+    
+    /**
+     * Replaces a value by another one.
+     * @param oldValue the old value.
+     * @param newValue the new value.
+     */
+    public void update(double oldValue, double newValue)
+    {
+        if(oldValue != newValue && this.remove(oldValue))
+        {
+            this.add(newValue);
+        }
+    }
+    
+    /**
+     * Obtains the number of values.
+     * @return the number of values.
+     */
+    public long getSize()
+    {
+        return this.size;
+    }
+    
+    /**
+     * Obtains the sum of the values.
+     * @return the sum of the values.
+     */
+    public double getSum()
+    {
+        return this.sum;
+    }
+    
+    /**
+     * Obtains the sum of the absolute differences between all the (unordered) pairs of values. For
+     * values sorted in ascending order, it is equal to sum_i (2i - n - 1) x_i.
+     * @return the sum of the differences.
+     */
+    public double getDifferenceSum()
+    {
+        return this.diffSum;
+    }
+    
+    /**
+     * Obtains the value of the Gini index.
+     * @return the value of the Gini index (0 if there are less than two values, or all of them are zero).
+     */
+    public double getValue()
+    {
+        if(this.size <= 1L || this.sum == 0.0)
+        {
+            return 0.0;
+        }
+        return this.diffSum/((this.size - 1.0)*this.sum);
+    }
+    
+    /**
+     * Computes the sum of the absolute differences between a value and all the values in the collection.
+     * @param value the value.
+     * @return the sum of the absolute differences.
+     */
+    private double deviation(double value)
+    {
+        // Number and sum of the values smaller than or equal to the given one.
+        long count = 0L;
+        double lower = 0.0;
+        Node node = this.root;
+        while(node != null)
+        {
+            if(value < node.key)
+            {
+                node = node.left;
+            }
+            else
+            {
+                count += node.times + (node.left == null ? 0L : node.left.count);
+                lower += node.times*node.key + (node.left == null ? 0.0 : node.left.sum);
+                if(value == node.key)
+                {
+                    break;
+                }
+                node = node.right;
+            }
+        }
+        
+        return (value*count - lower) + ((this.sum - lower) - value*(this.size - count));
+    }
+    
+    /**
+     * Inserts several copies of a value in a subtree.
+     * @param node the root of the subtree.
+     * @param value the value.
+     * @param times the number of copies.
+     * @return the new root of the subtree.
+     */
+    private Node insert(Node node, double value, long times)
+    {
+        if(node == null)
+        {
+            return new Node(value, times, this.rng.nextInt());
+        }
+        
+        if(value == node.key)
+        {
+            node.times += times;
+        }
+        else if(value < node.key)
+        {
+            node.left = this.insert(node.left, value, times);
+            if(node.left.priority > node.priority)
+            {
+                node = this.rotateRight(node);
+            }
+        }
+        else
+        {
+            node.right = this.insert(node.right, value, times);
+            if(node.right.priority > node.priority)
+            {
+                node = this.rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+    
+    /**
+     * Deletes a copy of a value from a subtree.
+     * @param node the root of the subtree.
+     * @param value the value.
+     * @return the new root of the subtree.
+     */
+    private Node delete(Node node, double value)
+    {
+        if(node == null)
+        {
+            return null;
+        }
+        
+        if(value < node.key)
+        {
+            node.left = this.delete(node.left, value);
+        }
+        else if(value > node.key)
+        {
+            node.right = this.delete(node.right, value);
+        }
+        else
+        {
+            this.size--;
+            node.times--;
+            if(node.times <= 0L)
+            {
+                return this.merge(node.left, node.right);
+            }
+        }
+        node.update();
+        return node;
+    }
+    
+    /**
+     * Merges two subtrees, where all the values in the first one are smaller than the values in the second one.
+     * @param a the first subtree.
+     * @param b the second subtree.
+     * @return the root of the merged tree.
+     */
+    private Node merge(Node a, Node b)
+    {
+        if(a == null)
+        {
+            return b;
+        }
+        else if(b == null)
+        {
+            return a;
+        }
+        else if(a.priority > b.priority)
+        {
+            a.right = this.merge(a.right, b);
+            a.update();
+            return a;
+        }
+        else
+        {
+            b.left = this.merge(a, b.left);
+            b.update();
+            return b;
+        }
+    }
+    
+    /**
+     * Rotates a subtree to the right.
+     * @param node the root of the subtree.
+     * @return the new root of the subtree.
+     */
+    private Node rotateRight(Node node)
+    {
+        Node left = node.left;
+        node.left = left.right;
+        node.update();
+        left.right = node;
+        return left;
+    }
+    
+    /**
+     * Rotates a subtree to the left.
+     * @param node the root of the subtree.
+     * @return the new root of the subtree.
+     */
+    private Node rotateLeft(Node node)
+    {
+        Node right = node.right;
+        node.right = right.left;
+        node.update();
+        right.left = node;
+        return right;
+    }
+    
+    /**
+     * Node of the tree: a different value, along with its number of copies.
+     */
+    private static class Node implements Serializable
+    {
+        /**
+         * The value.
+         */
+        private final double key;
+        /**
+         * The number of copies of the value.
+         */
+        private long times;
+        /**
+         * The priority of the node (greater priorities are closer to the root).
+         */
+        private final int priority;
+        /**
+         * Number of values in the subtree.
+         */
+        private long count;
+        /**
+         * Sum of the values in the subtree.
+         */
+        private double sum;
+        /**
+         * Left subtree (smaller values).
+         */
+        private Node left;
+        /**
+         * Right subtree (greater values).
+         */
+        private Node right;
+        
+        /**
+         * Constructor.
+         * @param key the value.
+         * @param times the number of copies of the value.
+         * @param priority the priority of the node.
+         */
+        public Node(double key, long times, int priority)
+        {
+            this.key = key;
+            this.times = times;
+            this.priority = priority;
+            this.update();
+        }
+        
+        /**
+         * Updates the number and the sum of the values in the subtree.
+         */
+        private void update()
+        {
+            this.count = this.times + (this.left == null ? 0L : this.left.count) + (this.right == null ? 0L : this.right.count);
+            this.sum = this.times*this.key + (this.left == null ? 0.0 : this.left.sum) + (this.right == null ? 0.0 : this.right.sum);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/* 
+ *  Copyright (C) 2016 Information Retrieval Group at Universidad Autónoma
+ *  de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package es.uam.eps.ir.socialnetwork.utils.indexes;
+
+import java.io.Serializable;
+
+/**
+ * Incremental computation of the KL divergence between two distributions which change over time
+ * (see {@link KLDivergence}), in both directions. Each element of the support is a pair (p, q) of non-normalized 
+ * values. The divergence KL(P||Q) is equal to (sum_i p_i log(p_i) - sum_i p_i log(q_i))/S_P - log(S_P) + log(S_Q),
+ * where the sums only consider the elements with p_i &gt; 0, and S_P, S_Q are the sums of the values. Only these sums 
+ * are maintained, so each change takes constant time.
+ * 
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class IncrementalKLDivergence implements Serializable
+{
+    /**
+     * Sum of the values of P.
+     */
+    private double sumP;
+    /**
+     * Sum of the values of Q.
+     */
+    private double sumQ;
+    /**
+     * Sum of p log_2(p) for the elements with p &gt; 0.
+     */
+    private double plogp;
+    /**
+     * Sum of p log_2(q) for the elements with p &gt; 0 and q &gt; 0.
+     */
+    private double plogq;
+    /**
+     * Sum of q log_2(q) for the elements with q &gt; 0.
+     */
+    private double qlogq;
+    /**
+     * Sum of q log_2(p) for the elements with q &gt; 0 and p &gt; 0.
+     */
+    private double qlogp;
+    /**
+     * Number of elements with p &gt; 0 and q = 0 (which make KL(P||Q) infinite).
+     */
+    private long infinite;
+    /**
+     * Number of elements with q &gt; 0 and p = 0 (which make KL(Q||P) infinite).
+     */
+    private long inverseInfinite;
+    
+    /**
+     * Constructor. Builds an empty support.
+     */
+    public IncrementalKLDivergence()
+    {
+        this.sumP = 0.0;
+        this.sumQ = 0.0;
+        this.plogp = 0.0;
+        this.plogq = 0.0;
+        this.qlogq = 0.0;
+        this.qlogp = 0.0;
+        this.infinite = 0L;
+        this.inverseInfinite = 0L;
+    }
+    
+    /**
+     * Adds an element to the support.
+     * @param p the value of the element in P.
+     * @param q the value of the element in Q.
+     */
+    public void add(double p, double q)
+    {
+        this.change(p, q, 1);
+    }
+    
+    /**
+     * Removes an element from the support.
+     * @param p the value of the element in P.
+     * @param q the value of the element in Q.
+     */
+    public void remove(double p, double q)
+    {
+        this.change(p, q, -1);
+    }
+    
+    /**
+     * Modifies the values of an element of the support.
+     * @param oldP the old value of the element in P.
+     * @param oldQ the old value of the element in Q.
+     * @param newP the new value of the element in P.
+     * @param newQ the new value of the element in Q.
+     */
+    public void update(double oldP, double oldQ, double newP, double newQ)
+    {
+        this.remove(oldP, oldQ);
+        this.add(newP, newQ);
+    }
+    
+    /**
+     * Obtains the divergence KL(P||Q).
+     * @return the value of the divergence (NaN if any of the distributions is empty).
+     */
+    public double getValue()
+    {
+        return divergence(this.sumP, this.sumQ, this.plogp, this.plogq, this.infinite);
+    }
+    
+    /**
+     * Obtains the divergence KL(Q||P).
+     * @return the value of the divergence (NaN if any of the distributions is empty).
+     */
+    public double getInverseValue()
+    {
+        return divergence(this.sumQ, this.sumP, this.qlogq, this.qlogp, this.inverseInfinite);
+    }
+    
+    /**
+     * Adds or removes the terms of an element.
+     * @param p the value of the element in P.
+     * @param q the value of the element in Q.
+     * @param sign 1 for adding the element, -1 for removing it.
+     */
+    private void change(double p, double q, int sign)
+    {
+        this.sumP += sign*p;
+        this.sumQ += sign*q;
+        if(p > 0.0)
+        {
+            this.plogp += sign*p*log(p);
+            if(q > 0.0)
+            {
+                this.plogq += sign*p*log(q);
+            }
+            else
+            {
+                this.infinite += sign;
+            }
+        }
+        if(q > 0.0)
+        {
+            this.qlogq += sign*q*log(q);
+            if(p > 0.0)
+            {
+                this.qlogp += sign*q*log(p);
+            }
+            else
+            {
+                this.inverseInfinite += sign;
+            }
+        }
+    }
+    
+    /**
+     * Computes the divergence from the accumulated sums.
+     * @param sumA the sum of the first distribution.
+     * @param sumB the sum of the second distribution.
+     * @param alogA the sum of a log_2(a) for the first distribution.
+     * @param alogB the sum of a log_2(b).
+     * @param inf the number of elements with a &gt; 0 and b = 0.
+     * @return the value of the divergence.
+     */
+    private static double divergence(double sumA, double sumB, double alogA, double alogB, long inf)
+    {
+        if(sumA <= 0.0 || sumB <= 0.0)
+        {
+            return Double.NaN;
+        }
+        else if(inf > 0L)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (alogA - alogB)/sumA - log(sumA) + log(sumB);
+    }
+    
+    /**
+     * Computes the binary logarithm of a value.
+     * @param x the value.
+     * @return the binary logarithm.
+     */
+    private static double log(double x)
+    {
+        return Math.log(x)/Math.log(2.0);
+    }
+}
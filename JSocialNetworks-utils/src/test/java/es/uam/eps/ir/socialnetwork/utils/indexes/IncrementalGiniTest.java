@@ -0,0 +1,112 @@
+package es.uam.eps.ir.socialnetwork.utils.indexes;
+
+/*
+ * Copyright (C) 2017 Information Retrieval Group at Universidad Aut�noma
+ * de Madrid, http://ir.ii.uam.es
+ * 
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for the incremental Gini index.
+ * @author Javier Sanz-Cruzado Puig
+ */
+public class IncrementalGiniTest 
+{
+    @Test
+    public void incrementalGiniTest()
+    {
+        GiniIndex gini = new GiniIndex();
+        IncrementalGini incr = new IncrementalGini();
+        List<Double> list = new ArrayList<>();
+        
+        // Empty and single-valued collections.
+        Assert.assertEquals(0.0, incr.getValue(), 10e-4);
+        incr.add(1.0);
+        Assert.assertEquals(0.0, incr.getValue(), 10e-4);
+        
+        // All the values start at zero.
+        incr = new IncrementalGini();
+        incr.add(0.0, 50);
+        for(int i = 0; i < 50; ++i)
+        {
+            list.add(0.0);
+        }
+        Assert.assertEquals(0.0, incr.getValue(), 10e-4);
+        
+        // Random updates.
+        Random rng = new Random(0L);
+        for(int i = 0; i < 2000; ++i)
+        {
+            int idx = rng.nextInt(list.size());
+            double oldValue = list.get(idx);
+            double newValue = oldValue + rng.nextInt(5);
+            list.set(idx, newValue);
+            incr.update(oldValue, newValue);
+            
+            if(i % 100 == 0)
+            {
+                Assert.assertEquals(gini.compute(list, true), incr.getValue(), 10e-6);
+            }
+        }
+        
+        // Random additions and removals.
+        for(int i = 0; i < 500; ++i)
+        {
+            if(rng.nextBoolean() && list.size() > 2)
+            {
+                double value = list.remove(rng.nextInt(list.size()));
+                Assert.assertTrue(incr.remove(value));
+            }
+            else
+            {
+                double value = rng.nextInt(20) + 0.0;
+                list.add(value);
+                incr.add(value);
+            }
+            Assert.assertEquals(list.size(), incr.getSize());
+        }
+        Assert.assertEquals(gini.compute(list, true), incr.getValue(), 10e-6);
+        Assert.assertFalse(incr.remove(-1.0));
+        
+        // Sum of the differences.
+        incr = new IncrementalGini();
+        incr.add(0.0);
+        incr.add(1.0);
+        Assert.assertEquals(1.0, incr.getDifferenceSum(), 10e-4);
+        Assert.assertEquals(1.0, incr.getValue(), 10e-4);
+    }
+    
+    @Test
+    public void incrementalEntropyTest()
+    {
+        Entropy entropy = new Entropy();
+        IncrementalEntropy incr = new IncrementalEntropy();
+        List<Double> list = new ArrayList<>();
+        for(int i = 0; i < 20; ++i)
+        {
+            list.add(0.0);
+            incr.add(0.0);
+        }
+        
+        Random rng = new Random(0L);
+        for(int i = 0; i < 200; ++i)
+        {
+            int idx = rng.nextInt(list.size());
+            double oldValue = list.get(idx);
+            double newValue = oldValue + rng.nextInt(5);
+            list.set(idx, newValue);
+            incr.update(oldValue, newValue);
+        }
+        
+        Assert.assertEquals(entropy.compute(list, incr.getSum()), incr.getValue(), 10e-6);
+    }
+}